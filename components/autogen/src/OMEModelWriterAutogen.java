@@ -0,0 +1,558 @@
+//
+// OMEModelWriterAutogen.java
+//
+
+/*
+Bio-Formats autogen package for programmatically generating source code.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Automatically generates ome.xml.model.OMEModelWriter, the streaming
+ * serializer for the OME-XML model.
+ *
+ * The generated model classes are the specification: the body of each
+ * class's asXMLElement(Document, Element) method is parsed to find which
+ * attributes, text, child elements and references the class writes, and in
+ * which order, and equivalent calls to the AbstractOMEModelWriter methods
+ * are generated.  Classes with custom content are written through their
+ * DOM.  Rerun this whenever the model classes are regenerated.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/autogen/src/OMEModelWriterAutogen.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/autogen/src/OMEModelWriterAutogen.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class OMEModelWriterAutogen {
+
+  // -- Constants --
+
+  private static final String WRITER = "OMEModelWriter";
+
+  private static final Pattern CLASS = Pattern.compile(
+    "^public (abstract )?class (\\w+) extends (\\w+)");
+  private static final Pattern FIELD = Pattern.compile(
+    "^\\tprivate (\\w+) (\\w+);");
+  private static final Pattern GETTER = Pattern.compile(
+    "public \\w+ (\\w+)\\(\\)\\s*\\{\\s*return (\\w+);");
+  private static final Pattern SIZE = Pattern.compile(
+    "public int (\\w+)\\(\\)\\s*\\{\\s*return (\\w+)\\.size\\(\\);");
+  private static final Pattern INDEXED_GETTER = Pattern.compile(
+    "public \\w+ (\\w+)\\(int index\\)\\s*\\{\\s*" +
+    "return (\\w+)\\.get\\(index\\);");
+
+  private static final Pattern ATTRIBUTE = Pattern.compile(
+    "\\.setAttribute\\(\"(\\w+)\", (\\w+)\\.toString\\(\\)\\)");
+  private static final Pattern TEXT = Pattern.compile(
+    "\\.setTextContent\\((\\w+)\\.toString\\(\\)\\)");
+  private static final Pattern SIMPLE_ELEMENT = Pattern.compile(
+    "createElementNS\\(NAMESPACE, \"(\\w+)\"\\)");
+  private static final Pattern CHILD = Pattern.compile(
+    "appendChild\\((\\w+)\\.asXMLElement\\(document\\)\\)");
+  private static final Pattern LOOP = Pattern.compile(
+    "for \\((\\w+) \\w+ : (\\w+)\\)");
+  private static final Pattern REFERENCE = Pattern.compile(
+    "^\\t+(\\w+) o = new \\w+\\(\\);");
+  private static final Pattern REFERENCE_ID = Pattern.compile(
+    "o\\.setID\\((\\w+)\\.getID\\(\\)\\)");
+
+  // -- Fields --
+
+  /** Model classes, by name. */
+  private Map<String, ModelClass> classes = new TreeMap<String, ModelClass>();
+
+  // -- Constructor --
+
+  public OMEModelWriterAutogen(File modelDir) throws IOException {
+    String[] names = modelDir.list();
+    Arrays.sort(names);
+    for (String name : names) {
+      if (!name.endsWith(".java") || name.equals(WRITER + ".java")) continue;
+      ModelClass c = parse(new File(modelDir, name));
+      if (c != null) classes.put(c.name, c);
+    }
+    for (ModelClass c : classes.values()) {
+      c.parent = classes.get(c.superName);
+      for (ModelClass p = c.parent; p != null; p = p.parent) {
+        p.subclasses.add(c);
+      }
+    }
+  }
+
+  // -- Main method --
+
+  public static void main(String[] args) throws IOException {
+    if (args.length == 0) {
+      System.out.println("Usage: java OMEModelWriterAutogen model-dir");
+      System.out.println(
+        "    E.g.: java OMEModelWriterAutogen ome-xml/src/ome/xml/model");
+      System.exit(1);
+    }
+    File modelDir = new File(args[0]);
+    OMEModelWriterAutogen autogen = new OMEModelWriterAutogen(modelDir);
+    File out = new File(modelDir, WRITER + ".java");
+    PrintWriter w = new PrintWriter(new FileWriter(out));
+    autogen.generate(w);
+    w.close();
+    System.out.println("Wrote " + out);
+  }
+
+  // -- OMEModelWriterAutogen API methods --
+
+  /** Writes the source of the generated class. */
+  public void generate(PrintWriter w) {
+    w.println("/*");
+    w.println(" * ome.xml.model." + WRITER);
+    w.println(" *");
+    w.println(" *-------------------------------------------------------" +
+      "----------------------");
+    w.println(" *");
+    w.println(" *  Copyright (C) @year@ Open Microscopy Environment");
+    w.println(" *      Massachusetts Institute of Technology,");
+    w.println(" *      National Institutes of Health,");
+    w.println(" *      University of Dundee,");
+    w.println(" *      University of Wisconsin-Madison");
+    w.println(" *");
+    w.println(" *");
+    w.println(" *");
+    w.println(" *    This library is free software; you can redistribute " +
+      "it and/or");
+    w.println(" *    modify it under the terms of the GNU Lesser General " +
+      "Public");
+    w.println(" *    License as published by the Free Software Foundation;" +
+      " either");
+    w.println(" *    version 2.1 of the License, or (at your option) any " +
+      "later version.");
+    w.println(" *");
+    w.println(" *    This library is distributed in the hope that it will " +
+      "be useful,");
+    w.println(" *    but WITHOUT ANY WARRANTY; without even the implied " +
+      "warranty of");
+    w.println(" *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  " +
+      "See the GNU");
+    w.println(" *    Lesser General Public License for more details.");
+    w.println(" *");
+    w.println(" *    You should have received a copy of the GNU Lesser " +
+      "General Public");
+    w.println(" *    License along with this library; if not, write to the " +
+      "Free Software");
+    w.println(" *    Foundation, Inc., 59 Temple Place, Suite 330, Boston, " +
+      "MA  02111-1307  USA");
+    w.println(" *");
+    w.println(" *-------------------------------------------------------" +
+      "----------------------");
+    w.println(" */");
+    w.println();
+    w.println("/*-------------------------------------------------------" +
+      "----------------------");
+    w.println(" *");
+    w.println(" * THIS IS AUTOMATICALLY GENERATED CODE.  DO NOT MODIFY.");
+    w.println(" * Created by OMEModelWriterAutogen from the model classes " +
+      "in this package");
+    w.println(" *");
+    w.println(" *-------------------------------------------------------" +
+      "----------------------");
+    w.println(" */");
+    w.println();
+    w.println("package ome.xml.model;");
+    w.println();
+    w.println("import java.io.IOException;");
+    w.println("import java.io.OutputStream;");
+    w.println("import java.io.Writer;");
+    w.println();
+    w.println("/**");
+    w.println(" * Streams the OME-XML model to a character or byte stream, " +
+      "without");
+    w.println(" * building a DOM.");
+    w.println(" */");
+    w.println("public class " + WRITER + " extends AbstractOMEModelWriter");
+    w.println("{");
+    w.println("\t// -- Constructors --");
+    w.println();
+    w.println("\tpublic " + WRITER + "(OutputStream out) throws IOException");
+    w.println("\t{");
+    w.println("\t\tsuper(out);");
+    w.println("\t}");
+    w.println();
+    w.println("\tpublic " + WRITER + "(Writer out)");
+    w.println("\t{");
+    w.println("\t\tsuper(out);");
+    w.println("\t}");
+    w.println();
+    w.println("\t// -- AbstractOMEModelWriter API methods --");
+    w.println();
+    w.println("\tpublic void writeObject(OMEModelObject o) throws IOException");
+    w.println("\t{");
+    List<ModelClass> all = new ArrayList<ModelClass>(classes.values());
+    writeDispatch(w, all);
+    w.println("\t\twriteDOM(o);");
+    w.println("\t}");
+    w.println();
+    w.println("\t// -- " + WRITER + " API methods --");
+    for (ModelClass c : classes.values()) {
+      w.println();
+      writeClassMethod(w, c);
+    }
+    w.println();
+    w.println("\t// -- Helper methods --");
+    for (ModelClass c : classes.values()) {
+      if (c.attributes.size() > 0) {
+        w.println();
+        w.println("\tprivate void write" + c.name + "Attributes(" +
+          c.name + " o)");
+        w.println("\t{");
+        for (Property p : c.attributes) {
+          w.println("\t\tif (o." + p.getter + "() != null)");
+          w.println("\t\t{");
+          w.println("\t\t\tattribute(\"" + p.name + "\", o." + p.getter +
+            "().toString());");
+          w.println("\t\t}");
+        }
+        w.println("\t}");
+      }
+      if (c.content.size() > 0) {
+        w.println();
+        w.println("\tprivate void write" + c.name + "Content(" + c.name +
+          " o) throws IOException");
+        w.println("\t{");
+        for (Property p : c.content) writeContent(w, c, p);
+        w.println("\t}");
+      }
+    }
+    w.println("}");
+  }
+
+  // -- Helper methods --
+
+  private void writeDispatch(PrintWriter w, List<ModelClass> candidates) {
+    List<ModelClass> sorted = new ArrayList<ModelClass>();
+    for (ModelClass c : candidates) {
+      if (!c.isAbstract) sorted.add(c);
+    }
+    // most derived classes first
+    for (int i=0; i<sorted.size(); i++) {
+      for (int j=sorted.size()-1; j>i; j--) {
+        if (sorted.get(j).depth() > sorted.get(j - 1).depth()) {
+          sorted.add(j - 1, sorted.remove(j));
+        }
+      }
+    }
+    for (ModelClass c : sorted) {
+      w.println("\t\tif (o instanceof " + c.name + ")");
+      w.println("\t\t{");
+      w.println("\t\t\twrite" + c.name + "((" + c.name + ") o);");
+      w.println("\t\t\treturn;");
+      w.println("\t\t}");
+    }
+  }
+
+  private void writeClassMethod(PrintWriter w, ModelClass c) {
+    w.println("\tpublic void write" + c.name + "(" + c.name +
+      " o) throws IOException");
+    w.println("\t{");
+    if (c.subclasses.size() > 0) writeDispatch(w, c.subclasses);
+
+    List<ModelClass> chain = new ArrayList<ModelClass>();
+    boolean custom = false;
+    int container = -1;
+    for (ModelClass k = c; k != null; k = k.parent) {
+      if (k.container && container < 0 && k != c) container = chain.size();
+      custom |= k.custom;
+      chain.add(k);
+    }
+    if (c.isAbstract || custom) {
+      w.println("\t\twriteDOM(o);");
+      w.println("\t}");
+      return;
+    }
+    if (container < 0) {
+      w.println("\t\tstartElement(" + c.name + ".NAMESPACE, \"" + c.name +
+        "\");");
+      writeCalls(w, chain, 0, chain.size(), "Attributes");
+      writeCalls(w, chain, 0, chain.size(), "Content");
+      w.println("\t\tendElement(\"" + c.name + "\");");
+    }
+    else {
+      ModelClass k = chain.get(container);
+      w.println("\t\tstartElement(" + k.name + ".NAMESPACE, \"" + k.name +
+        "\");");
+      writeCalls(w, chain, container, chain.size(), "Attributes");
+      w.println("\t\tstartElement(" + c.name + ".NAMESPACE, \"" + c.name +
+        "\");");
+      writeCalls(w, chain, 0, container, "Attributes");
+      writeCalls(w, chain, 0, container, "Content");
+      w.println("\t\tendElement(\"" + c.name + "\");");
+      writeCalls(w, chain, container, chain.size(), "Content");
+      w.println("\t\tendElement(\"" + k.name + "\");");
+    }
+    w.println("\t}");
+  }
+
+  private void writeCalls(PrintWriter w, List<ModelClass> chain, int start,
+    int end, String suffix)
+  {
+    for (int i=start; i<end; i++) {
+      ModelClass k = chain.get(i);
+      List<Property> list =
+        suffix.equals("Attributes") ? k.attributes : k.content;
+      if (list.size() > 0) {
+        w.println("\t\twrite" + k.name + suffix + "(o);");
+      }
+    }
+  }
+
+  private void writeContent(PrintWriter w, ModelClass c, Property p) {
+    switch (p.kind) {
+      case Property.TEXT:
+        w.println("\t\tif (o." + p.getter + "() != null)");
+        w.println("\t\t{");
+        w.println("\t\t\ttext(o." + p.getter + "().toString());");
+        w.println("\t\t}");
+        break;
+      case Property.SIMPLE_ELEMENT:
+        w.println("\t\tif (o." + p.getter + "() != null)");
+        w.println("\t\t{");
+        w.println("\t\t\ttextElement(" + c.name + ".NAMESPACE, \"" + p.name +
+          "\", o." + p.getter + "().toString());");
+        w.println("\t\t}");
+        break;
+      case Property.ELEMENT:
+        w.println("\t\tif (o." + p.getter + "() != null)");
+        w.println("\t\t{");
+        w.println("\t\t\twrite" + p.type + "(o." + p.getter + "());");
+        w.println("\t\t}");
+        break;
+      case Property.ELEMENT_LIST:
+        w.println("\t\tfor (int i = 0; i < o." + p.size + "(); i++)");
+        w.println("\t\t{");
+        w.println("\t\t\twrite" + p.type + "(o." + p.getter + "(i));");
+        w.println("\t\t}");
+        break;
+      case Property.REFERENCE:
+        w.println("\t\tif (o." + p.getter + "() != null)");
+        w.println("\t\t{");
+        w.println("\t\t\t" + p.name + " ref = new " + p.name + "();");
+        w.println("\t\t\tref.setID(o." + p.getter + "().getID());");
+        w.println("\t\t\twrite" + p.name + "(ref);");
+        w.println("\t\t}");
+        break;
+      case Property.REFERENCE_LIST:
+        w.println("\t\tfor (int i = 0; i < o." + p.size + "(); i++)");
+        w.println("\t\t{");
+        w.println("\t\t\t" + p.name + " ref = new " + p.name + "();");
+        w.println("\t\t\tref.setID(o." + p.getter + "(i).getID());");
+        w.println("\t\t\twrite" + p.name + "(ref);");
+        w.println("\t\t}");
+        break;
+      default:
+        throw new IllegalStateException("Unknown property kind: " + p.kind);
+    }
+  }
+
+  /** Parses a model class, or returns null if the file is not one. */
+  private static ModelClass parse(File file) throws IOException {
+    List<String> lines = new ArrayList<String>();
+    StringBuilder source = new StringBuilder();
+    BufferedReader in = new BufferedReader(new FileReader(file));
+    String line;
+    while ((line = in.readLine()) != null) {
+      lines.add(line);
+      source.append(line).append("\n");
+    }
+    in.close();
+    if (!source.toString().contains("AUTOMATICALLY GENERATED CODE")) {
+      return null;
+    }
+
+    ModelClass c = null;
+    Map<String, String> fieldTypes = new HashMap<String, String>();
+    for (String l : lines) {
+      Matcher m = CLASS.matcher(l);
+      if (m.find() && c == null) {
+        c = new ModelClass(m.group(2), m.group(3), m.group(1) != null);
+      }
+      m = FIELD.matcher(l);
+      if (m.find()) fieldTypes.put(m.group(2), m.group(1));
+    }
+    if (c == null) return null;
+
+    Map<String, String> getters = index(GETTER, source);
+    Map<String, String> sizes = index(SIZE, source);
+    Map<String, String> indexedGetters = index(INDEXED_GETTER, source);
+
+    int start = lines.indexOf("\tprotected Element asXMLElement(" +
+      "Document document, Element " + c.name + "_element)");
+    if (start < 0) {
+      throw new IOException("No asXMLElement method in " + file);
+    }
+    for (int i=start+1; !lines.get(i).equals("\t}"); i++) {
+      String l = lines.get(i);
+      if (l.contains("create its \"container\" element")) {
+        c.container = true;
+      }
+      else if (l.contains("BEGIN custom content")) {
+        c.custom = true;
+      }
+      else if (l.contains("// Attribute property")) {
+        Matcher m = find(ATTRIBUTE, lines, i);
+        c.attributes.add(new Property(Property.ATTRIBUTE, m.group(1),
+          getter(getters, m.group(2), file)));
+      }
+      else if (l.contains("// Element's text data")) {
+        Matcher m = find(TEXT, lines, i);
+        c.content.add(new Property(Property.TEXT, null,
+          getter(getters, m.group(1), file)));
+      }
+      else if (l.contains("// Element property") &&
+        l.contains("which is not complex"))
+      {
+        Matcher m = find(SIMPLE_ELEMENT, lines, i);
+        String name = m.group(1);
+        m = find(TEXT, lines, i);
+        c.content.add(new Property(Property.SIMPLE_ELEMENT, name,
+          getter(getters, m.group(1), file)));
+      }
+      else if (l.contains("// Element property") &&
+        l.contains("which is complex"))
+      {
+        if (lines.get(i + 1).contains("occurs more than once")) {
+          Matcher m = find(LOOP, lines, i);
+          Property p = new Property(Property.ELEMENT_LIST, null,
+            getter(indexedGetters, m.group(2), file));
+          p.type = m.group(1);
+          p.size = getter(sizes, m.group(2), file);
+          c.content.add(p);
+        }
+        else {
+          Matcher m = find(CHILD, lines, i);
+          Property p = new Property(Property.ELEMENT, null,
+            getter(getters, m.group(1), file));
+          p.type = fieldTypes.get(m.group(1));
+          c.content.add(p);
+        }
+      }
+      else if (l.contains("// Reference property")) {
+        Matcher ref = find(REFERENCE, lines, i);
+        if (l.contains("occurs more than once")) {
+          Matcher m = find(LOOP, lines, i);
+          Property p = new Property(Property.REFERENCE_LIST, ref.group(1),
+            getter(indexedGetters, m.group(2), file));
+          p.size = getter(sizes, m.group(2), file);
+          c.content.add(p);
+        }
+        else {
+          Matcher m = find(REFERENCE_ID, lines, i);
+          c.content.add(new Property(Property.REFERENCE, ref.group(1),
+            getter(getters, m.group(1), file)));
+        }
+      }
+    }
+    return c;
+  }
+
+  /** Maps each field to the name of the method which returns it. */
+  private static Map<String, String> index(Pattern p, CharSequence source) {
+    Map<String, String> map = new HashMap<String, String>();
+    Matcher m = p.matcher(source);
+    while (m.find()) {
+      if (!map.containsKey(m.group(2))) map.put(m.group(2), m.group(1));
+    }
+    return map;
+  }
+
+  private static String getter(Map<String, String> getters, String field,
+    File file) throws IOException
+  {
+    String getter = getters.get(field);
+    if (getter == null) {
+      throw new IOException("No accessor for " + field + " in " + file);
+    }
+    return getter;
+  }
+
+  /** Finds the first match of the pattern at or after the given line. */
+  private static Matcher find(Pattern p, List<String> lines, int start)
+    throws IOException
+  {
+    for (int i=start; i<lines.size(); i++) {
+      Matcher m = p.matcher(lines.get(i));
+      if (m.find()) return m;
+      String l = lines.get(i);
+      if (i > start && (l.contains(" property ") || l.contains("return super")))
+      {
+        break;
+      }
+    }
+    throw new IOException("Unexpected asXMLElement code at: " +
+      lines.get(start).trim());
+  }
+
+  // -- Helper classes --
+
+  private static class ModelClass {
+    private String name, superName;
+    private boolean isAbstract, container, custom;
+    private ModelClass parent;
+    private List<ModelClass> subclasses = new ArrayList<ModelClass>();
+    private List<Property> attributes = new ArrayList<Property>();
+    private List<Property> content = new ArrayList<Property>();
+
+    public ModelClass(String name, String superName, boolean isAbstract) {
+      this.name = name;
+      this.superName = superName;
+      this.isAbstract = isAbstract;
+    }
+
+    public int depth() {
+      return parent == null ? 0 : parent.depth() + 1;
+    }
+  }
+
+  private static class Property {
+    public static final int ATTRIBUTE = 0;
+    public static final int TEXT = 1;
+    public static final int SIMPLE_ELEMENT = 2;
+    public static final int ELEMENT = 3;
+    public static final int ELEMENT_LIST = 4;
+    public static final int REFERENCE = 5;
+    public static final int REFERENCE_LIST = 6;
+
+    private int kind;
+    private String name, getter, size, type;
+
+    public Property(int kind, String name, String getter) {
+      this.kind = kind;
+      this.name = name;
+      this.getter = getter;
+    }
+  }
+
+}
@@ -0,0 +1,140 @@
+//
+// BenchmarkData.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import loci.formats.FormatException;
+import loci.formats.IFormatReader;
+import loci.formats.IFormatWriter;
+import loci.formats.ImageWriter;
+import loci.formats.MetadataTools;
+import loci.formats.in.FakeReader;
+import loci.formats.meta.IMetadata;
+
+/**
+ * Synthesizes the inputs used by the benchmarks, so that no data files are
+ * needed.  Pixels come from {@link FakeReader}, and files are written with
+ * the standard writers.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/benchmarks/src/loci/benchmarks/BenchmarkData.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/benchmarks/src/loci/benchmarks/BenchmarkData.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public final class BenchmarkData {
+
+  // -- Constructor --
+
+  private BenchmarkData() { }
+
+  // -- Utility methods --
+
+  /**
+   * Returns the ID of a fake file with the given pixel type and dimensions.
+   * @see FakeReader
+   */
+  public static String fakeId(String pixelType, int sizeX, int sizeY,
+    int imageCount)
+  {
+    return "benchmark&pixelType=" + pixelType + "&sizeX=" + sizeX +
+      "&sizeY=" + sizeY + "&sizeZ=" + imageCount + ".fake";
+  }
+
+  /** Returns the first plane of the given fake file. */
+  public static byte[] fakePlane(String fakeId)
+    throws FormatException, IOException
+  {
+    IFormatReader reader = new FakeReader();
+    try {
+      reader.setId(fakeId);
+      return reader.openBytes(0);
+    }
+    finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Returns a plane of the given size whose values vary like a noisy
+   * gradient.  Unlike the exact gradients of {@link FakeReader}, this does
+   * not favor any particular compression scheme.
+   */
+  public static byte[] noisyPlane(int length) {
+    byte[] plane = new byte[length];
+    Random random = new Random(length);
+    for (int i=0; i<length; i++) {
+      plane[i] = (byte) ((i & 0xff) + random.nextInt(16));
+    }
+    return plane;
+  }
+
+  /**
+   * Writes the given fake file to the given file, using the writer that
+   * matches its extension.
+   * @param compression the compression type, or null for the default.
+   */
+  public static File write(String fakeId, File file, String compression)
+    throws FormatException, IOException
+  {
+    IMetadata meta = MetadataTools.createOMEXMLMetadata();
+    IFormatReader reader = new FakeReader();
+    reader.setMetadataStore(meta);
+    IFormatWriter writer = new ImageWriter();
+    try {
+      reader.setId(fakeId);
+      writer.setMetadataRetrieve(meta);
+      if (compression != null) writer.setCompression(compression);
+      writer.setId(file.getAbsolutePath());
+      for (int i=0; i<reader.getImageCount(); i++) {
+        writer.saveBytes(i, reader.openBytes(i));
+      }
+    }
+    finally {
+      writer.close();
+      reader.close();
+    }
+    return file;
+  }
+
+  /** Creates an empty temporary directory. */
+  public static File createDirectory() throws IOException {
+    File dir = File.createTempFile("bf-benchmark", "");
+    if (!dir.delete() || !dir.mkdir()) {
+      throw new IOException("Could not create " + dir);
+    }
+    return dir;
+  }
+
+  /** Deletes the given directory and everything in it. */
+  public static void delete(File file) {
+    File[] children = file.listFiles();
+    if (children != null) {
+      for (File child : children) delete(child);
+    }
+    file.delete();
+  }
+
+}
@@ -0,0 +1,164 @@
+//
+// CodecBenchmark.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.benchmarks;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.TimeUnit;
+
+import loci.formats.FormatException;
+import loci.formats.codec.Codec;
+import loci.formats.codec.CodecOptions;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures compression and decompression of one 8-bit plane with each codec
+ * in {@link loci.formats.codec}.
+ *
+ * Codecs which can only decompress are covered where a valid stream is easy
+ * to synthesize (Packbits).  The remaining decompression-only codecs need
+ * streams written by other software, and are not covered.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/benchmarks/src/loci/benchmarks/CodecBenchmark.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/benchmarks/src/loci/benchmarks/CodecBenchmark.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CodecBenchmark {
+
+  // -- Constants --
+
+  private static final int SIZE = 512;
+
+  // -- Benchmarks --
+
+  @Benchmark
+  public byte[] compress(CompressState state) throws FormatException {
+    return state.codec.compress(state.plane, state.options);
+  }
+
+  @Benchmark
+  public byte[] decompress(DecompressState state) throws FormatException {
+    return state.codec.decompress(state.compressed, state.options);
+  }
+
+  // -- Helper classes --
+
+  /** Codecs which can compress, and the plane to compress. */
+  @State(Scope.Benchmark)
+  public static class CompressState {
+    @Param({"Base64", "JPEG", "JPEG2000", "LZW", "Passthrough", "Zlib"})
+    public String codecName;
+
+    Codec codec;
+    CodecOptions options;
+    byte[] plane;
+
+    @Setup
+    public void setup() throws Exception {
+      codec = createCodec(codecName);
+      options = createOptions();
+      plane = BenchmarkData.noisyPlane(SIZE * SIZE);
+    }
+  }
+
+  /** Codecs which can decompress, and a stream to decompress. */
+  @State(Scope.Benchmark)
+  public static class DecompressState {
+    @Param({"Base64", "JPEG", "JPEG2000", "LZW", "Packbits", "Passthrough",
+      "Zlib"})
+    public String codecName;
+
+    Codec codec;
+    CodecOptions options;
+    byte[] compressed;
+
+    @Setup
+    public void setup() throws Exception {
+      codec = createCodec(codecName);
+      options = createOptions();
+      byte[] plane = BenchmarkData.noisyPlane(SIZE * SIZE);
+      compressed = codecName.equals("Packbits") ? packbits(plane) :
+        codec.compress(plane, options);
+    }
+  }
+
+  // -- Helper methods --
+
+  private static Codec createCodec(String name) throws Exception {
+    return (Codec)
+      Class.forName("loci.formats.codec." + name + "Codec").newInstance();
+  }
+
+  private static CodecOptions createOptions() {
+    CodecOptions options = new CodecOptions();
+    options.width = SIZE;
+    options.height = SIZE;
+    options.channels = 1;
+    options.bitsPerSample = 8;
+    options.interleaved = true;
+    options.lossless = true;
+    options.maxBytes = SIZE * SIZE;
+    return options;
+  }
+
+  /**
+   * Encodes the given bytes with PackBits, alternating literal runs with
+   * repeated runs of the preceding byte.
+   */
+  private static byte[] packbits(byte[] data) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    int i = 0;
+    boolean literal = true;
+    while (i < data.length) {
+      int n = Math.min(literal ? 128 : 64, data.length - i);
+      if (literal) {
+        out.write(n - 1);
+        out.write(data, i, n);
+      }
+      else {
+        out.write(1 - n);
+        out.write(data[i - 1]);
+      }
+      i += n;
+      literal = !literal;
+    }
+    return out.toByteArray();
+  }
+
+}
@@ -0,0 +1,125 @@
+//
+// DataToolsBenchmark.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import loci.common.DataTools;
+import loci.formats.FormatException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the {@link DataTools} conversions used to turn planes into
+ * primitive arrays and back, on a 4 MB plane from
+ * {@link loci.formats.in.FakeReader}.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/benchmarks/src/loci/benchmarks/DataToolsBenchmark.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/benchmarks/src/loci/benchmarks/DataToolsBenchmark.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class DataToolsBenchmark {
+
+  // -- Parameters --
+
+  @Param({"true", "false"})
+  public boolean little;
+
+  // -- Fields --
+
+  private byte[] plane;
+  private short[] shorts;
+  private float[] floats;
+
+  // -- Setup --
+
+  @Setup
+  public void setup() throws FormatException, IOException {
+    plane = BenchmarkData.fakePlane(
+      BenchmarkData.fakeId("uint16", 1024, 2048, 1));
+    shorts = DataTools.bytesToShorts(plane, little);
+    floats = DataTools.bytesToFloats(plane, little);
+  }
+
+  // -- Benchmarks --
+
+  /** Converts one value at a time, as many readers do. */
+  @Benchmark
+  public short[] bytesToShortEach() {
+    short[] v = new short[plane.length / 2];
+    for (int i=0; i<v.length; i++) {
+      v[i] = DataTools.bytesToShort(plane, i * 2, little);
+    }
+    return v;
+  }
+
+  @Benchmark
+  public short[] bytesToShorts() {
+    return DataTools.bytesToShorts(plane, little);
+  }
+
+  @Benchmark
+  public float[] bytesToFloats() {
+    return DataTools.bytesToFloats(plane, little);
+  }
+
+  @Benchmark
+  public Object makeDataArray() {
+    return DataTools.makeDataArray(plane, 2, false, little);
+  }
+
+  @Benchmark
+  public byte[] shortsToBytes() {
+    return DataTools.shortsToBytes(shorts, little);
+  }
+
+  @Benchmark
+  public byte[] swapBytes() {
+    DataTools.swapBytes(plane, 2);
+    return plane;
+  }
+
+  @Benchmark
+  public float[] normalizeFloats() {
+    return DataTools.normalizeFloats(floats);
+  }
+
+}
@@ -0,0 +1,149 @@
+//
+// RandomAccessInputStreamBenchmark.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.benchmarks;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import loci.common.ByteArrayHandle;
+import loci.common.IRandomAccess;
+import loci.common.NIOFileHandle;
+import loci.common.RandomAccessInputStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Measures {@link RandomAccessInputStream} over file and in-memory handles.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/benchmarks/src/loci/benchmarks/RandomAccessInputStreamBenchmark.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/benchmarks/src/loci/benchmarks/RandomAccessInputStreamBenchmark.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class RandomAccessInputStreamBenchmark {
+
+  // -- Constants --
+
+  private static final int LENGTH = 16 * 1024 * 1024;
+  private static final int BLOCK_SIZE = 64 * 1024;
+  private static final int SEEKS = 1000;
+
+  // -- Parameters --
+
+  /** Handle type: "nio" for {@link NIOFileHandle}, "array" in memory. */
+  @Param({"nio", "array"})
+  public String handle;
+
+  // -- Fields --
+
+  private File dir;
+  private File file;
+  private byte[] data;
+  private long[] offsets;
+  private RandomAccessInputStream in;
+
+  // -- Setup --
+
+  @Setup
+  public void setup() throws IOException {
+    data = BenchmarkData.noisyPlane(LENGTH);
+    dir = BenchmarkData.createDirectory();
+    file = new File(dir, "data.bin");
+    FileOutputStream out = new FileOutputStream(file);
+    try {
+      out.write(data);
+    }
+    finally {
+      out.close();
+    }
+
+    Random random = new Random(SEEKS);
+    offsets = new long[SEEKS];
+    for (int i=0; i<SEEKS; i++) offsets[i] = random.nextInt(LENGTH - 8);
+
+    IRandomAccess h = handle.equals("nio") ?
+      new NIOFileHandle(file, "r") : new ByteArrayHandle(data);
+    in = new RandomAccessInputStream(h);
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    in.close();
+    BenchmarkData.delete(dir);
+  }
+
+  // -- Benchmarks --
+
+  /** Reads the whole stream one 32-bit integer at a time. */
+  @Benchmark
+  public int readInts() throws IOException {
+    in.seek(0);
+    int sum = 0;
+    for (int i=0; i<LENGTH/4; i++) sum += in.readInt();
+    return sum;
+  }
+
+  /** Reads the whole stream in 64 KB blocks. */
+  @Benchmark
+  public void readBlocks(Blackhole bh) throws IOException {
+    in.seek(0);
+    byte[] block = new byte[BLOCK_SIZE];
+    for (int i=0; i<LENGTH/BLOCK_SIZE; i++) {
+      in.readFully(block);
+      bh.consume(block);
+    }
+  }
+
+  /** Reads a 64-bit value at each of a set of random offsets. */
+  @Benchmark
+  public long seekAndRead() throws IOException {
+    long sum = 0;
+    for (int i=0; i<SEEKS; i++) {
+      in.seek(offsets[i]);
+      sum += in.readLong();
+    }
+    return sum;
+  }
+
+}
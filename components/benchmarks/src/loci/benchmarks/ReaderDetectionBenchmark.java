@@ -0,0 +1,107 @@
+//
+// ReaderDetectionBenchmark.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import loci.formats.FormatException;
+import loci.formats.IFormatReader;
+import loci.formats.ImageReader;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long {@link ImageReader#getReader(String)} takes to find the
+ * reader for files written by each of the standard writers.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/benchmarks/src/loci/benchmarks/ReaderDetectionBenchmark.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/benchmarks/src/loci/benchmarks/ReaderDetectionBenchmark.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ReaderDetectionBenchmark {
+
+  // -- Parameters --
+
+  /** Extension of the file, which selects the writer used to create it. */
+  @Param({"tif", "ome.tif", "ome", "png", "jpg", "jp2", "avi", "mov", "ics",
+    "eps"})
+  public String extension;
+
+  // -- Fields --
+
+  private File dir;
+  private String file;
+  private ImageReader reader;
+
+  // -- Setup --
+
+  @Setup(Level.Trial)
+  public void setup() throws FormatException, IOException {
+    dir = BenchmarkData.createDirectory();
+    file = BenchmarkData.write(BenchmarkData.fakeId("uint8", 256, 256, 1),
+      new File(dir, "benchmark." + extension), null).getAbsolutePath();
+  }
+
+  /**
+   * Creates a new reader for each detection, since {@link ImageReader}
+   * remembers the reader chosen for the last file.
+   */
+  @Setup(Level.Invocation)
+  public void createReader() {
+    reader = new ImageReader();
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() {
+    BenchmarkData.delete(dir);
+  }
+
+  // -- Benchmarks --
+
+  @Benchmark
+  public IFormatReader getReader() throws FormatException, IOException {
+    return reader.getReader(file);
+  }
+
+}
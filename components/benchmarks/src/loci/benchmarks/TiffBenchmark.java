@@ -0,0 +1,133 @@
+//
+// TiffBenchmark.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import loci.common.ByteArrayHandle;
+import loci.common.RandomAccessInputStream;
+import loci.common.RandomAccessOutputStream;
+import loci.formats.FormatException;
+import loci.formats.FormatTools;
+import loci.formats.tiff.IFD;
+import loci.formats.tiff.TiffCompression;
+import loci.formats.tiff.TiffParser;
+import loci.formats.tiff.TiffSaver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures {@link TiffParser#getSamples(IFD, byte[])} on a file written by
+ * {@link loci.formats.out.TiffWriter}, and
+ * {@link TiffSaver#writeImage(byte[], IFD, int, int, boolean)} to memory.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/benchmarks/src/loci/benchmarks/TiffBenchmark.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/benchmarks/src/loci/benchmarks/TiffBenchmark.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class TiffBenchmark {
+
+  // -- Constants --
+
+  private static final int SIZE = 1024;
+
+  // -- Parameters --
+
+  /** Compression type, as accepted by TiffWriter. */
+  @Param({"Uncompressed", "LZW", "JPEG", "JPEG-2000"})
+  public String compression;
+
+  // -- Fields --
+
+  private File dir;
+  private TiffParser parser;
+  private IFD ifd;
+  private byte[] buf;
+  private TiffCompression tiffCompression;
+
+  // -- Setup --
+
+  @Setup
+  public void setup() throws FormatException, IOException {
+    dir = BenchmarkData.createDirectory();
+    File file = new File(dir, "benchmark.tif");
+    BenchmarkData.write(BenchmarkData.fakeId("uint8", SIZE, SIZE, 1), file,
+      compression);
+
+    parser = new TiffParser(new RandomAccessInputStream(file.getPath()));
+    ifd = parser.getFirstIFD();
+    buf = new byte[SIZE * SIZE];
+    tiffCompression = ifd.getCompression();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    parser.getStream().close();
+    BenchmarkData.delete(dir);
+  }
+
+  // -- Benchmarks --
+
+  @Benchmark
+  public byte[] getSamples() throws FormatException, IOException {
+    return parser.getSamples(ifd, buf);
+  }
+
+  @Benchmark
+  public ByteArrayHandle writeImage() throws FormatException, IOException {
+    ByteArrayHandle handle = new ByteArrayHandle();
+    RandomAccessOutputStream out = new RandomAccessOutputStream(handle);
+    TiffSaver saver = new TiffSaver(out, handle);
+    saver.writeHeader();
+
+    IFD newIFD = new IFD();
+    newIFD.put(IFD.IMAGE_WIDTH, (long) SIZE);
+    newIFD.put(IFD.IMAGE_LENGTH, (long) SIZE);
+    newIFD.put(IFD.COMPRESSION, tiffCompression.getCode());
+    newIFD.put(IFD.LITTLE_ENDIAN, Boolean.FALSE);
+    saver.writeImage(buf, newIFD, 0, FormatTools.UINT8, true);
+    out.close();
+    return handle;
+  }
+
+}
@@ -210,6 +210,13 @@ public class DNGReader extends BaseTiffReader {
     }
   }
 
+  // -- Internal MinimalTiffReader API methods --
+
+  /* @see MinimalTiffReader#canReadIntoBuffer() */
+  protected boolean canReadIntoBuffer() {
+    return false;
+  }
+
   // -- Internal BaseTiffReader API methods --
 
   /* @see BaseTiffReader#initStandardMetadata() */
@@ -179,6 +179,13 @@ public class FluoviewReader extends BaseTiffReader {
     }
   }
 
+  // -- Internal MinimalTiffReader API methods --
+
+  /* @see MinimalTiffReader#canReadIntoBuffer() */
+  protected boolean canReadIntoBuffer() {
+    return false;
+  }
+
   // -- Internal BaseTiffReader API methods --
 
   /* @see loci.formats.BaseTiffReader#initStandardMetadata() */
@@ -129,6 +129,13 @@ public class GelReader extends BaseTiffReader {
     return buf;
   }
 
+  // -- Internal MinimalTiffReader API methods --
+
+  /* @see MinimalTiffReader#canReadIntoBuffer() */
+  protected boolean canReadIntoBuffer() {
+    return false;
+  }
+
   // -- Internal BaseTiffReader API methods --
 
   /* @see BaseTiffReader#initMetadata() */
@@ -104,6 +104,13 @@ public class ImaconReader extends BaseTiffReader {
     return buf;
   }
 
+  // -- Internal MinimalTiffReader API methods --
+
+  /* @see MinimalTiffReader#canReadIntoBuffer() */
+  protected boolean canReadIntoBuffer() {
+    return false;
+  }
+
   // -- Internal BaseTiffReader API methods --
 
   /* @see BaseTiffReader#initStandardMetadata() */
@@ -24,9 +24,10 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats.in;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Vector;
 
-import loci.common.DataTools;
 import loci.common.Location;
 import loci.common.RandomAccessInputStream;
 import loci.common.services.DependencyException;
@@ -58,6 +59,12 @@ public class ImarisHDFReader extends FormatReader {
 
   private static final String[] DELIMITERS = {" ", "-", "."};
 
+  /** Width and height of the blocks that are cached between calls. */
+  private static final int TILE_SIZE = 256;
+
+  /** Maximum number of decoded blocks to cache. */
+  private static final int MAX_CACHED_TILES = 64;
+
   // -- Fields --
 
   private double pixelSizeX, pixelSizeY, pixelSizeZ;
@@ -71,6 +78,9 @@ public class ImarisHDFReader extends FormatReader {
   private Vector<double[]> colors;
   private int lastChannel = 0;
 
+  /** Recently decoded blocks, in least recently used order. */
+  private Map<String, byte[]> tileCache;
+
   // -- Constructor --
 
   /** Constructs a new Imaris HDF reader. */
@@ -82,10 +92,16 @@ public class ImarisHDFReader extends FormatReader {
 
   // -- IFormatReader API methods --
 
+  /* @see loci.formats.IFormatReader#getOptimalTileWidth() */
+  public int getOptimalTileWidth() {
+    FormatTools.assertId(currentId, true, 1);
+    return Math.min(TILE_SIZE, getSizeX());
+  }
+
   /* @see loci.formats.IFormatReader#getOptimalTileHeight() */
   public int getOptimalTileHeight() {
     FormatTools.assertId(currentId, true, 1);
-    return getSizeY();
+    return Math.min(TILE_SIZE, getSizeY());
   }
 
   /* @see loci.formats.IFormatReader#isThisType(RandomAccessInputStream) */
@@ -149,45 +165,34 @@ public class ImarisHDFReader extends FormatReader {
 
     // pixel data is stored in XYZ blocks
 
-    Object image = getImageData(no);
+    if ((long) w * h > 4 * TILE_SIZE * TILE_SIZE) {
+      // large regions are unlikely to be requested again, so read the
+      // hyperslab directly instead of filling the block cache
+      readRegion(no, buf, x, y, w, h);
+      return buf;
+    }
 
-    boolean big = !isLittleEndian();
     int bpp = FormatTools.getBytesPerPixel(getPixelType());
-    for (int row=0; row<h; row++) {
-      int base = row * w * bpp;
-      if (image instanceof byte[][]) {
-        byte[][] data = (byte[][]) image;
-        byte[] rowData = data[row + y];
-        System.arraycopy(rowData, x, buf, row*w, w);
-      }
-      else if (image instanceof short[][]) {
-        short[][] data = (short[][]) image;
-        short[] rowData = data[row + y];
-        for (int i=0; i<w; i++) {
-          DataTools.unpackBytes(rowData[x + i], buf, base + 2*i, 2, big);
-        }
-      }
-      else if (image instanceof int[][]) {
-        int[][] data = (int[][]) image;
-        int[] rowData = data[row + y];
-        for (int i=0; i<w; i++) {
-          DataTools.unpackBytes(rowData[x + i], buf, base + i*4, 4, big);
-        }
-      }
-      else if (image instanceof float[][]) {
-        float[][] data = (float[][]) image;
-        float[] rowData = data[row + y];
-        for (int i=0; i<w; i++) {
-          int v = Float.floatToIntBits(rowData[x + i]);
-          DataTools.unpackBytes(v, buf, base + i*4, 4, big);
-        }
-      }
-      else if (image instanceof double[][]) {
-        double[][] data = (double[][]) image;
-        double[] rowData = data[row + y];
-        for (int i=0; i<w; i++) {
-          long v = Double.doubleToLongBits(rowData[x + i]);
-          DataTools.unpackBytes(v, buf, base + i * 8, 8, big);
+    int tileWidth = getOptimalTileWidth();
+    int tileHeight = getOptimalTileHeight();
+
+    for (int row=y / tileHeight; row<=(y + h - 1) / tileHeight; row++) {
+      for (int col=x / tileWidth; col<=(x + w - 1) / tileWidth; col++) {
+        int tileX = col * tileWidth;
+        int tileY = row * tileHeight;
+        int tw = Math.min(tileWidth, getSizeX() - tileX);
+        int th = Math.min(tileHeight, getSizeY() - tileY);
+        byte[] tile = getTile(no, row, col, tileX, tileY, tw, th);
+
+        int x0 = Math.max(x, tileX);
+        int x1 = Math.min(x + w, tileX + tw);
+        int y0 = Math.max(y, tileY);
+        int y1 = Math.min(y + h, tileY + th);
+        int len = (x1 - x0) * bpp;
+        for (int yy=y0; yy<y1; yy++) {
+          int src = ((yy - tileY) * tw + x0 - tileX) * bpp;
+          int dest = ((yy - y) * w + x0 - x) * bpp;
+          System.arraycopy(tile, src, buf, dest, len);
         }
       }
     }
@@ -195,6 +200,35 @@ public class ImarisHDFReader extends FormatReader {
     return buf;
   }
 
+  /* @see loci.formats.IFormatReader#openThumbBytes(int) */
+  public byte[] openThumbBytes(int no) throws FormatException, IOException {
+    FormatTools.assertId(currentId, true, 1);
+
+    // downsample from the smallest resolution level that is still at least
+    // as large as the thumbnail, instead of from the current resolution
+
+    int currentSeries = getSeries();
+    int level = currentSeries;
+    for (int s=0; s<getSeriesCount(); s++) {
+      boolean largeEnough = core[s].sizeX >= getThumbSizeX() &&
+        core[s].sizeY >= getThumbSizeY();
+      if (largeEnough && core[s].sizeX < core[level].sizeX) {
+        level = s;
+      }
+    }
+    if (level == currentSeries) return super.openThumbBytes(no);
+
+    int[] zct = getZCTCoords(no);
+    int z = zct[0] * core[level].sizeZ / getSizeZ();
+    setSeries(level);
+    try {
+      return super.openThumbBytes(getIndex(z, zct[1], zct[2]));
+    }
+    finally {
+      setSeries(currentSeries);
+    }
+  }
+
   /* @see loci.formats.IFormatReader#close(boolean) */
   public void close(boolean fileOnly) throws IOException {
     super.close(fileOnly);
@@ -210,6 +244,7 @@ public class ImarisHDFReader extends FormatReader {
       gain = pinhole = channelName = microscopyMode = null;
       colors = null;
       lastChannel = 0;
+      tileCache = null;
     }
   }
 
@@ -239,6 +274,11 @@ public class ImarisHDFReader extends FormatReader {
     channelName = new Vector<String>();
     microscopyMode = new Vector<String>();
     colors = new Vector<double[]>();
+    tileCache = new LinkedHashMap<String, byte[]>(16, 0.75f, true) {
+      protected boolean removeEldestEntry(Map.Entry<String, byte[]> eldest) {
+        return size() > MAX_CACHED_TILES;
+      }
+    };
 
     seriesCount = 0;
 
@@ -278,12 +318,18 @@ public class ImarisHDFReader extends FormatReader {
 
     int type = -1;
 
-    Object pix = getImageData(0);
-    if (pix instanceof byte[][]) type = FormatTools.UINT8;
-    else if (pix instanceof short[][]) type = FormatTools.UINT16;
-    else if (pix instanceof int[][]) type = FormatTools.UINT32;
-    else if (pix instanceof float[][]) type = FormatTools.FLOAT;
-    else if (pix instanceof double[][]) type = FormatTools.DOUBLE;
+    Class<?> pix = null;
+    try {
+      pix = netcdf.getArrayType(getDataPath(getZCTCoords(0)));
+    }
+    catch (ServiceException e) {
+      throw new FormatException(e);
+    }
+    if (pix == byte.class) type = FormatTools.UINT8;
+    else if (pix == short.class) type = FormatTools.UINT16;
+    else if (pix == int.class) type = FormatTools.UINT32;
+    else if (pix == float.class) type = FormatTools.FLOAT;
+    else if (pix == double.class) type = FormatTools.DOUBLE;
     else {
       throw new FormatException("Unknown pixel type: " + pix);
     }
@@ -391,20 +437,40 @@ public class ImarisHDFReader extends FormatReader {
 
   // -- Helper methods --
 
-  private Object getImageData(int no) throws FormatException {
-    int[] zct = getZCTCoords(no);
-    String path = "/DataSet/ResolutionLevel_" + series + "/TimePoint_" +
+  private String getDataPath(int[] zct) {
+    return "/DataSet/ResolutionLevel_" + series + "/TimePoint_" +
       zct[2] + "/Channel_" + zct[1] + "/Data";
-    Object image = null;
-    int[] dimensions = new int[] {1, getSizeY(), getSizeX()};
-    int[] indices = new int[] {zct[0], 0, 0};
+  }
+
+  /** Reads the given region of a plane directly into the given array. */
+  private void readRegion(int no, byte[] buf, int x, int y, int w, int h)
+    throws FormatException
+  {
+    int[] zct = getZCTCoords(no);
+    int[] dimensions = new int[] {1, h, w};
+    int[] indices = new int[] {zct[0], y, x};
     try {
-      image = netcdf.getArray(path, indices, dimensions);
+      netcdf.readBytes(getDataPath(zct), indices, dimensions, buf,
+        isLittleEndian());
     }
     catch (ServiceException e) {
       throw new FormatException(e);
     }
-    return image;
+  }
+
+  /** Retrieves the given block of a plane, reading it only if necessary. */
+  private byte[] getTile(int no, int row, int col, int x, int y, int w, int h)
+    throws FormatException
+  {
+    String key = series + ":" + no + ":" + row + ":" + col;
+    byte[] tile = tileCache.get(key);
+    if (tile == null) {
+      int bpp = FormatTools.getBytesPerPixel(getPixelType());
+      tile = new byte[w * h * bpp];
+      readRegion(no, tile, x, y, w, h);
+      tileCache.put(key, tile);
+    }
+    return tile;
   }
 
   private void parseAttributes() {
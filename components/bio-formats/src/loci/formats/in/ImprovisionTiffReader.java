@@ -143,6 +143,13 @@ public class ImprovisionTiffReader extends BaseTiffReader {
     return readers[file].openBytes(plane, buf, x, y, w, h);
   }
 
+  // -- Internal MinimalTiffReader API methods --
+
+  /* @see MinimalTiffReader#canReadIntoBuffer() */
+  protected boolean canReadIntoBuffer() {
+    return false;
+  }
+
   // -- Internal BaseTiffReader API methods --
 
   /* @see BaseTiffReader#initStandardMetadata() */
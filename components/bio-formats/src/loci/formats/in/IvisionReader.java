@@ -214,10 +214,7 @@ public class IvisionReader extends FormatReader {
 
       // look for block of XML data
       LOGGER.info("Looking for XML metadata");
-      in.findString(false, "<?xml");
-      if (in.getFilePointer() < in.length()) {
-        in.seek(in.getFilePointer() - 5);
-
+      if (in.findBytes("<?xml".getBytes()) >= 0) {
         String xml = in.readString((int) (in.length() - in.getFilePointer()));
         xml = xml.substring(xml.indexOf("<"), xml.lastIndexOf("plist>") + 6);
         IvisionHandler handler = new IvisionHandler();
@@ -36,8 +36,8 @@ import loci.formats.FormatReader;
 import loci.formats.FormatTools;
 import loci.formats.MetadataTools;
 import loci.formats.codec.JPEG2000BoxType;
-import loci.formats.codec.JPEG2000Codec;
 import loci.formats.codec.JPEG2000CodecOptions;
+import loci.formats.codec.JPEG2000TileDecoder;
 import loci.formats.meta.MetadataStore;
 
 /**
@@ -64,9 +64,8 @@ public class JPXReader extends FormatReader {
 
   private ArrayList<Long> pixelOffsets = new ArrayList<Long>();
 
-  private int lastSeries = -1;
-  private int lastPlane = -1;
-  private byte[] lastSeriesPlane;
+  /** Decodes and caches the codestream tiles of each plane. */
+  private JPEG2000TileDecoder tileDecoder;
 
   // -- Constructor --
 
@@ -132,9 +131,7 @@ public class JPXReader extends FormatReader {
       resolutionLevels = null;
       lut = null;
       pixelOffsets.clear();
-      lastSeries = -1;
-      lastPlane = -1;
-      lastSeriesPlane = null;
+      tileDecoder = null;
     }
   }
 
@@ -146,17 +143,11 @@ public class JPXReader extends FormatReader {
   {
     FormatTools.checkPlaneParameters(this, no, buf.length, x, y, w, h);
 
-    if (lastSeries == getSeries() && lastPlane == no && lastSeriesPlane != null)
-    {
-      RandomAccessInputStream s = new RandomAccessInputStream(lastSeriesPlane);
-      readPlane(s, x, y, w, h, buf);
-      s.close();
-      return buf;
-    }
-
     JPEG2000CodecOptions options = JPEG2000CodecOptions.getDefaultOptions();
     options.interleaved = isInterleaved();
     options.littleEndian = isLittleEndian();
+    options.channels = getRGBChannelCount();
+    options.bitsPerSample = FormatTools.getBytesPerPixel(getPixelType()) * 8;
     if (resolutionLevels != null) {
       options.resolution = Math.abs(series - resolutionLevels);
     }
@@ -164,14 +155,11 @@ public class JPXReader extends FormatReader {
       options.resolution = series;
     }
 
-    in.seek(pixelOffsets.get(no));
-    lastSeriesPlane = new JPEG2000Codec().decompress(in, options);
-    RandomAccessInputStream s = new RandomAccessInputStream(lastSeriesPlane);
-    readPlane(s, x, y, w, h, buf);
-    s.close();
-    lastSeries = getSeries();
-    lastPlane = no;
-    return buf;
+    long offset = pixelOffsets.get(no);
+    long end = no < pixelOffsets.size() - 1 ?
+      pixelOffsets.get(no + 1) : in.length();
+    return tileDecoder.decode(in, offset, end - offset, options,
+      x, y, w, h, buf);
   }
 
   // -- Internal FormatReader API methods --
@@ -198,6 +186,7 @@ public class JPXReader extends FormatReader {
       core[0].pixelType = metadataParser.getHeaderPixelType();
     }
     lut = metadataParser.getLookupTable();
+    tileDecoder = metadataParser.createTileDecoder();
 
     findPixelOffsets();
 
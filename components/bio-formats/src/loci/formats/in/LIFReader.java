@@ -25,13 +25,14 @@ package loci.formats.in;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Stack;
 import java.util.StringTokenizer;
 import java.util.Vector;
-import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -60,7 +61,8 @@ import ome.xml.model.primitives.NonNegativeInteger;
 import ome.xml.model.primitives.PercentFraction;
 import ome.xml.model.primitives.PositiveInteger;
 
-import org.xml.sax.SAXException;
+import org.xml.sax.Attributes;
+import org.xml.sax.helpers.DefaultHandler;
 import org.w3c.dom.Attr;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -385,7 +387,8 @@ public class LIFReader extends FormatReader {
 
     // number of Unicode characters in the XML block
     int nc = in.readInt();
-    String xml = DataTools.stripString(in.readString(nc * 2));
+    long xmlOffset = in.getFilePointer();
+    in.seek(xmlOffset + nc * 2L);
 
     LOGGER.info("Finding image offsets");
 
@@ -424,8 +427,7 @@ public class LIFReader extends FormatReader {
 
       in.seek(in.getFilePointer() + descrLength + blockLength);
     }
-    initMetadata(xml);
-    xml = null;
+    initMetadata(xmlOffset, nc);
 
     // correct offsets, if necessary
     if (offsets.size() > getSeriesCount()) {
@@ -453,8 +455,13 @@ public class LIFReader extends FormatReader {
 
   // -- Helper methods --
 
-  /** Parses a string of XML and puts the values in a Hashtable. */
-  private void initMetadata(String xml) throws FormatException, IOException {
+  /**
+   * Parses the XML description, which starts at the given offset and is
+   * the given number of UTF-16 characters long.
+   */
+  private void initMetadata(long xmlOffset, int nc)
+    throws FormatException, IOException
+  {
     IMetadata omexml = null;
     try {
       ServiceFactory factory = new ServiceFactory();
@@ -470,15 +477,7 @@ public class LIFReader extends FormatReader {
     MetadataStore store = makeFilterMetadata();
     MetadataLevel level = getMetadataOptions().getMetadataLevel();
 
-    // the XML blocks stored in a LIF file are invalid,
-    // because they don't have a root node
-
-    xml = "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><LEICA>" + xml +
-      "</LEICA>";
-
-    xml = XMLTools.sanitizeXML(xml);
-
-    translateMetadata(getMetadataRoot(xml));
+    translateMetadata(getMetadataRoot(xmlOffset, nc));
 
     for (int i=0; i<imageNames.length; i++) {
       setSeries(i);
@@ -754,37 +753,49 @@ public class LIFReader extends FormatReader {
     }
   }
 
-  private Element getMetadataRoot(String xml)
+  /**
+   * Parses the XML description into a DOM, streaming it from the file.
+   * Blocks that are never used are dropped while parsing, as is everything
+   * except the image descriptions when only minimal metadata is needed.
+   */
+  private Element getMetadataRoot(long xmlOffset, int nc)
+    throws FormatException, IOException
+  {
+    boolean minimal =
+      getMetadataOptions().getMetadataLevel() == MetadataLevel.MINIMUM;
+    return parseHeader(in, xmlOffset, nc, minimal);
+  }
+
+  /**
+   * Parses the XML description of <code>nc</code> UTF-16 characters at the
+   * given offset in the given stream.
+   */
+  static Element parseHeader(RandomAccessInputStream in, long xmlOffset,
+    int nc, boolean minimal)
     throws FormatException, IOException
   {
+    // the XML blocks stored in a LIF file are invalid,
+    // because they don't have a root node
+
+    Vector<InputStream> xml = new Vector<InputStream>();
+    xml.add(new ByteArrayInputStream(
+      "<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?><LEICA>".getBytes()));
+    xml.add(new HeaderStream(in, xmlOffset, nc));
+    xml.add(new ByteArrayInputStream("</LEICA>".getBytes()));
+
     try {
-      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-      DocumentBuilder parser = factory.newDocumentBuilder();
-      ByteArrayInputStream s = new ByteArrayInputStream(xml.getBytes());
-      Element root = parser.parse(s).getDocumentElement();
-      s.close();
-      return root;
+      HeaderHandler handler = new HeaderHandler(minimal);
+      XMLTools.parseXML(new SequenceInputStream(xml.elements()), handler);
+      return handler.getRoot();
     }
     catch (ParserConfigurationException e) {
       throw new FormatException(e);
     }
-    catch (SAXException e) {
-      throw new FormatException(e);
-    }
   }
 
   private void translateMetadata(Element root) throws FormatException {
     Element realRoot = (Element) root.getChildNodes().item(0);
 
-    NodeList toPrune = getNodes(realRoot, "LDM_Block_Sequential_Master");
-    if (toPrune != null) {
-      for (int i=0; i<toPrune.getLength(); i++) {
-        Element prune = (Element) toPrune.item(i);
-        Element parent = (Element) prune.getParentNode();
-        parent.removeChild(prune);
-      }
-    }
-
     NodeList imageNodes = getNodes(realRoot, "Image");
 
     core = new CoreMetadata[imageNodes.getLength()];
@@ -1638,7 +1649,126 @@ public class LIFReader extends FormatReader {
     return channel - 1;
   }
 
-  // -- Helper class --
+  // -- Helper classes --
+
+  /**
+   * Reads the UTF-16 XML description as ASCII text.  As with
+   * XMLTools.sanitizeXML, null characters are dropped and invalid
+   * characters are replaced with spaces.
+   */
+  static class HeaderStream extends InputStream {
+    private RandomAccessInputStream in;
+    private long pointer;
+    private long end;
+    private byte[] raw = new byte[65536];
+    private byte[] text = new byte[raw.length];
+    private int textPos, textLength;
+
+    /** Last decoded byte, held back until the next one is known. */
+    private int pending = -1;
+
+    public HeaderStream(RandomAccessInputStream in, long offset, int nc)
+      throws IOException
+    {
+      this.in = in;
+      pointer = offset;
+      end = Math.min(offset + nc * 2L, in.length());
+    }
+
+    public int read() throws IOException {
+      if (textPos == textLength && !fill()) return -1;
+      return text[textPos++] & 0xff;
+    }
+
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) return 0;
+      if (textPos == textLength && !fill()) return -1;
+      int n = Math.min(len, textLength - textPos);
+      System.arraycopy(text, textPos, b, off, n);
+      textPos += n;
+      return n;
+    }
+
+    /** Decodes the next block of text; returns false at the end. */
+    private boolean fill() throws IOException {
+      textPos = 0;
+      textLength = 0;
+      while (textLength == 0) {
+        if (pointer >= end) {
+          if (pending < 0) return false;
+          text[textLength++] = (byte) pending;
+          pending = -1;
+          break;
+        }
+        int n = (int) Math.min(raw.length, end - pointer);
+        in.seek(pointer);
+        in.readFully(raw, 0, n);
+        pointer += n;
+        for (int i=0; i<n; i++) {
+          int c = raw[i] & 0xff;
+          if (c == 0) continue;
+          if (c < ' ' || c > '~') c = ' ';
+          // eliminate invalid &# sequences
+          if (pending == '&' && c == '#') pending = ' ';
+          if (pending >= 0) text[textLength++] = (byte) pending;
+          pending = c;
+        }
+      }
+      return true;
+    }
+  }
+
+  /**
+   * Builds a DOM from the XML description, leaving out the blocks that
+   * are not needed.  Text content is never used, and so is not stored.
+   */
+  static class HeaderHandler extends DefaultHandler {
+    private boolean minimal;
+    private Document document;
+    private Node current;
+
+    /** Depth within the element being left out, or 0. */
+    private int skipDepth = 0;
+
+    public HeaderHandler(boolean minimal) throws ParserConfigurationException
+    {
+      this.minimal = minimal;
+      DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+      document = factory.newDocumentBuilder().newDocument();
+      current = document;
+    }
+
+    public Element getRoot() {
+      return document.getDocumentElement();
+    }
+
+    public void startElement(String uri, String localName, String qName,
+      Attributes attributes)
+    {
+      if (skipDepth > 0 || isSkipped(qName)) {
+        skipDepth++;
+        return;
+      }
+      Element element = document.createElement(qName);
+      for (int i=0; i<attributes.getLength(); i++) {
+        element.setAttribute(attributes.getQName(i), attributes.getValue(i));
+      }
+      current.appendChild(element);
+      current = element;
+    }
+
+    public void endElement(String uri, String localName, String qName) {
+      if (skipDepth > 0) skipDepth--;
+      else current = current.getParentNode();
+    }
+
+    private boolean isSkipped(String qName) {
+      if (qName.equals("LDM_Block_Sequential_Master")) return true;
+      // only the dimensions and channels are needed for minimal metadata
+      return minimal && current.getNodeName().equals("Image") &&
+        !qName.equals("ImageDescription");
+    }
+  }
 
   class ROI {
     // -- Constants --
@@ -40,7 +40,9 @@ import loci.formats.FilePattern;
 import loci.formats.FormatException;
 import loci.formats.FormatReader;
 import loci.formats.FormatTools;
+import loci.formats.IFormatReader;
 import loci.formats.MetadataTools;
+import loci.formats.ReaderPool;
 import loci.formats.meta.MetadataStore;
 import ome.xml.model.primitives.PositiveFloat;
 import loci.formats.tiff.IFD;
@@ -106,8 +108,8 @@ public class LeicaReader extends FormatReader {
   /** Array of IFD-like structures containing metadata. */
   protected IFDList headerIFDs;
 
-  /** Helper readers. */
-  protected MinimalTiffReader tiff;
+  /** Helper readers for the TIFF files in the dataset. */
+  protected ReaderPool tiffReaders;
 
   /** Array of image file names. */
   protected Vector[] files;
@@ -209,8 +211,8 @@ public class LeicaReader extends FormatReader {
     FormatTools.assertId(currentId, true, 1);
     try {
       int index = (int) Math.min(lastPlane, files[series].size() - 1);
-      tiff.setId((String) files[series].get(index));
-      return tiff.get8BitLookupTable();
+      String file = (String) files[series].get(index);
+      return tiffReaders.getReader(file).get8BitLookupTable();
     }
     catch (FormatException e) {
       LOGGER.debug("Failed to retrieve lookup table", e);
@@ -226,8 +228,8 @@ public class LeicaReader extends FormatReader {
     FormatTools.assertId(currentId, true, 1);
     try {
       int index = (int) Math.min(lastPlane, files[series].size() - 1);
-      tiff.setId((String) files[series].get(index));
-      return tiff.get16BitLookupTable();
+      String file = (String) files[series].get(index);
+      return tiffReaders.getReader(file).get16BitLookupTable();
     }
     catch (FormatException e) {
       LOGGER.debug("Failed to retrieve lookup table", e);
@@ -259,7 +261,7 @@ public class LeicaReader extends FormatReader {
 
     if (new Location(filename).exists()) {
       if (checkSuffix(filename, TiffReader.TIFF_SUFFIXES)) {
-        tiff.setId(filename);
+        IFormatReader tiff = tiffReaders.getReader(filename);
         return tiff.openBytes(planeIndex, buf, x, y, w, h);
       }
       else {
@@ -293,12 +295,15 @@ public class LeicaReader extends FormatReader {
   /* @see loci.formats.IFormatReader#close(boolean) */
   public void close(boolean fileOnly) throws IOException {
     super.close(fileOnly);
-    if (tiff != null) tiff.close(fileOnly);
+    if (tiffReaders != null) {
+      if (fileOnly) tiffReaders.closeFiles();
+      else tiffReaders.close();
+    }
     if (!fileOnly) {
       leiFilename = null;
       files = null;
       ifds = headerIFDs = null;
-      tiff = null;
+      tiffReaders = null;
       seriesNames = null;
       numSeries = 0;
       lastPlane = 0;
@@ -364,7 +369,7 @@ public class LeicaReader extends FormatReader {
 
         files = new Vector[] {new Vector()};
         files[0].add(id);
-        tiff = new MinimalTiffReader();
+        tiffReaders = new ReaderPool();
 
         return;
       }
@@ -502,7 +507,7 @@ public class LeicaReader extends FormatReader {
       index++;
     }
 
-    tiff = new MinimalTiffReader();
+    tiffReaders = new ReaderPool();
 
     LOGGER.info("Populating metadata");
 
@@ -564,7 +569,7 @@ public class LeicaReader extends FormatReader {
       String filename = (String) files[i].get(0);
 
       if (checkSuffix(filename, TiffReader.TIFF_SUFFIXES)) {
-        tiff.setId(filename);
+        IFormatReader tiff = tiffReaders.getReader(filename);
 
         core[i].sizeX = tiff.getSizeX();
         core[i].sizeY = tiff.getSizeY();
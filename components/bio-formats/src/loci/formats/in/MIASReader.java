@@ -41,8 +41,10 @@ import loci.formats.FilePattern;
 import loci.formats.FormatException;
 import loci.formats.FormatReader;
 import loci.formats.FormatTools;
+import loci.formats.IFormatReader;
 import loci.formats.ImageTools;
 import loci.formats.MetadataTools;
+import loci.formats.ReaderPool;
 import loci.formats.codec.BitWriter;
 import loci.formats.meta.MetadataStore;
 import ome.xml.model.primitives.PositiveFloat;
@@ -68,8 +70,8 @@ public class MIASReader extends FormatReader {
   /** TIFF files - indexed by well and file. */
   private String[][] tiffs;
 
-  /** Delegate readers. */
-  private MinimalTiffReader[][] readers;
+  /** Delegate readers for the TIFF files. */
+  private ReaderPool readers;
 
   /** Path to file containing analysis results for all plates. */
   private String resultFile = null;
@@ -168,19 +170,15 @@ public class MIASReader extends FormatReader {
   /* @see loci.formats.IFormatReader#get8BitLookupTable() */
   public byte[][] get8BitLookupTable() throws FormatException, IOException {
     FormatTools.assertId(currentId, true, 1);
-    if (readers == null || readers[0][0].getCurrentFile() == null) {
-      return null;
-    }
-    return readers[0][0].get8BitLookupTable();
+    if (readers == null) return null;
+    return readers.getReader(tiffs[0][0]).get8BitLookupTable();
   }
 
   /* @see loci.formats.IFormatReader#get16BitLookupTable() */
   public short[][] get16BitLookupTable() throws FormatException, IOException {
     FormatTools.assertId(currentId, true, 1);
-    if (readers == null || readers[0][0].getCurrentFile() == null) {
-      return null;
-    }
-    return readers[0][0].get16BitLookupTable();
+    if (readers == null) return null;
+    return readers.getReader(tiffs[0][0]).get16BitLookupTable();
   }
 
   /**
@@ -192,10 +190,8 @@ public class MIASReader extends FormatReader {
     FormatTools.checkPlaneParameters(this, no, buf.length, x, y, w, h);
 
     if (tileRows == 1 && tileCols == 1) {
-      readers[getSeries()][no].setId(tiffs[getSeries()][no]);
-      readers[getSeries()][no].openBytes(0, buf, x, y, w, h);
-      readers[getSeries()][no].close();
-      return buf;
+      IFormatReader r = readers.getReader(tiffs[getSeries()][no]);
+      return r.openBytes(0, buf, x, y, w, h);
     }
 
     int outputRowLen = w * bpp[getSeries()];
@@ -267,11 +263,8 @@ public class MIASReader extends FormatReader {
   public void close(boolean fileOnly) throws IOException {
     super.close(fileOnly);
     if (readers != null) {
-      for (MinimalTiffReader[] images : readers) {
-        for (MinimalTiffReader r : images) {
-          if (r != null) r.close(fileOnly);
-        }
-      }
+      if (fileOnly) readers.closeFiles();
+      else readers.close();
     }
     if (!fileOnly) {
       readers = null;
@@ -293,13 +286,31 @@ public class MIASReader extends FormatReader {
   /* @see loci.formats.IFormatReader#getOptimalTileWidth() */
   public int getOptimalTileWidth() {
     FormatTools.assertId(currentId, true, 1);
-    return readers[0][0].getOptimalTileWidth();
+    try {
+      return readers.getReader(tiffs[0][0]).getOptimalTileWidth();
+    }
+    catch (FormatException e) {
+      LOGGER.debug("Could not retrieve tile width", e);
+    }
+    catch (IOException e) {
+      LOGGER.debug("Could not retrieve tile width", e);
+    }
+    return super.getOptimalTileWidth();
   }
 
   /* @see loci.formats.IFormatReader#getOptimalTileHeight() */
   public int getOptimalTileHeight() {
     FormatTools.assertId(currentId, true, 1);
-    return readers[0][0].getOptimalTileHeight();
+    try {
+      return readers.getReader(tiffs[0][0]).getOptimalTileHeight();
+    }
+    catch (FormatException e) {
+      LOGGER.debug("Could not retrieve tile height", e);
+    }
+    catch (IOException e) {
+      LOGGER.debug("Could not retrieve tile height", e);
+    }
+    return super.getOptimalTileHeight();
   }
 
   // -- Internal FormatReader API methods --
@@ -346,8 +357,7 @@ public class MIASReader extends FormatReader {
 
     if (!isGroupFiles()) {
       tiffs = new String[][] {{id}};
-      readers = new MinimalTiffReader[1][1];
-      readers[0][0] = new MinimalTiffReader();
+      readers = new ReaderPool();
 
       TiffReader r = new TiffReader();
       r.setMetadataStore(getMetadataStore());
@@ -492,7 +502,7 @@ public class MIASReader extends FormatReader {
 
     LOGGER.debug("Found {} wells.", nWells);
 
-    readers = new MinimalTiffReader[nWells][];
+    readers = new ReaderPool();
     tiffs = new String[nWells][];
     int[] zCount = new int[nWells];
     int[] cCount = new int[nWells];
@@ -588,10 +598,6 @@ public class MIASReader extends FormatReader {
       Arrays.sort(tiffFiles);
       tiffs[j] = tiffFiles;
       LOGGER.debug("Well {} has {} files.", j, tiffFiles.length);
-      readers[j] = new MinimalTiffReader[tiffFiles.length];
-      for (int k=0; k<tiffFiles.length; k++) {
-        readers[j][k] = new MinimalTiffReader();
-      }
     }
 
     // Populate core metadata
@@ -603,14 +609,14 @@ public class MIASReader extends FormatReader {
     core = new CoreMetadata[nSeries];
     bpp = new int[nSeries];
 
-    if (readers.length == 0) {
+    if (tiffs.length == 0) {
       throw new FormatException("No wells were found.");
     }
 
     // assume that all wells have the same width, height, and pixel type
-    readers[0][0].setId(tiffs[0][0]);
-    tileWidth = readers[0][0].getSizeX();
-    tileHeight = readers[0][0].getSizeY();
+    IFormatReader firstReader = readers.getReader(tiffs[0][0]);
+    tileWidth = firstReader.getSizeX();
+    tileHeight = firstReader.getSizeY();
 
     if (tileCols == 0) tileCols = 1;
     if (tileRows == 0) tileRows = 1;
@@ -628,13 +634,13 @@ public class MIASReader extends FormatReader {
 
       core[i].sizeX = tileWidth * tileCols;
       core[i].sizeY = tileHeight * tileRows;
-      core[i].pixelType = readers[0][0].getPixelType();
-      core[i].sizeC *= readers[0][0].getSizeC();
-      core[i].rgb = readers[0][0].isRGB();
-      core[i].littleEndian = readers[0][0].isLittleEndian();
-      core[i].interleaved = readers[0][0].isInterleaved();
-      core[i].indexed = readers[0][0].isIndexed();
-      core[i].falseColor = readers[0][0].isFalseColor();
+      core[i].pixelType = firstReader.getPixelType();
+      core[i].sizeC *= firstReader.getSizeC();
+      core[i].rgb = firstReader.isRGB();
+      core[i].littleEndian = firstReader.isLittleEndian();
+      core[i].interleaved = firstReader.isInterleaved();
+      core[i].indexed = firstReader.isIndexed();
+      core[i].falseColor = firstReader.isFalseColor();
       core[i].dimensionOrder = order[i];
 
       if (core[i].dimensionOrder.indexOf("Z") == -1) {
@@ -942,16 +948,15 @@ public class MIASReader extends FormatReader {
 
     int tileIndex = (no * tileRows + row) * tileCols + col;
 
-    readers[well][tileIndex].setId(tiffs[well][tileIndex]);
+    IFormatReader r = readers.getReader(tiffs[well][tileIndex]);
     int bpp = FormatTools.getBytesPerPixel(getPixelType());
     int ch = getRGBChannelCount();
     int bufferSize = intersection.width * intersection.height * ch * bpp;
     if (cachedTileBuffer == null || cachedTileBuffer.length != bufferSize) {
       cachedTileBuffer = new byte[bufferSize];
     }
-    byte[] buf = readers[well][tileIndex].openBytes(0, cachedTileBuffer,
+    byte[] buf = r.openBytes(0, cachedTileBuffer,
       intersection.x, intersection.y, intersection.width, intersection.height);
-    readers[well][tileIndex].close();
     return buf;
   }
 
@@ -42,7 +42,9 @@ import loci.common.xml.XMLTools;
 import loci.formats.CoreMetadata;
 import loci.formats.FormatException;
 import loci.formats.FormatTools;
+import loci.formats.IFormatReader;
 import loci.formats.MetadataTools;
+import loci.formats.ReaderPool;
 import loci.formats.meta.MetadataStore;
 import ome.xml.model.primitives.PositiveFloat;
 import loci.formats.tiff.IFD;
@@ -115,7 +117,8 @@ public class MetamorphReader extends BaseTiffReader {
 
   private int mmPlanes; //number of metamorph planes
 
-  private MetamorphReader[][] stkReaders;
+  /** Helper readers for the constituent STK files. */
+  private ReaderPool stkReaders;
 
   /** List of STK files in the dataset. */
   private String[][] stks;
@@ -235,31 +238,18 @@ public class MetamorphReader extends BaseTiffReader {
     String file = stks[series][ndx];
     if (file == null) return buf;
 
-    // the original file is a .nd file, so we need to construct a new reader
+    // the original file is a .nd file, so we need to use a separate reader
     // for the constituent STK files
-    stkReaders[series][ndx].setMetadataOptions(
-        new DefaultMetadataOptions(MetadataLevel.MINIMUM));
-    stkReaders[series][ndx].setId(file);
     int plane = stks[series].length == 1 ? no : coords[0];
-    stkReaders[series][ndx].openBytes(plane, buf, x, y, w, h);
-    if (plane == stkReaders[series][ndx].getImageCount() - 1) {
-      stkReaders[series][ndx].close();
-    }
-
-    return buf;
+    return stkReaders.getReader(file).openBytes(plane, buf, x, y, w, h);
   }
 
   /* @see loci.formats.IFormatReader#close(boolean) */
   public void close(boolean fileOnly) throws IOException {
     super.close(fileOnly);
     if (stkReaders != null) {
-      for (MetamorphReader[] s : stkReaders) {
-        if (s != null) {
-          for (MetamorphReader reader : s) {
-            if (reader != null) reader.close(fileOnly);
-          }
-        }
-      }
+      if (fileOnly) stkReaders.closeFiles();
+      else stkReaders.close();
     }
     if (!fileOnly) {
       imageName = imageCreationDate = null;
@@ -282,6 +272,13 @@ public class MetamorphReader extends BaseTiffReader {
     }
   }
 
+  // -- Internal MinimalTiffReader API methods --
+
+  /* @see MinimalTiffReader#canReadIntoBuffer() */
+  protected boolean canReadIntoBuffer() {
+    return false;
+  }
+
   // -- Internal FormatReader API methods --
 
   /* @see loci.formats.FormatReader#initFile(String) */
@@ -571,24 +568,16 @@ public class MetamorphReader extends BaseTiffReader {
       }
     }
 
-    if (stks == null) {
-      stkReaders = new MetamorphReader[1][1];
-      stkReaders[0][0] = new MetamorphReader();
-      stkReaders[0][0].setCanLookForND(false);
-    }
-    else {
-      stkReaders = new MetamorphReader[stks.length][];
-      for (int i=0; i<stks.length; i++) {
-        stkReaders[i] = new MetamorphReader[stks[i].length];
-        for (int j=0; j<stkReaders[i].length; j++) {
-          stkReaders[i][j] = new MetamorphReader();
-          stkReaders[i][j].setCanLookForND(false);
-          if (j > 0) {
-            stkReaders[i][j].setMetadataOptions(
-              new DefaultMetadataOptions(MetadataLevel.MINIMUM));
-          }
+    if (stks != null) {
+      stkReaders = new ReaderPool() {
+        protected IFormatReader createReader(String file) {
+          MetamorphReader reader = new MetamorphReader();
+          reader.setCanLookForND(false);
+          reader.setMetadataOptions(
+            new DefaultMetadataOptions(MetadataLevel.MINIMUM));
+          return reader;
         }
-      }
+      };
     }
 
     Vector<String> timestamps = null;
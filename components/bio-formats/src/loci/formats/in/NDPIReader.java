@@ -197,6 +197,13 @@ public class NDPIReader extends BaseTiffReader {
     return (int) Math.min(maxHeight, getSizeY());
   }
 
+  // -- Internal MinimalTiffReader API methods --
+
+  /* @see MinimalTiffReader#canReadIntoBuffer() */
+  protected boolean canReadIntoBuffer() {
+    return false;
+  }
+
   // -- Internal FormatReader API methods --
 
   /* @see loci.formats.FormatReader#initFile(String) */
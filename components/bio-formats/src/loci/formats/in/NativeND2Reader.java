@@ -26,8 +26,10 @@ package loci.formats.in;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Hashtable;
+import java.util.TreeMap;
 
 import loci.common.ByteArrayHandle;
+import loci.common.DataTools;
 import loci.common.Location;
 import loci.common.RandomAccessInputStream;
 import loci.common.xml.XMLTools;
@@ -68,9 +70,16 @@ public class NativeND2Reader extends FormatReader {
   public static final long ND2_MAGIC_BYTES_1 = 0xdacebe0aL;
   public static final long ND2_MAGIC_BYTES_2 = 0x6a502020L;
 
+  /** Signature at the end of files that have a chunk map. */
+  private static final String CHUNK_MAP_SIGNATURE =
+    "ND2 CHUNK MAP SIGNATURE 0000001!";
+
   // -- Fields --
 
-  /** Array of image offsets. */
+  /**
+   * Array of image offsets.  For files that are not JPEG 2000 compressed,
+   * these are the offsets to the chunk that contains each plane.
+   */
   private long[][] offsets;
 
   /** Whether or not the pixel data is compressed using JPEG 2000. */
@@ -193,7 +202,8 @@ public class NativeND2Reader extends FormatReader {
 
     lastChannel = split ? no % getSizeC() : 0;
     int planeIndex = split ? no / getSizeC() : no;
-    in.seek(offsets[series][planeIndex]);
+    long offset = offsets[series][planeIndex];
+    in.seek(isJPEG ? offset : getPixelsOffset(offset));
 
     int bpp = FormatTools.getBytesPerPixel(getPixelType());
     int pixel = bpp * getRGBChannelCount();
@@ -305,81 +315,57 @@ public class NativeND2Reader extends FormatReader {
 
     if (in.read() == -38 && in.read() == -50) {
       // newer version of ND2 - doesn't use JPEG2000
-      LOGGER.info("Searching for blocks");
-
       isJPEG = false;
-      in.seek(0);
       in.order(true);
 
-      // assemble offsets to each block
+      // find the offset to each block, preferably using the chunk map
 
-      ArrayList<String> imageNames = new ArrayList<String>();
-      ArrayList<Long> imageOffsets = new ArrayList<Long>();
-      ArrayList<int[]> imageLengths = new ArrayList<int[]>();
-      ArrayList<Long> customDataOffsets = new ArrayList<Long>();
-      ArrayList<int[]> customDataLengths = new ArrayList<int[]>();
+      TreeMap<Long, String> chunks = readChunkMap();
+      if (chunks == null) {
+        LOGGER.info("Searching for blocks");
+        chunks = findChunks();
+      }
+
+      long[] imageOffsets = new long[chunks.size()];
+      int[] imageIndexes = new int[chunks.size()];
+      int nImages = 0;
+      long customDataOffset = 0;
+      int customDataLength = 0;
+      long xEnd = 0, yEnd = 0, zEnd = 0;
 
       ByteArrayHandle xml = new ByteArrayHandle();
-      StringBuffer name = new StringBuffer();
 
-      // search for blocks
-      byte[] sigBytes = {-38, -50, -66, 10}; // 0xDACEBE0A
-      while (in.getFilePointer() < in.length() - 1 && in.getFilePointer() >= 0)
-      {
-        byte[] buf = new byte[1024];
-        int foundIndex = -1;
-        in.read(buf, 0, sigBytes.length);
-        while (foundIndex == -1 && in.getFilePointer() < in.length()) {
-          int n = in.read(buf, sigBytes.length, buf.length - sigBytes.length);
-          for (int i=0; i<buf.length-sigBytes.length; i++) {
-            for (int j=0; j<sigBytes.length; j++) {
-              if (buf[i + j] != sigBytes[j]) break;
-              if (j == sigBytes.length - 1) foundIndex = i;
-            }
-            if (foundIndex != -1) break;
-          }
-          if (foundIndex == -1) {
-            System.arraycopy(buf, buf.length - sigBytes.length - 1,
-              buf, 0, sigBytes.length);
-          }
-          else in.seek(in.getFilePointer() - n + foundIndex);
-        }
-        if (in.getFilePointer() >= in.length() || foundIndex == -1) {
-          break;
+      for (Long chunk : chunks.keySet()) {
+        String blockType = chunks.get(chunk);
+        long offset = chunk.longValue();
+
+        // pixel data is not read until the plane is opened
+        if (blockType.startsWith("ImageDataSeq")) {
+          imageOffsets[nImages] = offset;
+          imageIndexes[nImages] =
+            Integer.parseInt(blockType.replaceAll("\\D", ""));
+          nImages++;
+          continue;
         }
 
-        if (in.getFilePointer() > in.length() - 24) break;
+        boolean xmlBlock = blockType.startsWith("Image") ||
+          blockType.startsWith("CustomDataVa");
+        if (!xmlBlock &&
+          getMetadataOptions().getMetadataLevel() == MetadataLevel.MINIMUM)
+        {
+          continue;
+        }
 
+        in.seek(offset + 4);
         int lenOne = in.readInt();
         int lenTwo = in.readInt();
         int len = lenOne + lenTwo;
-        in.skipBytes(4);
-
-        long fp = in.getFilePointer();
-        String blockType = in.readString(12);
-
-        int percent = (int) (100 * fp / in.length());
-        LOGGER.info("Parsing block '{}' {}%", blockType, percent);
+        long fp = offset + 16;
 
-        int skip = len - 12 - lenOne * 2;
-        if (skip <= 0) skip += lenOne * 2;
-
-        if (blockType.startsWith("ImageDataSeq")) {
-          imageOffsets.add(new Long(fp));
-          imageLengths.add(new int[] {lenOne, lenTwo});
-          char b = (char) in.readByte();
-          while (b != '!') {
-            name.append(b);
-            b = (char) in.readByte();
-          }
-          imageNames.add(name.toString());
-          name = name.delete(0, name.length());
-        }
-        else if (blockType.startsWith("Image") ||
-          blockType.startsWith("CustomDataVa"))
-        {
+        if (xmlBlock) {
           int length = lenOne + lenTwo - 12;
           byte[] b = new byte[length];
+          in.seek(fp + 12);
           in.read(b);
 
           // strip out invalid characters
@@ -403,31 +389,33 @@ public class NativeND2Reader extends FormatReader {
             }
             xml.write(b, off, b.length - off);
           }
-          skip = 0;
         }
-        else if (getMetadataOptions().getMetadataLevel() !=
-          MetadataLevel.MINIMUM)
-        {
-          if (blockType.startsWith("CustomData|A")) {
-            customDataOffsets.add(new Long(fp));
-            customDataLengths.add(new int[] {lenOne, lenTwo});
-          }
-          else if (blockType.startsWith("CustomData|Z")) {
-            int nDoubles = (lenOne + lenTwo) / 8;
-            zOffset = fp + 8 * (nDoubles - imageOffsets.size());
-          }
-          else if (blockType.startsWith("CustomData|X")) {
-            int nDoubles = (lenOne + lenTwo) / 8;
-            xOffset = fp + 8 * (nDoubles - imageOffsets.size());
-          }
-          else if (blockType.startsWith("CustomData|Y")) {
-            int nDoubles = (lenOne + lenTwo) / 8;
-            yOffset = fp + 8 * (nDoubles - imageOffsets.size());
+        else if (blockType.startsWith("CustomData|A")) {
+          if (customDataOffset == 0) {
+            customDataOffset = fp;
+            customDataLength = len;
           }
         }
-        in.skipBytes(skip);
+        else if (blockType.startsWith("CustomData|Z")) {
+          zEnd = fp + 8 * (len / 8);
+        }
+        else if (blockType.startsWith("CustomData|X")) {
+          xEnd = fp + 8 * (len / 8);
+        }
+        else if (blockType.startsWith("CustomData|Y")) {
+          yEnd = fp + 8 * (len / 8);
+        }
+      }
+
+      if (nImages == 0) {
+        throw new FormatException("No image data found");
       }
 
+      // stage positions are stored at the end of their blocks
+      if (xEnd != 0) xOffset = xEnd - 8 * nImages;
+      if (yEnd != 0) yOffset = yEnd - 8 * nImages;
+      if (zEnd != 0) zOffset = zEnd - 8 * nImages;
+
       // parse XML blocks
 
       String xmlString = new String(xml.getBytes(), 0, (int) xml.length());
@@ -490,9 +478,8 @@ public class NativeND2Reader extends FormatReader {
       // sometimes the XML will indicate that there are multiple channels,
       // when in fact there is only one channel
 
-      long firstOffset = imageOffsets.get(0);
-      long secondOffset =
-        imageOffsets.size() > 1 ? imageOffsets.get(1) : in.length();
+      long firstOffset = imageOffsets[0];
+      long secondOffset = nImages > 1 ? imageOffsets[1] : in.length();
       int planeSize = getSizeX() * getSizeY() * getSizeC() *
         FormatTools.getBytesPerPixel(getPixelType());
       if (isLossless) planeSize /= 4;
@@ -508,7 +495,7 @@ public class NativeND2Reader extends FormatReader {
         }
       }
 
-      if (getSizeT() == imageOffsets.size() && getSeriesCount() > 1) {
+      if (getSizeT() == nImages && getSeriesCount() > 1) {
         CoreMetadata firstCore = core[0];
         core = new CoreMetadata[] {firstCore};
       }
@@ -516,32 +503,32 @@ public class NativeND2Reader extends FormatReader {
       // calculate the image count
       for (int i=0; i<getSeriesCount(); i++) {
         core[i].imageCount = getSizeZ() * getSizeT() * getSizeC();
-        if (imageOffsets.size() / getSeriesCount() < core[i].imageCount) {
+        if (nImages / getSeriesCount() < core[i].imageCount) {
           core[i].imageCount /= getSizeC();
         }
-        if (core[i].imageCount > imageOffsets.size() / getSeriesCount()) {
-          if (core[i].imageCount == imageOffsets.size()) {
+        if (core[i].imageCount > nImages / getSeriesCount()) {
+          if (core[i].imageCount == nImages) {
             CoreMetadata originalCore = core[0];
             core = new CoreMetadata[] {originalCore};
             numSeries = 1;
             break;
           }
-          else if (imageOffsets.size() % core[i].sizeT == 0) {
-            core[i].imageCount = imageOffsets.size() / getSeriesCount();
+          else if (nImages % core[i].sizeT == 0) {
+            core[i].imageCount = nImages / getSeriesCount();
             core[i].sizeZ = core[i].imageCount / core[i].sizeT;
             core[i].dimensionOrder = "CZT";
           }
           else {
-            core[i].imageCount = imageOffsets.size() / getSeriesCount();
+            core[i].imageCount = nImages / getSeriesCount();
             core[i].sizeZ = 1;
             core[i].sizeT = core[i].imageCount;
           }
         }
       }
 
-      if (numSeries * getImageCount() == 1 && imageOffsets.size() > 1) {
+      if (numSeries * getImageCount() == 1 && nImages > 1) {
         for (int i=0; i<getSeriesCount(); i++) {
-          core[i].imageCount = imageOffsets.size() / getSeriesCount();
+          core[i].imageCount = nImages / getSeriesCount();
           core[i].sizeZ = getImageCount();
           core[i].sizeT = 1;
         }
@@ -581,21 +568,8 @@ public class NativeND2Reader extends FormatReader {
       System.arraycopy(lengths, 0, zctLengths, 0, lengths.length);
       zctLengths[fieldIndex] = 1;
 
-      for (int i=0; i<imageOffsets.size(); i++) {
-        long offset = imageOffsets.get(i).longValue();
-        int[] p = imageLengths.get(i);
-        int length = p[0] + p[1];
-
-        if (getSizeC() == 0) {
-          int sizeC = length / (getSizeX() * getSizeY() *
-            FormatTools.getBytesPerPixel(getPixelType()));
-          for (int q=0; q<getSeriesCount(); q++) {
-            core[q].sizeC = sizeC;
-          }
-        }
-
-        String imageName = imageNames.get(i);
-        int ndx = Integer.parseInt(imageName.replaceAll("\\D", ""));
+      for (int i=0; i<nImages; i++) {
+        int ndx = imageIndexes[i];
 
         int[] pos = FormatTools.rasterToPosition(lengths, ndx);
         int seriesIndex = pos[fieldIndex];
@@ -604,7 +578,7 @@ public class NativeND2Reader extends FormatReader {
 
         if (seriesIndex < offsets.length && plane < offsets[seriesIndex].length)
         {
-          offsets[seriesIndex][plane] = offset + p[0] + 8;
+          offsets[seriesIndex][plane] = imageOffsets[i];
         }
       }
 
@@ -679,13 +653,9 @@ public class NativeND2Reader extends FormatReader {
         posY = handler.getYPositions();
         posZ = handler.getZPositions();
 
-        if (customDataOffsets.size() > 0) {
-          in.seek(customDataOffsets.get(0).longValue());
-          int[] p = customDataLengths.get(0);
-          int len = p[0] + p[1];
-
-          int timestampBytes = imageOffsets.size() * 8;
-          in.skipBytes(len - timestampBytes);
+        if (customDataOffset > 0) {
+          int timestampBytes = nImages * 8;
+          in.seek(customDataOffset + customDataLength - timestampBytes);
 
           // the acqtimecache is a undeliniated stream of doubles
 
@@ -704,19 +674,19 @@ public class NativeND2Reader extends FormatReader {
 
         if (posX.size() == 0 && xOffset != 0) {
           in.seek(xOffset);
-          for (int i=0; i<imageOffsets.size(); i++) {
+          for (int i=0; i<nImages; i++) {
             posX.add(new Double(in.readDouble()));
           }
         }
         if (posY.size() == 0 && yOffset != 0) {
           in.seek(yOffset);
-          for (int i=0; i<imageOffsets.size(); i++) {
+          for (int i=0; i<nImages; i++) {
             posY.add(new Double(in.readDouble()));
           }
         }
         if (posZ.size() == 0 && zOffset != 0) {
           in.seek(zOffset);
-          for (int i=0; i<imageOffsets.size(); i++) {
+          for (int i=0; i<nImages; i++) {
             posZ.add(new Double(in.readDouble()));
           }
         }
@@ -962,6 +932,115 @@ public class NativeND2Reader extends FormatReader {
 
   // -- Helper methods --
 
+  /**
+   * Reads the chunk map at the end of the file, which lists the name and
+   * offset of every chunk.
+   *
+   * @return the name of each chunk, keyed and sorted by the offset to the
+   *   chunk's header; or null if the file does not have a valid chunk map
+   */
+  private TreeMap<Long, String> readChunkMap() throws IOException {
+    int sigLength = CHUNK_MAP_SIGNATURE.length();
+    long mapPointer = in.length() - sigLength - 8;
+    if (mapPointer < 16) return null;
+    in.seek(mapPointer);
+    if (!in.readString(sigLength).equals(CHUNK_MAP_SIGNATURE)) return null;
+    long mapOffset = in.readLong();
+    if (mapOffset < 0 || mapOffset > mapPointer - 16) return null;
+
+    in.seek(mapOffset);
+    in.order(false);
+    boolean validChunk = (in.readInt() & 0xffffffffL) == ND2_MAGIC_BYTES_1;
+    in.order(true);
+    int nameLength = in.readInt();
+    long mapLength = in.readLong();
+    long mapStart = mapOffset + 16 + nameLength;
+    if (!validChunk || nameLength < 0 || mapLength <= 0 ||
+      mapLength > Integer.MAX_VALUE || mapStart + mapLength > in.length())
+    {
+      return null;
+    }
+
+    byte[] map = new byte[(int) mapLength];
+    in.seek(mapStart);
+    in.readFully(map);
+
+    // each entry is a name ending in '!', then the chunk's offset and length
+    TreeMap<Long, String> chunks = new TreeMap<Long, String>();
+    int p = 0;
+    while (p < map.length) {
+      int end = p;
+      while (end < map.length - 1 && map[end] != '!') end++;
+      String name = new String(map, p, end + 1 - p);
+      if (name.equals(CHUNK_MAP_SIGNATURE)) break;
+      if (end + 17 > map.length) return null;
+      long offset = DataTools.bytesToLong(map, end + 1, true);
+      if (offset < 0 || offset > in.length() - 16) return null;
+      chunks.put(new Long(offset), name);
+      p = end + 17;
+    }
+    return chunks.size() == 0 ? null : chunks;
+  }
+
+  /**
+   * Finds every chunk by searching the whole file for chunk signatures.
+   * This is much slower than reading the chunk map, and is only used for
+   * files without a valid chunk map.
+   *
+   * @return the name of each chunk, keyed and sorted by the offset to the
+   *   chunk's header
+   */
+  private TreeMap<Long, String> findChunks() throws IOException {
+    TreeMap<Long, String> chunks = new TreeMap<Long, String>();
+    in.seek(0);
+
+    byte[] sigBytes = {-38, -50, -66, 10}; // 0xDACEBE0A
+    while (in.findBytes(sigBytes) >= 0) {
+      if (in.getFilePointer() > in.length() - 28) break;
+      in.skipBytes(sigBytes.length);
+
+      int lenOne = in.readInt();
+      int lenTwo = in.readInt();
+      int len = lenOne + lenTwo;
+      in.skipBytes(4);
+
+      long fp = in.getFilePointer();
+      String blockType = in.readString(12);
+
+      int percent = (int) (100 * fp / in.length());
+      LOGGER.debug("Parsing block '{}' {}%", blockType, percent);
+
+      int skip = len - 12 - lenOne * 2;
+      if (skip <= 0) skip += lenOne * 2;
+
+      if (blockType.startsWith("ImageDataSeq")) {
+        StringBuffer name = new StringBuffer(blockType);
+        char b = (char) in.readByte();
+        while (b != '!') {
+          name.append(b);
+          b = (char) in.readByte();
+        }
+        blockType = name.toString();
+      }
+      else if (blockType.startsWith("Image") ||
+        blockType.startsWith("CustomDataVa"))
+      {
+        skip = len - 12;
+      }
+      chunks.put(new Long(fp - 16), blockType);
+      in.skipBytes(skip);
+    }
+    return chunks;
+  }
+
+  /** Gets the offset to the pixel data in the chunk at the given offset. */
+  private long getPixelsOffset(long chunk) throws IOException {
+    in.seek(chunk + 4);
+    int nameLength = in.readInt();
+    // the pixel data follows the chunk's name and an 8 byte timestamp
+    return chunk + 16 + nameLength + 8;
+  }
+
   private void populateMetadataStore(ND2Handler handler) throws FormatException
   {
     MetadataStore store = makeFilterMetadata();
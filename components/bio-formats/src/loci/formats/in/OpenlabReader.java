@@ -83,6 +83,10 @@ public class OpenlabReader extends FormatReader {
   private static final int CALIBRATION = 69;
   private static final int USER = 72;
 
+  /** Signature that precedes each iPic block of pixel data. */
+  private static final byte[] IPIC_SIGNATURE =
+    {0x49, 0x56, 0x45, 0x41, 0x64, 0x62, 0x70, 0x71}; // IVEAdbpq
+
   // -- Static fields --
 
   /** Helper reader to read PICT data. */
@@ -865,27 +869,8 @@ public class OpenlabReader extends FormatReader {
   }
 
   private void findNextBlock() throws IOException {
-    byte[] buf = new byte[8192];
-    in.read(buf);
-    boolean found = false;
-
-    while (!found && in.getFilePointer() < in.length()) {
-      for (int i=0; i<buf.length-7; i++) {
-        if (buf[i] == 0x49 && buf[i + 1] == 0x56 && buf[i + 2] == 0x45 &&
-          buf[i + 3] == 0x41 && buf[i + 4] == 0x64 && buf[i + 5] == 0x62 &&
-          buf[i + 6] == 0x70 && buf[i + 7] == 0x71)
-        {
-          found = true;
-          in.seek(in.getFilePointer() - buf.length + i + 8);
-          break;
-        }
-      }
-      if (!found) {
-        for (int i=0; i<7; i++) {
-          buf[i] = buf[buf.length - (7 - i)];
-        }
-        in.read(buf, 7, buf.length - 7);
-      }
+    if (in.findBytes(IPIC_SIGNATURE) >= 0) {
+      in.skipBytes(IPIC_SIGNATURE.length);
     }
   }
 
@@ -210,30 +210,14 @@ public class SlidebookReader extends FormatReader {
         in.skipBytes(in.readShort() - 8);
       }
       else if (checkOne == -1 && checkTwo == -1) {
-        boolean foundBlock = false;
-        byte[] block = new byte[8192];
-        in.read(block);
-        while (!foundBlock) {
-          for (int i=0; i<block.length-2; i++) {
-            if ((block[i] == 'M' && block[i + 1] == 'M') ||
-              (block[i] == 'I' && block[i + 1] == 'I'))
-            {
-              foundBlock = true;
-              in.seek(in.getFilePointer() - block.length + i - 2);
-              LOGGER.debug("Found metadata offset: {}",
-                (in.getFilePointer() - 2));
-              metadataOffsets.add(new Long(in.getFilePointer() - 2));
-              in.skipBytes(in.readShort() - 5);
-              break;
-            }
-          }
-          if (!foundBlock) {
-            block[0] = block[block.length - 2];
-            block[1] = block[block.length - 1];
-            in.read(block, 2, block.length - 2);
-          }
-        }
-
+        // skip to the next metadata block
+        long offset =
+          in.findBytes(new byte[] {'M', 'M'}, new byte[] {'I', 'I'});
+        if (offset < 0) break;
+        in.seek(offset - 2);
+        LOGGER.debug("Found metadata offset: {}", (offset - 4));
+        metadataOffsets.add(new Long(offset - 4));
+        in.skipBytes(in.readShort() - 5);
       }
       else {
         String s = null;
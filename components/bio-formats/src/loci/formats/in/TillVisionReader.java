@@ -308,7 +308,8 @@ public class TillVisionReader extends FormatReader {
           }
 
           if (in != null) in.close();
-          in = poi.getDocumentStream(name);
+          // the POI service is closed at the end of initFile
+          in = new RandomAccessInputStream(poi.getDocumentBytes(name));
           s.close();
           break;
         }
@@ -44,6 +44,7 @@ import loci.formats.codec.LZOCodec;
 import loci.formats.meta.MetadataStore;
 import loci.formats.services.MetakitService;
 
+import ome.metakit.RowCursor;
 import ome.xml.model.primitives.PositiveFloat;
 import ome.xml.model.primitives.PositiveInteger;
 
@@ -64,6 +65,10 @@ public class VolocityReader extends FormatReader {
 
   private static final int SIGNATURE_SIZE = 13;
 
+  /** Columns of the sample and string tables that are used by this reader. */
+  private static final int[] SAMPLE_COLUMNS = {0, 1, 2, 11, 13, 14};
+  private static final int[] STRING_COLUMNS = {0, 1};
+
   // -- Fields --
 
   private String[][] pixelsFiles;
@@ -72,7 +77,16 @@ public class VolocityReader extends FormatReader {
 
   private int[] planePadding;
 
-  private Object[][] sampleTable, stringTable;
+  /** Columns of the sample table that are used, indexed by row. */
+  private int[] sampleID, sampleParent, sampleChildType, sampleNameLink;
+  private byte[][] sampleData;
+
+  /** File links of the samples, or null where there are none. */
+  private String[] sampleExternalData;
+
+  /** Columns of the string table, indexed by row. */
+  private int[] stringID;
+  private String[] strings;
   private Location dir = null;
   private int[] blockSize;
 
@@ -219,8 +233,11 @@ public class VolocityReader extends FormatReader {
       extraFiles = null;
       timestampFiles = null;
       planePadding = null;
-      sampleTable = null;
-      stringTable = null;
+      sampleID = sampleParent = sampleChildType = sampleNameLink = null;
+      sampleData = null;
+      sampleExternalData = null;
+      stringID = null;
+      strings = null;
       dir = null;
       Location.mapFile(EMBEDDED_STREAM, null);
     }
@@ -265,8 +282,7 @@ public class VolocityReader extends FormatReader {
       ServiceFactory factory = new ServiceFactory();
       MetakitService reader = factory.getInstance(MetakitService.class);
       reader.initialize(id);
-      sampleTable = reader.getTableData(1);
-      stringTable = reader.getTableData(2);
+      readTables(reader);
     }
     catch (DependencyException e) {
       throw new MissingLibraryException("Could not find Metakit library", e);
@@ -275,15 +291,14 @@ public class VolocityReader extends FormatReader {
     ArrayList<String> stackNames = new ArrayList<String>();
     ArrayList<Integer> parentIDs = new ArrayList<Integer>();
 
-    for (int i=0; i<sampleTable.length; i++) {
-      Integer stringID = (Integer) sampleTable[i][11];
-      String name = getString(stringID);
+    for (int i=0; i<sampleID.length; i++) {
+      String name = getString(sampleNameLink[i]);
 
-      int channelIndex = getChildIndex((Integer) sampleTable[i][0], "Channels");
+      int channelIndex = getChildIndex(sampleID[i], "Channels");
 
-      if (i > 0 && (Integer) sampleTable[i][2] == 1 && (channelIndex >= 0 ||
-        (sampleTable[i][14] != null && !sampleTable[i][14].equals(0)) ||
-        ((byte[]) sampleTable[i][13]).length > 21))
+      if (i > 0 && sampleChildType[i] == 1 && (channelIndex >= 0 ||
+        (sampleExternalData[i] != null && !sampleExternalData[i].equals("0")) ||
+        sampleData[i].length > 21))
       {
         if (channelIndex < 0) {
           RandomAccessInputStream s = getStream(i);
@@ -297,13 +312,13 @@ public class VolocityReader extends FormatReader {
           int z = s.readInt();
           if (x * y * z > 0 && x * y * z < (s.length() * 3)) {
             stackNames.add(name);
-            parentIDs.add((Integer) sampleTable[i][0]);
+            parentIDs.add(sampleID[i]);
           }
           s.close();
         }
         else {
           stackNames.add(name);
-          parentIDs.add((Integer) sampleTable[i][0]);
+          parentIDs.add(sampleID[i]);
         }
       }
     }
@@ -322,19 +337,17 @@ public class VolocityReader extends FormatReader {
 
     for (int i=0; i<parentIDs.size(); i++) {
       core[i] = new CoreMetadata();
-      Integer parent = parentIDs.get(i);
+      int parent = parentIDs.get(i);
 
       int channelIndex = getChildIndex(parent, "Channels");
       if (channelIndex >= 0) {
-        Integer[] channels =
-          getAllChildren((Integer) sampleTable[channelIndex][0]);
+        int[] channels = getAllChildren(sampleID[channelIndex]);
         core[i].sizeC = channels.length;
         pixelsFiles[i] = new String[core[i].sizeC];
 
         channelNames[i] = new String[channels.length];
         for (int c=0; c<channels.length; c++) {
-          channelNames[i][c] =
-            getString((Integer) sampleTable[channels[c]][11]);
+          channelNames[i][c] = getString(sampleNameLink[channels[c]]);
 
           RandomAccessInputStream data = getStream(channels[c]);
           if (data.length() > 22) {
@@ -347,9 +360,8 @@ public class VolocityReader extends FormatReader {
             pixelsFiles[i][c] = f.getAbsolutePath();
           }
           else {
-            Integer child =
-              getAllChildren((Integer) sampleTable[channels[c]][0])[0];
-            pixelsFiles[i][c] = getFile((Integer) sampleTable[child][0], dir);
+            int child = getAllChildren(sampleID[channels[c]])[0];
+            pixelsFiles[i][c] = getFile(sampleID[child], dir);
           }
           data.close();
         }
@@ -362,16 +374,15 @@ public class VolocityReader extends FormatReader {
           !new Location(pixelsFiles[i][0]).exists())
         {
           int row = -1;
-          for (int r=0; r<sampleTable.length; r++) {
-            if (sampleTable[r][0].equals(parent)) {
+          for (int r=0; r<sampleID.length; r++) {
+            if (sampleID[r] == parent) {
               row = r;
               break;
             }
           }
 
           pixelsFiles[i][0] = EMBEDDED_STREAM;
-          IRandomAccess data =
-            new ByteArrayHandle((byte[]) sampleTable[row][13]);
+          IRandomAccess data = new ByteArrayHandle(sampleData[row]);
           Location.mapFile(pixelsFiles[i][0], data);
         }
       }
@@ -648,23 +659,54 @@ public class VolocityReader extends FormatReader {
     setSeries(0);
   }
 
-  private String getString(Integer stringID) {
-    for (int row=0; row<stringTable.length; row++) {
-      if (stringID.equals(stringTable[row][0])) {
-        String s = (String) stringTable[row][1];
-        if (s != null) {
-          s = s.trim();
-        }
-        return s;
+  /** Read the columns of the sample and string tables that are used. */
+  private void readTables(MetakitService reader) throws IOException {
+    RowCursor cursor = reader.getCursor(1, SAMPLE_COLUMNS);
+    int rows = cursor.getRowCount();
+    sampleID = new int[rows];
+    sampleParent = new int[rows];
+    sampleChildType = new int[rows];
+    sampleNameLink = new int[rows];
+    sampleData = new byte[rows][];
+    sampleExternalData = new String[rows];
+    boolean externalString = cursor.getColumnType(5) == String.class;
+    for (int row=0; row<rows; row++) {
+      cursor.next();
+      sampleID[row] = cursor.getInt(0);
+      sampleParent[row] = cursor.getInt(1);
+      sampleChildType[row] = cursor.getInt(2);
+      sampleNameLink[row] = cursor.getInt(3);
+      sampleData[row] = cursor.getBytes(4);
+      if (!cursor.isNull(5)) {
+        sampleExternalData[row] = externalString ?
+          cursor.getString(5).trim() : String.valueOf(cursor.getLong(5));
+      }
+    }
+
+    cursor = reader.getCursor(2, STRING_COLUMNS);
+    rows = cursor.getRowCount();
+    stringID = new int[rows];
+    strings = new String[rows];
+    for (int row=0; row<rows; row++) {
+      cursor.next();
+      stringID[row] = cursor.getInt(0);
+      strings[row] = cursor.getString(1);
+    }
+  }
+
+  private String getString(int id) {
+    for (int row=0; row<stringID.length; row++) {
+      if (stringID[row] == id) {
+        return strings[row].trim();
       }
     }
     return null;
   }
 
-  private int getChildIndex(Integer parentID, String childName) {
-    for (int row=0; row<sampleTable.length; row++) {
-      if (parentID.equals(sampleTable[row][1])) {
-        String name = getString((Integer) sampleTable[row][11]);
+  private int getChildIndex(int parentID, String childName) {
+    for (int row=0; row<sampleParent.length; row++) {
+      if (sampleParent[row] == parentID) {
+        String name = getString(sampleNameLink[row]);
         if (childName.equals(name)) {
           return row;
         }
@@ -673,22 +715,25 @@ public class VolocityReader extends FormatReader {
     return -1;
   }
 
-  private Integer[] getAllChildren(Integer parentID) {
-    ArrayList<Integer> children = new ArrayList<Integer>();
-    for (int row=0; row<sampleTable.length; row++) {
-      if (parentID.equals(sampleTable[row][1])) {
-        children.add(row);
-      }
+  private int[] getAllChildren(int parentID) {
+    int count = 0;
+    for (int row=0; row<sampleParent.length; row++) {
+      if (sampleParent[row] == parentID) count++;
+    }
+    int[] children = new int[count];
+    count = 0;
+    for (int row=0; row<sampleParent.length; row++) {
+      if (sampleParent[row] == parentID) children[count++] = row;
     }
-    return children.toArray(new Integer[children.size()]);
+    return children;
   }
 
   private RandomAccessInputStream getStream(int row) throws IOException {
-    Object o = sampleTable[row][14];
-    String fileLink = o == null ? "0" : o.toString().trim();
+    String fileLink = sampleExternalData[row];
+    if (fileLink == null) fileLink = "0";
     RandomAccessInputStream data = null;
     if (fileLink.equals("0")) {
-      data = new RandomAccessInputStream((byte[]) sampleTable[row][13]);
+      data = new RandomAccessInputStream(sampleData[row]);
     }
     else {
       fileLink = new Location(dir, fileLink + ".dat").getAbsolutePath();
@@ -699,12 +744,11 @@ public class VolocityReader extends FormatReader {
     return data;
   }
 
-  private String getFile(Integer parent, Location dir) {
-    for (int row=0; row<sampleTable.length; row++) {
-      if (parent.equals(sampleTable[row][0])) {
-        Object o = sampleTable[row][14];
-        if (o != null) {
-          String fileLink = o.toString().trim() + ".dat";
+  private String getFile(int parent, Location dir) {
+    for (int row=0; row<sampleID.length; row++) {
+      if (sampleID[row] == parent) {
+        if (sampleExternalData[row] != null) {
+          String fileLink = sampleExternalData[row] + ".dat";
           return new Location(dir, fileLink).getAbsolutePath();
         }
       }
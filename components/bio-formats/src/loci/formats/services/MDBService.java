@@ -28,6 +28,8 @@ import java.util.Vector;
 
 import loci.common.services.Service;
 
+import mdbtools.libmdb.TableCursor;
+
 /**
  * Interface defining methods for parsing MDB database files.
  *
@@ -60,6 +62,26 @@ public interface MDBService extends Service {
    */
   public Vector<Vector<String[]>> parseDatabase() throws IOException;
 
+  /**
+   * Retrieve the names of all tables in a pre-initialized .mdb file, in the
+   * same order as the tables returned by {@link #parseDatabase()}.
+   */
+  public String[] getTableNames();
+
+  /**
+   * Open a cursor over the named columns of a table in a pre-initialized
+   * .mdb file.  Unlike {@link #parseDatabase()}, only the requested columns
+   * are decoded, and only as each row is read.
+   *
+   * @param table the name of the table
+   * @param columns the names of the columns to read, or null to read every
+   *   column
+   * @return the cursor, or null if the table does not exist
+   * @throws IOException if there is a problem reading the table definition
+   */
+  public TableCursor getCursor(String table, String[] columns)
+    throws IOException;
+
   /** Close the currently initialized file. */
   public void close();
 
@@ -24,6 +24,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats.services;
 
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Vector;
 
@@ -31,13 +32,9 @@ import loci.common.services.AbstractService;
 import mdbtools.jdbc2.File;
 import mdbtools.libmdb.Catalog;
 import mdbtools.libmdb.Constants;
-import mdbtools.libmdb.Data;
-import mdbtools.libmdb.Holder;
 import mdbtools.libmdb.MdbCatalogEntry;
-import mdbtools.libmdb.MdbColumn;
 import mdbtools.libmdb.MdbHandle;
-import mdbtools.libmdb.MdbTableDef;
-import mdbtools.libmdb.Table;
+import mdbtools.libmdb.TableCursor;
 import mdbtools.libmdb.file;
 import mdbtools.libmdb.mem;
 
@@ -53,7 +50,6 @@ public class MDBServiceImpl extends AbstractService implements MDBService {
   // -- Fields --
 
   private MdbHandle mdb;
-  private Vector<Holder> boundValues;
 
   // -- MDBService API methods --
 
@@ -68,7 +64,6 @@ public class MDBServiceImpl extends AbstractService implements MDBService {
 
   /* @see MDBService#initialize(String) */
   public void initialize(String filename) throws IOException {
-    boundValues = new Vector<Holder>();
     mem.mdb_init();
     File dbfile = new File(filename);
     mdb = file.mdb_open(dbfile);
@@ -78,69 +73,91 @@ public class MDBServiceImpl extends AbstractService implements MDBService {
 
   /* @see MDBService#parseDatabase() */
   public Vector<Vector<String[]>> parseDatabase() throws IOException {
-    List catalog = mdb.catalog;
-
     Vector<Vector<String[]>> rtn = new Vector<Vector<String[]>>();
 
-    int previousColumnCount = 0;
-
-    for (Object entry : catalog) {
-      int type = ((MdbCatalogEntry) entry).object_type;
-      String name = ((MdbCatalogEntry) entry).object_name;
-
-      if (type == Constants.MDB_TABLE && !name.startsWith("MSys")) {
-        Vector<String[]> tableData = new Vector<String[]>();
-        MdbTableDef table = Table.mdb_read_table((MdbCatalogEntry) entry);
-        Table.mdb_read_columns(table);
-
-        int numCols = table.num_cols;
-        for (int i=0; i<numCols; i++) {
-          Holder h = new Holder();
-          Data.mdb_bind_column(table, i + 1, h);
-          boundValues.add(h);
-        }
-
-        String[] columnNames = new String[numCols + 1];
-        columnNames[0] = name;
-        for (int i=0; i<numCols; i++) {
-          columnNames[i + 1] = ((MdbColumn) table.columns.get(i)).name;
-        }
-        tableData.add(columnNames);
-
-        while (fetchRow(table)) {
-          String[] row = new String[numCols];
-          for (int i=0; i<numCols; i++) {
-            Holder h = boundValues.get(i + previousColumnCount);
-            row[i] = h.s;
-          }
-          tableData.add(row);
-        }
-
-        previousColumnCount += numCols;
-        rtn.add(tableData);
+    for (MdbCatalogEntry entry : getTables()) {
+      Vector<String[]> tableData = new Vector<String[]>();
+      TableCursor cursor = new TableCursor(entry, null);
+
+      int numCols = cursor.getColumnCount();
+      String[] columnNames = new String[numCols + 1];
+      columnNames[0] = entry.object_name;
+      for (int i=0; i<numCols; i++) {
+        columnNames[i + 1] = cursor.getColumnName(i);
       }
+      tableData.add(columnNames);
+
+      String[] row = null;
+      while ((row = fetchRow(cursor)) != null) {
+        tableData.add(row);
+      }
+
+      rtn.add(tableData);
     }
     return rtn;
   }
 
+  /* @see MDBService#getTableNames() */
+  public String[] getTableNames() {
+    List<MdbCatalogEntry> tables = getTables();
+    String[] names = new String[tables.size()];
+    for (int i=0; i<names.length; i++) {
+      names[i] = tables.get(i).object_name;
+    }
+    return names;
+  }
+
+  /* @see MDBService#getCursor(String, String[]) */
+  public TableCursor getCursor(String table, String[] columns)
+    throws IOException
+  {
+    for (MdbCatalogEntry entry : getTables()) {
+      if (entry.object_name.equals(table)) {
+        return new TableCursor(entry, columns);
+      }
+    }
+    return null;
+  }
+
   /* @see MDBService#close() */
   public void close() {
     mdb = null;
-    boundValues = null;
+  }
+
+  // -- Helper methods --
+
+  /** Retrieves the catalog entries of all non-system tables. */
+  private List<MdbCatalogEntry> getTables() {
+    List<MdbCatalogEntry> tables = new ArrayList<MdbCatalogEntry>();
+    for (Object entry : mdb.catalog) {
+      MdbCatalogEntry e = (MdbCatalogEntry) entry;
+      if (e.object_type == Constants.MDB_TABLE &&
+        !e.object_name.startsWith("MSys"))
+      {
+        tables.add(e);
+      }
+    }
+    return tables;
   }
 
   /**
    * Fetches the next row from the table, ignoring potential parsing exceptions.
-   * @param table Table to fetch the next available row from.
-   * @return <code>true</code> if there are further rows to fetch.
-   * <code>false</code> if there are no further rows to fetch or an exception
-   * is thrown while parsing the row.
+   * @param cursor Cursor from which to fetch the next available row.
+   * @return the value of each column in the row, or <code>null</code> if
+   * there are no further rows to fetch or an exception is thrown while
+   * parsing the row.
    */
-  private boolean fetchRow(MdbTableDef table) {
+  private String[] fetchRow(TableCursor cursor) {
     try {
-      return Data.mdb_fetch_row(table);
-    } catch (Exception e) {
-      return false;
+      if (!cursor.next()) return null;
+      String[] row = new String[cursor.getColumnCount()];
+      for (int i=0; i<row.length; i++) {
+        row[i] = cursor.getString(i);
+      }
+      return row;
+    }
+    catch (Exception e) {
+      return null;
     }
   }
 }
@@ -28,6 +28,8 @@ import java.io.IOException;
 import loci.common.RandomAccessInputStream;
 import loci.common.services.Service;
 
+import ome.metakit.RowCursor;
+
 /**
  * Interface defining methods for interacting with the OME Metakit library.
  *
@@ -79,4 +81,10 @@ public interface MetakitService extends Service {
   /* @see ome.metakit.MetakitReader#getColumnTypes(String) */
   public Class[] getColumnTypes(String table);
 
+  /* @see ome.metakit.MetakitReader#getCursor(int, int[]) */
+  public RowCursor getCursor(int table, int[] columns);
+
+  /* @see ome.metakit.MetakitReader#getCursor(String, String[]) */
+  public RowCursor getCursor(String table, String[] columns);
+
 }
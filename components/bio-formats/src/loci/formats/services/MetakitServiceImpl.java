@@ -30,6 +30,7 @@ import loci.common.services.Service;
 
 import ome.metakit.MetakitException;
 import ome.metakit.MetakitReader;
+import ome.metakit.RowCursor;
 
 /**
  * Implementation of MetakitService for interacting with the
@@ -123,4 +124,14 @@ public class MetakitServiceImpl implements MetakitService {
     return reader.getColumnTypes(table);
   }
 
+  /* @see loci.formats.services.MetakitService#getCursor(int, int[]) */
+  public RowCursor getCursor(int table, int[] columns) {
+    return reader.getCursor(table, columns);
+  }
+
+  /* @see loci.formats.services.MetakitService#getCursor(String, String[]) */
+  public RowCursor getCursor(String table, String[] columns) {
+    return reader.getCursor(table, columns);
+  }
+
 }
@@ -104,6 +104,35 @@ public interface NetCDFService extends Service {
   public Object getArray(String path, int[] origin, int[] shape)
     throws ServiceException;
 
+  /**
+   * Retrieves the Java primitive type used to represent a variable's values.
+   * @param path HDF path to the variable.
+   * @return Primitive class of the variable's values, e.g.
+   * <code>short.class</code>.
+   * @throws ServiceException If there is an error reading from the file.
+   */
+  public Class<?> getArrayType(String path) throws ServiceException;
+
+  /**
+   * Reads a hyperslab of an HDF path's values directly into a byte array.
+   * Values are copied in row-major order; unlike
+   * {@link #getArray(String, int[], int[])}, no n-dimensional Java array is
+   * constructed.
+   * @param path HDF path to the values.
+   * @param origin Array specifying the starting index.
+   * @param shape Array specifying the extents in each dimension.
+   * @param buf Destination array; must be large enough to hold every value
+   * in the hyperslab.
+   * @param little Whether or not the values should be stored in
+   * little-endian order.
+   * @throws ServiceException If there is an error with the range of values
+   * or reading from the file.
+   * @see ucar.nc2.Variable#read(int[], int[])
+   * @see ucar.ma2.Array#copyTo1DJavaArray()
+   */
+  public void readBytes(String path, int[] origin, int[] shape, byte[] buf,
+    boolean little) throws ServiceException;
+
   /**
    * Retrieves all of a variable's attributes.
    * @param path HDF path to the variable.
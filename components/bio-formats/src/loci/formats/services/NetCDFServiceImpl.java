@@ -24,7 +24,10 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats.services;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Hashtable;
 import java.util.List;
 import java.util.StringTokenizer;
@@ -167,6 +170,78 @@ public class NetCDFServiceImpl extends AbstractService
     }
   }
 
+  /* (non-Javadoc)
+   * @see loci.formats.NetCDFService#getArrayType(java.lang.String)
+   */
+  public Class<?> getArrayType(String path) throws ServiceException {
+    String groupName = getDirectory(path);
+    String variableName = getName(path);
+    Group group = getGroup(groupName);
+
+    Variable variable = group.findVariable(variableName);
+    int[] origin = new int[variable.getRank()];
+    int[] shape = new int[origin.length];
+    Arrays.fill(shape, 1);
+    try {
+      Object value = variable.read(origin, shape).copyTo1DJavaArray();
+      return value.getClass().getComponentType();
+    }
+    catch (InvalidRangeException e) {
+      throw new ServiceException(e);
+    }
+    catch (IOException e) {
+      throw new ServiceException(e);
+    }
+  }
+
+  /* (non-Javadoc)
+   * @see loci.formats.NetCDFService#readBytes(java.lang.String, int[], int[],
+   *   byte[], boolean)
+   */
+  public void readBytes(String path, int[] origin, int[] shape, byte[] buf,
+    boolean little) throws ServiceException
+  {
+    String groupName = getDirectory(path);
+    String variableName = getName(path);
+    Group group = getGroup(groupName);
+
+    Variable variable = group.findVariable(variableName);
+    Object data = null;
+    try {
+      data = variable.read(origin, shape).copyTo1DJavaArray();
+    }
+    catch (InvalidRangeException e) {
+      throw new ServiceException(e);
+    }
+    catch (IOException e) {
+      throw new ServiceException(e);
+    }
+
+    ByteBuffer bytes = ByteBuffer.wrap(buf);
+    bytes.order(little ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+    if (data instanceof byte[]) {
+      bytes.put((byte[]) data);
+    }
+    else if (data instanceof short[]) {
+      bytes.asShortBuffer().put((short[]) data);
+    }
+    else if (data instanceof int[]) {
+      bytes.asIntBuffer().put((int[]) data);
+    }
+    else if (data instanceof long[]) {
+      bytes.asLongBuffer().put((long[]) data);
+    }
+    else if (data instanceof float[]) {
+      bytes.asFloatBuffer().put((float[]) data);
+    }
+    else if (data instanceof double[]) {
+      bytes.asDoubleBuffer().put((double[]) data);
+    }
+    else {
+      throw new ServiceException("Unsupported data type: " + data);
+    }
+  }
+
   /* (non-Javadoc)
    * @see loci.formats.NetCDFService#getVariableAttributes(java.lang.String)
    */
@@ -0,0 +1,342 @@
+//
+// POIDocumentHandle.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.formats.services;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import loci.common.DataTools;
+import loci.common.HandleException;
+import loci.common.IRandomAccess;
+import loci.common.RandomAccessInputStream;
+
+/**
+ * Read-only IRandomAccess implementation for a single document within an
+ * OLE2 (POIFS) file.  Offsets within the document are mapped to offsets
+ * within the underlying file using the document's big block chain, so that
+ * no part of the document needs to be copied into memory before it is read.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/bio-formats/src/loci/formats/services/POIDocumentHandle.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/bio-formats/src/loci/formats/services/POIDocumentHandle.java;hb=HEAD">Gitweb</a></dd></dl>
+ *
+ * @see POIService#getDocumentStream(String)
+ */
+public class POIDocumentHandle implements IRandomAccess {
+
+  // -- Fields --
+
+  /** Stream from which the OLE2 file is read; shared with the service. */
+  private RandomAccessInputStream stream;
+
+  /** Offset into the underlying file of each block in the document. */
+  private long[] blockOffsets;
+
+  /** Size in bytes of each block. */
+  private int blockSize;
+
+  /** Length of the document. */
+  private long length;
+
+  /** Current position within the document. */
+  private long fp;
+
+  /** Byte ordering of this handle. */
+  private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+  /** Scratch buffer for reading primitive values. */
+  private byte[] scratch = new byte[8];
+
+  // -- Constructor --
+
+  /**
+   * Constructs a new handle for a document.
+   * @param stream Stream from which the OLE2 file is read.  This stream is
+   *   not closed when the handle is closed.
+   * @param blockOffsets Offset into the file of each block in the document,
+   *   in document order.
+   * @param blockSize Size in bytes of each block.
+   * @param length Length of the document in bytes.
+   */
+  public POIDocumentHandle(RandomAccessInputStream stream,
+    long[] blockOffsets, int blockSize, long length)
+  {
+    this.stream = stream;
+    this.blockOffsets = blockOffsets;
+    this.blockSize = blockSize;
+    this.length = length;
+  }
+
+  // -- IRandomAccess API methods --
+
+  /* @see IRandomAccess#close() */
+  public void close() {
+    stream = null;
+    blockOffsets = null;
+    length = fp = 0;
+  }
+
+  /* @see IRandomAccess#getFilePointer() */
+  public long getFilePointer() {
+    return fp;
+  }
+
+  /* @see IRandomAccess#length() */
+  public long length() {
+    return length;
+  }
+
+  /* @see IRandomAccess#getOrder() */
+  public ByteOrder getOrder() {
+    return order;
+  }
+
+  /* @see IRandomAccess#setOrder(ByteOrder) */
+  public void setOrder(ByteOrder order) {
+    this.order = order;
+  }
+
+  /* @see IRandomAccess#read(byte[]) */
+  public int read(byte[] b) throws IOException {
+    return read(b, 0, b.length);
+  }
+
+  /* @see IRandomAccess#read(byte[], int, int) */
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (fp + len > length) len = (int) (length - fp);
+    int total = 0;
+    while (total < len) {
+      int block = (int) (fp / blockSize);
+      int blockOffset = (int) (fp % blockSize);
+      int n = Math.min(len - total, blockSize - blockOffset);
+      stream.seek(blockOffsets[block] + blockOffset);
+      stream.readFully(b, off + total, n);
+      total += n;
+      fp += n;
+    }
+    return total;
+  }
+
+  /* @see IRandomAccess#read(ByteBuffer) */
+  public int read(ByteBuffer buffer) throws IOException {
+    return read(buffer, 0, buffer.capacity());
+  }
+
+  /* @see IRandomAccess#read(ByteBuffer, int, int) */
+  public int read(ByteBuffer buffer, int off, int len) throws IOException {
+    if (buffer.hasArray()) {
+      return read(buffer.array(), off, len);
+    }
+    byte[] b = new byte[len];
+    int n = read(b);
+    buffer.put(b, 0, n);
+    return n;
+  }
+
+  /* @see IRandomAccess#seek(long) */
+  public void seek(long pos) throws IOException {
+    fp = pos;
+  }
+
+  /* @see IRandomAccess#write(ByteBuffer) */
+  public void write(ByteBuffer buf) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see IRandomAccess#write(ByteBuffer, int, int) */
+  public void write(ByteBuffer buf, int off, int len) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  // -- DataInput API methods --
+
+  /* @see java.io.DataInput#readBoolean() */
+  public boolean readBoolean() throws IOException {
+    return readByte() != 0;
+  }
+
+  /* @see java.io.DataInput#readByte() */
+  public byte readByte() throws IOException {
+    readFully(scratch, 0, 1);
+    return scratch[0];
+  }
+
+  /* @see java.io.DataInput#readChar() */
+  public char readChar() throws IOException {
+    return (char) readShort();
+  }
+
+  /* @see java.io.DataInput#readDouble() */
+  public double readDouble() throws IOException {
+    return Double.longBitsToDouble(readLong());
+  }
+
+  /* @see java.io.DataInput#readFloat() */
+  public float readFloat() throws IOException {
+    return Float.intBitsToFloat(readInt());
+  }
+
+  /* @see java.io.DataInput#readFully(byte[]) */
+  public void readFully(byte[] b) throws IOException {
+    readFully(b, 0, b.length);
+  }
+
+  /* @see java.io.DataInput#readFully(byte[], int, int) */
+  public void readFully(byte[] b, int off, int len) throws IOException {
+    if (fp + len > length) {
+      throw new EOFException();
+    }
+    read(b, off, len);
+  }
+
+  /* @see java.io.DataInput#readInt() */
+  public int readInt() throws IOException {
+    readFully(scratch, 0, 4);
+    return DataTools.bytesToInt(scratch, 0, 4, isLittleEndian());
+  }
+
+  /* @see java.io.DataInput#readLine() */
+  public String readLine() throws IOException {
+    throw new IOException("Unimplemented");
+  }
+
+  /* @see java.io.DataInput#readLong() */
+  public long readLong() throws IOException {
+    readFully(scratch, 0, 8);
+    return DataTools.bytesToLong(scratch, 0, 8, isLittleEndian());
+  }
+
+  /* @see java.io.DataInput#readShort() */
+  public short readShort() throws IOException {
+    readFully(scratch, 0, 2);
+    return DataTools.bytesToShort(scratch, 0, 2, isLittleEndian());
+  }
+
+  /* @see java.io.DataInput#readUnsignedByte() */
+  public int readUnsignedByte() throws IOException {
+    return readByte() & 0xff;
+  }
+
+  /* @see java.io.DataInput#readUnsignedShort() */
+  public int readUnsignedShort() throws IOException {
+    return readShort() & 0xffff;
+  }
+
+  /* @see java.io.DataInput#readUTF() */
+  public String readUTF() throws IOException {
+    int len = readUnsignedShort();
+    byte[] b = new byte[len];
+    readFully(b);
+    return new String(b, "UTF-8");
+  }
+
+  /* @see java.io.DataInput#skipBytes(int) */
+  public int skipBytes(int n) throws IOException {
+    int skipped = (int) Math.min(n, length - fp);
+    if (skipped < 0) return 0;
+    fp += skipped;
+    return skipped;
+  }
+
+  // -- DataOutput API methods --
+
+  /* @see java.io.DataOutput#write(byte[]) */
+  public void write(byte[] b) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#write(byte[], int, int) */
+  public void write(byte[] b, int off, int len) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#write(int) */
+  public void write(int b) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeBoolean(boolean) */
+  public void writeBoolean(boolean v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeByte(int) */
+  public void writeByte(int v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeBytes(String) */
+  public void writeBytes(String s) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeChar(int) */
+  public void writeChar(int v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeChars(String) */
+  public void writeChars(String s) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeDouble(double) */
+  public void writeDouble(double v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeFloat(float) */
+  public void writeFloat(float v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeInt(int) */
+  public void writeInt(int v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeLong(long) */
+  public void writeLong(long v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeShort(int) */
+  public void writeShort(int v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeUTF(String) */
+  public void writeUTF(String str) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  // -- Helper methods --
+
+  private boolean isLittleEndian() {
+    return order == ByteOrder.LITTLE_ENDIAN;
+  }
+
+}
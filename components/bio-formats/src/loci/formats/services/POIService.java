@@ -67,6 +67,8 @@ public interface POIService extends Service {
   /**
    * Retrieve a RandomAccessInputStream corresponding to the given file name.
    * Either of the 'initialize' methods must be called before this method.
+   * The returned stream reads directly from the POI file system, and so
+   * cannot be used after {@link #close()} has been called.
    *
    * @param file The name of the embedded file for which to
    *   retrieve a RandomAccessInputStream.
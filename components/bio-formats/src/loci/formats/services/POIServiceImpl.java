@@ -35,8 +35,11 @@ import loci.common.services.AbstractService;
 import loci.poi.poifs.filesystem.DirectoryEntry;
 import loci.poi.poifs.filesystem.DocumentEntry;
 import loci.poi.poifs.filesystem.DocumentInputStream;
+import loci.poi.poifs.filesystem.DocumentNode;
 import loci.poi.poifs.filesystem.Entry;
+import loci.poi.poifs.filesystem.POIFSDocument;
 import loci.poi.poifs.filesystem.POIFSFileSystem;
+import loci.poi.poifs.storage.DocumentBlock;
 
 /**
  *
@@ -56,6 +59,9 @@ public class POIServiceImpl extends AbstractService implements POIService {
   private Hashtable<String, Integer> fileSizes;
   private Hashtable<String, DocumentEntry> files;
 
+  /** File offsets of each document's big blocks, keyed by document name. */
+  private Hashtable<String, long[]> blockOffsets;
+
   // -- POIService API methods --
 
   /**
@@ -88,6 +94,7 @@ public class POIServiceImpl extends AbstractService implements POIService {
     filePath = new Vector<String>();
     fileSizes = new Hashtable<String, Integer>();
     files = new Hashtable<String, DocumentEntry>();
+    blockOffsets = new Hashtable<String, long[]>();
 
     parseFile(root);
   }
@@ -101,7 +108,29 @@ public class POIServiceImpl extends AbstractService implements POIService {
   public RandomAccessInputStream getDocumentStream(String file)
     throws IOException
   {
-    return new RandomAccessInputStream(getDocumentBytes(file));
+    DocumentEntry entry = files.get(file);
+    if (!(entry instanceof DocumentNode)) {
+      throw new IOException("Cannot open internal document storage");
+    }
+    POIFSDocument document = ((DocumentNode) entry).getDocument();
+    DocumentBlock[] blocks = document.getBigBlocks();
+
+    // documents stored in small blocks are already in memory, and are
+    // smaller than a single big block
+    if (blocks.length == 0) {
+      return new RandomAccessInputStream(getDocumentBytes(file));
+    }
+
+    long[] offsets = blockOffsets.get(file);
+    if (offsets == null) {
+      offsets = new long[blocks.length];
+      for (int i=0; i<blocks.length; i++) {
+        offsets[i] = blocks[i].getOffset();
+      }
+      blockOffsets.put(file, offsets);
+    }
+    return new RandomAccessInputStream(new POIDocumentHandle(stream, offsets,
+      blocks[0].getBigBlockSize(), getFileSize(file)));
   }
 
   /* @see POIService#getDocumentBytes(String) */
@@ -145,6 +174,7 @@ public class POIServiceImpl extends AbstractService implements POIService {
     filePath = null;
     fileSizes = null;
     files = null;
+    blockOffsets = null;
   }
 
   // -- Helper methods --
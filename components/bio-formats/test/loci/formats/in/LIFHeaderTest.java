@@ -0,0 +1,179 @@
+//
+// LIFHeaderTest.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.formats.in;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import loci.common.RandomAccessInputStream;
+import loci.formats.FormatException;
+
+import org.testng.annotations.Test;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Tests decoding and parsing the UTF-16 XML description of a LIF file,
+ * which is decoded in blocks of 64 KB.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/bio-formats/test/loci/formats/in/LIFHeaderTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/bio-formats/test/loci/formats/in/LIFHeaderTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class LIFHeaderTest {
+
+  /** Number of UTF-16 characters in each block that is decoded. */
+  private static final int BLOCK = 32768;
+
+  /** Number of bytes that precede the description in the stream. */
+  private static final int OFFSET = 5;
+
+  /**
+   * Decodes characters that straddle block boundaries: an invalid "&#"
+   * sequence split between two blocks, and invalid characters at the end
+   * and start of a block.
+   */
+  @Test
+  public void testBlockBoundaries() throws IOException {
+    StringBuilder text = new StringBuilder();
+    StringBuilder expected = new StringBuilder();
+    append(text, expected, 'a', BLOCK - 1);
+    text.append("&#");
+    expected.append(" #");
+    append(text, expected, 'b', BLOCK - 2);
+    text.append("\u00e9\u0001");
+    expected.append("  ");
+    append(text, expected, 'c', 10);
+    text.append('\u0000');
+    text.append("&");
+    expected.append("&");
+
+    RandomAccessInputStream in = createStream(text.toString());
+    assertEquals(expected.toString(), readAll(
+      new LIFReader.HeaderStream(in, OFFSET, text.length()), false));
+    assertEquals(expected.toString(), readAll(
+      new LIFReader.HeaderStream(in, OFFSET, text.length()), true));
+
+    // only the given number of characters are decoded
+    assertEquals(expected.substring(0, BLOCK + 5), readAll(
+      new LIFReader.HeaderStream(in, OFFSET, BLOCK + 5), false));
+    in.close();
+  }
+
+  /** Leaves out unused blocks, and sanitizes attribute values. */
+  @Test
+  public void testAllMetadata() throws FormatException, IOException {
+    Element image = parse(false);
+    NodeList children = image.getChildNodes();
+    assertEquals(2, children.getLength());
+    assertEquals("ImageDescription", children.item(0).getNodeName());
+    assertEquals("Attachment", children.item(1).getNodeName());
+
+    Element attachment = (Element) children.item(1);
+    assertEquals("x  #65; y", attachment.getAttribute("Name"));
+    assertEquals(0, image.getOwnerDocument()
+      .getElementsByTagName("LDM_Block_Sequential_Master").getLength());
+  }
+
+  /** Keeps only the image descriptions for minimal metadata. */
+  @Test
+  public void testMinimalMetadata() throws FormatException, IOException {
+    Element image = parse(true);
+    NodeList children = image.getChildNodes();
+    assertEquals(1, children.getLength());
+    assertEquals("ImageDescription", children.item(0).getNodeName());
+    Element description = (Element) children.item(0);
+    assertEquals(1, description.getElementsByTagName("Channels").getLength());
+  }
+
+  // -- Helper methods --
+
+  private void append(StringBuilder text, StringBuilder expected, char c,
+    int count)
+  {
+    for (int i=0; i<count; i++) {
+      text.append(c);
+      expected.append(c);
+    }
+  }
+
+  /** Stores the given text as UTF-16LE, after a few other bytes. */
+  private RandomAccessInputStream createStream(String text)
+    throws IOException
+  {
+    byte[] bytes = new byte[OFFSET + text.length() * 2];
+    for (int i=0; i<text.length(); i++) {
+      char c = text.charAt(i);
+      bytes[OFFSET + i * 2] = (byte) (c & 0xff);
+      bytes[OFFSET + i * 2 + 1] = (byte) (c >> 8);
+    }
+    return new RandomAccessInputStream(bytes);
+  }
+
+  private String readAll(InputStream in, boolean singleBytes)
+    throws IOException
+  {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    if (singleBytes) {
+      for (int b=in.read(); b >= 0; b=in.read()) out.write(b);
+    }
+    else {
+      byte[] buf = new byte[1000];
+      for (int n=in.read(buf, 0, buf.length); n > 0;
+        n=in.read(buf, 0, buf.length))
+      {
+        out.write(buf, 0, n);
+      }
+    }
+    return new String(out.toByteArray(), "ISO-8859-1");
+  }
+
+  /**
+   * Parses a description that is longer than one block, and returns its
+   * Image element.
+   */
+  private Element parse(boolean minimal) throws FormatException, IOException {
+    StringBuilder xml = new StringBuilder();
+    xml.append("<LMSDataContainerHeader><Element Name=\"");
+    for (int i=0; i<BLOCK; i++) xml.append('e');
+    xml.append("\"><Data><Image><ImageDescription><Channels/>");
+    xml.append("</ImageDescription><Attachment Name=\"x\u00e9&#65; y\"/>");
+    xml.append("</Image></Data></Element><LDM_Block_Sequential_Master>");
+    xml.append("<LDM_Block_Sequential_List/></LDM_Block_Sequential_Master>");
+    xml.append("</LMSDataContainerHeader>");
+
+    RandomAccessInputStream in = createStream(xml.toString());
+    Element root = LIFReader.parseHeader(in, OFFSET, xml.length(), minimal);
+    in.close();
+
+    assertEquals("LEICA", root.getNodeName());
+    NodeList images = root.getElementsByTagName("Image");
+    assertEquals(1, images.getLength());
+    return (Element) images.item(0);
+  }
+
+}
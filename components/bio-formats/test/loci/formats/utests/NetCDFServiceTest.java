@@ -33,6 +33,7 @@ import java.util.Hashtable;
 import java.util.Vector;
 
 import loci.common.services.DependencyException;
+import loci.common.services.ServiceException;
 import loci.common.services.ServiceFactory;
 import loci.formats.services.NetCDFService;
 
@@ -200,4 +201,21 @@ public class NetCDFServiceTest {
     }
   }
 
+  @Test
+  public void testReadBytes() throws ServiceException {
+    String path = "/Raster_Image_0";
+    assertEquals(byte.class, service.getArrayType(path));
+
+    int[] origin = new int[] {10, 20};
+    int[] shape = new int[] {4, 8};
+    byte[][] rows = (byte[][]) service.getArray(path, origin, shape);
+    byte[] bytes = new byte[shape[0] * shape[1]];
+    service.readBytes(path, origin, shape, bytes, true);
+    for (int row=0; row<shape[0]; row++) {
+      for (int col=0; col<shape[1]; col++) {
+        assertEquals(rows[row][col], bytes[row * shape[1] + col]);
+      }
+    }
+  }
+
 }
@@ -83,6 +83,26 @@ public class POIServiceTest {
     assertEquals(WORKBOOK_LENGTH, stream.length());
   }
 
+  @Test
+  public void testWorkbookDocumentStreamContents() throws IOException {
+    byte[] bytes = service.getDocumentBytes(WORKBOOK_DOCUMENT);
+    RandomAccessInputStream stream =
+      service.getDocumentStream(WORKBOOK_DOCUMENT);
+    byte[] streamBytes = new byte[bytes.length];
+    stream.readFully(streamBytes);
+    for (int i=0; i<bytes.length; i++) {
+      assertEquals(bytes[i], streamBytes[i]);
+    }
+
+    // read backwards across block boundaries
+    for (int offset=bytes.length - 2; offset>=0; offset-=511) {
+      stream.seek(offset);
+      assertEquals(bytes[offset], stream.readByte());
+      assertEquals(bytes[offset + 1], stream.readByte());
+    }
+    stream.close();
+  }
+
   @Test
   public void testWorkbookDocumentBytes() throws IOException {
     byte[] bytes = service.getDocumentBytes(WORKBOOK_DOCUMENT); 
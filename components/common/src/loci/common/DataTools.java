@@ -25,6 +25,8 @@ package loci.common;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 import java.text.DecimalFormatSymbols;
 
 /**
@@ -419,6 +421,128 @@ public final class DataTools {
     return value;
   }
 
+  // -- Word decoding - bytes to primitive type arrays --
+
+  /**
+   * Translates a byte array into an array of short values.  Any trailing
+   * bytes which do not form a complete value are ignored.
+   */
+  public static short[] bytesToShorts(byte[] bytes, boolean little) {
+    short[] v = new short[bytes.length / 2];
+    bytesToShorts(bytes, 0, v, 0, v.length, little);
+    return v;
+  }
+
+  /**
+   * Translates len short values from the given byte array, starting at
+   * srcOff, and places them in dest, starting at destOff.
+   *
+   * @throws IndexOutOfBoundsException if src has fewer than len complete
+   *   values from srcOff, or dest has fewer than len elements from destOff
+   */
+  public static void bytesToShorts(byte[] src, int srcOff, short[] dest,
+    int destOff, int len, boolean little)
+  {
+    ByteBuffer bb = wrap(src, srcOff, len * 2, little);
+    bb.asShortBuffer().get(dest, destOff, len);
+  }
+
+  /**
+   * Translates a byte array into an array of int values.  Any trailing
+   * bytes which do not form a complete value are ignored.
+   */
+  public static int[] bytesToInts(byte[] bytes, boolean little) {
+    int[] v = new int[bytes.length / 4];
+    bytesToInts(bytes, 0, v, 0, v.length, little);
+    return v;
+  }
+
+  /**
+   * Translates len int values from the given byte array, starting at
+   * srcOff, and places them in dest, starting at destOff.
+   *
+   * @throws IndexOutOfBoundsException if src has fewer than len complete
+   *   values from srcOff, or dest has fewer than len elements from destOff
+   */
+  public static void bytesToInts(byte[] src, int srcOff, int[] dest,
+    int destOff, int len, boolean little)
+  {
+    ByteBuffer bb = wrap(src, srcOff, len * 4, little);
+    bb.asIntBuffer().get(dest, destOff, len);
+  }
+
+  /**
+   * Translates a byte array into an array of float values.  Any trailing
+   * bytes which do not form a complete value are ignored.
+   */
+  public static float[] bytesToFloats(byte[] bytes, boolean little) {
+    float[] v = new float[bytes.length / 4];
+    bytesToFloats(bytes, 0, v, 0, v.length, little);
+    return v;
+  }
+
+  /**
+   * Translates len float values from the given byte array, starting at
+   * srcOff, and places them in dest, starting at destOff.
+   *
+   * @throws IndexOutOfBoundsException if src has fewer than len complete
+   *   values from srcOff, or dest has fewer than len elements from destOff
+   */
+  public static void bytesToFloats(byte[] src, int srcOff, float[] dest,
+    int destOff, int len, boolean little)
+  {
+    ByteBuffer bb = wrap(src, srcOff, len * 4, little);
+    bb.asFloatBuffer().get(dest, destOff, len);
+  }
+
+  /**
+   * Translates a byte array into an array of long values.  Any trailing
+   * bytes which do not form a complete value are ignored.
+   */
+  public static long[] bytesToLongs(byte[] bytes, boolean little) {
+    long[] v = new long[bytes.length / 8];
+    bytesToLongs(bytes, 0, v, 0, v.length, little);
+    return v;
+  }
+
+  /**
+   * Translates len long values from the given byte array, starting at
+   * srcOff, and places them in dest, starting at destOff.
+   *
+   * @throws IndexOutOfBoundsException if src has fewer than len complete
+   *   values from srcOff, or dest has fewer than len elements from destOff
+   */
+  public static void bytesToLongs(byte[] src, int srcOff, long[] dest,
+    int destOff, int len, boolean little)
+  {
+    ByteBuffer bb = wrap(src, srcOff, len * 8, little);
+    bb.asLongBuffer().get(dest, destOff, len);
+  }
+
+  /**
+   * Translates a byte array into an array of double values.  Any trailing
+   * bytes which do not form a complete value are ignored.
+   */
+  public static double[] bytesToDoubles(byte[] bytes, boolean little) {
+    double[] v = new double[bytes.length / 8];
+    bytesToDoubles(bytes, 0, v, 0, v.length, little);
+    return v;
+  }
+
+  /**
+   * Translates len double values from the given byte array, starting at
+   * srcOff, and places them in dest, starting at destOff.
+   *
+   * @throws IndexOutOfBoundsException if src has fewer than len complete
+   *   values from srcOff, or dest has fewer than len elements from destOff
+   */
+  public static void bytesToDoubles(byte[] src, int srcOff, double[] dest,
+    int destOff, int len, boolean little)
+  {
+    ByteBuffer bb = wrap(src, srcOff, len * 8, little);
+    bb.asDoubleBuffer().get(dest, destOff, len);
+  }
+
   // -- Word decoding - primitive types to bytes --
 
   /** Translates the short value into an array of two bytes. */
@@ -459,48 +583,108 @@ public final class DataTools {
   /** Translates an array of short values into an array of byte values. */
   public static byte[] shortsToBytes(short[] values, boolean little) {
     byte[] v = new byte[values.length * 2];
-    for (int i=0; i<values.length; i++) {
-      unpackBytes(values[i], v, i * 2, 2, little);
-    }
+    shortsToBytes(values, 0, v, 0, values.length, little);
     return v;
   }
 
+  /**
+   * Translates len short values, starting at srcOff, into bytes and places
+   * them in the given byte array, starting at destOff.
+   *
+   * @throws IndexOutOfBoundsException if src has fewer than len elements
+   *   from srcOff, or dest has too few bytes from destOff to hold them
+   */
+  public static void shortsToBytes(short[] src, int srcOff, byte[] dest,
+    int destOff, int len, boolean little)
+  {
+    ByteBuffer bb = wrap(dest, destOff, len * 2, little);
+    bb.asShortBuffer().put(src, srcOff, len);
+  }
+
   /** Translates an array of int values into an array of byte values. */
   public static byte[] intsToBytes(int[] values, boolean little) {
     byte[] v = new byte[values.length * 4];
-    for (int i=0; i<values.length; i++) {
-      unpackBytes(values[i], v, i * 4, 4, little);
-    }
+    intsToBytes(values, 0, v, 0, values.length, little);
     return v;
   }
 
+  /**
+   * Translates len int values, starting at srcOff, into bytes and places
+   * them in the given byte array, starting at destOff.
+   *
+   * @throws IndexOutOfBoundsException if src has fewer than len elements
+   *   from srcOff, or dest has too few bytes from destOff to hold them
+   */
+  public static void intsToBytes(int[] src, int srcOff, byte[] dest,
+    int destOff, int len, boolean little)
+  {
+    ByteBuffer bb = wrap(dest, destOff, len * 4, little);
+    bb.asIntBuffer().put(src, srcOff, len);
+  }
+
   /** Translates an array of float values into an array of byte values. */
   public static byte[] floatsToBytes(float[] values, boolean little) {
     byte[] v = new byte[values.length * 4];
-    for (int i=0; i<values.length; i++) {
-      unpackBytes(Float.floatToIntBits(values[i]), v, i * 4, 4, little);
-    }
+    floatsToBytes(values, 0, v, 0, values.length, little);
     return v;
   }
 
+  /**
+   * Translates len float values, starting at srcOff, into bytes and places
+   * them in the given byte array, starting at destOff.
+   *
+   * @throws IndexOutOfBoundsException if src has fewer than len elements
+   *   from srcOff, or dest has too few bytes from destOff to hold them
+   */
+  public static void floatsToBytes(float[] src, int srcOff, byte[] dest,
+    int destOff, int len, boolean little)
+  {
+    ByteBuffer bb = wrap(dest, destOff, len * 4, little);
+    bb.asFloatBuffer().put(src, srcOff, len);
+  }
+
   /** Translates an array of long values into an array of byte values. */
   public static byte[] longsToBytes(long[] values, boolean little) {
     byte[] v = new byte[values.length * 8];
-    for (int i=0; i<values.length; i++) {
-      unpackBytes(values[i], v, i * 8, 8, little);
-    }
+    longsToBytes(values, 0, v, 0, values.length, little);
     return v;
   }
 
+  /**
+   * Translates len long values, starting at srcOff, into bytes and places
+   * them in the given byte array, starting at destOff.
+   *
+   * @throws IndexOutOfBoundsException if src has fewer than len elements
+   *   from srcOff, or dest has too few bytes from destOff to hold them
+   */
+  public static void longsToBytes(long[] src, int srcOff, byte[] dest,
+    int destOff, int len, boolean little)
+  {
+    ByteBuffer bb = wrap(dest, destOff, len * 8, little);
+    bb.asLongBuffer().put(src, srcOff, len);
+  }
+
   /** Translates an array of double values into an array of byte values. */
   public static byte[] doublesToBytes(double[] values, boolean little) {
     byte[] v = new byte[values.length * 8];
-    for (int i=0; i<values.length; i++) {
-      unpackBytes(Double.doubleToLongBits(values[i]), v, i * 8, 8, little);
-    }
+    doublesToBytes(values, 0, v, 0, values.length, little);
     return v;
   }
 
+  /**
+   * Translates len double values, starting at srcOff, into bytes and places
+   * them in the given byte array, starting at destOff.
+   *
+   * @throws IndexOutOfBoundsException if src has fewer than len elements
+   *   from srcOff, or dest has too few bytes from destOff to hold them
+   */
+  public static void doublesToBytes(double[] src, int srcOff, byte[] dest,
+    int destOff, int len, boolean little)
+  {
+    ByteBuffer bb = wrap(dest, destOff, len * 8, little);
+    bb.asDoubleBuffer().put(src, srcOff, len);
+  }
+
   /** @deprecated Use {@link #unpackBytes(long, byte[], int, int, boolean) */
   @Deprecated
   public static void unpackShort(short value, byte[] buf, int ndx,
@@ -551,39 +735,19 @@ public final class DataTools {
       return b;
     }
     else if (bpp == 2) {
-      short[] s = new short[b.length / 2];
-      for (int i=0; i<s.length; i++) {
-        s[i] = bytesToShort(b, i*2, 2, little);
-      }
-      return s;
+      return bytesToShorts(b, little);
     }
     else if (bpp == 4 && fp) {
-      float[] f = new float[b.length / 4];
-      for (int i=0; i<f.length; i++) {
-        f[i] = bytesToFloat(b, i * 4, 4, little);
-      }
-      return f;
+      return bytesToFloats(b, little);
     }
     else if (bpp == 4) {
-      int[] i = new int[b.length / 4];
-      for (int j=0; j<i.length; j++) {
-        i[j] = bytesToInt(b, j*4, 4, little);
-      }
-      return i;
+      return bytesToInts(b, little);
     }
     else if (bpp == 8 && fp) {
-      double[] d = new double[b.length / 8];
-      for (int i=0; i<d.length; i++) {
-        d[i] = bytesToDouble(b, i * 8, 8, little);
-      }
-      return d;
+      return bytesToDoubles(b, little);
     }
     else if (bpp == 8) {
-      long[] l = new long[b.length / 8];
-      for (int i=0; i<l.length; i++) {
-        l[i] = bytesToLong(b, i*8, 8, little);
-      }
-      return l;
+      return bytesToLongs(b, little);
     }
     return null;
   }
@@ -635,50 +799,35 @@ public final class DataTools {
     else if (bpp == 2) {
       short[][] s = new short[height][width];
       for (int y=0; y<height; y++) {
-        for (int x=0; x<width; x++) {
-          int index = 2*(width*y + x);
-          s[y][x] = bytesToShort(b, index, 2, little);
-        }
+        bytesToShorts(b, 2*width*y, s[y], 0, width, little);
       }
       return s;
     }
     else if (bpp == 4 && fp) {
       float[][] f = new float[height][width];
       for (int y=0; y<height; y++) {
-        for (int x=0; x<width; x++) {
-          int index = 4*(width*y + x);
-          f[y][x] = bytesToFloat(b, index, 4, little);
-        }
+        bytesToFloats(b, 4*width*y, f[y], 0, width, little);
       }
       return f;
     }
     else if (bpp == 4) {
       int[][] i = new int[height][width];
       for (int y=0; y<height; y++) {
-        for (int x=0; x<width; x++) {
-          int index = 4*(width*y + x);
-          i[y][x] = bytesToInt(b, index, 4, little);
-        }
+        bytesToInts(b, 4*width*y, i[y], 0, width, little);
       }
       return i;
     }
     else if (bpp == 8 && fp) {
       double[][] d = new double[height][width];
       for (int y=0; y<height; y++) {
-        for (int x=0; x<width; x++) {
-          int index = 8*(width*y + x);
-          d[y][x] = bytesToDouble(b, index, 8, little);
-        }
+        bytesToDoubles(b, 8*width*y, d[y], 0, width, little);
       }
       return d;
     }
     else if (bpp == 8) {
       long[][] l = new long[height][width];
       for (int y=0; y<height; y++) {
-        for (int x=0; x<width; x++) {
-          int index = 8*(width*y + x);
-          l[y][x] = bytesToLong(b, index, 8, little);
-        }
+        bytesToLongs(b, 8*width*y, l[y], 0, width, little);
       }
       return l;
     }
@@ -711,6 +860,72 @@ public final class DataTools {
     return Double.longBitsToDouble(swap(Double.doubleToLongBits(x)));
   }
 
+  /**
+   * Reverses, in place, the byte order of each bpp-byte word in the len
+   * bytes starting at off.
+   *
+   * @throws IllegalArgumentException if len is not a multiple of bpp
+   */
+  public static void swapBytes(byte[] buf, int off, int len, int bpp) {
+    if (len % bpp != 0) {
+      throw new IllegalArgumentException("Invalid length: len=" + len +
+        ", bpp=" + bpp);
+    }
+    int end = off + len;
+    if (bpp == 2) {
+      for (int i=off; i<end; i+=2) {
+        byte b = buf[i];
+        buf[i] = buf[i + 1];
+        buf[i + 1] = b;
+      }
+    }
+    else if (bpp == 4) {
+      for (int i=off; i<end; i+=4) {
+        byte b0 = buf[i];
+        byte b1 = buf[i + 1];
+        buf[i] = buf[i + 3];
+        buf[i + 1] = buf[i + 2];
+        buf[i + 2] = b1;
+        buf[i + 3] = b0;
+      }
+    }
+    else {
+      for (int i=off; i<end; i+=bpp) {
+        for (int lo=i, hi=i+bpp-1; lo<hi; lo++, hi--) {
+          byte b = buf[lo];
+          buf[lo] = buf[hi];
+          buf[hi] = b;
+        }
+      }
+    }
+  }
+
+  /** Reverses, in place, the byte order of each bpp-byte word in buf. */
+  public static void swapBytes(byte[] buf, int bpp) {
+    swapBytes(buf, 0, buf.length - buf.length % bpp, bpp);
+  }
+
+  /** Reverses, in place, the byte order of each value in the array. */
+  public static void swap(short[] values) {
+    for (int i=0; i<values.length; i++) {
+      values[i] = Short.reverseBytes(values[i]);
+    }
+  }
+
+  /** Reverses, in place, the byte order of each value in the array. */
+  public static void swap(int[] values) {
+    for (int i=0; i<values.length; i++) {
+      values[i] = Integer.reverseBytes(values[i]);
+    }
+  }
+
+  /** Reverses, in place, the byte order of each value in the array. */
+  public static void swap(long[] values) {
+    for (int i=0; i<values.length; i++) {
+      values[i] = Long.reverseBytes(values[i]);
+    }
+  }
+
   // -- Strings --
 
   /**
@@ -886,4 +1101,17 @@ public final class DataTools {
     return i;
   }
 
+  // -- Helper methods --
+
+  /**
+   * Wraps len bytes of the given array, starting at off, in a buffer with
+   * the given byte order.
+   */
+  private static ByteBuffer wrap(byte[] buf, int off, int len,
+    boolean little)
+  {
+    ByteBuffer bb = ByteBuffer.wrap(buf, off, len);
+    return bb.order(little ? ByteOrder.LITTLE_ENDIAN : ByteOrder.BIG_ENDIAN);
+  }
+
 }
@@ -0,0 +1,469 @@
+//
+// DeflateDecoder.java
+//
+
+/*
+LOCI Common package: utilities for I/O, reflection and miscellaneous tasks.
+Copyright (C) 2005-@year@ Melissa Linkert, Curtis Rueden and Chris Allan.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.common;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Decoder for a raw DEFLATE stream (RFC 1951) stored in a Zip file, that
+ * can be restarted from the start of any DEFLATE block.
+ *
+ * The only state that is carried from one block to the next is the position
+ * of the next bit and the last 32 KB of output, so a decoder records these
+ * as a {@link Checkpoint} at block boundaries; a new decoder can then start
+ * from the checkpoint instead of from the start of the stream.
+ * {@link java.util.zip.Inflater} exposes neither, which is why the
+ * stream is decoded here.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/common/src/loci/common/DeflateDecoder.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/common/src/loci/common/DeflateDecoder.java;hb=HEAD">Gitweb</a></dd></dl>
+ *
+ * @see ZipIndex
+ */
+class DeflateDecoder {
+
+  // -- Constants --
+
+  /** Size of the window of previous output that back-references use. */
+  static final int WINDOW_SIZE = 32768;
+
+  private static final int WINDOW_MASK = WINDOW_SIZE - 1;
+
+  /** Number of compressed bytes read at a time. */
+  private static final int INPUT_BUFFER_SIZE = 65536;
+
+  /** Decoding states. */
+  private static final int HEADER = 0, STORED = 1, HUFFMAN = 2, DONE = 3;
+
+  /** Order in which code length code lengths are stored. */
+  private static final int[] ORDER =
+    {16, 17, 18, 0, 8, 7, 9, 6, 10, 5, 11, 4, 12, 3, 13, 2, 14, 1, 15};
+
+  /** Base lengths and extra bits for length codes 257 to 285. */
+  private static final int[] LENGTH_BASE = {3, 4, 5, 6, 7, 8, 9, 10, 11, 13,
+    15, 17, 19, 23, 27, 31, 35, 43, 51, 59, 67, 83, 99, 115, 131, 163, 195,
+    227, 258};
+  private static final int[] LENGTH_EXTRA = {0, 0, 0, 0, 0, 0, 0, 0, 1, 1, 1,
+    1, 2, 2, 2, 2, 3, 3, 3, 3, 4, 4, 4, 4, 5, 5, 5, 5, 0};
+
+  /** Base distances and extra bits for distance codes 0 to 29. */
+  private static final int[] DISTANCE_BASE = {1, 2, 3, 4, 5, 7, 9, 13, 17,
+    25, 33, 49, 65, 97, 129, 193, 257, 385, 513, 769, 1025, 1537, 2049, 3073,
+    4097, 6145, 8193, 12289, 16385, 24577};
+  private static final int[] DISTANCE_EXTRA = {0, 0, 0, 0, 1, 1, 2, 2, 3, 3,
+    4, 4, 5, 5, 6, 6, 7, 7, 8, 8, 9, 9, 10, 10, 11, 11, 12, 12, 13, 13};
+
+  /** Codes of blocks compressed with fixed Huffman codes. */
+  private static final Huffman FIXED_LITERALS, FIXED_DISTANCES;
+
+  static {
+    int[] lengths = new int[288];
+    for (int i=0; i<lengths.length; i++) {
+      lengths[i] = i < 144 ? 8 : i < 256 ? 9 : i < 280 ? 7 : 8;
+    }
+    int[] distances = new int[30];
+    for (int i=0; i<distances.length; i++) distances[i] = 5;
+    try {
+      FIXED_LITERALS = new Huffman(lengths, 0, lengths.length);
+      FIXED_DISTANCES = new Huffman(distances, 0, distances.length);
+    }
+    catch (HandleException e) {
+      throw new IllegalStateException(e.getMessage());
+    }
+  }
+
+  // -- Fields --
+
+  private ZipIndex index;
+
+  /** Name of the Zip entry, for error messages. */
+  private String name;
+
+  /** Offset to the next compressed byte to read, and to the end. */
+  private long input, inputEnd;
+
+  /** Compressed bytes that have been read. */
+  private byte[] buffer = new byte[INPUT_BUFFER_SIZE];
+  private int bufferPos, bufferLength;
+
+  /** Bits that have been read from the buffer but not yet decoded. */
+  private int bits, bitCount;
+
+  /** Number of zero bytes read after the end of the compressed data. */
+  private int padding;
+
+  /** The last 32 KB of output. */
+  private byte[] window = new byte[WINDOW_SIZE];
+  private int windowPos;
+
+  /** Number of bytes of output decoded so far. */
+  private long output;
+
+  private int state = HEADER;
+  private boolean lastBlock;
+
+  /** Codes for the current block. */
+  private Huffman literals, distances;
+
+  /** Bytes remaining in the current stored block. */
+  private int stored;
+
+  /** Remainder of a back-reference that did not fit in the output. */
+  private int copyLength, copyDistance;
+
+  /** Checkpoints recorded while decoding, in order of output position. */
+  private List<Checkpoint> checkpoints;
+
+  /** Minimum number of output bytes between checkpoints. */
+  private long interval;
+
+  // -- Constructors --
+
+  /**
+   * Constructs a decoder for the DEFLATE stream between the given offsets in
+   * the Zip file.
+   */
+  DeflateDecoder(ZipIndex index, String name, long start, long end) {
+    this.index = index;
+    this.name = name;
+    input = start;
+    inputEnd = end;
+  }
+
+  /**
+   * Constructs a decoder that resumes the DEFLATE stream ending at the given
+   * offset from the given checkpoint.
+   */
+  DeflateDecoder(ZipIndex index, String name, Checkpoint checkpoint, long end)
+    throws IOException
+  {
+    this(index, name, checkpoint.input, end);
+    readBits(checkpoint.bit);
+    System.arraycopy(checkpoint.window, 0, window, 0,
+      checkpoint.window.length);
+    windowPos = checkpoint.window.length & WINDOW_MASK;
+    output = checkpoint.output;
+  }
+
+  // -- DeflateDecoder API methods --
+
+  /**
+   * Records a checkpoint in the given list at each block boundary that is at
+   * least the given number of output bytes after the last checkpoint in the
+   * list.
+   */
+  void setCheckpoints(List<Checkpoint> checkpoints, long interval) {
+    this.checkpoints = checkpoints;
+    this.interval = interval;
+  }
+
+  /** Gets the number of bytes of output decoded so far. */
+  long getPosition() {
+    return output;
+  }
+
+  /**
+   * Decodes up to len bytes of output.
+   *
+   * @return the number of bytes decoded, which is less than len only at the
+   *   end of the stream
+   */
+  int decode(byte[] b, int off, int len) throws IOException {
+    int n = 0;
+    while (n < len) {
+      if (copyLength > 0) {
+        int count = Math.min(copyLength, len - n);
+        int from = windowPos - copyDistance;
+        for (int i=0; i<count; i++) {
+          byte v = window[(from + i) & WINDOW_MASK];
+          b[off + n++] = v;
+          window[windowPos] = v;
+          windowPos = (windowPos + 1) & WINDOW_MASK;
+        }
+        output += count;
+        copyLength -= count;
+        continue;
+      }
+      switch (state) {
+        case HEADER:
+          if (lastBlock) {
+            state = DONE;
+            break;
+          }
+          checkpoint();
+          readHeader();
+          break;
+        case STORED:
+          int count = Math.min(stored, len - n);
+          for (int i=0; i<count; i++) {
+            byte v = (byte) readBits(8);
+            b[off + n++] = v;
+            window[windowPos] = v;
+            windowPos = (windowPos + 1) & WINDOW_MASK;
+          }
+          output += count;
+          stored -= count;
+          if (stored == 0) state = HEADER;
+          break;
+        case HUFFMAN:
+          int symbol = decode(literals);
+          if (symbol < 256) {
+            b[off + n++] = (byte) symbol;
+            window[windowPos] = (byte) symbol;
+            windowPos = (windowPos + 1) & WINDOW_MASK;
+            output++;
+          }
+          else if (symbol == 256) state = HEADER;
+          else {
+            symbol -= 257;
+            if (symbol >= LENGTH_BASE.length) throw invalid("length code");
+            copyLength = LENGTH_BASE[symbol] + readBits(LENGTH_EXTRA[symbol]);
+            symbol = decode(distances);
+            if (symbol >= DISTANCE_BASE.length) {
+              throw invalid("distance code");
+            }
+            copyDistance =
+              DISTANCE_BASE[symbol] + readBits(DISTANCE_EXTRA[symbol]);
+            if (copyDistance > output) throw invalid("distance");
+          }
+          break;
+        default:
+          return n;
+      }
+    }
+    return n;
+  }
+
+  // -- Helper methods --
+
+  /** Records a checkpoint at the current block boundary, if one is due. */
+  private void checkpoint() {
+    if (checkpoints == null) return;
+    long last = checkpoints.size() == 0 ? 0 :
+      checkpoints.get(checkpoints.size() - 1).output;
+    if (output < last + interval) return;
+
+    Checkpoint c = new Checkpoint();
+    long bit = (input - bufferLength + bufferPos) * 8 - bitCount;
+    c.input = bit >> 3;
+    c.bit = (int) (bit & 7);
+    c.output = output;
+    int length = (int) Math.min(output, WINDOW_SIZE);
+    c.window = new byte[length];
+    int start = (windowPos - length) & WINDOW_MASK;
+    int first = Math.min(length, WINDOW_SIZE - start);
+    System.arraycopy(window, start, c.window, 0, first);
+    System.arraycopy(window, 0, c.window, first, length - first);
+    checkpoints.add(c);
+  }
+
+  /** Reads the header of the next block, and its codes if it has any. */
+  private void readHeader() throws IOException {
+    lastBlock = readBits(1) == 1;
+    int type = readBits(2);
+    if (type == 0) {
+      readBits(bitCount & 7);
+      int length = readBits(16);
+      if (readBits(16) != (~length & 0xffff)) {
+        throw invalid("stored block length");
+      }
+      stored = length;
+      state = length == 0 ? HEADER : STORED;
+    }
+    else if (type == 1) {
+      literals = FIXED_LITERALS;
+      distances = FIXED_DISTANCES;
+      state = HUFFMAN;
+    }
+    else if (type == 2) {
+      readCodes();
+      state = HUFFMAN;
+    }
+    else throw invalid("block type");
+  }
+
+  /** Reads the codes of a block compressed with dynamic Huffman codes. */
+  private void readCodes() throws IOException {
+    int literalCount = readBits(5) + 257;
+    int distanceCount = readBits(5) + 1;
+    int codeCount = readBits(4) + 4;
+    if (literalCount > 286 || distanceCount > 30) {
+      throw invalid("code counts");
+    }
+
+    int[] lengths = new int[ORDER.length];
+    for (int i=0; i<codeCount; i++) {
+      lengths[ORDER[i]] = readBits(3);
+    }
+    Huffman lengthCodes = new Huffman(lengths, 0, lengths.length);
+
+    lengths = new int[literalCount + distanceCount];
+    int i = 0;
+    while (i < lengths.length) {
+      int symbol = decode(lengthCodes);
+      if (symbol < 16) {
+        lengths[i++] = symbol;
+        continue;
+      }
+      int length = 0, repeat;
+      if (symbol == 16) {
+        if (i == 0) throw invalid("code lengths");
+        length = lengths[i - 1];
+        repeat = 3 + readBits(2);
+      }
+      else if (symbol == 17) repeat = 3 + readBits(3);
+      else repeat = 11 + readBits(7);
+      if (i + repeat > lengths.length) throw invalid("code lengths");
+      while (repeat-- > 0) lengths[i++] = length;
+    }
+    if (lengths[256] == 0) throw invalid("code lengths");
+
+    literals = new Huffman(lengths, 0, literalCount);
+    distances = new Huffman(lengths, literalCount, distanceCount);
+  }
+
+  /** Decodes the next symbol with the given codes. */
+  private int decode(Huffman codes) throws IOException {
+    fill(codes.bits);
+    int code = codes.table[bits & ((1 << codes.bits) - 1)];
+    int length = code & 15;
+    if (length == 0) throw invalid("code");
+    drop(length);
+    return code >>> 4;
+  }
+
+  /** Reads the given number of bits, at most 16. */
+  private int readBits(int count) throws IOException {
+    fill(count);
+    int value = bits & ((1 << count) - 1);
+    drop(count);
+    return value;
+  }
+
+  /** Reads bytes until there are at least the given number of bits. */
+  private void fill(int count) throws IOException {
+    while (bitCount < count) {
+      if (bufferPos == bufferLength) readBuffer();
+      bits |= (buffer[bufferPos++] & 0xff) << bitCount;
+      bitCount += 8;
+    }
+  }
+
+  /** Discards the given number of bits. */
+  private void drop(int count) throws IOException {
+    bits >>>= count;
+    bitCount -= count;
+    if (padding > 0 && padding * 8 > bitCount) {
+      throw new EOFException("Unexpected end of " + name);
+    }
+  }
+
+  /**
+   * Reads the next compressed bytes.  Codes are looked up before their
+   * length is known, so a few zero bytes are supplied after the end of the
+   * data; {@link #drop(int)} fails if any of them are used.
+   */
+  private void readBuffer() throws IOException {
+    int n = (int) Math.min(buffer.length, inputEnd - input);
+    if (n <= 0) {
+      if (++padding > 4) throw new EOFException("Unexpected end of " + name);
+      buffer[0] = 0;
+      n = 1;
+    }
+    else index.readBytes(input, buffer, 0, n);
+    input += n;
+    bufferPos = 0;
+    bufferLength = n;
+  }
+
+  private HandleException invalid(String what) {
+    return new HandleException("Invalid DEFLATE " + what + " in " + name);
+  }
+
+  // -- Helper classes --
+
+  /** A position at the start of a block, from which decoding can resume. */
+  static class Checkpoint {
+    /** Offset in the Zip file to the byte that contains the next bit. */
+    long input;
+
+    /** Number of bits of that byte that precede the block. */
+    int bit;
+
+    /** Number of bytes of output that precede the block. */
+    long output;
+
+    /** The last 32 KB of output before the block, or all of it if less. */
+    byte[] window;
+  }
+
+  /**
+   * Canonical Huffman codes, as a table indexed by the next bits of input
+   * (in the order they are read) that gives the symbol and code length.
+   */
+  private static class Huffman {
+    int bits;
+    int[] table;
+
+    Huffman(int[] lengths, int off, int count) throws HandleException {
+      int[] counts = new int[16];
+      for (int i=0; i<count; i++) {
+        int length = lengths[off + i];
+        counts[length]++;
+        if (length > bits) bits = length;
+      }
+      counts[0] = 0;
+
+      int left = 1;
+      int[] next = new int[16];
+      for (int length=1; length<16; length++) {
+        left = (left << 1) - counts[length];
+        if (left < 0) {
+          throw new HandleException("Invalid DEFLATE code lengths");
+        }
+        next[length] = (next[length - 1] + counts[length - 1]) << 1;
+      }
+
+      // codes are stored most significant bit first, so the table is
+      // indexed by the reversed code; unused entries have length 0
+      table = new int[1 << bits];
+      for (int symbol=0; symbol<count; symbol++) {
+        int length = lengths[off + symbol];
+        if (length == 0) continue;
+        int code = next[length]++;
+        int reversed = 0;
+        for (int i=0; i<length; i++) {
+          reversed = (reversed << 1) | ((code >> i) & 1);
+        }
+        for (int i=reversed; i<table.length; i+=1<<length) {
+          table[i] = (symbol << 4) | length;
+        }
+      }
+    }
+  }
+
+}
@@ -0,0 +1,216 @@
+//
+// HandlePool.java
+//
+
+/*
+LOCI Common package: utilities for I/O, reflection and miscellaneous tasks.
+Copyright (C) 2005-@year@ Melissa Linkert, Curtis Rueden and Chris Allan.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.common;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A pool of read-only files that are shared between handles.
+ *
+ * Each call to {@link #getHandle(String)} returns a new handle with its own
+ * position, byte order and buffer, but all of the handles for the same file
+ * (as determined by its canonical path) read from a single open file.
+ * A file stays open while any of its handles is open; once all of its
+ * handles have been closed, it is kept open in case it is needed again,
+ * until more than the maximum number of files are open, at which point the
+ * least recently used unneeded files are closed.
+ *
+ * Files in the pool are assumed not to be replaced or truncated while open.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/common/src/loci/common/HandlePool.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/common/src/loci/common/HandlePool.java;hb=HEAD">Gitweb</a></dd></dl>
+ *
+ * @see Location#setHandlePool(HandlePool)
+ */
+public class HandlePool {
+
+  // -- Constants --
+
+  /** Default maximum number of open files. */
+  public static final int DEFAULT_MAX_OPEN = 128;
+
+  private static final Logger LOGGER =
+    LoggerFactory.getLogger(HandlePool.class);
+
+  // -- Fields --
+
+  /**
+   * Maximum number of open files.  Files that are in use are never closed,
+   * so more files may be open if needed.
+   */
+  private int maxOpen;
+
+  /** Open files, keyed by canonical path, in least-recently-used order. */
+  private LinkedHashMap<String, SharedFile> files =
+    new LinkedHashMap<String, SharedFile>(16, 0.75f, true);
+
+  // -- Constructors --
+
+  /** Constructs a pool that keeps at most 128 files open. */
+  public HandlePool() {
+    this(DEFAULT_MAX_OPEN);
+  }
+
+  /**
+   * Constructs a pool that keeps at most the given number of files open.
+   * More files are opened if needed by open handles.
+   */
+  public HandlePool(int maxOpen) {
+    this.maxOpen = maxOpen;
+  }
+
+  // -- HandlePool API methods --
+
+  /**
+   * Gets a new read-only handle for the given file, opening the file only
+   * if it is not already open.  The handle must be closed when it is no
+   * longer needed.
+   */
+  public synchronized IRandomAccess getHandle(String path)
+    throws IOException
+  {
+    File file = new File(path);
+    String key = file.getCanonicalPath();
+    SharedFile shared = files.get(key);
+    if (shared == null) {
+      LOGGER.trace("opening {}", key);
+      shared = new SharedFile(key, new RandomAccessFile(file, "r"));
+      files.put(key, shared);
+    }
+    shared.references++;
+    closeUnused(maxOpen);
+    try {
+      return new PooledHandle(shared);
+    }
+    catch (IOException e) {
+      release(shared);
+      throw e;
+    }
+  }
+
+  /**
+   * Gets a new read-only handle for the given file if the file is already
+   * open; otherwise, returns null.
+   */
+  public synchronized IRandomAccess getOpenHandle(String path)
+    throws IOException
+  {
+    String key = new File(path).getCanonicalPath();
+    return files.containsKey(key) ? getHandle(path) : null;
+  }
+
+  /** Gets the number of files that are currently open. */
+  public synchronized int getOpenCount() {
+    return files.size();
+  }
+
+  /** Gets the maximum number of files that are kept open. */
+  public synchronized int getMaxOpen() {
+    return maxOpen;
+  }
+
+  /** Sets the maximum number of files that are kept open. */
+  public synchronized void setMaxOpen(int maxOpen) {
+    this.maxOpen = maxOpen;
+    closeUnused(maxOpen);
+  }
+
+  /**
+   * Closes every file that has no open handles.  Files that are still in
+   * use are not affected.
+   */
+  public synchronized void closeUnused() {
+    closeUnused(0);
+  }
+
+  // -- Helper methods --
+
+  /** Called when a handle is closed. */
+  private synchronized void release(SharedFile shared) {
+    shared.references--;
+    closeUnused(maxOpen);
+  }
+
+  /**
+   * Closes the least recently used files that have no open handles, until
+   * no more than the given number of files are open.
+   */
+  private void closeUnused(int max) {
+    Iterator<SharedFile> it = files.values().iterator();
+    while (files.size() > max && it.hasNext()) {
+      SharedFile shared = it.next();
+      if (shared.references == 0) {
+        LOGGER.trace("closing {}", shared.path);
+        it.remove();
+        try {
+          shared.raf.close();
+        }
+        catch (IOException e) {
+          LOGGER.debug("Could not close " + shared.path, e);
+        }
+      }
+    }
+  }
+
+  // -- Helper classes --
+
+  /** An open file and the number of handles that are using it. */
+  private static class SharedFile {
+    public final String path;
+    public final RandomAccessFile raf;
+    public int references;
+
+    SharedFile(String path, RandomAccessFile raf) {
+      this.path = path;
+      this.raf = raf;
+    }
+  }
+
+  /** Handle that reads from a shared file. */
+  private class PooledHandle extends NIOFileHandle {
+    private SharedFile shared;
+
+    PooledHandle(SharedFile shared) throws IOException {
+      super(shared.raf, defaultBufferSize);
+      this.shared = shared;
+    }
+
+    /* @see IRandomAccess#close() */
+    public void close() {
+      if (shared != null) {
+        release(shared);
+        shared = null;
+      }
+    }
+  }
+
+}
@@ -31,7 +31,12 @@ import java.net.URL;
 import java.net.URLConnection;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +68,17 @@ public class Location {
       }
   };
 
+  /**
+   * Mapped ids, keyed by the absolute path of their parent directory, so
+   * that directories containing only mapped files can be listed.
+   */
+  private static ThreadLocal<HashMap<String, HashSet<String>>> mappedChildren =
+    new ThreadLocal<HashMap<String, HashSet<String>>>() {
+      protected HashMap<String, HashSet<String>> initialValue() {
+        return new HashMap<String, HashSet<String>>();
+      }
+  };
+
   private static volatile boolean cacheListings = false;
 
   // By default, cache for one hour.
@@ -79,6 +95,23 @@ public class Location {
   private static ConcurrentHashMap<String, ListingsResult> fileListings =
     new ConcurrentHashMap<String, ListingsResult>();
 
+  private static volatile boolean cacheStats = false;
+
+  // By default, cache file attributes for one minute.
+  private static volatile long statNanos = 60L * 1000L * 1000L * 1000L;
+
+  private static volatile boolean refreshStatsAsync = false;
+
+  /** Cached file attributes, keyed by absolute directory path. */
+  private static ConcurrentHashMap<String, DirectoryStats> fileStats =
+    new ConcurrentHashMap<String, DirectoryStats>();
+
+  /** Thread on which expired file attributes are refreshed. */
+  private static ExecutorService statRefresher;
+
+  /** Pool from which read-only file handles are obtained, if any. */
+  private static volatile HandlePool handlePool = null;
+
   // -- Fields --
 
   private boolean isURL = true;
@@ -123,7 +156,13 @@ public class Location {
     cacheListings = false;
     cacheNanos = 60L * 60L * 1000L * 1000L * 1000L;
     fileListings.clear();
+    cacheStats = false;
+    statNanos = 60L * 1000L * 1000L * 1000L;
+    refreshStatsAsync = false;
+    fileStats.clear();
+    handlePool = null;
     getIdMap().clear();
+    mappedChildren.get().clear();
   }
 
   /**
@@ -166,7 +205,8 @@ public class Location {
   }
 
   /**
-   * Remove any cached directory listings that have expired.
+   * Remove any cached directory listings and file attributes that have
+   * expired.
    */
   public static void cleanStaleCacheEntries() {
     long t = System.nanoTime() - cacheNanos;
@@ -179,6 +219,83 @@ public class Location {
     for (String key : staleKeys) {
       fileListings.remove(key);
     }
+
+    t = System.nanoTime() - statNanos;
+    for (String key : fileStats.keySet()) {
+      DirectoryStats stats = fileStats.get(key);
+      if (stats != null && stats.time < t) fileStats.remove(key, stats);
+    }
+  }
+
+  /**
+   * Turn cacheing of file attributes on or off.
+   * Cacheing is turned off by default.
+   *
+   * When cacheing is on, {@link #exists()}, {@link #isDirectory()},
+   * {@link #isFile()}, {@link #length()} and {@link #lastModified()} are
+   * answered from a cache that is filled by listing the parent directory
+   * once, rather than by asking the file system about each file; the
+   * attributes of each file are then read at most once until the cache
+   * expires.  This matters most for readers that check for the existence of
+   * hundreds of companion files on a network share.
+   *
+   * As with directory listings, cached attributes may be out of date if
+   * files are changed by another process.
+   *
+   * @param cache - true to turn cacheing on, false to leave it off.
+   */
+  public static void cacheFileStats(boolean cache) {
+    cacheStats = cache;
+    if (!cache) fileStats.clear();
+  }
+
+  /**
+   * Cache file attributes for this many seconds before listing the
+   * directory again.
+   *
+   * @param sec - use the cached attributes if the directory was listed
+   * within this many seconds.
+   */
+  public static void setCacheStatTimeout(double sec) {
+    statNanos = (long) (sec * 1000. * 1000. * 1000.);
+  }
+
+  /**
+   * Turn asynchronous refreshing of expired file attributes on or off.
+   * If refreshing is asynchronous, expired attributes continue to be used
+   * while the directory is listed again on a background thread; otherwise,
+   * the directory is listed again before the attributes are used.
+   *
+   * @param async - true to refresh attributes in the background.
+   */
+  public static void setAsyncStatRefresh(boolean async) {
+    refreshStatsAsync = async;
+  }
+
+  /**
+   * Clear the file attributes cache.
+   *
+   * Do this if files might have been added, removed or changed.
+   */
+  public static void clearStatCache() {
+    fileStats.clear();
+  }
+
+  /**
+   * Sets the pool from which read-only handles for local files are
+   * obtained, so that handles for the same file share a single open file.
+   * By default there is no pool, and every handle opens its own file.
+   *
+   * @param pool - the pool to use, or null to stop pooling handles.
+   * @see HandlePool
+   */
+  public static void setHandlePool(HandlePool pool) {
+    handlePool = pool;
+  }
+
+  /** Gets the pool from which read-only handles are obtained, if any. */
+  public static HandlePool getHandlePool() {
+    return handlePool;
   }
 
   /**
@@ -195,6 +312,7 @@ public class Location {
     if (id == null) return;
     if (filename == null) getIdMap().remove(id);
     else getIdMap().put(id, filename);
+    indexMappedId(id, filename != null);
     LOGGER.debug("Location.mapId: {} -> {}", id, filename);
   }
 
@@ -203,6 +321,7 @@ public class Location {
     if (id == null) return;
     if (ira == null) getIdMap().remove(id);
     else getIdMap().put(id, ira);
+    indexMappedId(id, ira != null);
     LOGGER.debug("Location.mapFile: {} -> {}", id, ira);
   }
 
@@ -245,6 +364,10 @@ public class Location {
   public static void setIdMap(HashMap<String, Object> map) {
     if (map == null) throw new IllegalArgumentException("map cannot be null");
     idMap.set(map);
+    mappedChildren.get().clear();
+    for (String id : map.keySet()) {
+      indexMappedId(id, true);
+    }
   }
 
   /**
@@ -267,8 +390,17 @@ public class Location {
     if (handle == null) {
       LOGGER.trace("no handle was mapped for this ID");
       String mapId = getMappedId(id);
+      HandlePool pool = writable ? null : handlePool;
 
-      if (id.startsWith("http://")) {
+      // files that are already open are known not to be compressed
+      if (pool != null && !id.startsWith("http://")) {
+        handle = pool.getOpenHandle(mapId);
+      }
+
+      if (handle != null) {
+        LOGGER.trace("using an open file from the handle pool");
+      }
+      else if (id.startsWith("http://")) {
         handle = new URLHandle(mapId);
       }
       else if (ZipHandle.isZipFile(id)) {
@@ -280,6 +412,9 @@ public class Location {
       else if (BZip2Handle.isBZip2File(id)) {
         handle = new BZip2Handle(mapId);
       }
+      else if (pool != null) {
+        handle = pool.getHandle(mapId);
+      }
       else {
         handle = new NIOFileHandle(mapId, writable ? "rw" : "r");
       }
@@ -341,7 +476,13 @@ public class Location {
     }
     else {
       if (file == null) return null;
-      String[] f = file.list();
+      String[] f = null;
+      if (cacheStats) {
+        DirectoryStats stats = getDirectoryStats(file.getAbsolutePath());
+        if (stats != null) f = stats.list();
+      }
+      else f = file.list();
+      if (f == null) f = getMappedChildren(file.getAbsolutePath());
       if (f == null) return null;
       for (String name : f) {
         if (!noHiddenFiles || !(name.startsWith(".") ||
@@ -394,7 +535,9 @@ public class Location {
    */
   public boolean createNewFile() throws IOException {
     if (isURL) throw new IOException("Unimplemented");
-    return file.createNewFile();
+    boolean created = file.createNewFile();
+    invalidateStats(file);
+    return created;
   }
 
   /**
@@ -405,7 +548,10 @@ public class Location {
    * @see java.io.File#delete()
    */
   public boolean delete() {
-    return isURL ? false : file.delete();
+    if (isURL) return false;
+    boolean deleted = file.delete();
+    invalidateStats(file);
+    return deleted;
   }
 
   /**
@@ -444,11 +590,11 @@ public class Location {
         return false;
       }
     }
-    if (file.exists()) return true;
+    if (exists(file)) return true;
     if (getMappedFile(file.getPath()) != null) return true;
 
     String mappedId = getMappedId(file.getPath());
-    return mappedId != null && new File(mappedId).exists();
+    return mappedId != null && exists(new File(mappedId));
   }
 
   /* @see java.io.File#getAbsoluteFile() */
@@ -537,7 +683,8 @@ public class Location {
       String[] list = list();
       return list != null;
     }
-    return file.isDirectory();
+    FileStat stat = getCachedStat(file);
+    return stat == null ? file.isDirectory() : stat.directory;
   }
 
   /**
@@ -546,7 +693,9 @@ public class Location {
    * @see java.io.File#exists()
    */
   public boolean isFile() {
-    return isURL ? (!isDirectory() && exists()) : file.isFile();
+    if (isURL) return !isDirectory() && exists();
+    FileStat stat = getCachedStat(file);
+    return stat == null ? file.isFile() : stat.file;
   }
 
   /**
@@ -577,7 +726,8 @@ public class Location {
         return 0;
       }
     }
-    return file.lastModified();
+    FileStat stat = getCachedStat(file);
+    return stat == null ? file.lastModified() : stat.lastModified;
   }
 
   /**
@@ -594,7 +744,8 @@ public class Location {
         return 0;
       }
     }
-    return file.length();
+    FileStat stat = getCachedStat(file);
+    return stat == null ? file.length() : stat.length;
   }
 
   /**
@@ -639,4 +790,226 @@ public class Location {
     return isURL ? url.toString() : file.toString();
   }
 
+  // -- Helper methods --
+
+  /**
+   * Gets the names of the mapped files that are directly within the given
+   * directory, e.g. the files in a Zip file mapped by
+   * {@link ZipIndex#mapEntries()}.
+   *
+   * @return the names, or null if there are no such files
+   */
+  private static String[] getMappedChildren(String dir) {
+    HashMap<String, Object> map = getIdMap();
+    if (map.isEmpty()) return null;
+    HashSet<String> ids = mappedChildren.get().get(dir);
+    if (ids == null) return null;
+    ArrayList<String> children = new ArrayList<String>();
+    for (String id : ids) {
+      // the id map may also have been modified directly
+      if (map.containsKey(id)) children.add(new File(id).getName());
+    }
+    if (children.size() == 0) return null;
+    return children.toArray(new String[children.size()]);
+  }
+
+  /** Adds the given id to, or removes it from, its parent's mapped ids. */
+  private static void indexMappedId(String id, boolean mapped) {
+    String parent = new File(id).getAbsoluteFile().getParent();
+    if (parent == null) return;
+    HashMap<String, HashSet<String>> index = mappedChildren.get();
+    HashSet<String> ids = index.get(parent);
+    if (mapped) {
+      if (ids == null) {
+        ids = new HashSet<String>();
+        index.put(parent, ids);
+      }
+      ids.add(id);
+    }
+    else if (ids != null) {
+      ids.remove(id);
+      if (ids.size() == 0) index.remove(parent);
+    }
+  }
+
+  /** Returns true if the given file exists, using the cache if possible. */
+  private static boolean exists(File f) {
+    FileStat stat = getCachedStat(f);
+    return stat == null ? f.exists() : stat.exists;
+  }
+
+  /**
+   * Gets the cached attributes of the given file, or null if file attribute
+   * cacheing is turned off or does not apply to the file.
+   */
+  private static FileStat getCachedStat(File f) {
+    if (!cacheStats) return null;
+    String name = f.getName();
+    String parent = f.getAbsoluteFile().getParent();
+    if (parent == null || name.length() == 0 || name.equals(".") ||
+      name.equals(".."))
+    {
+      return null;
+    }
+    // directories that cannot be listed may still contain files that can
+    // be read, so their files are checked directly
+    DirectoryStats stats = getDirectoryStats(parent);
+    if (stats == null) return null;
+    return stats.get(name);
+  }
+
+  /**
+   * Gets the cached attributes of the files in the given directory, listing
+   * the directory if it is not cached or has expired.
+   *
+   * @param key the absolute path of the directory
+   * @return the cached attributes, or null if the directory does not exist
+   *   or cannot be listed
+   */
+  private static DirectoryStats getDirectoryStats(String key) {
+    DirectoryStats stats = fileStats.get(key);
+    if (stats != null && System.nanoTime() - stats.time > statNanos) {
+      if (refreshStatsAsync) refreshStats(key, stats);
+      else {
+        fileStats.remove(key, stats);
+        stats = null;
+      }
+    }
+    if (stats == null) {
+      stats = new DirectoryStats(new File(key));
+      fileStats.put(key, stats);
+    }
+    return stats.children == null ? null : stats;
+  }
+
+  /** Lists the given directory again on the background thread. */
+  private static void refreshStats(final String key,
+    final DirectoryStats stats)
+  {
+    if (!stats.refreshing.compareAndSet(false, true)) return;
+    synchronized (Location.class) {
+      if (statRefresher == null) {
+        statRefresher = Executors.newSingleThreadExecutor(new ThreadFactory() {
+          public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "Location-stat-refresh");
+            t.setDaemon(true);
+            return t;
+          }
+        });
+      }
+    }
+    statRefresher.execute(new Runnable() {
+      public void run() {
+        DirectoryStats fresh = new DirectoryStats(stats.dir);
+        fresh.statAll();
+        fileStats.replace(key, stats, fresh);
+      }
+    });
+  }
+
+  /** Removes the cached attributes of the given file's directory. */
+  private static void invalidateStats(File f) {
+    String parent = f.getAbsoluteFile().getParent();
+    if (parent != null) fileStats.remove(parent);
+  }
+
+  // -- Helper classes --
+
+  /** Attributes of a single file. */
+  private static class FileStat {
+    private static final FileStat MISSING = new FileStat();
+
+    public final boolean exists;
+    public final boolean directory;
+    public final boolean file;
+    public final long length;
+    public final long lastModified;
+
+    private FileStat() {
+      exists = directory = file = false;
+      length = lastModified = 0;
+    }
+
+    /** Reads the attributes of a file that is known to exist. */
+    FileStat(File f) {
+      exists = true;
+      directory = f.isDirectory();
+      file = f.isFile();
+      length = f.length();
+      lastModified = f.lastModified();
+    }
+  }
+
+  /**
+   * Attributes of the files in one directory.  The directory is listed
+   * once; the attributes of each file are read when first needed.
+   */
+  private static class DirectoryStats {
+    public final File dir;
+    public final long time;
+    public final AtomicBoolean refreshing = new AtomicBoolean();
+
+    /** Files in the directory, or null if it could not be listed. */
+    private final File[] children;
+
+    /** Files in the directory, keyed by name. */
+    private final HashMap<String, File> names;
+
+    /** Names of the files in the directory, in lower case. */
+    private final HashSet<String> lowerCaseNames;
+
+    private final ConcurrentHashMap<String, FileStat> stats =
+      new ConcurrentHashMap<String, FileStat>();
+
+    DirectoryStats(File dir) {
+      this.dir = dir;
+      time = System.nanoTime();
+      children = dir.listFiles();
+      names = new HashMap<String, File>();
+      lowerCaseNames = new HashSet<String>();
+      if (children != null) {
+        for (File child : children) {
+          names.put(child.getName(), child);
+          lowerCaseNames.add(child.getName().toLowerCase());
+        }
+      }
+    }
+
+    /** Returns the names of the files in the directory. */
+    public String[] list() {
+      String[] list = new String[children.length];
+      for (int i=0; i<list.length; i++) {
+        list[i] = children[i].getName();
+      }
+      return list;
+    }
+
+    /**
+     * Gets the attributes of the named file in this directory, or null if
+     * the name differs only in case from a listed file; on case-insensitive
+     * file systems that may be the same file, so it must be checked directly.
+     */
+    public FileStat get(String name) {
+      File f = names.get(name);
+      if (f == null) {
+        if (lowerCaseNames.contains(name.toLowerCase())) return null;
+        return FileStat.MISSING;
+      }
+      FileStat stat = stats.get(name);
+      if (stat == null) {
+        stat = new FileStat(f);
+        stats.put(name, stat);
+      }
+      return stat;
+    }
+
+    /** Reads the attributes of every file in the directory. */
+    public void statAll() {
+      if (children == null) return;
+      for (File child : children) {
+        get(child.getName());
+      }
+    }
+  }
+
 }
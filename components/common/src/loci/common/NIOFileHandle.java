@@ -134,6 +134,23 @@ public class NIOFileHandle extends AbstractNIOHandle {
     this(new File(name), mode);
   }
 
+  /**
+   * Creates a read-only stream over an already open file.  The file may be
+   * shared with other handles, each of which has its own position, byte
+   * order and buffer.
+   *
+   * @see HandlePool
+   */
+  protected NIOFileHandle(RandomAccessFile raf, int bufferSize)
+    throws IOException
+  {
+    this.bufferSize = bufferSize;
+    this.raf = raf;
+    channel = raf.getChannel();
+    byteBufferProvider = new NIOByteBufferProvider(channel, mapMode);
+    buffer(position, 0);
+  }
+
   // -- NIOFileHandle API methods --
 
   /**
@@ -225,8 +242,7 @@ public class NIOFileHandle extends AbstractNIOHandle {
   public int read(ByteBuffer buf, int off, int len) throws IOException {
     buf.position(off);
     buf.limit(off + len);
-    channel.position(position);
-    int readLength = channel.read(buf);
+    int readLength = channel.read(buf, position);
     buffer(position + readLength, 0);
     // Return value of NIO channel's is -1 when zero bytes are read at the end
     // of the file.
@@ -323,9 +339,14 @@ public class NIOFileHandle extends AbstractNIOHandle {
 
   /* @see java.io.DataInput.readLine() */
   public String readLine() throws IOException {
-    raf.seek(position);
-    String line = raf.readLine();
-    buffer(raf.getFilePointer(), 0);
+    String line;
+    long end;
+    synchronized (raf) {
+      raf.seek(position);
+      line = raf.readLine();
+      end = raf.getFilePointer();
+    }
+    buffer(end, 0);
     return line;
   }
 
@@ -367,9 +388,14 @@ public class NIOFileHandle extends AbstractNIOHandle {
 
   /* @see java.io.DataInput.readUTF() */
   public String readUTF() throws IOException {
-    raf.seek(position);
-    String utf8 = raf.readUTF();
-    buffer(raf.getFilePointer(), 0);
+    String utf8;
+    long end;
+    synchronized (raf) {
+      raf.seek(position);
+      utf8 = raf.readUTF();
+      end = raf.getFilePointer();
+    }
+    buffer(end, 0);
     return utf8;
   }
 
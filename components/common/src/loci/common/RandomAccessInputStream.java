@@ -307,6 +307,105 @@ public class RandomAccessInputStream extends InputStream implements DataInput {
     return saveString ? out.toString() : null;
   }
 
+  /**
+   * Searches for the next occurrence of any of the given byte sequences,
+   * from the current file pointer to the end of the stream.
+   *
+   * @see #findBytes(long, byte[]...)
+   */
+  public long findBytes(byte[]... patterns) throws IOException {
+    return findBytes(length(), patterns);
+  }
+
+  /**
+   * Searches for the next occurrence of any of the given byte sequences,
+   * from the current file pointer up to the given offset.  The stream is
+   * read in increasingly large blocks, which are searched using a Horspool
+   * shift table, so this is much faster than reading and comparing one
+   * byte at a time.
+   *
+   * If a sequence is found, the file pointer is left at its first byte;
+   * otherwise, the file pointer is left at the end of the search range.
+   *
+   * @param end The offset at which to stop searching.  A sequence is only
+   *   found if it ends at or before this offset.
+   * @param patterns The byte sequences for which to search.
+   *
+   * @return The offset of the earliest sequence found, or -1 if none of the
+   *   sequences was found.
+   */
+  public long findBytes(long end, byte[]... patterns) throws IOException {
+    if (patterns.length == 0) {
+      throw new IllegalArgumentException("No byte sequences to find");
+    }
+    int minLength = Integer.MAX_VALUE;
+    int maxLength = 0;
+    for (byte[] pattern : patterns) {
+      if (pattern.length == 0) {
+        throw new IllegalArgumentException("Empty byte sequence");
+      }
+      minLength = Math.min(minLength, pattern.length);
+      maxLength = Math.max(maxLength, pattern.length);
+    }
+
+    // how far the search can move on, given the last byte of a window
+    // that is as long as the shortest sequence
+    int[] shift = new int[256];
+    for (int b=0; b<shift.length; b++) {
+      shift[b] = minLength;
+    }
+    for (byte[] pattern : patterns) {
+      for (int j=0; j<minLength-1; j++) {
+        int b = pattern[j] & 0xff;
+        shift[b] = Math.min(shift[b], minLength - 1 - j);
+      }
+    }
+
+    end = Math.min(end, length());
+    long bufferStart = getFilePointer();
+    // start with a small block, in case the sequence is close by
+    byte[] buf = new byte[Math.max(8192, 2 * maxLength)];
+    int n = 0, i = 0;
+    while (true) {
+      // keep any bytes that may still be the start of a match
+      byte[] next = buf;
+      if (n > 0 && buf.length < DEFAULT_BLOCK_SIZE) {
+        next = new byte[Math.min(2 * buf.length, DEFAULT_BLOCK_SIZE)];
+      }
+      if (i < n) System.arraycopy(buf, i, next, 0, n - i);
+      buf = next;
+      bufferStart += i;
+      n = Math.max(n - i, 0);
+      i = 0;
+
+      int toRead = (int) Math.min(buf.length - n, end - bufferStart - n);
+      if (toRead > 0) {
+        seek(bufferStart + n);
+        readFully(buf, n, toRead);
+        n += toRead;
+      }
+      boolean lastBlock = bufferStart + n >= end;
+
+      // each position is checked once every sequence fits in the buffer,
+      // or once the rest of the search range is in the buffer
+      int limit = lastBlock ? n - minLength : n - maxLength;
+      while (i <= limit) {
+        for (byte[] pattern : patterns) {
+          if (i + pattern.length <= n && matches(buf, i, pattern)) {
+            seek(bufferStart + i);
+            return bufferStart + i;
+          }
+        }
+        i += shift[buf[i + minLength - 1] & 0xff];
+      }
+
+      if (lastBlock) {
+        seek(Math.max(end, getFilePointer()));
+        return -1;
+      }
+    }
+  }
+
   // -- DataInput API methods --
 
   /** Read an input byte and return true if the byte is nonzero. */
@@ -462,4 +561,14 @@ public class RandomAccessInputStream extends InputStream implements DataInput {
     seek(markedPos);
   }
 
+  // -- Helper methods --
+
+  /** Checks whether the given sequence appears in the array at an offset. */
+  private static boolean matches(byte[] buf, int offset, byte[] pattern) {
+    for (int j=pattern.length-1; j>=0; j--) {
+      if (buf[offset + j] != pattern[j]) return false;
+    }
+    return true;
+  }
+
 }
@@ -26,13 +26,23 @@ package loci.common;
 import java.io.BufferedInputStream;
 import java.io.DataInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Provides random access to URLs using the IRandomAccess interface.
  * Instances of URLHandle are read-only.
  *
+ * If an HTTP server supports range requests, the URL is read in fixed-size
+ * blocks, each fetched with a "Range:" request and kept in a
+ * least-recently-used cache, so that seeking does not download the
+ * intervening data.  Sequential reads fetch progressively more blocks per
+ * request.  Other URLs are read as a single stream.
+ *
  * <dl><dt><b>Source code:</b></dt>
  * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/common/src/loci/common/URLHandle.java">Trac</a>,
  * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/common/src/loci/common/URLHandle.java;hb=HEAD">Gitweb</a></dd></dl>
@@ -45,6 +55,17 @@ import java.net.URLConnection;
  */
 public class URLHandle extends StreamHandle {
 
+  // -- Constants --
+
+  /** Default size in bytes of the blocks read with range requests. */
+  public static final int DEFAULT_BLOCK_SIZE = 256 * 1024;
+
+  /** Default maximum number of cached blocks. */
+  public static final int DEFAULT_CACHED_BLOCKS = 64;
+
+  /** Maximum number of blocks read with a single range request. */
+  private static final int MAX_READ_AHEAD = 32;
+
   // -- Fields --
 
   /** URL of open socket */
@@ -53,24 +74,80 @@ public class URLHandle extends StreamHandle {
   /** Socket underlying this stream */
   private URLConnection conn;
 
+  /** Size in bytes of the blocks read with range requests. */
+  private int blockSize;
+
+  /** Maximum number of cached blocks. */
+  private int maxBlocks;
+
+  /**
+   * Cached blocks, in least-recently-used order; null if the URL is read
+   * as a single stream.
+   */
+  private LinkedHashMap<Long, byte[]> blocks;
+
+  /** Stream over the cached blocks. */
+  private BlockStream blockStream;
+
+  /** Index of the most recently read block. */
+  private long lastBlock = -1;
+
+  /** Number of blocks to read with the next range request. */
+  private int readAhead = 1;
+
   // -- Constructors --
 
   /**
    * Constructs a new URLHandle using the given URL.
    */
   public URLHandle(String url) throws IOException {
+    this(url, DEFAULT_BLOCK_SIZE, DEFAULT_CACHED_BLOCKS);
+  }
+
+  /**
+   * Constructs a new URLHandle using the given URL, reading blocks of the
+   * given size with range requests if the server supports them.
+   *
+   * @param url the URL to read
+   * @param blockSize the size in bytes of each block, or 0 to always read
+   *   the URL as a single stream
+   * @param maxBlocks the maximum number of blocks to keep in memory
+   */
+  public URLHandle(String url, int blockSize, int maxBlocks)
+    throws IOException
+  {
     if (!url.startsWith("http") && !url.startsWith("file:")) {
       url = "http://" + url;
     }
     this.url = url;
+    this.blockSize = blockSize;
+    this.maxBlocks = Math.max(1, maxBlocks);
     resetStream();
   }
 
+  // -- URLHandle API methods --
+
+  /** Returns true if the URL is being read with range requests. */
+  public boolean isRangeMode() {
+    return blocks != null;
+  }
+
   // -- IRandomAccess API methods --
 
+  /* @see IRandomAccess#close() */
+  public void close() throws IOException {
+    blocks = null;
+    blockStream = null;
+    super.close();
+  }
+
   /* @see IRandomAccess#seek(long) */
   public void seek(long pos) throws IOException {
-    if (pos < fp && pos >= mark) {
+    if (blocks != null) {
+      fp = pos;
+      blockStream.position = pos;
+    }
+    else if (pos < fp && pos >= mark) {
       stream.reset();
       fp = mark;
       skip(pos - fp);
@@ -78,11 +155,48 @@ public class URLHandle extends StreamHandle {
     else super.seek(pos);
   }
 
+  // -- DataInput API methods --
+
+  /* @see java.io.DataInput#skipBytes(int) */
+  public int skipBytes(int n) throws IOException {
+    if (blocks == null) return super.skipBytes(n);
+    int skipped = (int) Math.max(0, Math.min(n, length - fp));
+    seek(fp + skipped);
+    return skipped;
+  }
+
   // -- StreamHandle API methods --
 
   /* @see StreamHandle#resetStream() */
   protected void resetStream() throws IOException {
     conn = (new URL(url)).openConnection();
+    if (blockSize > 0 && conn instanceof HttpURLConnection) {
+      // servers that support range requests send only the first block
+      HttpURLConnection http = (HttpURLConnection) conn;
+      http.setRequestProperty("Range", "bytes=0-" + (blockSize - 1));
+      int code = http.getResponseCode();
+      long total = code == HttpURLConnection.HTTP_PARTIAL ?
+        getTotalLength(http) : -1;
+      if (total >= 0) {
+        length = total;
+        blocks = new LinkedHashMap<Long, byte[]>(16, 0.75f, true) {
+          protected boolean removeEldestEntry(Map.Entry<Long, byte[]> e) {
+            return size() > maxBlocks;
+          }
+        };
+        readBlocks(http, 0, Math.min(blockSize, length));
+        blockStream = new BlockStream();
+        stream = new DataInputStream(blockStream);
+        fp = 0;
+        mark = 0;
+        return;
+      }
+      if (code != HttpURLConnection.HTTP_OK) {
+        // the range was not understood, so ask for the whole URL instead
+        closeQuietly(http);
+        conn = (new URL(url)).openConnection();
+      }
+    }
     stream = new DataInputStream(new BufferedInputStream(
       conn.getInputStream(), RandomAccessInputStream.MAX_OVERHEAD));
     fp = 0;
@@ -106,4 +220,136 @@ public class URLHandle extends StreamHandle {
     }
   }
 
+  /**
+   * Gets the block with the given index, reading it (and possibly some of
+   * the blocks that follow) if it is not cached.
+   */
+  private byte[] getBlock(long index) throws IOException {
+    byte[] block = blocks.get(index);
+    if (block == null) {
+      // read further ahead each time that a sequential read misses the cache
+      int max = Math.max(1, Math.min(MAX_READ_AHEAD, maxBlocks / 2));
+      readAhead = index == lastBlock + 1 ? Math.min(readAhead * 2, max) : 1;
+
+      long start = index * blockSize;
+      long end = Math.min(length, start + (long) readAhead * blockSize);
+      for (long i=index+1; i<index+readAhead; i++) {
+        if (blocks.containsKey(i)) {
+          end = Math.min(end, i * blockSize);
+          break;
+        }
+      }
+      HttpURLConnection http =
+        (HttpURLConnection) (new URL(url)).openConnection();
+      http.setRequestProperty("Range", "bytes=" + start + "-" + (end - 1));
+      if (http.getResponseCode() != HttpURLConnection.HTTP_PARTIAL) {
+        closeQuietly(http);
+        throw new IOException("Range request for " + url + " failed: " +
+          http.getResponseCode() + " " + http.getResponseMessage());
+      }
+      block = readBlocks(http, start, end);
+    }
+    lastBlock = index;
+    return block;
+  }
+
+  /**
+   * Reads the blocks between the given offsets from the body of a response,
+   * and adds them to the cache.
+   *
+   * @return the first block read
+   */
+  private byte[] readBlocks(URLConnection c, long start, long end)
+    throws IOException
+  {
+    byte[] first = null;
+    DataInputStream in = new DataInputStream(c.getInputStream());
+    try {
+      for (long pos=start; pos<end; pos+=blockSize) {
+        byte[] block = new byte[(int) Math.min(blockSize, end - pos)];
+        in.readFully(block);
+        blocks.put(pos / blockSize, block);
+        if (first == null) first = block;
+      }
+    }
+    finally {
+      // reading the whole body before closing lets the connection be reused
+      in.close();
+    }
+    return first;
+  }
+
+  /**
+   * Gets the total length of the URL from the Content-Range header of a
+   * partial response, or -1 if the length is not known.
+   */
+  private static long getTotalLength(HttpURLConnection http) {
+    String range = http.getHeaderField("Content-Range");
+    if (range == null || !range.startsWith("bytes")) return -1;
+    int slash = range.lastIndexOf("/");
+    try {
+      return Long.parseLong(range.substring(slash + 1).trim());
+    }
+    catch (NumberFormatException e) {
+      return -1;
+    }
+  }
+
+  /** Discards the body of a response that will not be read. */
+  private static void closeQuietly(HttpURLConnection http) {
+    try {
+      InputStream body = http.getResponseCode() >= 400 ?
+        http.getErrorStream() : http.getInputStream();
+      if (body != null) body.close();
+    }
+    catch (IOException e) {
+      http.disconnect();
+    }
+  }
+
+  // -- Helper classes --
+
+  /** InputStream that reads from the cached blocks. */
+  private class BlockStream extends InputStream {
+
+    /** Current position within the URL. */
+    private long position;
+
+    /* @see java.io.InputStream#read() */
+    public int read() throws IOException {
+      if (position >= length) return -1;
+      byte[] block = getBlock(position / blockSize);
+      return block[(int) (position++ % blockSize)] & 0xff;
+    }
+
+    /* @see java.io.InputStream#read(byte[], int, int) */
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) return 0;
+      if (position >= length) return -1;
+      int n = 0;
+      while (n < len && position < length) {
+        byte[] block = getBlock(position / blockSize);
+        int blockOffset = (int) (position % blockSize);
+        int count = Math.min(len - n, block.length - blockOffset);
+        System.arraycopy(block, blockOffset, b, off + n, count);
+        position += count;
+        n += count;
+      }
+      return n;
+    }
+
+    /* @see java.io.InputStream#skip(long) */
+    public long skip(long n) {
+      long skipped = Math.max(0, Math.min(n, length - position));
+      position += skipped;
+      return skipped;
+    }
+
+    /* @see java.io.InputStream#available() */
+    public int available() {
+      return (int) Math.min(Integer.MAX_VALUE, Math.max(0, length - position));
+    }
+
+  }
+
 }
@@ -0,0 +1,322 @@
+//
+// ZipEntryHandle.java
+//
+
+/*
+LOCI Common package: utilities for I/O, reflection and miscellaneous tasks.
+Copyright (C) 2005-@year@ Melissa Linkert, Curtis Rueden and Chris Allan.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.common;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * IRandomAccess implementation for reading a single entry of a Zip file
+ * through a {@link ZipIndex}.  Instances of ZipEntryHandle are read-only.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/common/src/loci/common/ZipEntryHandle.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/common/src/loci/common/ZipEntryHandle.java;hb=HEAD">Gitweb</a></dd></dl>
+ *
+ * @see ZipIndex#openEntry(String)
+ */
+public class ZipEntryHandle implements IRandomAccess {
+
+  // -- Fields --
+
+  private ZipIndex index;
+  private ZipIndex.Entry entry;
+
+  /** Current position within the entry. */
+  private long position;
+
+  /** Byte ordering of this handle. */
+  private ByteOrder order = ByteOrder.BIG_ENDIAN;
+
+  /** Buffer for reading primitive values. */
+  private byte[] scratch = new byte[8];
+
+  // -- Constructor --
+
+  ZipEntryHandle(ZipIndex index, ZipIndex.Entry entry) {
+    this.index = index;
+    this.entry = entry;
+  }
+
+  // -- ZipEntryHandle API methods --
+
+  /** Gets the name of the backing Zip entry. */
+  public String getEntryName() {
+    return entry.name;
+  }
+
+  // -- IRandomAccess API methods --
+
+  /* @see IRandomAccess#close() */
+  public void close() { }
+
+  /* @see IRandomAccess#getFilePointer() */
+  public long getFilePointer() {
+    return position;
+  }
+
+  /* @see IRandomAccess#length() */
+  public long length() {
+    return entry.size;
+  }
+
+  /* @see IRandomAccess#getOrder() */
+  public ByteOrder getOrder() {
+    return order;
+  }
+
+  /* @see IRandomAccess#setOrder(ByteOrder) */
+  public void setOrder(ByteOrder order) {
+    this.order = order;
+  }
+
+  /* @see IRandomAccess#read(byte[]) */
+  public int read(byte[] b) throws IOException {
+    return read(b, 0, b.length);
+  }
+
+  /* @see IRandomAccess#read(byte[], int, int) */
+  public int read(byte[] b, int off, int len) throws IOException {
+    int n = index.read(entry, position, b, off, len);
+    if (n < 0) return 0;
+    position += n;
+    return n;
+  }
+
+  /* @see IRandomAccess#read(ByteBuffer) */
+  public int read(ByteBuffer buf) throws IOException {
+    return read(buf, 0, buf.capacity());
+  }
+
+  /* @see IRandomAccess#read(ByteBuffer, int, int) */
+  public int read(ByteBuffer buf, int off, int len) throws IOException {
+    if (buf.hasArray()) {
+      int n = read(buf.array(), buf.arrayOffset() + off, len);
+      buf.position(off + n);
+      return n;
+    }
+    byte[] b = new byte[len];
+    int n = read(b);
+    buf.position(off);
+    buf.put(b, 0, n);
+    return n;
+  }
+
+  /* @see IRandomAccess#seek(long) */
+  public void seek(long pos) {
+    position = pos;
+  }
+
+  /* @see IRandomAccess#write(ByteBuffer) */
+  public void write(ByteBuffer buf) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see IRandomAccess#write(ByteBuffer, int, int) */
+  public void write(ByteBuffer buf, int off, int len) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  // -- DataInput API methods --
+
+  /* @see java.io.DataInput#readBoolean() */
+  public boolean readBoolean() throws IOException {
+    return readByte() != 0;
+  }
+
+  /* @see java.io.DataInput#readByte() */
+  public byte readByte() throws IOException {
+    readFully(scratch, 0, 1);
+    return scratch[0];
+  }
+
+  /* @see java.io.DataInput#readChar() */
+  public char readChar() throws IOException {
+    return (char) readShort();
+  }
+
+  /* @see java.io.DataInput#readDouble() */
+  public double readDouble() throws IOException {
+    return Double.longBitsToDouble(readLong());
+  }
+
+  /* @see java.io.DataInput#readFloat() */
+  public float readFloat() throws IOException {
+    return Float.intBitsToFloat(readInt());
+  }
+
+  /* @see java.io.DataInput#readFully(byte[]) */
+  public void readFully(byte[] b) throws IOException {
+    readFully(b, 0, b.length);
+  }
+
+  /* @see java.io.DataInput#readFully(byte[], int, int) */
+  public void readFully(byte[] b, int off, int len) throws IOException {
+    if (position + len > entry.size) {
+      throw new EOFException("Attempting to read beyond end of file.");
+    }
+    int n = 0;
+    while (n < len) {
+      n += read(b, off + n, len - n);
+    }
+  }
+
+  /* @see java.io.DataInput#readInt() */
+  public int readInt() throws IOException {
+    readFully(scratch, 0, 4);
+    return DataTools.bytesToInt(scratch, 0, isLittleEndian());
+  }
+
+  /* @see java.io.DataInput#readLine() */
+  public String readLine() throws IOException {
+    if (position >= entry.size) return null;
+    StringBuffer line = new StringBuffer();
+    while (position < entry.size) {
+      int c = readUnsignedByte();
+      if (c == '\n') break;
+      if (c == '\r') {
+        if (position < entry.size && readUnsignedByte() != '\n') position--;
+        break;
+      }
+      line.append((char) c);
+    }
+    return line.toString();
+  }
+
+  /* @see java.io.DataInput#readLong() */
+  public long readLong() throws IOException {
+    readFully(scratch, 0, 8);
+    return DataTools.bytesToLong(scratch, 0, isLittleEndian());
+  }
+
+  /* @see java.io.DataInput#readShort() */
+  public short readShort() throws IOException {
+    readFully(scratch, 0, 2);
+    return DataTools.bytesToShort(scratch, 0, isLittleEndian());
+  }
+
+  /* @see java.io.DataInput#readUnsignedByte() */
+  public int readUnsignedByte() throws IOException {
+    return readByte() & 0xff;
+  }
+
+  /* @see java.io.DataInput#readUnsignedShort() */
+  public int readUnsignedShort() throws IOException {
+    return readShort() & 0xffff;
+  }
+
+  /* @see java.io.DataInput#readUTF() */
+  public String readUTF() throws IOException {
+    return DataInputStream.readUTF(this);
+  }
+
+  /* @see java.io.DataInput#skipBytes(int) */
+  public int skipBytes(int n) {
+    int skipped = (int) Math.max(0, Math.min(n, entry.size - position));
+    position += skipped;
+    return skipped;
+  }
+
+  // -- DataOutput API methods --
+
+  /* @see java.io.DataOutput#write(byte[]) */
+  public void write(byte[] b) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#write(byte[], int, int) */
+  public void write(byte[] b, int off, int len) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#write(int) */
+  public void write(int b) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeBoolean(boolean) */
+  public void writeBoolean(boolean v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeByte(int) */
+  public void writeByte(int v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeBytes(String) */
+  public void writeBytes(String s) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeChar(int) */
+  public void writeChar(int v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeChars(String) */
+  public void writeChars(String s) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeDouble(double) */
+  public void writeDouble(double v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeFloat(float) */
+  public void writeFloat(float v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeInt(int) */
+  public void writeInt(int v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeLong(long) */
+  public void writeLong(long v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeShort(int) */
+  public void writeShort(int v) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  /* @see java.io.DataOutput#writeUTF(String) */
+  public void writeUTF(String str) throws IOException {
+    throw new HandleException("This stream is read-only.");
+  }
+
+  // -- Helper methods --
+
+  private boolean isLittleEndian() {
+    return order == ByteOrder.LITTLE_ENDIAN;
+  }
+
+}
@@ -23,24 +23,24 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package loci.common;
 
-import java.io.BufferedInputStream;
 import java.io.DataInputStream;
-import java.io.File;
-import java.io.FileInputStream;
 import java.io.IOException;
-import java.util.Enumeration;
+import java.io.InputStream;
 import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
 /**
  * StreamHandle implementation for reading from Zip-compressed files
  * or byte arrays.  Instances of ZipHandle are read-only.
  *
+ * The entry is found through the Zip file's central directory, and can be
+ * read in any order; see {@link ZipIndex}.
+ *
  * <dl><dt><b>Source code:</b></dt>
  * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/common/src/loci/common/ZipHandle.java">Trac</a>,
  * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/common/src/loci/common/ZipHandle.java;hb=HEAD">Gitweb</a></dd></dl>
  *
  * @see StreamHandle
+ * @see ZipIndex
  *
  * @author Melissa Linkert melissa at glencoesoftware.com
  */
@@ -48,49 +48,23 @@ public class ZipHandle extends StreamHandle {
 
   // -- Fields --
 
-  private RandomAccessInputStream in;
-  private ZipInputStream zip;
-  private ZipEntry entry;
-  private int entryCount = 0;
-  private String file;
+  private ZipIndex index;
+  private String entryName;
+  private IRandomAccess entry;
 
   // -- Constructor --
 
   public ZipHandle(String file) throws IOException {
     super();
-    this.file = file;
-    in = new RandomAccessInputStream(getHandle(file));
-    zip = new ZipInputStream(in);
-
-    // strip off .zip extension and directory prefix
-    String innerFile = file.substring(0, file.length() - 4);
-    int slash = innerFile.lastIndexOf(File.separator);
-    if (slash < 0) slash = innerFile.lastIndexOf("/");
-    if (slash >= 0) innerFile = innerFile.substring(slash + 1);
+    index = new ZipIndex(file);
 
     // look for Zip entry with same prefix as the original Zip file
-    entry = null;
-
-    while (true) {
-      ZipEntry ze = zip.getNextEntry();
-      if (ze == null) break;
-      entryCount++;
-    }
-    resetStream();
-
-    while (true) {
-      ZipEntry ze = zip.getNextEntry();
-      if (ze == null) break;
-      if (entry == null) entry = ze;
-      if (ze.getName().startsWith(innerFile)) {
-        // found entry with matching name
-        entry = ze;
-        break;
-      }
+    entryName = index.getDefaultEntry();
+    if (entryName == null) {
+      index.close();
+      throw new HandleException(file + " does not contain any files");
     }
-
-    resetStream();
-    populateLength();
+    openEntry();
   }
 
   /**
@@ -101,14 +75,14 @@ public class ZipHandle extends StreamHandle {
    */
   public ZipHandle(String file, ZipEntry entry) throws IOException {
     super();
-    this.file = file;
-    in = new RandomAccessInputStream(getHandle(file));
-    zip = new ZipInputStream(in);
-    while (!entry.getName().equals(zip.getNextEntry().getName()));
-    entryCount = 1;
-    this.entry = entry;
-    resetStream();
-    populateLength();
+    index = new ZipIndex(file);
+    entryName = entry.getName();
+    if (!index.hasEntry(entryName)) {
+      index.close();
+      throw new HandleException("No entry named " + entryName + " in " +
+        file);
+    }
+    openEntry();
   }
 
   // -- ZipHandle API methods --
@@ -117,7 +91,8 @@ public class ZipHandle extends StreamHandle {
   public static boolean isZipFile(String file) throws IOException {
     if (!file.toLowerCase().endsWith(".zip")) return false;
 
-    IRandomAccess handle = getHandle(file);
+    IRandomAccess handle = file.startsWith("http://") ?
+      new URLHandle(file) : new NIOFileHandle(file, "r");
     byte[] b = new byte[2];
     if (handle.length() >= 2) {
       handle.read(b);
@@ -128,7 +103,7 @@ public class ZipHandle extends StreamHandle {
 
   /** Get the name of the backing Zip entry. */
   public String getEntryName() {
-    return entry.getName();
+    return entryName;
   }
 
   /** Returns the DataInputStream corresponding to the backing Zip entry. */
@@ -138,7 +113,7 @@ public class ZipHandle extends StreamHandle {
 
   /** Returns the number of entries. */
   public int getEntryCount() {
-    return entryCount;
+    return index == null ? 0 : index.getEntryCount();
   }
 
   // -- IRandomAccess API methods --
@@ -147,47 +122,76 @@ public class ZipHandle extends StreamHandle {
   public void close() throws IOException {
     if (!Location.getIdMap().containsValue(this)) {
       super.close();
-      zip = null;
       entry = null;
-      if (in != null) in.close();
-      in = null;
-      entryCount = 0;
+      if (index != null) index.close();
+      index = null;
     }
   }
 
+  /* @see IRandomAccess#seek(long) */
+  public void seek(long pos) throws IOException {
+    fp = pos;
+    entry.seek(pos);
+  }
+
+  // -- DataInput API methods --
+
+  /* @see java.io.DataInput#skipBytes(int) */
+  public int skipBytes(int n) throws IOException {
+    int skipped = (int) Math.max(0, Math.min(n, length - fp));
+    seek(fp + skipped);
+    return skipped;
+  }
+
   // -- StreamHandle API methods --
 
   /* @see StreamHandle#resetStream() */
   protected void resetStream() throws IOException {
-    if (stream != null) stream.close();
-    if (in != null) {
-      in.close();
-      in = new RandomAccessInputStream(getHandle(file));
-    }
-    if (zip != null) zip.close();
-    zip = new ZipInputStream(in);
-    if (entry != null) {
-      while (!entry.getName().equals(zip.getNextEntry().getName()));
-    }
-    stream = new DataInputStream(new BufferedInputStream(
-      zip, RandomAccessInputStream.MAX_OVERHEAD * 10));
-    stream.mark(RandomAccessInputStream.MAX_OVERHEAD * 10);
+    seek(0);
+    mark = 0;
   }
 
   // -- Helper methods --
 
-  private void populateLength() throws IOException {
-    length = -1;
-    while (stream.available() > 0) {
-      stream.skip(1);
-      length++;
-    }
+  private void openEntry() throws IOException {
+    entry = index.openEntry(entryName);
+    length = entry.length();
+    stream = new DataInputStream(new EntryStream());
     resetStream();
   }
 
-  private static IRandomAccess getHandle(String file) throws IOException {
-    return file.startsWith("http://") ?
-      new URLHandle(file) : new NIOFileHandle(file, "r");
+  // -- Helper classes --
+
+  /** InputStream that reads from the backing Zip entry. */
+  private class EntryStream extends InputStream {
+
+    /* @see java.io.InputStream#read() */
+    public int read() throws IOException {
+      if (entry.getFilePointer() >= length) return -1;
+      return entry.readByte() & 0xff;
+    }
+
+    /* @see java.io.InputStream#read(byte[], int, int) */
+    public int read(byte[] b, int off, int len) throws IOException {
+      if (len == 0) return 0;
+      if (entry.getFilePointer() >= length) return -1;
+      return entry.read(b, off, len);
+    }
+
+    /* @see java.io.InputStream#skip(long) */
+    public long skip(long n) throws IOException {
+      long pos = entry.getFilePointer();
+      long skipped = Math.max(0, Math.min(n, length - pos));
+      entry.seek(pos + skipped);
+      return skipped;
+    }
+
+    /* @see java.io.InputStream#available() */
+    public int available() throws IOException {
+      long remaining = length - entry.getFilePointer();
+      return (int) Math.max(0, Math.min(Integer.MAX_VALUE, remaining));
+    }
+
   }
 
 }
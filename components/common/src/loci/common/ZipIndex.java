@@ -0,0 +1,584 @@
+//
+// ZipIndex.java
+//
+
+/*
+LOCI Common package: utilities for I/O, reflection and miscellaneous tasks.
+Copyright (C) 2005-@year@ Melissa Linkert, Curtis Rueden and Chris Allan.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.common;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Index of the entries in a Zip file, built from the file's central
+ * directory, that provides random access to each entry.
+ *
+ * Entries that are stored without compression are read directly from the
+ * Zip file.  Entries that are compressed with DEFLATE are inflated only as
+ * far as has been read, in blocks of 64 KB that are kept in a least recently
+ * used cache shared by all entries.  Reading further resumes where
+ * inflation stopped; reading a block that has been evicted inflates it again
+ * from the nearest checkpoint before it.  Checkpoints are recorded at
+ * DEFLATE block boundaries, at least 1 MB apart and at most 256 per entry,
+ * so that no entry is ever held in memory whole; entries may be larger
+ * than 2 GB.
+ *
+ * All entries share a single open handle to the Zip file.  Every entry can
+ * be mapped with {@link Location#mapFile(String, IRandomAccess)}, so that
+ * readers can open the files in the archive by name.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/common/src/loci/common/ZipIndex.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/common/src/loci/common/ZipIndex.java;hb=HEAD">Gitweb</a></dd></dl>
+ *
+ * @see ZipHandle
+ * @see ZipEntryHandle
+ */
+public class ZipIndex {
+
+  // -- Constants --
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ZipIndex.class);
+
+  /** Compression method for entries that are not compressed. */
+  public static final int STORED = 0;
+
+  /** Compression method for entries that are compressed with DEFLATE. */
+  public static final int DEFLATED = 8;
+
+  private static final int END_SIGNATURE = 0x06054b50;
+  private static final int ZIP64_LOCATOR_SIGNATURE = 0x07064b50;
+  private static final int ZIP64_END_SIGNATURE = 0x06064b50;
+  private static final int CENTRAL_SIGNATURE = 0x02014b50;
+  private static final int LOCAL_SIGNATURE = 0x04034b50;
+
+  /** Size of the end of central directory record, without the comment. */
+  private static final int END_LENGTH = 22;
+
+  /** Default maximum size in bytes of the inflated block cache. */
+  public static final long DEFAULT_CACHE_SIZE = 16 * 1024 * 1024;
+
+  /** Number of bytes in each inflated block. */
+  private static final int BLOCK_SIZE = 65536;
+
+  /** Minimum number of inflated bytes between checkpoints. */
+  private static final long CHECKPOINT_INTERVAL = 1024 * 1024;
+
+  /** Maximum number of checkpoints for each entry. */
+  private static final int MAX_CHECKPOINTS = 256;
+
+  // -- Fields --
+
+  /** Path to the Zip file. */
+  private String file;
+
+  /** Handle for the Zip file. */
+  private IRandomAccess archive;
+
+  /** True if the handle was opened by this index. */
+  private boolean ownsArchive;
+
+  /** Entries, in the order of the central directory, keyed by name. */
+  private LinkedHashMap<String, Entry> entries =
+    new LinkedHashMap<String, Entry>();
+
+  /** Paths under which entries have been mapped. */
+  private List<String> mappedPaths = new ArrayList<String>();
+
+  /** Maximum size in bytes of the inflated block cache. */
+  private long cacheSize = DEFAULT_CACHE_SIZE;
+
+  /** Total size in bytes of the cached blocks. */
+  private long cachedBytes;
+
+  /** Inflated blocks of all entries, in least recently used order. */
+  private LinkedHashMap<BlockKey, byte[]> blocks =
+    new LinkedHashMap<BlockKey, byte[]>(16, 0.75f, true);
+
+  // -- Constructor --
+
+  /**
+   * Reads the central directory of the given Zip file.
+   *
+   * @throws HandleException if the file is not a Zip file
+   */
+  public ZipIndex(String file) throws IOException {
+    this.file = file;
+    archive = Location.getMappedFile(file);
+    if (archive == null) {
+      String id = Location.getMappedId(file);
+      archive = id.startsWith("http://") ?
+        new URLHandle(id) : new NIOFileHandle(id, "r");
+      ownsArchive = true;
+    }
+    try {
+      readCentralDirectory();
+    }
+    catch (IOException e) {
+      close();
+      throw e;
+    }
+  }
+
+  // -- ZipIndex API methods --
+
+  /** Gets the path to the Zip file. */
+  public String getFile() {
+    return file;
+  }
+
+  /** Gets the number of entries, including directories. */
+  public int getEntryCount() {
+    return entries.size();
+  }
+
+  /** Gets the names of the entries that are files, in archive order. */
+  public List<String> getEntryNames() {
+    List<String> names = new ArrayList<String>();
+    for (Entry entry : entries.values()) {
+      if (!entry.isDirectory()) names.add(entry.name);
+    }
+    return names;
+  }
+
+  /** Returns true if there is an entry with the given name. */
+  public boolean hasEntry(String name) {
+    return entries.containsKey(name);
+  }
+
+  /** Gets the uncompressed size of the given entry. */
+  public long getEntrySize(String name) throws IOException {
+    return getEntry(name).size;
+  }
+
+  /** Gets the compression method of the given entry. */
+  public int getEntryMethod(String name) throws IOException {
+    return getEntry(name).method;
+  }
+
+  /**
+   * Gets the name of the entry that is most likely to be the main file:
+   * the first file whose name starts with the name of the Zip file (without
+   * its extension), or else the first file.
+   *
+   * @return the entry name, or null if there are no files in the archive
+   */
+  public String getDefaultEntry() {
+    String innerFile = new File(file).getName();
+    int dot = innerFile.lastIndexOf(".");
+    if (dot > 0) innerFile = innerFile.substring(0, dot);
+    String first = null;
+    for (Entry entry : entries.values()) {
+      if (entry.isDirectory()) continue;
+      if (first == null) first = entry.name;
+      if (entry.name.startsWith(innerFile)) return entry.name;
+    }
+    return first;
+  }
+
+  /**
+   * Opens the given entry.  Each handle has its own position; closing it does
+   * not close the Zip file.
+   */
+  public IRandomAccess openEntry(String name) throws IOException {
+    return new ZipEntryHandle(this, getEntry(name));
+  }
+
+  /**
+   * Gets the path under which the given entry is mapped by
+   * {@link #mapEntries()}, i.e. the entry's path within a directory that
+   * has the same path as the Zip file.
+   */
+  public String getMappedPath(String name) {
+    String path = new File(file).getAbsolutePath();
+    return new File(path, name.replace('/', File.separatorChar)).getPath();
+  }
+
+  /**
+   * Maps every file in the archive with
+   * {@link Location#mapFile(String, IRandomAccess)}, using the path returned
+   * by {@link #getMappedPath(String)}.
+   */
+  public void mapEntries() throws IOException {
+    for (String name : getEntryNames()) {
+      String path = getMappedPath(name);
+      Location.mapFile(path, openEntry(name));
+      mappedPaths.add(path);
+    }
+  }
+
+  /** Removes the mappings created by {@link #mapEntries()}. */
+  public void unmapEntries() {
+    for (String path : mappedPaths) {
+      Location.mapFile(path, null);
+    }
+    mappedPaths.clear();
+  }
+
+  /**
+   * Sets the maximum size in bytes of the inflated block cache.  The most
+   * recently used block is always retained.
+   */
+  public void setCacheSize(long cacheSize) {
+    synchronized (blocks) {
+      this.cacheSize = cacheSize;
+      trimCache();
+    }
+  }
+
+  /** Gets the maximum size in bytes of the inflated block cache. */
+  public long getCacheSize() {
+    return cacheSize;
+  }
+
+  /** Gets the total size in bytes of the cached blocks. */
+  public long getCachedSize() {
+    synchronized (blocks) {
+      return cachedBytes;
+    }
+  }
+
+  /** Closes the Zip file and discards any inflated data. */
+  public void close() throws IOException {
+    unmapEntries();
+    for (Entry entry : entries.values()) {
+      entry.discard();
+    }
+    synchronized (blocks) {
+      blocks.clear();
+      cachedBytes = 0;
+    }
+    if (ownsArchive && archive != null) archive.close();
+    archive = null;
+  }
+
+  // -- Package-private methods --
+
+  /**
+   * Reads up to len bytes from the given entry, starting at the given
+   * position within the entry.
+   *
+   * @return the number of bytes read, or -1 if the position is at or after
+   *   the end of the entry
+   */
+  int read(Entry entry, long pos, byte[] b, int off, int len)
+    throws IOException
+  {
+    if (pos >= entry.size) return -1;
+    int n = (int) Math.min(len, entry.size - pos);
+    if (entry.method == STORED) {
+      long offset = getDataOffset(entry);
+      synchronized (archive) {
+        archive.seek(offset + pos);
+        archive.readFully(b, off, n);
+      }
+    }
+    else {
+      for (int done=0; done<n;) {
+        long block = (pos + done) / BLOCK_SIZE;
+        byte[] data = getBlock(entry, block);
+        int blockOffset = (int) (pos + done - block * BLOCK_SIZE);
+        int count = Math.min(n - done, data.length - blockOffset);
+        System.arraycopy(data, blockOffset, b, off + done, count);
+        done += count;
+      }
+    }
+    return n;
+  }
+
+  /** Reads len bytes from the given offset into the given array. */
+  void readBytes(long offset, byte[] b, int off, int len) throws IOException {
+    synchronized (archive) {
+      archive.seek(offset);
+      archive.readFully(b, off, len);
+    }
+  }
+
+  // -- Helper methods --
+
+  private Entry getEntry(String name) throws IOException {
+    Entry entry = entries.get(name);
+    if (entry == null) {
+      throw new HandleException("No entry named " + name + " in " + file);
+    }
+    return entry;
+  }
+
+  /** Reads the end of central directory record and the central directory. */
+  private void readCentralDirectory() throws IOException {
+    long length = archive.length();
+    int tail = (int) Math.min(length, END_LENGTH + 65535);
+    byte[] b = readBytes(length - tail, tail);
+
+    // the record is followed by a comment of unknown length
+    int end = -1;
+    for (int i=tail-END_LENGTH; i>=0; i--) {
+      if (getInt(b, i) == END_SIGNATURE) {
+        end = i;
+        break;
+      }
+    }
+    if (end < 0) throw new HandleException(file + " is not a Zip file");
+
+    long count = getShort(b, end + 10);
+    long directoryLength = getInt(b, end + 12) & 0xffffffffL;
+    long directoryOffset = getInt(b, end + 16) & 0xffffffffL;
+
+    // Zip64 archives have a second record, found through a locator
+    int locator = end - 20;
+    if (locator >= 0 && getInt(b, locator) == ZIP64_LOCATOR_SIGNATURE) {
+      long recordOffset = getLong(b, locator + 8);
+      byte[] record = readBytes(recordOffset, 56);
+      if (getInt(record, 0) != ZIP64_END_SIGNATURE) {
+        throw new HandleException("Invalid Zip64 record in " + file);
+      }
+      count = getLong(record, 32);
+      directoryLength = getLong(record, 40);
+      directoryOffset = getLong(record, 48);
+    }
+    if (directoryLength > Integer.MAX_VALUE) {
+      throw new HandleException("Central directory of " + file +
+        " is too large");
+    }
+
+    b = readBytes(directoryOffset, (int) directoryLength);
+    int off = 0;
+    for (long i=0; i<count; i++) {
+      if (off + 46 > b.length || getInt(b, off) != CENTRAL_SIGNATURE) {
+        throw new HandleException("Invalid central directory in " + file);
+      }
+      Entry entry = new Entry();
+      entry.flags = getShort(b, off + 8);
+      entry.method = getShort(b, off + 10);
+      entry.compressedSize = getInt(b, off + 20) & 0xffffffffL;
+      entry.size = getInt(b, off + 24) & 0xffffffffL;
+      int nameLength = getShort(b, off + 28);
+      int extraLength = getShort(b, off + 30);
+      int commentLength = getShort(b, off + 32);
+      entry.localOffset = getInt(b, off + 42) & 0xffffffffL;
+      entry.name = new String(b, off + 46, nameLength, "UTF-8");
+
+      // Zip64 extra field, with the values that did not fit in 32 bits
+      int extra = off + 46 + nameLength;
+      int extraEnd = extra + extraLength;
+      while (extra + 4 <= extraEnd) {
+        int id = getShort(b, extra);
+        int size = getShort(b, extra + 2);
+        if (id == 1) {
+          int p = extra + 4;
+          if (entry.size == 0xffffffffL) {
+            entry.size = getLong(b, p);
+            p += 8;
+          }
+          if (entry.compressedSize == 0xffffffffL) {
+            entry.compressedSize = getLong(b, p);
+            p += 8;
+          }
+          if (entry.localOffset == 0xffffffffL) {
+            entry.localOffset = getLong(b, p);
+          }
+        }
+        extra += 4 + size;
+      }
+
+      entries.put(entry.name, entry);
+      off = extraEnd + commentLength;
+    }
+    LOGGER.debug("{} entries in {}", entries.size(), file);
+  }
+
+  /** Gets the offset to the given entry's data, after its local header. */
+  private long getDataOffset(Entry entry) throws IOException {
+    if (entry.dataOffset < 0) {
+      if ((entry.flags & 1) != 0) {
+        throw new HandleException(entry.name + " is encrypted");
+      }
+      if (entry.method != STORED && entry.method != DEFLATED) {
+        throw new HandleException(entry.name +
+          " uses unsupported compression method " + entry.method);
+      }
+      byte[] header = readBytes(entry.localOffset, 30);
+      if (getInt(header, 0) != LOCAL_SIGNATURE) {
+        throw new HandleException("Invalid local header for " + entry.name);
+      }
+      entry.dataOffset = entry.localOffset + 30 + getShort(header, 26) +
+        getShort(header, 28);
+    }
+    return entry.dataOffset;
+  }
+
+  /**
+   * Gets the given inflated block of the given entry, from the cache or else
+   * by inflating it.
+   */
+  private byte[] getBlock(Entry entry, long block) throws IOException {
+    BlockKey key = new BlockKey(entry, block);
+    synchronized (entry) {
+      byte[] data = getCachedBlock(key);
+      if (data != null) return data;
+
+      restart(entry, block * BLOCK_SIZE);
+
+      // blocks passed on the way are cached too, for sequential reads
+      while (true) {
+        long position = entry.decoder.getPosition();
+        int length = (int) Math.min(BLOCK_SIZE - position % BLOCK_SIZE,
+          entry.size - position);
+        data = new byte[length];
+        if (entry.decoder.decode(data, 0, length) < length) {
+          throw new EOFException("Unexpected end of " + entry.name);
+        }
+        if (position % BLOCK_SIZE == 0) {
+          BlockKey k = new BlockKey(entry, position / BLOCK_SIZE);
+          cacheBlock(k, data);
+          if (k.equals(key)) return data;
+        }
+      }
+    }
+  }
+
+  /**
+   * Replaces the given entry's decoder with one that starts at the last
+   * checkpoint at or before the given position, unless the current decoder
+   * is already between that checkpoint and the position.
+   */
+  private void restart(Entry entry, long position) throws IOException {
+    long end = getDataOffset(entry) + entry.compressedSize;
+    if (entry.checkpoints == null) {
+      entry.checkpoints = new ArrayList<DeflateDecoder.Checkpoint>();
+    }
+    DeflateDecoder.Checkpoint checkpoint = null;
+    for (DeflateDecoder.Checkpoint c : entry.checkpoints) {
+      if (c.output > position) break;
+      checkpoint = c;
+    }
+    if (entry.decoder != null && entry.decoder.getPosition() <= position &&
+      (checkpoint == null || entry.decoder.getPosition() >= checkpoint.output))
+    {
+      return;
+    }
+    entry.decoder = checkpoint == null ?
+      new DeflateDecoder(this, entry.name, getDataOffset(entry), end) :
+      new DeflateDecoder(this, entry.name, checkpoint, end);
+    entry.decoder.setCheckpoints(entry.checkpoints,
+      Math.max(CHECKPOINT_INTERVAL, entry.size / MAX_CHECKPOINTS));
+  }
+
+  private byte[] getCachedBlock(BlockKey key) {
+    synchronized (blocks) {
+      return blocks.get(key);
+    }
+  }
+
+  private void cacheBlock(BlockKey key, byte[] data) {
+    synchronized (blocks) {
+      byte[] old = blocks.put(key, data);
+      if (old != null) cachedBytes -= old.length;
+      cachedBytes += data.length;
+      trimCache();
+    }
+  }
+
+  /** Evicts least recently used blocks until the cache fits its budget. */
+  private void trimCache() {
+    Iterator<byte[]> eldest = blocks.values().iterator();
+    while (cachedBytes > cacheSize && blocks.size() > 1) {
+      cachedBytes -= eldest.next().length;
+      eldest.remove();
+    }
+  }
+
+  /** Reads the given number of bytes from the given offset. */
+  private byte[] readBytes(long offset, int length) throws IOException {
+    byte[] b = new byte[length];
+    readBytes(offset, b, 0, length);
+    return b;
+  }
+
+  private static int getShort(byte[] b, int off) {
+    return DataTools.bytesToShort(b, off, true) & 0xffff;
+  }
+
+  private static int getInt(byte[] b, int off) {
+    return DataTools.bytesToInt(b, off, true);
+  }
+
+  private static long getLong(byte[] b, int off) {
+    return DataTools.bytesToLong(b, off, true);
+  }
+
+  // -- Helper classes --
+
+  /** An entry in the central directory, and how far it has been inflated. */
+  static class Entry {
+    String name;
+    int flags;
+    int method;
+    long compressedSize;
+    long size;
+    long localOffset;
+    long dataOffset = -1;
+
+    /** Decoder that inflated the last block, for DEFLATE entries. */
+    DeflateDecoder decoder;
+
+    /** Positions from which inflation can resume, in order. */
+    List<DeflateDecoder.Checkpoint> checkpoints;
+
+    boolean isDirectory() {
+      return name.endsWith("/");
+    }
+
+    synchronized void discard() {
+      decoder = null;
+      checkpoints = null;
+    }
+  }
+
+  /** Identifies an inflated block of an entry. */
+  private static class BlockKey {
+    private Entry entry;
+    private long block;
+
+    public BlockKey(Entry entry, long block) {
+      this.entry = entry;
+      this.block = block;
+    }
+
+    public boolean equals(Object o) {
+      if (!(o instanceof BlockKey)) return false;
+      BlockKey k = (BlockKey) o;
+      return entry == k.entry && block == k.block;
+    }
+
+    public int hashCode() {
+      return entry.hashCode() * 31 + (int) (block ^ (block >>> 32));
+    }
+  }
+
+}
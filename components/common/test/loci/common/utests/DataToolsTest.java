@@ -0,0 +1,192 @@
+//
+// DataToolsTest.java
+//
+
+/*
+LOCI Common package: utilities for I/O, reflection and miscellaneous tasks.
+Copyright (C) 2005-@year@ Melissa Linkert and Curtis Rueden.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.common.utests;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.util.Arrays;
+
+import loci.common.DataTools;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests the bulk conversions and byte swapping in loci.common.DataTools.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/common/test/loci/common/utests/DataToolsTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/common/test/loci/common/utests/DataToolsTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ *
+ * @see loci.common.DataTools
+ */
+public class DataToolsTest {
+
+  /** 17 bytes, so that every word size leaves trailing bytes. */
+  private static final byte[] BYTES = new byte[] {
+    (byte) 0x01, (byte) 0x82, (byte) 0x03, (byte) 0x84,
+    (byte) 0x05, (byte) 0x86, (byte) 0x07, (byte) 0x88,
+    (byte) 0x09, (byte) 0x8a, (byte) 0x0b, (byte) 0x8c,
+    (byte) 0x0d, (byte) 0x8e, (byte) 0x0f, (byte) 0x90,
+    (byte) 0x11
+  };
+
+  @Test
+  public void testBytesToShorts() {
+    for (int e=0; e<2; e++) {
+      boolean little = e == 0;
+      short[] s = DataTools.bytesToShorts(BYTES, little);
+      assertEquals(8, s.length);
+      for (int i=0; i<s.length; i++) {
+        assertEquals(DataTools.bytesToShort(BYTES, i * 2, little), s[i]);
+      }
+      assertTrue(Arrays.equals(s,
+        (short[]) DataTools.makeDataArray(BYTES, 2, false, little)));
+    }
+  }
+
+  @Test
+  public void testBytesToInts() {
+    for (int e=0; e<2; e++) {
+      boolean little = e == 0;
+      int[] v = DataTools.bytesToInts(BYTES, little);
+      assertEquals(4, v.length);
+      for (int i=0; i<v.length; i++) {
+        assertEquals(DataTools.bytesToInt(BYTES, i * 4, little), v[i]);
+      }
+      float[] f = DataTools.bytesToFloats(BYTES, little);
+      for (int i=0; i<f.length; i++) {
+        assertEquals(DataTools.bytesToFloat(BYTES, i * 4, little), f[i], 0);
+      }
+    }
+  }
+
+  @Test
+  public void testBytesToLongs() {
+    for (int e=0; e<2; e++) {
+      boolean little = e == 0;
+      long[] v = DataTools.bytesToLongs(BYTES, little);
+      assertEquals(2, v.length);
+      for (int i=0; i<v.length; i++) {
+        assertEquals(DataTools.bytesToLong(BYTES, i * 8, little), v[i]);
+      }
+      double[] d = DataTools.bytesToDoubles(BYTES, little);
+      for (int i=0; i<d.length; i++) {
+        assertEquals(DataTools.bytesToDouble(BYTES, i * 8, little), d[i], 0);
+      }
+    }
+  }
+
+  @Test
+  public void testOffsets() {
+    short[] s = new short[4];
+    DataTools.bytesToShorts(BYTES, 3, s, 1, 2, true);
+    assertEquals(0, s[0]);
+    assertEquals(DataTools.bytesToShort(BYTES, 3, true), s[1]);
+    assertEquals(DataTools.bytesToShort(BYTES, 5, true), s[2]);
+    assertEquals(0, s[3]);
+
+    byte[] b = new byte[8];
+    DataTools.shortsToBytes(new short[] {0, 0x0102, 0x0304}, 1, b, 3, 2,
+      false);
+    assertTrue(Arrays.equals(new byte[] {0, 0, 0, 1, 2, 3, 4, 0}, b));
+  }
+
+  @Test(expectedExceptions={IndexOutOfBoundsException.class})
+  public void testOffsetsShortSource() {
+    DataTools.bytesToInts(BYTES, 12, new int[2], 0, 2, true);
+  }
+
+  @Test(expectedExceptions={IndexOutOfBoundsException.class})
+  public void testOffsetsShortDestination() {
+    DataTools.shortsToBytes(new short[] {1, 2}, 0, new byte[3], 0, 2, true);
+  }
+
+  @Test
+  public void testMakeDataArray2D() {
+    byte[] b = new byte[16];
+    System.arraycopy(BYTES, 0, b, 0, b.length);
+    short[][] s = (short[][]) DataTools.makeDataArray2D(b, 2, false, true, 2);
+    assertEquals(2, s.length);
+    assertEquals(4, s[1].length);
+    for (int y=0; y<2; y++) {
+      for (int x=0; x<4; x++) {
+        assertEquals(DataTools.bytesToShort(b, 2 * (y * 4 + x), true),
+          s[y][x]);
+      }
+    }
+    double[][] d =
+      (double[][]) DataTools.makeDataArray2D(b, 8, true, false, 2);
+    assertEquals(DataTools.bytesToDouble(b, 8, false), d[1][0], 0);
+  }
+
+  @Test(expectedExceptions={IllegalArgumentException.class})
+  public void testMakeDataArray2DInvalidLength() {
+    DataTools.makeDataArray2D(BYTES, 2, false, true, 2);
+  }
+
+  @Test
+  public void testRoundTrip() {
+    for (int e=0; e<2; e++) {
+      boolean little = e == 0;
+      byte[] even = new byte[16];
+      System.arraycopy(BYTES, 0, even, 0, even.length);
+      assertTrue(Arrays.equals(even, DataTools.shortsToBytes(
+        DataTools.bytesToShorts(even, little), little)));
+      assertTrue(Arrays.equals(even, DataTools.intsToBytes(
+        DataTools.bytesToInts(even, little), little)));
+      assertTrue(Arrays.equals(even, DataTools.floatsToBytes(
+        DataTools.bytesToFloats(even, little), little)));
+      assertTrue(Arrays.equals(even, DataTools.longsToBytes(
+        DataTools.bytesToLongs(even, little), little)));
+      assertTrue(Arrays.equals(even, DataTools.doublesToBytes(
+        DataTools.bytesToDoubles(even, little), little)));
+    }
+  }
+
+  @Test
+  public void testSwapBytes() {
+    byte[] b = new byte[BYTES.length];
+    System.arraycopy(BYTES, 0, b, 0, b.length);
+    DataTools.swapBytes(b, 4);
+    int[] little = DataTools.bytesToInts(BYTES, true);
+    int[] swapped = DataTools.bytesToInts(b, false);
+    assertTrue(Arrays.equals(little, swapped));
+    assertEquals(BYTES[16], b[16]);
+
+    short[] s = DataTools.bytesToShorts(BYTES, true);
+    DataTools.swap(s);
+    assertTrue(Arrays.equals(DataTools.bytesToShorts(BYTES, false), s));
+
+    long[] l = DataTools.bytesToLongs(BYTES, true);
+    DataTools.swap(l);
+    assertTrue(Arrays.equals(DataTools.bytesToLongs(BYTES, false), l));
+  }
+
+  @Test(expectedExceptions={IllegalArgumentException.class})
+  public void testSwapBytesInvalidLength() {
+    DataTools.swapBytes(new byte[6], 0, 6, 4);
+  }
+
+}
@@ -0,0 +1,130 @@
+//
+// FindBytesTest.java
+//
+
+/*
+LOCI Common package: utilities for I/O, reflection and miscellaneous tasks.
+Copyright (C) 2005-@year@ Melissa Linkert and Curtis Rueden.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.common.utests;
+
+import static org.testng.AssertJUnit.assertEquals;
+
+import java.io.IOException;
+
+import loci.common.RandomAccessInputStream;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests searching for byte sequences in a loci.common.RandomAccessInputStream.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/common/test/loci/common/utests/FindBytesTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/common/test/loci/common/utests/FindBytesTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ *
+ * @see loci.common.RandomAccessInputStream#findBytes(long, byte[]...)
+ */
+public class FindBytesTest {
+
+  private static final byte[] SIGNATURE = {-38, -50, -66, 10};
+
+  @Test
+  public void testSingleSequence() throws IOException {
+    byte[] data = createData(1000);
+    put(data, 123, SIGNATURE);
+    put(data, 700, SIGNATURE);
+    RandomAccessInputStream s = new RandomAccessInputStream(data);
+
+    assertEquals(123, s.findBytes(SIGNATURE));
+    assertEquals(123, s.getFilePointer());
+    s.skipBytes(1);
+    assertEquals(700, s.findBytes(SIGNATURE));
+    s.skipBytes(1);
+    assertEquals(-1, s.findBytes(SIGNATURE));
+    assertEquals(data.length, s.getFilePointer());
+    s.close();
+  }
+
+  @Test
+  public void testSeveralSequences() throws IOException {
+    byte[] data = createData(1000);
+    put(data, 400, "MM".getBytes());
+    put(data, 300, "IVEAdbpq".getBytes());
+    RandomAccessInputStream s = new RandomAccessInputStream(data);
+
+    assertEquals(300,
+      s.findBytes("MM".getBytes(), "IVEAdbpq".getBytes(), "II".getBytes()));
+    s.seek(301);
+    assertEquals(400,
+      s.findBytes("MM".getBytes(), "IVEAdbpq".getBytes(), "II".getBytes()));
+    s.close();
+  }
+
+  @Test
+  public void testRange() throws IOException {
+    byte[] data = createData(1000);
+    put(data, 500, SIGNATURE);
+    RandomAccessInputStream s = new RandomAccessInputStream(data);
+
+    assertEquals(-1, s.findBytes(503, SIGNATURE));
+    assertEquals(503, s.getFilePointer());
+    s.seek(0);
+    assertEquals(500, s.findBytes(504, SIGNATURE));
+
+    // a sequence at the very end of the stream
+    put(data, data.length - SIGNATURE.length, SIGNATURE);
+    s.seek(501);
+    assertEquals(data.length - SIGNATURE.length, s.findBytes(SIGNATURE));
+    s.close();
+  }
+
+  @Test
+  public void testBlockBoundaries() throws IOException {
+    // sequences that straddle the blocks that the stream is read in
+    byte[] data = createData(3 * 1024 * 1024);
+    int[] offsets = {256 * 1024 - 2, 512 * 1024 - 5, 1024 * 1024 - 1,
+      2 * 1024 * 1024 + 17, data.length - 9};
+    for (int offset : offsets) {
+      put(data, offset, "IVEAdbpq".getBytes());
+    }
+    RandomAccessInputStream s = new RandomAccessInputStream(data);
+    for (int offset : offsets) {
+      assertEquals(offset, s.findBytes("IVEAdbpq".getBytes()));
+      s.skipBytes(1);
+    }
+    assertEquals(-1, s.findBytes("IVEAdbpq".getBytes()));
+    s.close();
+  }
+
+  // -- Helper methods --
+
+  /** Creates data that does not contain any of the test sequences. */
+  private byte[] createData(int length) {
+    byte[] data = new byte[length];
+    for (int i=0; i<data.length; i++) {
+      data[i] = (byte) ('a' + (i % 7));
+    }
+    return data;
+  }
+
+  private void put(byte[] data, int offset, byte[] pattern) {
+    System.arraycopy(pattern, 0, data, offset, pattern.length);
+  }
+
+}
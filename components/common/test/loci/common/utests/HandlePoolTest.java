@@ -0,0 +1,156 @@
+//
+// HandlePoolTest.java
+//
+
+/*
+LOCI Common package: utilities for I/O, reflection and miscellaneous tasks.
+Copyright (C) 2005-@year@ Melissa Linkert and Curtis Rueden.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.common.utests;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteOrder;
+
+import loci.common.HandlePool;
+import loci.common.IRandomAccess;
+import loci.common.Location;
+import loci.common.RandomAccessInputStream;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the loci.common.HandlePool class.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/common/test/loci/common/utests/HandlePoolTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/common/test/loci/common/utests/HandlePoolTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ *
+ * @see loci.common.HandlePool
+ */
+public class HandlePoolTest {
+
+  // -- Fields --
+
+  private File[] files;
+
+  private HandlePool pool;
+
+  // -- Setup methods --
+
+  @BeforeMethod
+  public void setup() throws IOException {
+    files = new File[3];
+    for (int i=0; i<files.length; i++) {
+      files[i] = File.createTempFile("handle-pool-test", ".bin");
+      files[i].deleteOnExit();
+      FileOutputStream out = new FileOutputStream(files[i]);
+      for (int b=0; b<256; b++) {
+        out.write(b + i);
+      }
+      out.close();
+    }
+    pool = new HandlePool(2);
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    Location.setHandlePool(null);
+    pool.closeUnused();
+    for (File file : files) {
+      file.delete();
+    }
+  }
+
+  // -- Tests --
+
+  @Test
+  public void testSharedFile() throws IOException {
+    IRandomAccess a = pool.getHandle(files[0].getPath());
+    IRandomAccess b = pool.getHandle(files[0].getAbsolutePath());
+    assertEquals(1, pool.getOpenCount());
+
+    // each handle has its own position and byte order
+    a.seek(16);
+    b.setOrder(ByteOrder.LITTLE_ENDIAN);
+    b.seek(100);
+    assertEquals(0x10111213, a.readInt());
+    assertEquals(0x67666564, b.readInt());
+    assertEquals(20, a.getFilePointer());
+    assertEquals(104, b.getFilePointer());
+    assertEquals(256, a.length());
+
+    byte[] buf = new byte[4];
+    a.read(buf);
+    assertEquals(20, buf[0]);
+    a.close();
+    b.close();
+    assertEquals(1, pool.getOpenCount());
+  }
+
+  @Test
+  public void testLeastRecentlyUsed() throws IOException {
+    IRandomAccess a = pool.getHandle(files[0].getPath());
+    IRandomAccess b = pool.getHandle(files[1].getPath());
+    IRandomAccess c = pool.getHandle(files[2].getPath());
+
+    // files that are in use are not closed
+    assertEquals(3, pool.getOpenCount());
+
+    b.close();
+    assertEquals(2, pool.getOpenCount());
+    assertTrue(pool.getOpenHandle(files[1].getPath()) == null);
+
+    a.close();
+    c.close();
+    assertEquals(2, pool.getOpenCount());
+    IRandomAccess handle = pool.getOpenHandle(files[2].getPath());
+    assertTrue(handle != null);
+    assertEquals(2, handle.readByte());
+    handle.close();
+
+    pool.closeUnused();
+    assertEquals(0, pool.getOpenCount());
+  }
+
+  @Test
+  public void testLocation() throws IOException {
+    Location.setHandlePool(pool);
+    RandomAccessInputStream a = new RandomAccessInputStream(files[0].getPath());
+    RandomAccessInputStream b = new RandomAccessInputStream(files[0].getPath());
+    assertEquals(1, pool.getOpenCount());
+    a.seek(10);
+    assertEquals(10, a.read());
+    assertEquals(0, b.read());
+    a.close();
+    b.close();
+    assertEquals(1, pool.getOpenCount());
+
+    // writable handles are never pooled
+    IRandomAccess writable = Location.getHandle(files[1].getPath(), true);
+    assertEquals(1, pool.getOpenCount());
+    writable.close();
+  }
+
+}
@@ -0,0 +1,239 @@
+//
+// LocationStatCacheTest.java
+//
+
+/*
+LOCI Common package: utilities for I/O, reflection and miscellaneous tasks.
+Copyright (C) 2005-@year@ Melissa Linkert and Curtis Rueden.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.common.utests;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import loci.common.Location;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the file attribute cache in loci.common.Location.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/common/test/loci/common/utests/LocationStatCacheTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/common/test/loci/common/utests/LocationStatCacheTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ *
+ * @see loci.common.Location
+ */
+public class LocationStatCacheTest {
+
+  // -- Fields --
+
+  private File dir;
+  private File data;
+  private File subdir;
+  private File locked;
+
+  // -- Setup methods --
+
+  @BeforeMethod
+  public void setup() throws IOException {
+    dir = new File(System.getProperty("java.io.tmpdir"),
+      System.currentTimeMillis() + "-stat-cache-test");
+    subdir = new File(dir, "subdir");
+    subdir.mkdirs();
+    data = new File(dir, "data.bin");
+    write(data, 10);
+    locked = new File(dir, "locked");
+    Location.reset();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    Location.reset();
+    new File(dir, "added.bin").delete();
+    if (locked.exists()) {
+      locked.setReadable(true, false);
+      new File(locked, "data.bin").delete();
+      locked.delete();
+    }
+    data.delete();
+    subdir.delete();
+    dir.delete();
+  }
+
+  // -- Tests --
+
+  @Test
+  public void testAttributes() {
+    Location.cacheFileStats(true);
+    Location[] files = {new Location(data), new Location(subdir),
+      new Location(dir.getPath(), "missing.bin"), new Location(dir),
+      new Location(new File(dir, "nodir").getPath(), "missing.bin")};
+    for (Location file : files) {
+      File f = new File(file.getAbsolutePath());
+      String msg = file.getName();
+      assertEquals(msg, f.exists(), file.exists());
+      assertEquals(msg, f.isDirectory(), file.isDirectory());
+      assertEquals(msg, f.isFile(), file.isFile());
+      assertEquals(msg, f.length(), file.length());
+      assertEquals(msg, f.lastModified(), file.lastModified());
+    }
+    String[] list = new Location(dir).list();
+    Arrays.sort(list);
+    assertTrue(Arrays.equals(new String[] {"data.bin", "subdir"}, list));
+  }
+
+  @Test
+  public void testCached() throws IOException {
+    Location.cacheFileStats(true);
+    Location added = new Location(dir.getPath(), "added.bin");
+    assertEquals(10, new Location(data).length());
+    assertTrue(!added.exists());
+
+    // changes made behind the cache's back are not seen...
+    write(data, 20);
+    write(new File(dir, "added.bin"), 5);
+    assertEquals(10, new Location(data).length());
+    assertTrue(!added.exists());
+
+    // ...until the cache is cleared
+    Location.clearStatCache();
+    assertEquals(20, new Location(data).length());
+    assertTrue(added.exists());
+
+    // deleting through Location invalidates the cache
+    assertTrue(added.delete());
+    assertTrue(!added.exists());
+  }
+
+  @Test
+  public void testCreateNewFile() throws IOException {
+    Location.cacheFileStats(true);
+    Location added = new Location(dir.getPath(), "added.bin");
+    assertTrue(!added.exists());
+    assertTrue(added.createNewFile());
+    assertTrue(added.exists());
+    assertTrue(added.isFile());
+    assertEquals(0, added.length());
+    assertTrue(!added.createNewFile());
+  }
+
+  @Test
+  public void testUnlistableDirectory() throws IOException {
+    // files in a directory that can be searched but not listed, as with
+    // mode 711, are checked directly; root can list it regardless
+    locked.mkdir();
+    File lockedData = new File(locked, "data.bin");
+    write(lockedData, 15);
+    locked.setReadable(false, false);
+
+    Location.cacheFileStats(true);
+    Location file = new Location(lockedData);
+    assertTrue(file.exists());
+    assertTrue(file.isFile());
+    assertTrue(!file.isDirectory());
+    assertEquals(15, file.length());
+    assertEquals(lockedData.lastModified(), file.lastModified());
+    assertTrue(!new Location(locked.getPath(), "missing.bin").exists());
+  }
+
+  @Test
+  public void testTimeout() throws IOException {
+    Location.cacheFileStats(true);
+    Location.setCacheStatTimeout(0);
+    assertEquals(10, new Location(data).length());
+    write(data, 30);
+    assertEquals(30, new Location(data).length());
+  }
+
+  @Test
+  public void testAsyncRefresh() throws IOException, InterruptedException {
+    Location.cacheFileStats(true);
+    Location.setCacheStatTimeout(0);
+    Location.setAsyncStatRefresh(true);
+    Location file = new Location(data);
+    assertEquals(10, file.length());
+    write(data, 40);
+
+    // the expired value is used until the background refresh completes
+    long length = file.length();
+    for (int i=0; i<100 && length != 40; i++) {
+      Thread.sleep(10);
+      length = file.length();
+    }
+    assertEquals(40, length);
+  }
+
+  @Test
+  public void testCaseOnlyDifference() {
+    // names differing only in case are checked directly, as they may be
+    // the same file on a case-insensitive file system
+    Location.cacheFileStats(true);
+    File f = new File(dir, "DATA.BIN");
+    Location file = new Location(f);
+    assertEquals(f.exists(), file.exists());
+    assertEquals(f.isFile(), file.isFile());
+    assertEquals(f.length(), file.length());
+  }
+
+  @Test
+  public void testMappedChildren() {
+    File nodir = new File(dir, "nodir");
+    String id = new File(nodir, "mapped.bin").getPath();
+    assertEquals(null, new Location(nodir).list());
+
+    Location.mapId(id, data.getPath());
+    assertTrue(Arrays.equals(new String[] {"mapped.bin"},
+      new Location(nodir).list()));
+    assertEquals(null, new Location(dir.getPath(), "other").list());
+
+    Location.mapId(id, null);
+    assertEquals(null, new Location(nodir).list());
+
+    // a map set directly is indexed too
+    HashMap<String, Object> map = new HashMap<String, Object>();
+    map.put(id, data.getPath());
+    Location.setIdMap(map);
+    assertTrue(Arrays.equals(new String[] {"mapped.bin"},
+      new Location(nodir).list()));
+  }
+
+  @Test
+  public void testDisabled() throws IOException {
+    assertEquals(10, new Location(data).length());
+    write(data, 50);
+    assertEquals(50, new Location(data).length());
+  }
+
+  // -- Helper methods --
+
+  private void write(File f, int length) throws IOException {
+    FileOutputStream out = new FileOutputStream(f);
+    out.write(new byte[length]);
+    out.close();
+  }
+
+}
@@ -0,0 +1,205 @@
+//
+// URLHandleRangeTest.java
+//
+
+/*
+LOCI Common package: utilities for I/O, reflection and miscellaneous tasks.
+Copyright (C) 2005-@year@ Melissa Linkert and Curtis Rueden.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.common.utests;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+
+import loci.common.URLHandle;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Tests reading from a local HTTP server with range requests
+ * in loci.common.URLHandle.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/common/test/loci/common/utests/URLHandleRangeTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/common/test/loci/common/utests/URLHandleRangeTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ *
+ * @see loci.common.URLHandle
+ */
+public class URLHandleRangeTest {
+
+  // -- Constants --
+
+  private static final int LENGTH = 1024 * 1024 + 123;
+
+  private static final int BLOCK_SIZE = 4096;
+
+  // -- Fields --
+
+  private byte[] data;
+
+  private HttpServer server;
+
+  private String url;
+
+  /** Whether the server ignores Range headers. */
+  private boolean ignoreRanges;
+
+  /** Number of requests handled by the server. */
+  private int requests;
+
+  /** Number of bytes sent by the server. */
+  private long sent;
+
+  // -- Setup methods --
+
+  @BeforeMethod
+  public void setup() throws IOException {
+    data = new byte[LENGTH];
+    for (int i=0; i<data.length; i++) {
+      data[i] = (byte) (i * 31 + i / 257);
+    }
+    ignoreRanges = false;
+    requests = 0;
+    sent = 0;
+
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/", new RangeHandler());
+    server.start();
+    url = "http://127.0.0.1:" + server.getAddress().getPort() + "/data.tif";
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    server.stop(0);
+  }
+
+  // -- Test methods --
+
+  @Test
+  public void testRandomAccess() throws IOException {
+    URLHandle handle = new URLHandle(url, BLOCK_SIZE, 8);
+    assertTrue(handle.isRangeMode());
+    assertEquals(LENGTH, handle.length());
+
+    long[] offsets = {LENGTH - 100, 5, 600000, BLOCK_SIZE - 3, 599990};
+    for (long offset : offsets) {
+      handle.seek(offset);
+      assertEquals(offset, handle.getFilePointer());
+      byte[] b = new byte[100];
+      handle.readFully(b);
+      assertRegion(offset, b);
+    }
+    handle.seek(BLOCK_SIZE - 2);
+    assertEquals((data[BLOCK_SIZE - 2] << 24) |
+      ((data[BLOCK_SIZE - 1] & 0xff) << 16) |
+      ((data[BLOCK_SIZE] & 0xff) << 8) | (data[BLOCK_SIZE + 1] & 0xff),
+      handle.readInt());
+    handle.close();
+
+    // only the blocks that were touched have been downloaded
+    assertTrue(sent <= 10 * BLOCK_SIZE);
+  }
+
+  @Test
+  public void testSequentialRead() throws IOException {
+    URLHandle handle = new URLHandle(url, BLOCK_SIZE, 64);
+    byte[] b = new byte[LENGTH];
+    int n = 0;
+    while (n < LENGTH) {
+      n += handle.read(b, n, Math.min(1000, LENGTH - n));
+    }
+    assertTrue(Arrays.equals(data, b));
+    assertEquals(LENGTH, sent);
+
+    // blocks are read further ahead as sequential reads continue
+    assertTrue(requests < LENGTH / BLOCK_SIZE / 8);
+    handle.close();
+  }
+
+  @Test
+  public void testNoRanges() throws IOException {
+    ignoreRanges = true;
+    URLHandle handle = new URLHandle(url, BLOCK_SIZE, 8);
+    assertTrue(!handle.isRangeMode());
+    assertEquals(LENGTH, handle.length());
+    handle.seek(70000);
+    byte[] b = new byte[50];
+    handle.readFully(b);
+    assertRegion(70000, b);
+    handle.close();
+  }
+
+  @Test (expectedExceptions = {EOFException.class})
+  public void testEOF() throws IOException {
+    URLHandle handle = new URLHandle(url, BLOCK_SIZE, 8);
+    handle.seek(LENGTH - 1);
+    handle.readByte();
+    handle.readByte();
+  }
+
+  // -- Helper methods --
+
+  private void assertRegion(long offset, byte[] b) {
+    byte[] expected = new byte[b.length];
+    System.arraycopy(data, (int) offset, expected, 0, b.length);
+    assertTrue(Arrays.equals(expected, b));
+  }
+
+  // -- Helper classes --
+
+  /** Serves the test data, honoring "Range: bytes=start-end" headers. */
+  private class RangeHandler implements HttpHandler {
+    public void handle(HttpExchange exchange) throws IOException {
+      requests++;
+      String range = exchange.getRequestHeaders().getFirst("Range");
+      int start = 0;
+      int end = data.length - 1;
+      if (range != null && !ignoreRanges) {
+        String[] bounds = range.substring(range.indexOf("=") + 1).split("-");
+        start = Integer.parseInt(bounds[0]);
+        end = Math.min(end, Integer.parseInt(bounds[1]));
+        exchange.getResponseHeaders().set("Content-Range",
+          "bytes " + start + "-" + end + "/" + data.length);
+        exchange.sendResponseHeaders(206, end - start + 1);
+      }
+      else exchange.sendResponseHeaders(200, data.length);
+      OutputStream out = exchange.getResponseBody();
+      try {
+        out.write(data, start, end - start + 1);
+        sent += end - start + 1;
+      }
+      catch (IOException e) {
+        // the client stopped reading
+      }
+      out.close();
+    }
+  }
+
+}
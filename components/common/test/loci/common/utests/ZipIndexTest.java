@@ -0,0 +1,281 @@
+//
+// ZipIndexTest.java
+//
+
+/*
+LOCI Common package: utilities for I/O, reflection and miscellaneous tasks.
+Copyright (C) 2005-@year@ Melissa Linkert and Curtis Rueden.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.common.utests;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import loci.common.IRandomAccess;
+import loci.common.Location;
+import loci.common.RandomAccessInputStream;
+import loci.common.ZipHandle;
+import loci.common.ZipIndex;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for the loci.common.ZipIndex class.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/common/test/loci/common/utests/ZipIndexTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/common/test/loci/common/utests/ZipIndexTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ *
+ * @see loci.common.ZipIndex
+ */
+public class ZipIndexTest {
+
+  // -- Constants --
+
+  private static final String[] NAMES =
+    {"dataset/", "dataset/a.bin", "dataset/b.bin", "dataset/c.txt"};
+
+  // -- Fields --
+
+  private File zip;
+
+  private byte[][] data;
+
+  private ZipIndex index;
+
+  // -- Setup methods --
+
+  @BeforeMethod
+  public void setup() throws IOException {
+    data = new byte[NAMES.length][];
+    data[1] = createData(300000, 1);
+    data[2] = createData(500000, 2);
+    data[3] = "hello, world!\n".getBytes("UTF-8");
+
+    zip = File.createTempFile("zip-index-test", ".zip");
+    zip.deleteOnExit();
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(zip));
+    for (int i=0; i<NAMES.length; i++) {
+      ZipEntry entry = new ZipEntry(NAMES[i]);
+      byte[] b = data[i] == null ? new byte[0] : data[i];
+      if (i != 2) {
+        CRC32 crc = new CRC32();
+        crc.update(b);
+        entry.setMethod(ZipEntry.STORED);
+        entry.setSize(b.length);
+        entry.setCrc(crc.getValue());
+      }
+      out.putNextEntry(entry);
+      out.write(b);
+      out.closeEntry();
+    }
+    out.close();
+    index = new ZipIndex(zip.getAbsolutePath());
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    index.close();
+    zip.delete();
+  }
+
+  // -- Tests --
+
+  @Test
+  public void testEntries() throws IOException {
+    assertEquals(NAMES.length, index.getEntryCount());
+    List<String> names = index.getEntryNames();
+    assertEquals(Arrays.asList(NAMES).subList(1, NAMES.length), names);
+    assertEquals(ZipIndex.STORED, index.getEntryMethod(NAMES[1]));
+    assertEquals(ZipIndex.DEFLATED, index.getEntryMethod(NAMES[2]));
+    for (int i=1; i<NAMES.length; i++) {
+      assertEquals(data[i].length, index.getEntrySize(NAMES[i]));
+    }
+    assertEquals(NAMES[1], index.getDefaultEntry());
+  }
+
+  @Test
+  public void testRandomAccess() throws IOException {
+    for (int i=1; i<3; i++) {
+      IRandomAccess handle = index.openEntry(NAMES[i]);
+      assertEquals(data[i].length, handle.length());
+      int[] offsets = {data[i].length - 1000, 17, 250000, 0, 123456};
+      for (int offset : offsets) {
+        handle.seek(offset);
+        byte[] b = new byte[1000];
+        handle.readFully(b);
+        assertRegion(data[i], offset, b);
+        assertEquals(offset + 1000, handle.getFilePointer());
+      }
+      handle.seek(10);
+      int expected = ((data[i][10] & 0xff) << 8) | (data[i][11] & 0xff);
+      assertEquals(expected, handle.readUnsignedShort());
+      handle.close();
+    }
+  }
+
+  @Test (expectedExceptions = {EOFException.class})
+  public void testEOF() throws IOException {
+    IRandomAccess handle = index.openEntry(NAMES[2]);
+    handle.seek(data[2].length - 2);
+    handle.readInt();
+  }
+
+  @Test
+  public void testMappedEntries() throws IOException {
+    index.mapEntries();
+    String dir = new File(index.getMappedPath(NAMES[1])).getParent();
+    String[] list = new Location(dir).list();
+    Arrays.sort(list);
+    assertTrue(Arrays.equals(new String[] {"a.bin", "b.bin", "c.txt"}, list));
+
+    Location text = new Location(dir, "c.txt");
+    assertTrue(text.exists());
+    RandomAccessInputStream in =
+      new RandomAccessInputStream(text.getAbsolutePath());
+    assertEquals("hello, world!\n", in.readLine());
+    in.close();
+
+    index.unmapEntries();
+    assertTrue(!new Location(dir, "c.txt").exists());
+  }
+
+  @Test
+  public void testZipHandle() throws IOException {
+    ZipHandle handle = new ZipHandle(zip.getAbsolutePath(),
+      new ZipEntry(NAMES[2]));
+    assertEquals(data[2].length, handle.length());
+    handle.seek(400000);
+    byte[] b = new byte[100];
+    handle.read(b);
+    assertRegion(data[2], 400000, b);
+    handle.seek(50);
+    assertEquals(data[2][50], handle.readByte());
+    handle.close();
+  }
+
+  @Test
+  public void testEviction() throws IOException {
+    // only the most recently used block is retained
+    index.setCacheSize(0);
+    IRandomAccess handle = index.openEntry(NAMES[2]);
+    int[] offsets = {400000, 100, 499000, 65530, 0, 250000};
+    for (int offset : offsets) {
+      handle.seek(offset);
+      byte[] b = new byte[1000];
+      handle.readFully(b);
+      assertRegion(data[2], offset, b);
+      assertTrue(index.getCachedSize() <= 65536);
+    }
+    handle.close();
+    index.close();
+    assertEquals(0, index.getCachedSize());
+  }
+
+  @Test
+  public void testLargeEntry() throws IOException {
+    // mixes incompressible and repetitive data, so that the entry has
+    // stored blocks as well as blocks with Huffman codes
+    byte[] large = new byte[24 * 1024 * 1024];
+    Random random = new Random(12345);
+    for (int off=0; off<large.length; off+=4096) {
+      int mode = random.nextInt(3);
+      for (int i=off; i<off+4096; i++) {
+        if (mode == 0) large[i] = (byte) random.nextInt();
+        else if (mode == 1) large[i] = (byte) (i % 13);
+        else large[i] = (byte) ('a' + random.nextInt(6));
+      }
+    }
+
+    File largeZip = File.createTempFile("zip-index-test", ".zip");
+    largeZip.deleteOnExit();
+    ZipOutputStream out = new ZipOutputStream(new FileOutputStream(largeZip));
+    out.putNextEntry(new ZipEntry("large.bin"));
+    out.write(large);
+    out.closeEntry();
+    out.setLevel(Deflater.NO_COMPRESSION);
+    out.putNextEntry(new ZipEntry("uncompressed.bin"));
+    out.write(data[1]);
+    out.closeEntry();
+    out.close();
+
+    ZipIndex largeIndex = new ZipIndex(largeZip.getAbsolutePath());
+    largeIndex.setCacheSize(1024 * 1024);
+    try {
+      assertEquals(large.length, largeIndex.getEntrySize("large.bin"));
+      IRandomAccess handle = largeIndex.openEntry("large.bin");
+      byte[] all = new byte[large.length];
+      handle.readFully(all);
+      assertTrue(Arrays.equals(large, all));
+
+      // backward seeks to evicted blocks resume from checkpoints
+      int[] offsets = {20000000, 3, 12345678, large.length - 1000, 1048576,
+        9999999, 5000000};
+      for (int offset : offsets) {
+        handle.seek(offset);
+        byte[] b = new byte[1000];
+        handle.readFully(b);
+        assertRegion(large, offset, b);
+      }
+      assertTrue(largeIndex.getCachedSize() <= 1024 * 1024);
+      handle.close();
+
+      handle = largeIndex.openEntry("uncompressed.bin");
+      handle.seek(200000);
+      byte[] b = new byte[5000];
+      handle.readFully(b);
+      assertRegion(data[1], 200000, b);
+      handle.close();
+    }
+    finally {
+      largeIndex.close();
+      largeZip.delete();
+    }
+  }
+
+  // -- Helper methods --
+
+  private byte[] createData(int length, int seed) {
+    byte[] b = new byte[length];
+    for (int i=0; i<length; i++) {
+      b[i] = (byte) ((i / 100) * seed + (i % 7));
+    }
+    return b;
+  }
+
+  private void assertRegion(byte[] expected, int offset, byte[] actual) {
+    byte[] region = new byte[actual.length];
+    System.arraycopy(expected, offset, region, 0, actual.length);
+    assertTrue(Arrays.equals(region, actual));
+  }
+
+}
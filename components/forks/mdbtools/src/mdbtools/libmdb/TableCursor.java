@@ -0,0 +1,202 @@
+package mdbtools.libmdb;
+
+import java.io.IOException;
+
+/**
+ * Forward-only cursor over a subset of the columns in a table.
+ *
+ * No columns are bound, so fetching a row only records where each value
+ * lies in the current page.  Values are decoded when one of the getters
+ * is called, and only for the requested column; the getters are valid
+ * until the next call to {@link #next()}.
+ */
+public class TableCursor
+{
+  private MdbHandle mdb;
+  private MdbTableDef table;
+  private MdbColumn[] columns;
+
+  /**
+   * Open a cursor over the named columns of a table.
+   * If columnNames is null, every column is selected.
+   */
+  public TableCursor(MdbCatalogEntry entry, String[] columnNames)
+    throws IOException
+  {
+    mdb = entry.mdb;
+    table = Table.mdb_read_table(entry);
+    Table.mdb_read_columns(table);
+
+    if (columnNames == null)
+    {
+      columns = new MdbColumn[table.num_cols];
+      for (int i = 0; i < columns.length; i++)
+        columns[i] = (MdbColumn)table.columns.get(i);
+    }
+    else
+    {
+      columns = new MdbColumn[columnNames.length];
+      for (int i = 0; i < columns.length; i++)
+      {
+        for (int j = 0; j < table.num_cols; j++)
+        {
+          MdbColumn col = (MdbColumn)table.columns.get(j);
+          if (col.name.equals(columnNames[i]))
+          {
+            columns[i] = col;
+            break;
+          }
+        }
+        if (columns[i] == null)
+          throw new IllegalArgumentException("Table '" + entry.object_name +
+            "' has no column '" + columnNames[i] + "'");
+      }
+    }
+    Data.mdb_rewind_table(table);
+  }
+
+  public int getColumnCount()
+  {
+    return columns.length;
+  }
+
+  public String getColumnName(int column)
+  {
+    return columns[column].name;
+  }
+
+  /** Returns the column's MDB_* type constant. */
+  public int getColumnType(int column)
+  {
+    return columns[column].col_type;
+  }
+
+  /** Advances to the next row; returns false when there are no more rows. */
+  public boolean next()
+    throws IOException
+  {
+    return Data.mdb_fetch_row(table);
+  }
+
+  public boolean isNull(int column)
+  {
+    MdbColumn col = columns[column];
+    return col.col_type != Constants.MDB_BOOL && col.cur_value_len == 0;
+  }
+
+  public boolean getBoolean(int column)
+  {
+    MdbColumn col = columns[column];
+    if (col.col_type != Constants.MDB_BOOL)
+      throw typeMismatch(col, "boolean");
+    /* the null bit holds the (inverted) value */
+    return col.cur_value_len == 0;
+  }
+
+  /** Returns the value of a bool, byte, int or long int column. */
+  public int getInt(int column)
+  {
+    MdbColumn col = columns[column];
+    if (col.col_type == Constants.MDB_BOOL)
+      return getBoolean(column) ? 1 : 0;
+    if (isNull(column))
+      return 0;
+
+    switch (col.col_type)
+    {
+      case Constants.MDB_BYTE:
+        return file.mdb_get_byte(mdb, col.cur_value_start);
+      case Constants.MDB_INT:
+        return file.mdb_get_int16(mdb, col.cur_value_start);
+      case Constants.MDB_LONGINT:
+        return file.mdb_get_int32(mdb, col.cur_value_start);
+      default:
+        throw typeMismatch(col, "int");
+    }
+  }
+
+  /**
+   * Returns the value of an integer, float, double or date column.
+   * Dates are returned as the number of days since 30 December 1899.
+   */
+  public double getDouble(int column)
+  {
+    MdbColumn col = columns[column];
+    switch (col.col_type)
+    {
+      case Constants.MDB_BOOL:
+      case Constants.MDB_BYTE:
+      case Constants.MDB_INT:
+      case Constants.MDB_LONGINT:
+        return getInt(column);
+    }
+    if (isNull(column))
+      return 0;
+
+    switch (col.col_type)
+    {
+      case Constants.MDB_FLOAT:
+        return file.mdb_get_single(mdb, col.cur_value_start);
+      case Constants.MDB_DOUBLE:
+      case Constants.MDB_SDATETIME:
+        return file.mdb_get_double(mdb, col.cur_value_start);
+      default:
+        throw typeMismatch(col, "double");
+    }
+  }
+
+  /**
+   * Returns the value of any column as a string, formatted in the same way
+   * as a value fetched through {@link Data#mdb_bind_column}.
+   */
+  public String getString(int column)
+    throws IOException
+  {
+    MdbColumn col = columns[column];
+    Holder h = new Holder();
+    col.bind_ptr = h;
+    try
+    {
+      if (col.col_type == Constants.MDB_BOOL)
+        Data.mdb_xfer_bound_bool(mdb, col, col.cur_value_len != 0);
+      else if (col.col_type == Constants.MDB_OLE)
+        Data.mdb_xfer_bound_ole(mdb, col.cur_value_start, col,
+          col.cur_value_len);
+      else
+        Data.mdb_xfer_bound_data(mdb, col.cur_value_start, col,
+          col.cur_value_len);
+    }
+    finally
+    {
+      col.bind_ptr = null;
+    }
+    return h.s;
+  }
+
+  /** Returns the contents of an OLE column, or null if it is empty. */
+  public byte[] getBytes(int column)
+    throws IOException
+  {
+    MdbColumn col = columns[column];
+    if (col.col_type != Constants.MDB_OLE)
+      throw typeMismatch(col, "byte[]");
+    Holder h = new Holder();
+    col.bind_ptr = h;
+    try
+    {
+      Data.mdb_xfer_bound_ole(mdb, col.cur_value_start, col,
+        col.cur_value_len);
+    }
+    finally
+    {
+      col.bind_ptr = null;
+    }
+    return h.ba;
+  }
+
+  private IllegalArgumentException typeMismatch(MdbColumn col, String type)
+  {
+    return new IllegalArgumentException("Column '" + col.name +
+      "' of type " + col.col_type + " cannot be read as " + type);
+  }
+}
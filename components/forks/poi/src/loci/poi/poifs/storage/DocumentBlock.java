@@ -99,6 +99,12 @@ public class DocumentBlock
 
     public int getBigBlockSize() { return blockSize; }
 
+    /**
+     * @return the offset of this block within the underlying file
+     */
+
+    public long getOffset() { return offset; }
+
     /**
      * Was this a partially read block?
      *
@@ -35,8 +35,17 @@ import java.awt.image.ColorModel;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Vector;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 import loci.common.Location;
 import loci.common.Region;
@@ -50,6 +59,7 @@ import loci.formats.FilePattern;
 import loci.formats.FormatException;
 import loci.formats.FormatTools;
 import loci.formats.IFormatReader;
+import loci.formats.MinMaxCalculator;
 import loci.formats.meta.IMetadata;
 import loci.formats.services.OMEXMLService;
 import loci.plugins.Slicer;
@@ -368,14 +378,24 @@ public class ImagePlusReader implements StatusReporter {
 
     // read applicable image planes
     final Region region = process.getCropRegion(s);
+    final ImporterOptions options = process.getOptions();
+    final int cpuCount = Runtime.getRuntime().availableProcessors();
+    final ImageProcessor[][] planes =
+      options.isParallel() && options.isLocal() && !thumbnail &&
+      total > 1 && cpuCount > 1 ?
+      readProcessorsParallel(process, s, load, total, region) : null;
     for (int i=0; i<load.length; i++) {
       if (!load[i]) continue;
 
-      // limit message update rate
-      updateTiming(s, current, current++, total);
+      final ImageProcessor[] p;
+      if (planes == null) {
+        // limit message update rate
+        updateTiming(s, current, current++, total);
 
-      // get image processor for ith plane
-      final ImageProcessor[] p = readProcessors(process, i, region, thumbnail);
+        // get image processor for ith plane
+        p = readProcessors(process, reader, i, region, thumbnail);
+      }
+      else p = planes[i];
       if (p == null || p.length == 0) {
         throw new FormatException("Cannot read plane #" + i);
       }
@@ -395,13 +415,15 @@ public class ImagePlusReader implements StatusReporter {
   /**
    * HACK: This method mainly exists to prompt the user for a missing
    * LuraWave license code, in the case of LWF-compressed Flex.
+   * It is also used by the worker readers of a parallel import, so only one
+   * of them prompts at a time; the others retry with the new code.
    *
    * @see ImportProcess#setId()
    */
   private ImageProcessor[] readProcessors(ImportProcess process,
-    int no, Region r, boolean thumbnail) throws FormatException, IOException
+    ImageProcessorReader reader, int no, Region r, boolean thumbnail)
+    throws FormatException, IOException
   {
-    final ImageProcessorReader reader = process.getReader();
     final ImporterOptions options = process.getOptions();
 
     boolean first = true;
@@ -417,8 +439,14 @@ public class ImagePlusReader implements StatusReporter {
         if (options.isQuiet() || options.isWindowless()) throw exc;
         if (!LuraWave.isLicenseCodeException(exc)) throw exc;
 
-        // prompt user for LuraWave license code
-        code = LuraWave.promptLicenseCode(code, first);
+        synchronized (LuraWave.class) {
+          // another reader may have obtained a new code in the meantime
+          String current = LuraWave.initLicenseCode();
+          if (current != null && !current.equals(code)) continue;
+
+          // prompt user for LuraWave license code
+          code = LuraWave.promptLicenseCode(code, first);
+        }
         if (code == null) throw exc;
         if (first) first = false;
       }
@@ -426,6 +454,95 @@ public class ImagePlusReader implements StatusReporter {
     throw new FormatException(LuraWave.TOO_MANY_TRIES);
   }
 
+  /**
+   * Reads the given planes using one worker reader per available processor.
+   * Progress is reported from the calling thread, and the results are
+   * indexed by plane number, so that the stack order is unaffected.
+   *
+   * @see ImportProcess#createWorkerReader()
+   */
+  private ImageProcessor[][] readProcessorsParallel(
+    final ImportProcess process, final int s, boolean[] load, int total,
+    final Region r) throws FormatException, IOException
+  {
+    final BlockingQueue<Integer> pending = new LinkedBlockingQueue<Integer>();
+    for (int i=0; i<load.length; i++) {
+      if (load[i]) pending.add(i);
+    }
+    final BlockingQueue<Integer> done = new LinkedBlockingQueue<Integer>();
+    final ImageProcessor[][] planes = new ImageProcessor[load.length][];
+    final List<ImageProcessorReader> workers =
+      Collections.synchronizedList(new ArrayList<ImageProcessorReader>());
+
+    final int threadCount =
+      Math.min(total, Runtime.getRuntime().availableProcessors());
+    final ExecutorService executor = Executors.newFixedThreadPool(threadCount);
+    final List<Future<Object>> futures = new ArrayList<Future<Object>>();
+    for (int t=0; t<threadCount; t++) {
+      futures.add(executor.submit(new Callable<Object>() {
+        public Object call() throws FormatException, IOException {
+          if (pending.isEmpty()) return null;
+          final ImageProcessorReader worker = process.createWorkerReader();
+          workers.add(worker);
+          worker.setSeries(s);
+          Integer no;
+          while ((no = pending.poll()) != null) {
+            planes[no] = readProcessors(process, worker, no, r, false);
+            done.add(no);
+          }
+          return null;
+        }
+      }));
+    }
+
+    try {
+      try {
+        int current = 0;
+        while (current < total) {
+          final Integer no = done.poll(100, TimeUnit.MILLISECONDS);
+          if (no == null) {
+            // propagate the failure of any worker
+            for (Future<Object> f : futures) {
+              if (f.isDone()) f.get();
+            }
+            continue;
+          }
+          updateTiming(s, current, current++, total);
+        }
+      }
+      finally {
+        // stop handing out planes, and wait for running workers to finish
+        pending.clear();
+        executor.shutdown();
+        try {
+          executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        }
+        catch (InterruptedException exc) { }
+      }
+
+      // fold the minima and maxima computed by each worker into the stack
+      final MinMaxCalculator minMaxCalc = process.getMinMaxCalculator();
+      for (ImageProcessorReader worker : workers) {
+        minMaxCalc.merge(
+          (MinMaxCalculator) worker.unwrap(MinMaxCalculator.class, null));
+      }
+    }
+    catch (InterruptedException exc) {
+      throw new FormatException("Interrupted while reading planes", exc);
+    }
+    catch (ExecutionException exc) {
+      final Throwable cause = exc.getCause();
+      if (cause instanceof FormatException) throw (FormatException) cause;
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new FormatException(cause);
+    }
+    finally {
+      for (ImageProcessorReader worker : workers) worker.close();
+    }
+    return planes;
+  }
+
   // -- Helper methods - image post processing --
 
   private List<ImagePlus> concatenate(List<ImagePlus> imps) {
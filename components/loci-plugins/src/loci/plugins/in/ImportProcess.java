@@ -29,6 +29,7 @@ import ij.IJ;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.StringTokenizer;
 
@@ -44,6 +45,7 @@ import loci.common.services.ServiceFactory;
 import loci.formats.ChannelFiller;
 import loci.formats.ChannelSeparator;
 import loci.formats.ClassList;
+import loci.formats.CoreMetadata;
 import loci.formats.DimensionSwapper;
 import loci.formats.FilePattern;
 import loci.formats.FileStitcher;
@@ -295,6 +297,71 @@ public class ImportProcess implements StatusReporter {
     return reader;
   }
 
+  /**
+   * Creates a new, independently initialized reader stack equivalent to
+   * the one returned by {@link #getReader()}, which may be used to read
+   * planes concurrently with it. The stack includes its own
+   * {@link MinMaxCalculator}, but no {@link VirtualReader}.
+   * The caller is responsible for closing the returned reader.
+   *
+   * Valid only after {@link ImportStep#DIM_ORDER}.
+   */
+  public ImageProcessorReader createWorkerReader()
+    throws FormatException, IOException
+  {
+    assertStep(ImportStep.DIM_ORDER);
+
+    // local files get the reader options from the preferences, like the
+    // base reader; the OMERO reader has none
+    IFormatReader r;
+    if (options.isOMERO()) {
+      try {
+        r = baseReader.getClass().newInstance();
+      }
+      catch (InstantiationException exc) {
+        throw new FormatException(exc);
+      }
+      catch (IllegalAccessException exc) {
+        throw new FormatException(exc);
+      }
+    }
+    else r = LociPrefs.makeImageReader().getReader(options.getId());
+    r.setMetadataFiltered(true);
+    r.setGroupFiles(!options.isUngroupFiles());
+
+    if (options.isGroupFiles()) {
+      FileStitcher stitcher = new FileStitcher(r);
+      stitcher.setUsingPatternIds(true);
+      stitcher.setCanChangePattern(false);
+      r = stitcher;
+    }
+    r = new ChannelFiller(r);
+    r = new ChannelSeparator(r);
+    final DimensionSwapper swapper = new DimensionSwapper(r);
+    r = new MinMaxCalculator(swapper);
+    if (options.doStitchTiles()) r = new TileStitcher(r);
+    final ImageProcessorReader worker = new ImageProcessorReader(r);
+    worker.setId(options.getId());
+
+    // match the dimension order of the main reader
+    final String stackOrder = getStackOrder();
+    for (int s=0; s<worker.getSeriesCount(); s++) {
+      worker.setSeries(s);
+      String dimOrder = options.getInputOrder(s);
+      if (dimOrder != null) swapper.swapDimensions(dimOrder);
+      swapper.setOutputOrder(stackOrder);
+    }
+    worker.setSeries(0);
+    try {
+      checkWorkerReader(worker);
+    }
+    catch (FormatException exc) {
+      worker.close();
+      throw exc;
+    }
+    return worker;
+  }
+
   /** Valid only after {@link ImportStep#STACK}. */
   public String getCurrentFile() {
     assertStep(ImportStep.STACK);
@@ -746,6 +813,42 @@ public class ImportProcess implements StatusReporter {
 
   // -- Helper methods - miscellaneous --
 
+  /**
+   * Verifies that the given worker reader reports the same core metadata as
+   * the main reader, so that its planes can be used in place of the main
+   * reader's.
+   */
+  private void checkWorkerReader(ImageProcessorReader worker)
+    throws FormatException
+  {
+    // workers are created concurrently, and reading the main reader's core
+    // metadata switches its series
+    CoreMetadata[] expected;
+    synchronized (reader) {
+      expected = reader.getCoreMetadata();
+    }
+    CoreMetadata[] actual = worker.getCoreMetadata();
+    if (actual.length != expected.length) {
+      throw new FormatException("Worker reader has " + actual.length +
+        " series; expected " + expected.length);
+    }
+    for (int s=0; s<expected.length; s++) {
+      CoreMetadata e = expected[s], a = actual[s];
+      if (a.sizeX != e.sizeX || a.sizeY != e.sizeY || a.sizeZ != e.sizeZ ||
+        a.sizeC != e.sizeC || a.sizeT != e.sizeT ||
+        a.imageCount != e.imageCount || a.pixelType != e.pixelType ||
+        a.bitsPerPixel != e.bitsPerPixel || a.rgb != e.rgb ||
+        a.interleaved != e.interleaved || a.littleEndian != e.littleEndian ||
+        a.indexed != e.indexed ||
+        !a.dimensionOrder.equals(e.dimensionOrder) ||
+        !Arrays.equals(a.cLengths, e.cLengths))
+      {
+        throw new FormatException("Worker reader does not match the " +
+          "main reader for series #" + s);
+      }
+    }
+  }
+
   private void step(ImportStep step) {
     this.step = step;
     notifyListeners(new StatusEvent(step.getStep(),
@@ -79,6 +79,7 @@ public class ImporterOptions extends OptionsList {
   public static final String KEY_VIRTUAL         = "virtual";
   public static final String KEY_WINDOWLESS      = "windowless";
   public static final String KEY_STITCH_TILES    = "stitchTiles";
+  public static final String KEY_PARALLEL        = "parallel";
 
   // possible values for colorMode
   public static final String COLOR_MODE_DEFAULT = "Default";
@@ -398,6 +399,11 @@ public class ImporterOptions extends OptionsList {
   public boolean doStitchTiles() { return isSet(KEY_STITCH_TILES); }
   public void setStitchTiles(boolean b) { setValue(KEY_STITCH_TILES, b); }
 
+  // parallel
+  public String getParallelInfo() { return getInfo(KEY_PARALLEL); }
+  public boolean isParallel() { return isSet(KEY_PARALLEL); }
+  public void setParallel(boolean b) { setValue(KEY_PARALLEL, b); }
+
   // -- ImporterOptions methods - secondary options accessors and mutators --
 
   // series options
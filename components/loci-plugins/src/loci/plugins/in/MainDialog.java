@@ -92,6 +92,7 @@ public class MainDialog extends ImporterDialog
   protected Checkbox swapDimsBox;
   protected Checkbox virtualBox;
   protected Checkbox stitchTilesBox;
+  protected Checkbox parallelBox;
 
   protected Map<Component, String> infoTable;
   protected JEditorPane infoPane;
@@ -134,6 +135,7 @@ public class MainDialog extends ImporterDialog
     addCheckbox(gd, ImporterOptions.KEY_SWAP_DIMS);
     addCheckbox(gd, ImporterOptions.KEY_VIRTUAL);
     addCheckbox(gd, ImporterOptions.KEY_STITCH_TILES);
+    addCheckbox(gd, ImporterOptions.KEY_PARALLEL);
     rebuildDialog(gd);
     return gd;
   }
@@ -161,6 +163,7 @@ public class MainDialog extends ImporterDialog
     options.setSwapDimensions(gd.getNextBoolean());
     options.setVirtual(gd.getNextBoolean());
     options.setStitchTiles(gd.getNextBoolean());
+    options.setParallel(gd.getNextBoolean());
     return true;
   }
 
@@ -256,6 +259,7 @@ public class MainDialog extends ImporterDialog
       swapDimsBox       = boxes.get(boxIndex++);
       virtualBox        = boxes.get(boxIndex++);
       stitchTilesBox    = boxes.get(boxIndex++);
+      parallelBox       = boxes.get(boxIndex++);
     }
     verifyOptions(null);
 
@@ -287,6 +291,7 @@ public class MainDialog extends ImporterDialog
     infoTable.put(swapDimsBox, options.getSwapDimensionsInfo());
     infoTable.put(virtualBox, options.getVirtualInfo());
     infoTable.put(stitchTilesBox, options.getStitchTilesInfo());
+    infoTable.put(parallelBox, options.getParallelInfo());
 
     // rebuild dialog using FormLayout to organize things more nicely
 
@@ -365,7 +370,9 @@ public class MainDialog extends ImporterDialog
     builder.add(specifyRangesBox, xyw(cc, 5, row, 1));
     row += 2;
     builder.add(cropBox, xyw(cc, 5, row, 1));
-    row += 4;
+    row += 2;
+    builder.add(parallelBox, xyw(cc, 5, row, 1));
+    row += 2;
     builder.addSeparator("Split into separate windows", cc.xy(5, row));
     row += 2;
     builder.add(splitCBox, xyw(cc, 5, row, 1));
@@ -422,6 +429,7 @@ public class MainDialog extends ImporterDialog
     boolean stackOrderEnabled = stackOrderChoice.isEnabled();
     boolean swapDimsEnabled = swapDimsBox.isEnabled();
     boolean virtualEnabled = virtualBox.isEnabled();
+    boolean parallelEnabled = parallelBox.isEnabled();
 
     boolean isAutoscale = autoscaleBox.getState();
     String colorModeValue = colorModeChoice.getSelectedItem();
@@ -452,6 +460,7 @@ public class MainDialog extends ImporterDialog
     String stackOrderValue = stackOrderChoice.getSelectedItem();
     boolean isSwap = swapDimsBox.getState();
     boolean isVirtual = virtualBox.getState();
+    boolean isParallel = parallelBox.getState();
 
     // toggle availability of each option based on state of earlier options
 
@@ -523,6 +532,10 @@ public class MainDialog extends ImporterDialog
     cropEnabled = !isStackNone && !isVirtual;
     if (!cropEnabled) isCrop = false;
 
+    // parallelBox
+    parallelEnabled = !isStackNone && !isVirtual;
+    if (!parallelEnabled) isParallel = false;
+
     // == Color options ==
 
     // colorModeChoice
@@ -571,6 +584,7 @@ public class MainDialog extends ImporterDialog
     stackOrderChoice.setEnabled(stackOrderEnabled);
     swapDimsBox.setEnabled(swapDimsEnabled);
     virtualBox.setEnabled(virtualEnabled);
+    parallelBox.setEnabled(parallelEnabled);
 
     autoscaleBox.setState(isAutoscale);
     colorModeChoice.select(colorModeValue);
@@ -590,6 +604,7 @@ public class MainDialog extends ImporterDialog
     stackOrderChoice.select(stackOrderValue);
     swapDimsBox.setState(isSwap);
     virtualBox.setState(isVirtual);
+    parallelBox.setState(isParallel);
 
     if (IS_GLITCHED) {
       // HACK - work around a Mac OS X bug where GUI components do not update
@@ -613,7 +628,8 @@ public class MainDialog extends ImporterDialog
         stackFormatChoice,
         stackOrderChoice,
         swapDimsBox,
-        virtualBox
+        virtualBox,
+        parallelBox
       };
 
       // identify currently focused component
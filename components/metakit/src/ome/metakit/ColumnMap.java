@@ -30,6 +30,8 @@ import loci.common.RandomAccessInputStream;
 
 /**
  * Class representating a column mapping in a Metakit database file.
+ * Values are decoded from the underlying stream only when they are
+ * requested, and can be retrieved for individual rows without boxing.
  *
  * <dl><dt><b>Source code:</b></dt>
  * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/metakit/src/ome/metakit/ColumnMap.java">Trac</a>,
@@ -41,17 +43,34 @@ public class ColumnMap {
 
   // -- Fields --
 
-  private ArrayList values = new ArrayList();
+  private ArrayList values;
   private Column col;
+  private char type;
   private RandomAccessInputStream stream;
+  private boolean littleEndian;
   private int rowCount;
 
+  /** Size in bytes and offset of the vector holding the column's values. */
+  private int ivecSize, ivecPointer;
+
+  /** Size in bytes and offset of the vector holding string/byte lengths. */
+  private int mapIvecSize, mapIvecPointer;
+
+  /** Offset of each string/byte value, relative to the value vector. */
+  private long[] offsets;
+
   // -- Constructors --
 
+  /**
+   * Construct a new column map.  Only the vector references are read from
+   * the stream; values are decoded on demand.
+   */
   public ColumnMap(Column col, RandomAccessInputStream stream, int rowCount) {
     this.col = col;
     this.stream = stream;
     this.rowCount = rowCount;
+    this.type = col.getTypeString().charAt(0);
+    this.littleEndian = stream.isLittleEndian();
     try {
       setup();
     }
@@ -62,14 +81,38 @@ public class ColumnMap {
 
   // -- ColumnMap API methods --
 
+  /** Return the column represented by this map. */
+  public Column getColumn() {
+    return col;
+  }
+
+  /** Return the number of rows in this map. */
+  public int getRowCount() {
+    return rowCount;
+  }
+
   /** Return the list of values in this map's column. */
   public ArrayList getValueList() {
+    if (values == null) {
+      values = new ArrayList();
+      try {
+        for (int i=0; i<rowCount; i++) {
+          values.add(getValue(i));
+        }
+      }
+      catch (IOException e) {
+        while (values.size() < rowCount) {
+          values.add(null);
+        }
+      }
+    }
     return values;
   }
 
   /** Return an array of the values in this map's column. */
   public Object[] getValues() {
-    return values.toArray(new Object[values.size()]);
+    ArrayList list = getValueList();
+    return list.toArray(new Object[list.size()]);
   }
 
   /**
@@ -77,114 +120,180 @@ public class ColumnMap {
    * Fixed-type columns have type "I", "F", "D", or "L".
    */
   public boolean isFixedMap() {
-    char type = col.getTypeString().charAt(0);
     return type != 'S' && type != 'B';
   }
 
+  /**
+   * Return whether or not the value in the given row is undefined.
+   * Only fixed-type columns without any stored values are undefined.
+   */
+  public boolean isNull(int row) {
+    checkRow(row);
+    return isFixedMap() && ivecSize <= 0;
+  }
+
+  /**
+   * Return the value in the given row, using the type reported by
+   * {@link Column#getType()}.  Undefined values are returned as null.
+   */
+  public Object getValue(int row) throws IOException {
+    if (isNull(row)) return null;
+    switch (type) {
+      case 'F':
+        return new Float(getFloat(row));
+      case 'D':
+        return new Double(getDouble(row));
+      case 'L':
+        return new Long(getLong(row));
+      case 'I':
+        return new Integer(getInt(row));
+      case 'S':
+        return getString(row);
+      case 'B':
+        return getBytes(row);
+    }
+    return null;
+  }
+
+  /**
+   * Return the value in the given row of an "I" column.
+   * Undefined values are returned as 0.
+   */
+  public int getInt(int row) throws IOException {
+    checkType('I', row);
+    if (isNull(row)) return 0;
+
+    int bits = (ivecSize * 8) / rowCount;
+    switch (bits) {
+      case 1:
+      case 2:
+      case 4:
+        return readBits(ivecPointer, bits, row);
+      case 8:
+        seek(ivecPointer + row);
+        return stream.read();
+      case 16:
+        seek(ivecPointer + 2L * row);
+        return stream.readShort();
+      default:
+        seek(ivecPointer + 4L * row);
+        return stream.readInt();
+    }
+  }
+
+  /**
+   * Return the value in the given row of an "I" or "L" column.
+   * Undefined values are returned as 0.
+   */
+  public long getLong(int row) throws IOException {
+    if (type == 'I') return getInt(row);
+    checkType('L', row);
+    if (isNull(row)) return 0;
+    seek(ivecPointer + 8L * row);
+    return stream.readLong();
+  }
+
+  /**
+   * Return the value in the given row of an "F" column.
+   * Undefined values are returned as 0.
+   */
+  public float getFloat(int row) throws IOException {
+    checkType('F', row);
+    if (isNull(row)) return 0;
+    seek(ivecPointer + 4L * row);
+    return stream.readFloat();
+  }
+
+  /**
+   * Return the value in the given row of a numeric ("I", "L", "F" or "D")
+   * column.  Undefined values are returned as 0.
+   */
+  public double getDouble(int row) throws IOException {
+    switch (type) {
+      case 'I':
+        return getInt(row);
+      case 'L':
+        return getLong(row);
+      case 'F':
+        return getFloat(row);
+    }
+    checkType('D', row);
+    if (isNull(row)) return 0;
+    seek(ivecPointer + 8L * row);
+    return stream.readDouble();
+  }
+
+  /** Return the value in the given row of an "S" column. */
+  public String getString(int row) throws IOException {
+    checkType('S', row);
+    return new String(readBytes(row));
+  }
+
+  /** Return the value in the given row of an "S" or "B" column. */
+  public byte[] getBytes(int row) throws IOException {
+    if (type != 'S') checkType('B', row);
+    return readBytes(row);
+  }
+
   // -- Helper methods --
 
   private void setup() throws IOException {
     if (isFixedMap()) {
       // read a single IVecRef
 
-      int ivecSize = MetakitTools.readBpInt(stream);
+      ivecSize = MetakitTools.readBpInt(stream);
       if (ivecSize > 0) {
-        int ivecPointer = MetakitTools.readBpInt(stream);
-        long fp = stream.getFilePointer();
-        stream.seek(ivecPointer);
-
-        for (int i=0; i<rowCount; i++) {
-          values.add(readElement(ivecSize, i));
-        }
-        stream.seek(fp);
-      }
-      else {
-        for (int i=0; i<rowCount; i++) {
-          values.add(null);
-        }
+        ivecPointer = MetakitTools.readBpInt(stream);
       }
     }
     else {
-      int ivecSize = MetakitTools.readBpInt(stream); // total bytes
-      int ivecPointer = MetakitTools.readBpInt(stream);
+      ivecSize = MetakitTools.readBpInt(stream); // total bytes
+      ivecPointer = MetakitTools.readBpInt(stream);
 
-      int mapIvecSize = MetakitTools.readBpInt(stream);
-      int mapIvecPointer = MetakitTools.readBpInt(stream);
+      mapIvecSize = MetakitTools.readBpInt(stream);
+      mapIvecPointer = MetakitTools.readBpInt(stream);
 
       int catalogIvecSize = MetakitTools.readBpInt(stream);
-      int catalogIvecPointer = 0;
       if (catalogIvecSize > 0) {
-        catalogIvecPointer = MetakitTools.readBpInt(stream);
+        MetakitTools.readBpInt(stream); // catalog IVec pointer
       }
+    }
+  }
 
-      long fp = stream.getFilePointer();
-
-      stream.seek(mapIvecPointer);
-      int[] byteCounts = new int[rowCount];
-
+  private byte[] readBytes(int row) throws IOException {
+    checkRow(row);
+    if (offsets == null) {
+      // the map vector only stores lengths, so accumulate them once
+      long[] newOffsets = new long[rowCount + 1];
       int bits = (mapIvecSize * 8) / rowCount;
       for (int i=0; i<rowCount; i++) {
-        byteCounts[i] = readBits(mapIvecSize, bits, i);
+        int count = bits == 0 ? 0 : readBits(mapIvecPointer, bits, i);
+        newOffsets[i + 1] = newOffsets[i] + count;
       }
-
-      stream.seek(ivecPointer);
-      for (int i=0; i<rowCount; i++) {
-        byte[] buf = new byte[byteCounts[i]];
-        stream.read(buf);
-        char type = col.getTypeString().charAt(0);
-        values.add(type == 'B' ? buf : new String(buf));
-      }
-
-      stream.seek(fp);
-    }
-  }
-
-  private Object readElement(int vectorSize, int index) throws IOException {
-    char type = col.getTypeString().charAt(0);
-
-    switch (type) {
-      case 'F':
-        return new Float(stream.readFloat());
-      case 'D':
-        return new Double(stream.readDouble());
-      case 'L':
-        return new Long(stream.readLong());
-      case 'I':
-        int bits = (vectorSize * 8) / rowCount;
-        switch (bits) {
-          case 1:
-            return readBits(vectorSize, 1, index);
-          case 2:
-            return readBits(vectorSize, 2, index);
-          case 4:
-            return readBits(vectorSize, 4, index);
-          case 8:
-            return new Integer(stream.read());
-          case 16:
-            return new Integer(stream.readShort());
-          case 32:
-            return new Integer(stream.readInt());
-          default:
-            return new Integer(stream.readInt());
-        }
+      offsets = newOffsets;
     }
 
-    return null;
+    byte[] buf = new byte[(int) (offsets[row + 1] - offsets[row])];
+    seek(ivecPointer + offsets[row]);
+    stream.read(buf);
+    return buf;
   }
 
-  private int readBits(int nBytes, int bits, int index) throws IOException {
+  private int readBits(long base, int bits, int index) throws IOException {
     if (bits == 8) {
+      seek(base + index);
       return stream.read();
     }
     else if (bits == 16) {
+      seek(base + 2L * index);
       return stream.readShort() & 0xffff;
     }
     else if (bits >= 32) {
+      seek(base + 4L * index);
       return stream.readInt();
     }
 
-    long fp = stream.getFilePointer();
-    stream.skipBytes((index * bits) / 8);
+    seek(base + (index * bits) / 8);
     int b = stream.read();
     int mask = (int) Math.pow(2, bits) - 1;
 
@@ -192,8 +301,26 @@ public class ColumnMap {
     int value = b & (mask << (bitIndex * bits));
     value >>= ((8 - (bitIndex * bits)) % 8);
 
-    stream.seek(fp);
     return value;
   }
 
+  private void seek(long offset) throws IOException {
+    stream.order(littleEndian);
+    stream.seek(offset);
+  }
+
+  private void checkRow(int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new ArrayIndexOutOfBoundsException("Invalid row: " + row);
+    }
+  }
+
+  private void checkType(char expected, int row) {
+    checkRow(row);
+    if (type != expected) {
+      throw new IllegalArgumentException("Column '" + col.getName() +
+        "' has type " + type + ", not " + expected);
+    }
+  }
+
 }
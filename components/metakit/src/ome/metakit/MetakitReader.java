@@ -24,6 +24,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package ome.metakit;
 
 import java.io.IOException;
+import java.util.ArrayList;
 
 import loci.common.DataTools;
 import loci.common.RandomAccessInputStream;
@@ -49,7 +50,11 @@ public class MetakitReader {
   private Column[][] columns;
   private int[] rowCount;
 
-  private Object[][][] data;
+  /** Column maps, indexed by [table][segment][column]. */
+  private ColumnMap[][][] maps;
+
+  /** Number of rows in each segment of each table. */
+  private int[][] segmentRows;
 
   private boolean littleEndian = false;
 
@@ -162,22 +167,14 @@ public class MetakitReader {
    * @see getColumnTypes(int)
    */
   public Object[][] getTableData(int tableIndex) {
-    Object[][] table = data[tableIndex];
-    if (table == null) return null;
-
-    // table is stored in [column][row] order; reverse it for convenience
-    int rowCount = table[0] == null ? 0 : table[0].length;
-    Object[][] newTable = new Object[rowCount][table.length];
-
-    for (int row=0; row<newTable.length; row++) {
-      for (int col=0; col<newTable[row].length; col++) {
-        if (col < table.length && row < table[col].length) {
-          newTable[row][col] = table[col][row];
-        }
+    Object[][] table = new Object[rowCount[tableIndex]][];
+    int row = 0;
+    for (int segment=0; segment<maps[tableIndex].length; segment++) {
+      for (int i=0; i<segmentRows[tableIndex][segment]; i++) {
+        table[row++] = getRowData(tableIndex, segment, i);
       }
     }
-
-    return newTable;
+    return table;
   }
 
   /**
@@ -200,11 +197,16 @@ public class MetakitReader {
    * @see getColumnTypes(int)
    */
   public Object[] getRowData(int rowIndex, int tableIndex) {
-    Object[] row = new Object[data[tableIndex].length];
-    for (int col=0; col<data[tableIndex].length; col++) {
-      row[col] = data[tableIndex][col][rowIndex];
+    int[] rows = segmentRows[tableIndex];
+    if (rowIndex >= 0) {
+      for (int segment=0; segment<rows.length; segment++) {
+        if (rowIndex < rows[segment]) {
+          return getRowData(tableIndex, segment, rowIndex);
+        }
+        rowIndex -= rows[segment];
+      }
     }
-    return row;
+    throw new ArrayIndexOutOfBoundsException("Invalid row: " + rowIndex);
   }
 
   /**
@@ -220,8 +222,77 @@ public class MetakitReader {
     return getRowData(rowIndex, index);
   }
 
+  /**
+   * Retrieve a cursor over the given columns of the table with the given
+   * index.  Only the requested columns are decoded, as each row is visited.
+   * Tables are indexed from 0 to <code>{@link getTableCount()} - 1</code>.
+   *
+   * @param columnIndices the indices of the columns to retrieve, or null to
+   *   retrieve every column
+   */
+  public RowCursor getCursor(int tableIndex, int[] columnIndices) {
+    if (columnIndices == null) {
+      columnIndices = new int[columns[tableIndex].length];
+      for (int i=0; i<columnIndices.length; i++) {
+        columnIndices[i] = i;
+      }
+    }
+    Column[] selected = new Column[columnIndices.length];
+    for (int i=0; i<selected.length; i++) {
+      selected[i] = columns[tableIndex][columnIndices[i]];
+    }
+
+    ColumnMap[][] tableMaps = maps[tableIndex];
+    ColumnMap[][] selectedMaps = new ColumnMap[tableMaps.length][];
+    for (int segment=0; segment<tableMaps.length; segment++) {
+      selectedMaps[segment] = new ColumnMap[selected.length];
+      for (int i=0; i<selected.length; i++) {
+        selectedMaps[segment][i] = tableMaps[segment][columnIndices[i]];
+      }
+    }
+    return new RowCursor(selected, selectedMaps, segmentRows[tableIndex]);
+  }
+
+  /**
+   * Retrieve a cursor over the named columns of the named table.
+   *
+   * @param columnNames the names of the columns to retrieve, or null to
+   *   retrieve every column
+   * @throws IllegalArgumentException if one of the named columns does not
+   *   exist in the table
+   * @see getCursor(int, int[])
+   */
+  public RowCursor getCursor(String tableName, String[] columnNames) {
+    int index = DataTools.indexOf(tableNames, tableName);
+    if (index < 0) {
+      return null;
+    }
+    int[] columnIndices = null;
+    if (columnNames != null) {
+      String[] allNames = getColumnNames(index);
+      columnIndices = new int[columnNames.length];
+      for (int i=0; i<columnIndices.length; i++) {
+        columnIndices[i] = DataTools.indexOf(allNames, columnNames[i]);
+        if (columnIndices[i] < 0) {
+          throw new IllegalArgumentException("Table '" + tableName +
+            "' has no column '" + columnNames[i] + "'");
+        }
+      }
+    }
+    return getCursor(index, columnIndices);
+  }
+
   // -- Helper methods --
 
+  private Object[] getRowData(int table, int segment, int row) {
+    ColumnMap[] segmentMaps = maps[table][segment];
+    Object[] data = new Object[segmentMaps.length];
+    for (int col=0; col<data.length; col++) {
+      data[col] = segmentMaps[col].getValueList().get(row);
+    }
+    return data;
+  }
+
   private void initialize() throws IOException, MetakitException {
     String magic = stream.readString(2);
 
@@ -293,7 +364,8 @@ public class MetakitReader {
 
     MetakitTools.readBpInt(stream);
 
-    data = new Object[tables.length][][];
+    maps = new ColumnMap[tables.length][][];
+    segmentRows = new int[tables.length][];
 
     for (int table=0; table<tables.length; table++) {
       MetakitTools.readBpInt(stream);
@@ -302,13 +374,14 @@ public class MetakitReader {
       stream.seek(pointer + 1);
 
       rowCount[table] = MetakitTools.readBpInt(stream);
+      ArrayList<ColumnMap[]> segments = new ArrayList<ColumnMap[]>();
+      ArrayList<Integer> counts = new ArrayList<Integer>();
+
       if (hasSubviews[table]) {
         int subviewCount = rowCount[table];
 
         long base = stream.getFilePointer();
         rowCount[table] = 0;
-        Object[][][] subviewTable =
-          new Object[subviewCount][columns[table].length][];
 
         for (int subview=0; subview<subviewCount; subview++) {
           // read an IVecRef
@@ -327,39 +400,32 @@ public class MetakitReader {
 
           if (count > 1) {
             rowCount[table] += count;
-            for (int col=0; col<columns[table].length; col++) {
-              stream.order(littleEndian);
-              ColumnMap map = new ColumnMap(columns[table][col], stream, count);
-              subviewTable[subview][col] = map.getValues();
-            }
-          }
-        }
-
-        data[table] = new Object[columns[table].length][rowCount[table]];
-        int index = 0;
-        for (int subview=0; subview<subviewCount; subview++) {
-          if (subviewTable[subview][0] != null) {
-            for (int col=0; col<columns[table].length; col++) {
-              System.arraycopy(subviewTable[subview][col], 0, data[table][col],
-                index, subviewTable[subview][col].length);
-            }
-            index += subviewTable[subview][0].length;
+            segments.add(readColumnMaps(table, count));
+            counts.add(count);
           }
         }
       }
-      else {
-        data[table] = new Object[columns[table].length][];
-        if (rowCount[table] > 0) {
-          for (int col=0; col<columns[table].length; col++) {
-            stream.order(littleEndian);
-            ColumnMap map =
-              new ColumnMap(columns[table][col], stream, rowCount[table]);
-            data[table][col] = map.getValues();
-          }
-        }
+      else if (rowCount[table] > 0) {
+        segments.add(readColumnMaps(table, rowCount[table]));
+        counts.add(rowCount[table]);
+      }
+
+      maps[table] = segments.toArray(new ColumnMap[segments.size()][]);
+      segmentRows[table] = new int[counts.size()];
+      for (int i=0; i<segmentRows[table].length; i++) {
+        segmentRows[table][i] = counts.get(i);
       }
       stream.seek(fp);
     }
   }
 
+  private ColumnMap[] readColumnMaps(int table, int count) {
+    ColumnMap[] segment = new ColumnMap[columns[table].length];
+    for (int col=0; col<segment.length; col++) {
+      stream.order(littleEndian);
+      segment[col] = new ColumnMap(columns[table][col], stream, count);
+    }
+    return segment;
+  }
+
 }
@@ -0,0 +1,175 @@
+//
+// RowCursor.java
+//
+
+/*
+OME Metakit package for reading Metakit database files.
+Copyright (C) 2011-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package ome.metakit;
+
+import java.io.IOException;
+
+/**
+ * Cursor over a subset of the columns in a Metakit table.
+ * Only the selected columns are decoded, and only for the rows that
+ * are visited.  Columns are indexed in the order in which they were
+ * requested from {@link MetakitReader#getCursor(int, int[])}.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/metakit/src/ome/metakit/RowCursor.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/metakit/src/ome/metakit/RowCursor.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class RowCursor {
+
+  // -- Fields --
+
+  /** Column maps, indexed by [segment][selected column]. */
+  private ColumnMap[][] maps;
+
+  /** Number of rows in each segment. */
+  private int[] segmentRows;
+
+  /** Index of the first row in each segment. */
+  private int[] firstRow;
+
+  private Column[] columns;
+  private int rowCount;
+
+  private int row = -1;
+  private int segment = 0;
+  private int segmentRow = -1;
+
+  // -- Constructor --
+
+  RowCursor(Column[] columns, ColumnMap[][] maps, int[] segmentRows) {
+    this.columns = columns;
+    this.maps = maps;
+    this.segmentRows = segmentRows;
+    firstRow = new int[segmentRows.length];
+    for (int i=0; i<segmentRows.length; i++) {
+      firstRow[i] = rowCount;
+      rowCount += segmentRows[i];
+    }
+  }
+
+  // -- RowCursor API methods --
+
+  /** Retrieve the number of rows in the table. */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /** Retrieve the number of selected columns. */
+  public int getColumnCount() {
+    return columns.length;
+  }
+
+  /** Retrieve the name of the given selected column. */
+  public String getColumnName(int column) {
+    return columns[column].getName();
+  }
+
+  /** Retrieve the type of the given selected column. */
+  public Class getColumnType(int column) {
+    return columns[column].getType();
+  }
+
+  /** Retrieve the index of the current row, or -1 before the first row. */
+  public int getRow() {
+    return row;
+  }
+
+  /**
+   * Advance to the next row.
+   * @return false if there are no more rows
+   */
+  public boolean next() {
+    if (row + 1 >= rowCount) return false;
+    row++;
+    segmentRow++;
+    while (segmentRow >= segmentRows[segment]) {
+      segment++;
+      segmentRow = 0;
+    }
+    return true;
+  }
+
+  /** Move to the given row, so that {@link #next()} returns the row after. */
+  public void seek(int row) {
+    if (row < 0 || row >= rowCount) {
+      throw new ArrayIndexOutOfBoundsException("Invalid row: " + row);
+    }
+    this.row = row;
+    segment = 0;
+    while (segment < maps.length - 1 && row >= firstRow[segment + 1]) {
+      segment++;
+    }
+    segmentRow = row - firstRow[segment];
+  }
+
+  /** @see ColumnMap#isNull(int) */
+  public boolean isNull(int column) {
+    return map(column).isNull(segmentRow);
+  }
+
+  /** @see ColumnMap#getValue(int) */
+  public Object getValue(int column) throws IOException {
+    return map(column).getValue(segmentRow);
+  }
+
+  /** @see ColumnMap#getInt(int) */
+  public int getInt(int column) throws IOException {
+    return map(column).getInt(segmentRow);
+  }
+
+  /** @see ColumnMap#getLong(int) */
+  public long getLong(int column) throws IOException {
+    return map(column).getLong(segmentRow);
+  }
+
+  /** @see ColumnMap#getFloat(int) */
+  public float getFloat(int column) throws IOException {
+    return map(column).getFloat(segmentRow);
+  }
+
+  /** @see ColumnMap#getDouble(int) */
+  public double getDouble(int column) throws IOException {
+    return map(column).getDouble(segmentRow);
+  }
+
+  /** @see ColumnMap#getString(int) */
+  public String getString(int column) throws IOException {
+    return map(column).getString(segmentRow);
+  }
+
+  /** @see ColumnMap#getBytes(int) */
+  public byte[] getBytes(int column) throws IOException {
+    return map(column).getBytes(segmentRow);
+  }
+
+  // -- Helper methods --
+
+  private ColumnMap map(int column) {
+    if (row < 0) {
+      throw new IllegalStateException("Cursor is not positioned on a row");
+    }
+    return maps[segment][column];
+  }
+
+}
@@ -0,0 +1,252 @@
+//
+// CursorTest.java
+//
+
+/*
+OME Metakit package for reading Metakit database files.
+Copyright (C) 2011-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package ome.metakit.utests;
+
+import java.io.IOException;
+import java.util.zip.CRC32;
+
+import ome.metakit.MetakitException;
+import ome.metakit.MetakitReader;
+import ome.metakit.RowCursor;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertFalse;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertTrue;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests {@link RowCursor} against the values of the test file's sample and
+ * string tables, as decoded before cursors were introduced.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/metakit/test/ome/metakit/utests/CursorTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/metakit/test/ome/metakit/utests/CursorTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class CursorTest {
+
+  private static final String FILENAME = "test.mk";
+  private static final String INVALID_TABLE = "this cannot be a valid table";
+
+  private static final String SAMPLES = "samplesViewR";
+  private static final String STRINGS = "stringsViewR";
+
+  // -- Known values of the sample table, by row --
+
+  private static final int[] SAMPLE_PARENT = {0, 1, 1, 1, 1, 5, 5, 5, 5, 5, 5,
+    5, 5, 5, 5, 5, 5, 5, 5, 5, 5, 21, 22, 22, 22, 21, 26, 26, 26};
+  private static final int[] SAMPLE_CHILD_TYPE = {1, 4, 4, 4, 1, 4, 4, 4, 4,
+    4, 4, 4, 4, 4, 4, 4, 4, 8, 4, 4, 2, 2, 2, 2, 2, 2, 2, 2, 2};
+  private static final int[] SAMPLE_CHILD_POS = {1, 1, 2, 3, 1, 1, 2, 3, 4, 5,
+    6, 7, 8, 9, 10, 11, 12, 1, 13, 14, 1, 1, 1, 2, 3, 2, 1, 2, 3};
+  private static final int[] SAMPLE_DATA_VERSION = {503, 505, 505, 505, 517,
+    12000, 505, 505, 505, 504, 504, 500, 500, 500, 504, 500, 525, 517, 15102,
+    15103, 501, 501, 513, 513, 513, 501, 513, 513, 513};
+  private static final int[] SAMPLE_DATA_REVISION = {0, 0, 0, 0, 1, 0, 0, 0,
+    0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 2, 0, 0, 0, 0, 0, 0, 0, 0};
+  private static final int[] SAMPLE_NAME_LINK = {1, 2, 3, 4, 5, 6, 2, 3, 4, 7,
+    8, 9, 10, 11, 12, 13, 14, 15, 16, 17, 18, 19, 20, 21, 22, 23, 20, 21, 22};
+  private static final long[] SAMPLE_CHANGE_TIME = {3391447735797000L,
+    3391447735798000L, 3391447735798000L, 3391447735798000L,
+    3391447789532000L, 3391447789749000L, 3391447789747000L,
+    3391447789751000L, 3391447789752000L, 3391447789747000L,
+    3391447789747000L, 3391447789747000L, 3391447789748000L,
+    3391447789748000L, 3391447789748000L, 3391447789748000L,
+    3391447789748000L, 3391447789866000L, 3391448386476000L,
+    3391447816538000L, 3391447817018000L, 3391447817019000L,
+    3391448383990000L, 3391448383990000L, 3391448383990000L,
+    3391448331984000L, 3391448331984001L, 3391448331984001L,
+    3391448331984001L};
+  private static final int[] SAMPLE_DATA_LENGTH = {21, 21, 21, 21, 0, 110, 21,
+    21, 21, 29, 17, 21, 21, 21, 40, 21, 1319, 0, 30, 38, 17, 17, 22, 761, 19,
+    17, 22, 761, 19};
+  private static final long[] SAMPLE_DATA_CRC = {0xd10f3352L, 0x4cbe0433L,
+    0x4cbe0433L, 0x4cbe0433L, 0x0L, 0x93727ee4L, 0x4aa6594cL, 0x66a8840eL,
+    0x3db98a83L, 0x622759f8L, 0xa3e39133L, 0xb0ec8171L, 0xb0ec8171L,
+    0xa25789e8L, 0x435500L, 0xcd7bf70fL, 0x97115de1L, 0x0L, 0x448565eeL,
+    0x71b07363L, 0xc16a45bdL, 0xc16a45bdL, 0xddb2da4dL, 0x94d37c52L,
+    0xda0ec5d8L, 0xc16a45bdL, 0xddb2da4dL, 0xe5a0ad53L, 0xda0ec5d8L};
+
+  // -- Known values of the string table, by row --
+
+  private static final String[] STRING_STRING = {"clipping-test.mvd2",
+    "Timestamp", "Item added", "Item modified", "Tx red 2", "Plane renderer",
+    "Created by", "Experiment Description", "um/pixel (X)", "um/pixel (Y)",
+    "um/pixel (Z)", "Camera/Detector", "Microscope Objective",
+    "Experiment Event Log", "Thumbnail", "XDataBookmark3DList", "Movie",
+    "XPrf", "NewImageView", "RendererID", "SampleSceneState",
+    "IsTiledChannels", "CommonMeasurementsView"};
+  private static final int[] STRING_REF_COUNT = {1, 0, 2, 32, 1, 0, 1, 16, 1,
+    0, 1, 16, 1, 0, 1, 16, 1, 0, 1, 32, 2, 0, 1};
+
+  private MetakitReader reader;
+
+  @BeforeMethod
+  public void setUp() throws IOException, MetakitException {
+    String defaultFile = this.getClass().getResource(FILENAME).getPath();
+    reader = new MetakitReader(System.getProperty("filename", defaultFile));
+  }
+
+  @Test
+  public void testSampleValues() throws IOException {
+    RowCursor cursor = reader.getCursor(SAMPLES, null);
+    assertEquals(SAMPLE_PARENT.length, cursor.getRowCount());
+    assertEquals(15, cursor.getColumnCount());
+
+    for (int row=0; row<SAMPLE_PARENT.length; row++) {
+      assertTrue(cursor.next());
+      assertEquals(row, cursor.getRow());
+      assertEquals(new Integer(row + 1), cursor.getValue(0));
+      assertEquals(new Integer(SAMPLE_PARENT[row]), cursor.getValue(1));
+      assertEquals(new Integer(SAMPLE_CHILD_TYPE[row]), cursor.getValue(2));
+      assertEquals(new Integer(SAMPLE_CHILD_POS[row]), cursor.getValue(3));
+      assertEquals(new Integer(SAMPLE_CHILD_POS[row]), cursor.getValue(4));
+      for (int col=5; col<8; col++) {
+        assertTrue(cursor.isNull(col));
+        assertNull(cursor.getValue(col));
+      }
+      assertEquals(new Integer(SAMPLE_DATA_VERSION[row]), cursor.getValue(8));
+      assertEquals(new Integer(SAMPLE_DATA_REVISION[row]),
+        cursor.getValue(9));
+      assertNull(cursor.getValue(10));
+      assertEquals(new Integer(SAMPLE_NAME_LINK[row]), cursor.getValue(11));
+      assertEquals(new Long(SAMPLE_CHANGE_TIME[row]), cursor.getValue(12));
+      assertData(row, (byte[]) cursor.getValue(13));
+      assertEquals(new Integer(row == 4 ? 1 : 0), cursor.getValue(14));
+    }
+    assertFalse(cursor.next());
+  }
+
+  @Test
+  public void testStringValues() throws IOException {
+    RowCursor cursor = reader.getCursor(STRINGS, null);
+    assertEquals(STRING_STRING.length, cursor.getRowCount());
+    for (int row=0; row<STRING_STRING.length; row++) {
+      assertTrue(cursor.next());
+      assertEquals(row + 1, cursor.getInt(0));
+      assertEquals(STRING_STRING[row] + "\0", cursor.getString(1));
+      assertEquals(STRING_REF_COUNT[row], cursor.getInt(2));
+    }
+    assertFalse(cursor.next());
+  }
+
+  @Test
+  public void testVariables() throws IOException {
+    RowCursor cursor = reader.getCursor("variablesView", null);
+    assertEquals(1, cursor.getRowCount());
+    assertTrue(cursor.next());
+    assertEquals(2, cursor.getInt(0));
+    assertEquals(30, cursor.getInt(1));
+    assertEquals(24, cursor.getInt(2));
+    assertEquals(2, cursor.getInt(3));
+    assertTrue(cursor.isNull(4));
+    assertFalse(cursor.next());
+
+    assertEquals(0, reader.getCursor("filesViewR", null).getRowCount());
+  }
+
+  @Test
+  public void testProjectedColumns() throws IOException {
+    RowCursor cursor = reader.getCursor(SAMPLES,
+      new String[] {"sampleData", "sampleChangeTime", "sampleParent"});
+    assertEquals(3, cursor.getColumnCount());
+    assertEquals("sampleData", cursor.getColumnName(0));
+    assertEquals("sampleChangeTime", cursor.getColumnName(1));
+    assertEquals("sampleParent", cursor.getColumnName(2));
+    for (int row=0; row<SAMPLE_PARENT.length; row++) {
+      assertTrue(cursor.next());
+      assertData(row, cursor.getBytes(0));
+      assertEquals(SAMPLE_CHANGE_TIME[row], cursor.getLong(1));
+      assertEquals(SAMPLE_PARENT[row], cursor.getInt(2));
+    }
+    assertFalse(cursor.next());
+  }
+
+  @Test
+  public void testTypedValues() throws IOException {
+    RowCursor cursor = reader.getCursor(SAMPLES, null);
+
+    // visit the rows in reverse order, to exercise random access
+    for (int row=SAMPLE_PARENT.length-1; row>=0; row--) {
+      cursor.seek(row);
+      assertEquals(row + 1, cursor.getInt(0));
+      assertEquals(SAMPLE_DATA_VERSION[row], cursor.getInt(8));
+      assertEquals(SAMPLE_NAME_LINK[row], cursor.getInt(11));
+      assertEquals(SAMPLE_CHANGE_TIME[row], cursor.getLong(12));
+      assertEquals((double) SAMPLE_CHANGE_TIME[row], cursor.getDouble(12),
+        0);
+      assertData(row, cursor.getBytes(13));
+    }
+
+    cursor = reader.getCursor(STRINGS, null);
+    for (int row=STRING_STRING.length-1; row>=0; row--) {
+      cursor.seek(row);
+      assertEquals(STRING_STRING[row] + "\0", cursor.getString(1));
+      assertEquals(STRING_REF_COUNT[row], cursor.getInt(2));
+    }
+  }
+
+  @Test
+  public void testTableDataMatchesKnownValues() {
+    Object[][] data = reader.getTableData(SAMPLES);
+    assertEquals(SAMPLE_PARENT.length, data.length);
+    for (int row=0; row<data.length; row++) {
+      assertEquals(new Integer(SAMPLE_PARENT[row]), data[row][1]);
+      assertEquals(new Long(SAMPLE_CHANGE_TIME[row]), data[row][12]);
+      assertData(row, (byte[]) data[row][13]);
+    }
+    data = reader.getTableData(STRINGS);
+    assertEquals(STRING_STRING.length, data.length);
+    for (int row=0; row<data.length; row++) {
+      assertEquals(STRING_STRING[row] + "\0", data[row][1]);
+    }
+  }
+
+  @Test
+  public void testInvalidTableName() {
+    assertNull(reader.getCursor(INVALID_TABLE, null));
+  }
+
+  @Test(expectedExceptions={IllegalArgumentException.class})
+  public void testInvalidColumnName() {
+    reader.getCursor(reader.getTableNames()[0], new String[] {INVALID_TABLE});
+  }
+
+  @Test(expectedExceptions={ArrayIndexOutOfBoundsException.class})
+  public void testSeekTooLarge() {
+    RowCursor cursor = reader.getCursor(0, null);
+    cursor.seek(cursor.getRowCount());
+  }
+
+  /** Checks the length and checksum of a row's sampleData value. */
+  private void assertData(int row, byte[] data) {
+    assertEquals(SAMPLE_DATA_LENGTH[row], data.length);
+    CRC32 crc = new CRC32();
+    crc.update(data);
+    assertEquals(SAMPLE_DATA_CRC[row], crc.getValue());
+  }
+
+}
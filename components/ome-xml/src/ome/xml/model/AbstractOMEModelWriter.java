@@ -0,0 +1,322 @@
+//
+// AbstractOMEModelWriter.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package ome.xml.model;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Base class for streaming serializers of the OME-XML model.
+ *
+ * Elements are written directly to the underlying stream as the model is
+ * traversed, so memory use does not depend on the size of the model.  The
+ * output is equivalent to serializing the DOM built by
+ * {@link OMEModelObject#asXMLElement(Document)}: attributes are sorted by
+ * name, elements without content are written as empty elements, and a
+ * default namespace declaration is written wherever an element's namespace
+ * differs from its parent's.
+ *
+ * The element-specific methods are generated from the model classes; see
+ * {@link OMEModelWriter}.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/ome-xml/src/ome/xml/model/AbstractOMEModelWriter.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/ome-xml/src/ome/xml/model/AbstractOMEModelWriter.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public abstract class AbstractOMEModelWriter {
+
+  // -- Fields --
+
+  private Writer out;
+
+  /** Default namespace of each open element. */
+  private List<String> namespaces = new ArrayList<String>();
+
+  /** Attributes of the most recently opened element, sorted by name. */
+  private Map<String, String> attributes = new TreeMap<String, String>();
+
+  /** Whether the start tag of the most recently opened element is open. */
+  private boolean startTagOpen;
+
+  /** Extra attributes to write on the document element. */
+  private Map<String, String> rootAttributes = new TreeMap<String, String>();
+
+  /** Document used to build the DOM of objects with custom content. */
+  private Document document;
+
+  // -- Constructors --
+
+  /** Constructs a writer which encodes the XML as UTF-8. */
+  public AbstractOMEModelWriter(OutputStream out) throws IOException {
+    this(new OutputStreamWriter(out, "UTF-8"));
+  }
+
+  public AbstractOMEModelWriter(Writer out) {
+    this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+  }
+
+  // -- AbstractOMEModelWriter API methods --
+
+  /**
+   * Sets an extra attribute, such as a namespace declaration or schema
+   * location, to be written on the document element.
+   */
+  public void setRootAttribute(String name, String value) {
+    rootAttributes.put(name, value);
+  }
+
+  /**
+   * Writes an XML declaration followed by the given object and everything
+   * below it, then flushes the underlying stream.
+   */
+  public void writeDocument(OMEModelObject root) throws IOException {
+    out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+    writeObject(root);
+    out.flush();
+  }
+
+  /** Writes the given object and everything below it. */
+  public abstract void writeObject(OMEModelObject o) throws IOException;
+
+  /** Flushes the underlying stream. */
+  public void flush() throws IOException {
+    out.flush();
+  }
+
+  // -- Internal AbstractOMEModelWriter API methods --
+
+  /** Opens an element with the given namespace and name. */
+  protected void startElement(String namespace, String name)
+    throws IOException
+  {
+    closeStartTag();
+    out.write('<');
+    out.write(name);
+    String parent = namespaces.size() == 0 ? null :
+      namespaces.get(namespaces.size() - 1);
+    String ns = namespace == null ? "" : namespace;
+    if (!ns.equals(parent == null ? "" : parent)) {
+      attributes.put("xmlns", ns);
+    }
+    if (namespaces.size() == 0) attributes.putAll(rootAttributes);
+    namespaces.add(ns);
+    startTagOpen = true;
+  }
+
+  /**
+   * Adds an attribute to the element opened by the last call to
+   * {@link #startElement(String, String)}.  All attributes must be added
+   * before any content.
+   */
+  protected void attribute(String name, String value) {
+    if (!startTagOpen) {
+      throw new IllegalStateException("Attribute " + name +
+        " must precede the element's content");
+    }
+    attributes.put(name, value);
+  }
+
+  /** Writes character data within the current element. */
+  protected void text(String value) throws IOException {
+    if (value.length() == 0) return;
+    closeStartTag();
+    escape(value, false);
+  }
+
+  /** Writes an element containing only the given character data. */
+  protected void textElement(String namespace, String name, String value)
+    throws IOException
+  {
+    startElement(namespace, name);
+    text(value);
+    endElement(name);
+  }
+
+  /** Closes the current element. */
+  protected void endElement(String name) throws IOException {
+    namespaces.remove(namespaces.size() - 1);
+    if (startTagOpen) {
+      writeAttributes();
+      out.write("/>");
+      startTagOpen = false;
+    }
+    else {
+      out.write("</");
+      out.write(name);
+      out.write('>');
+    }
+  }
+
+  /**
+   * Writes the given object by building and serializing its DOM.  Used for
+   * objects with custom content, which only have a DOM representation.
+   */
+  protected void writeDOM(OMEModelObject o) throws IOException {
+    if (document == null) {
+      try {
+        document = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+          .newDocument();
+      }
+      catch (ParserConfigurationException e) {
+        IOException io = new IOException(e.getMessage());
+        io.initCause(e);
+        throw io;
+      }
+    }
+    writeNode(o.asXMLElement(document));
+  }
+
+  // -- Helper methods --
+
+  private void writeNode(Node node) throws IOException {
+    switch (node.getNodeType()) {
+      case Node.ELEMENT_NODE:
+        Element element = (Element) node;
+        String name = element.getTagName();
+        if (element.getPrefix() == null) {
+          startElement(element.getNamespaceURI(), name);
+        }
+        else {
+          // prefixed elements keep their parent's default namespace
+          startElement(namespaces.size() == 0 ? null :
+            namespaces.get(namespaces.size() - 1), name);
+        }
+        NamedNodeMap attrs = element.getAttributes();
+        for (int i=0; i<attrs.getLength(); i++) {
+          Attr attr = (Attr) attrs.item(i);
+          attribute(attr.getName(), attr.getValue());
+        }
+        NodeList children = element.getChildNodes();
+        for (int i=0; i<children.getLength(); i++) {
+          writeNode(children.item(i));
+        }
+        endElement(name);
+        break;
+      case Node.TEXT_NODE:
+        text(node.getNodeValue());
+        break;
+      case Node.CDATA_SECTION_NODE:
+        closeStartTag();
+        out.write("<![CDATA[");
+        out.write(node.getNodeValue());
+        out.write("]]>");
+        break;
+      case Node.COMMENT_NODE:
+        closeStartTag();
+        out.write("<!--");
+        out.write(node.getNodeValue());
+        out.write("-->");
+        break;
+      case Node.PROCESSING_INSTRUCTION_NODE:
+        closeStartTag();
+        out.write("<?");
+        out.write(node.getNodeName());
+        out.write(' ');
+        out.write(node.getNodeValue());
+        out.write("?>");
+        break;
+      default:
+        break;
+    }
+  }
+
+  private void closeStartTag() throws IOException {
+    if (!startTagOpen) return;
+    writeAttributes();
+    out.write('>');
+    startTagOpen = false;
+  }
+
+  private void writeAttributes() throws IOException {
+    if (attributes.size() == 0) return;
+    List<String> names = new ArrayList<String>(attributes.keySet());
+    // the default namespace is declared last, as in a DOM serialization
+    if (names.remove("xmlns")) names.add("xmlns");
+    for (String name : names) {
+      out.write(' ');
+      out.write(name);
+      out.write("=\"");
+      escape(attributes.get(name), true);
+      out.write('"');
+    }
+    attributes.clear();
+  }
+
+  private void escape(String s, boolean attribute) throws IOException {
+    int start = 0;
+    for (int i=0; i<s.length(); i++) {
+      char c = s.charAt(i);
+      String entity = null;
+      switch (c) {
+        case '&':
+          entity = "&amp;";
+          break;
+        case '<':
+          entity = "&lt;";
+          break;
+        case '>':
+          entity = "&gt;";
+          break;
+        case '"':
+          if (attribute) entity = "&quot;";
+          break;
+        case '\r':
+          entity = "&#13;";
+          break;
+        case '\n':
+          if (attribute) entity = "&#10;";
+          break;
+        case '\t':
+          if (attribute) entity = "&#9;";
+          break;
+        default:
+          break;
+      }
+      if (entity != null) {
+        out.write(s, start, i - start);
+        out.write(entity);
+        start = i + 1;
+      }
+    }
+    out.write(s, start, s.length() - start);
+  }
+
+}
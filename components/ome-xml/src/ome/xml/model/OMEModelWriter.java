@@ -0,0 +1,3593 @@
+/*
+ * ome.xml.model.OMEModelWriter
+ *
+ *-----------------------------------------------------------------------------
+ *
+ *  Copyright (C) @year@ Open Microscopy Environment
+ *      Massachusetts Institute of Technology,
+ *      National Institutes of Health,
+ *      University of Dundee,
+ *      University of Wisconsin-Madison
+ *
+ *
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with this library; if not, write to the Free Software
+ *    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *-----------------------------------------------------------------------------
+ */
+
+/*-----------------------------------------------------------------------------
+ *
+ * THIS IS AUTOMATICALLY GENERATED CODE.  DO NOT MODIFY.
+ * Created by OMEModelWriterAutogen from the model classes in this package
+ *
+ *-----------------------------------------------------------------------------
+ */
+
+package ome.xml.model;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+
+/**
+ * Streams the OME-XML model to a character or byte stream, without
+ * building a DOM.
+ */
+public class OMEModelWriter extends AbstractOMEModelWriter
+{
+	// -- Constructors --
+
+	public OMEModelWriter(OutputStream out) throws IOException
+	{
+		super(out);
+	}
+
+	public OMEModelWriter(Writer out)
+	{
+		super(out);
+	}
+
+	// -- AbstractOMEModelWriter API methods --
+
+	public void writeObject(OMEModelObject o) throws IOException
+	{
+		if (o instanceof Arc)
+		{
+			writeArc((Arc) o);
+			return;
+		}
+		if (o instanceof DetectorSettings)
+		{
+			writeDetectorSettings((DetectorSettings) o);
+			return;
+		}
+		if (o instanceof EmissionFilterRef)
+		{
+			writeEmissionFilterRef((EmissionFilterRef) o);
+			return;
+		}
+		if (o instanceof ExcitationFilterRef)
+		{
+			writeExcitationFilterRef((ExcitationFilterRef) o);
+			return;
+		}
+		if (o instanceof Filament)
+		{
+			writeFilament((Filament) o);
+			return;
+		}
+		if (o instanceof Laser)
+		{
+			writeLaser((Laser) o);
+			return;
+		}
+		if (o instanceof LightEmittingDiode)
+		{
+			writeLightEmittingDiode((LightEmittingDiode) o);
+			return;
+		}
+		if (o instanceof LightSourceSettings)
+		{
+			writeLightSourceSettings((LightSourceSettings) o);
+			return;
+		}
+		if (o instanceof ObjectiveSettings)
+		{
+			writeObjectiveSettings((ObjectiveSettings) o);
+			return;
+		}
+		if (o instanceof AnnotationRef)
+		{
+			writeAnnotationRef((AnnotationRef) o);
+			return;
+		}
+		if (o instanceof BooleanAnnotation)
+		{
+			writeBooleanAnnotation((BooleanAnnotation) o);
+			return;
+		}
+		if (o instanceof ChannelRef)
+		{
+			writeChannelRef((ChannelRef) o);
+			return;
+		}
+		if (o instanceof CommentAnnotation)
+		{
+			writeCommentAnnotation((CommentAnnotation) o);
+			return;
+		}
+		if (o instanceof Contact)
+		{
+			writeContact((Contact) o);
+			return;
+		}
+		if (o instanceof DatasetRef)
+		{
+			writeDatasetRef((DatasetRef) o);
+			return;
+		}
+		if (o instanceof Detector)
+		{
+			writeDetector((Detector) o);
+			return;
+		}
+		if (o instanceof Dichroic)
+		{
+			writeDichroic((Dichroic) o);
+			return;
+		}
+		if (o instanceof DichroicRef)
+		{
+			writeDichroicRef((DichroicRef) o);
+			return;
+		}
+		if (o instanceof DoubleAnnotation)
+		{
+			writeDoubleAnnotation((DoubleAnnotation) o);
+			return;
+		}
+		if (o instanceof Ellipse)
+		{
+			writeEllipse((Ellipse) o);
+			return;
+		}
+		if (o instanceof ExperimentRef)
+		{
+			writeExperimentRef((ExperimentRef) o);
+			return;
+		}
+		if (o instanceof ExperimenterRef)
+		{
+			writeExperimenterRef((ExperimenterRef) o);
+			return;
+		}
+		if (o instanceof FileAnnotation)
+		{
+			writeFileAnnotation((FileAnnotation) o);
+			return;
+		}
+		if (o instanceof Filter)
+		{
+			writeFilter((Filter) o);
+			return;
+		}
+		if (o instanceof FilterRef)
+		{
+			writeFilterRef((FilterRef) o);
+			return;
+		}
+		if (o instanceof FilterSet)
+		{
+			writeFilterSet((FilterSet) o);
+			return;
+		}
+		if (o instanceof FilterSetRef)
+		{
+			writeFilterSetRef((FilterSetRef) o);
+			return;
+		}
+		if (o instanceof GroupRef)
+		{
+			writeGroupRef((GroupRef) o);
+			return;
+		}
+		if (o instanceof ImageRef)
+		{
+			writeImageRef((ImageRef) o);
+			return;
+		}
+		if (o instanceof InstrumentRef)
+		{
+			writeInstrumentRef((InstrumentRef) o);
+			return;
+		}
+		if (o instanceof Leader)
+		{
+			writeLeader((Leader) o);
+			return;
+		}
+		if (o instanceof Line)
+		{
+			writeLine((Line) o);
+			return;
+		}
+		if (o instanceof ListAnnotation)
+		{
+			writeListAnnotation((ListAnnotation) o);
+			return;
+		}
+		if (o instanceof LongAnnotation)
+		{
+			writeLongAnnotation((LongAnnotation) o);
+			return;
+		}
+		if (o instanceof Mask)
+		{
+			writeMask((Mask) o);
+			return;
+		}
+		if (o instanceof MicrobeamManipulationRef)
+		{
+			writeMicrobeamManipulationRef((MicrobeamManipulationRef) o);
+			return;
+		}
+		if (o instanceof Microscope)
+		{
+			writeMicroscope((Microscope) o);
+			return;
+		}
+		if (o instanceof OTFRef)
+		{
+			writeOTFRef((OTFRef) o);
+			return;
+		}
+		if (o instanceof Objective)
+		{
+			writeObjective((Objective) o);
+			return;
+		}
+		if (o instanceof Path)
+		{
+			writePath((Path) o);
+			return;
+		}
+		if (o instanceof PlateRef)
+		{
+			writePlateRef((PlateRef) o);
+			return;
+		}
+		if (o instanceof Point)
+		{
+			writePoint((Point) o);
+			return;
+		}
+		if (o instanceof Polyline)
+		{
+			writePolyline((Polyline) o);
+			return;
+		}
+		if (o instanceof ProjectRef)
+		{
+			writeProjectRef((ProjectRef) o);
+			return;
+		}
+		if (o instanceof Pump)
+		{
+			writePump((Pump) o);
+			return;
+		}
+		if (o instanceof ROIRef)
+		{
+			writeROIRef((ROIRef) o);
+			return;
+		}
+		if (o instanceof ReagentRef)
+		{
+			writeReagentRef((ReagentRef) o);
+			return;
+		}
+		if (o instanceof Rectangle)
+		{
+			writeRectangle((Rectangle) o);
+			return;
+		}
+		if (o instanceof ScreenRef)
+		{
+			writeScreenRef((ScreenRef) o);
+			return;
+		}
+		if (o instanceof TagAnnotation)
+		{
+			writeTagAnnotation((TagAnnotation) o);
+			return;
+		}
+		if (o instanceof TermAnnotation)
+		{
+			writeTermAnnotation((TermAnnotation) o);
+			return;
+		}
+		if (o instanceof Text)
+		{
+			writeText((Text) o);
+			return;
+		}
+		if (o instanceof TimestampAnnotation)
+		{
+			writeTimestampAnnotation((TimestampAnnotation) o);
+			return;
+		}
+		if (o instanceof WellSampleRef)
+		{
+			writeWellSampleRef((WellSampleRef) o);
+			return;
+		}
+		if (o instanceof XMLAnnotation)
+		{
+			writeXMLAnnotation((XMLAnnotation) o);
+			return;
+		}
+		if (o instanceof BinData)
+		{
+			writeBinData((BinData) o);
+			return;
+		}
+		if (o instanceof BinaryFile)
+		{
+			writeBinaryFile((BinaryFile) o);
+			return;
+		}
+		if (o instanceof BinaryOnly)
+		{
+			writeBinaryOnly((BinaryOnly) o);
+			return;
+		}
+		if (o instanceof Channel)
+		{
+			writeChannel((Channel) o);
+			return;
+		}
+		if (o instanceof Dataset)
+		{
+			writeDataset((Dataset) o);
+			return;
+		}
+		if (o instanceof Experiment)
+		{
+			writeExperiment((Experiment) o);
+			return;
+		}
+		if (o instanceof Experimenter)
+		{
+			writeExperimenter((Experimenter) o);
+			return;
+		}
+		if (o instanceof External)
+		{
+			writeExternal((External) o);
+			return;
+		}
+		if (o instanceof Group)
+		{
+			writeGroup((Group) o);
+			return;
+		}
+		if (o instanceof Image)
+		{
+			writeImage((Image) o);
+			return;
+		}
+		if (o instanceof ImagingEnvironment)
+		{
+			writeImagingEnvironment((ImagingEnvironment) o);
+			return;
+		}
+		if (o instanceof Instrument)
+		{
+			writeInstrument((Instrument) o);
+			return;
+		}
+		if (o instanceof LightPath)
+		{
+			writeLightPath((LightPath) o);
+			return;
+		}
+		if (o instanceof MetadataOnly)
+		{
+			writeMetadataOnly((MetadataOnly) o);
+			return;
+		}
+		if (o instanceof MicrobeamManipulation)
+		{
+			writeMicrobeamManipulation((MicrobeamManipulation) o);
+			return;
+		}
+		if (o instanceof OME)
+		{
+			writeOME((OME) o);
+			return;
+		}
+		if (o instanceof OTF)
+		{
+			writeOTF((OTF) o);
+			return;
+		}
+		if (o instanceof Pixels)
+		{
+			writePixels((Pixels) o);
+			return;
+		}
+		if (o instanceof Plane)
+		{
+			writePlane((Plane) o);
+			return;
+		}
+		if (o instanceof Plate)
+		{
+			writePlate((Plate) o);
+			return;
+		}
+		if (o instanceof PlateAcquisition)
+		{
+			writePlateAcquisition((PlateAcquisition) o);
+			return;
+		}
+		if (o instanceof Project)
+		{
+			writeProject((Project) o);
+			return;
+		}
+		if (o instanceof ROI)
+		{
+			writeROI((ROI) o);
+			return;
+		}
+		if (o instanceof Reagent)
+		{
+			writeReagent((Reagent) o);
+			return;
+		}
+		if (o instanceof Screen)
+		{
+			writeScreen((Screen) o);
+			return;
+		}
+		if (o instanceof StageLabel)
+		{
+			writeStageLabel((StageLabel) o);
+			return;
+		}
+		if (o instanceof StructuredAnnotations)
+		{
+			writeStructuredAnnotations((StructuredAnnotations) o);
+			return;
+		}
+		if (o instanceof TiffData)
+		{
+			writeTiffData((TiffData) o);
+			return;
+		}
+		if (o instanceof TransmittanceRange)
+		{
+			writeTransmittanceRange((TransmittanceRange) o);
+			return;
+		}
+		if (o instanceof UUID)
+		{
+			writeUUID((UUID) o);
+			return;
+		}
+		if (o instanceof Union)
+		{
+			writeUnion((Union) o);
+			return;
+		}
+		if (o instanceof Well)
+		{
+			writeWell((Well) o);
+			return;
+		}
+		if (o instanceof WellSample)
+		{
+			writeWellSample((WellSample) o);
+			return;
+		}
+		writeDOM(o);
+	}
+
+	// -- OMEModelWriter API methods --
+
+	public void writeAnnotation(Annotation o) throws IOException
+	{
+		if (o instanceof BooleanAnnotation)
+		{
+			writeBooleanAnnotation((BooleanAnnotation) o);
+			return;
+		}
+		if (o instanceof CommentAnnotation)
+		{
+			writeCommentAnnotation((CommentAnnotation) o);
+			return;
+		}
+		if (o instanceof DoubleAnnotation)
+		{
+			writeDoubleAnnotation((DoubleAnnotation) o);
+			return;
+		}
+		if (o instanceof FileAnnotation)
+		{
+			writeFileAnnotation((FileAnnotation) o);
+			return;
+		}
+		if (o instanceof ListAnnotation)
+		{
+			writeListAnnotation((ListAnnotation) o);
+			return;
+		}
+		if (o instanceof LongAnnotation)
+		{
+			writeLongAnnotation((LongAnnotation) o);
+			return;
+		}
+		if (o instanceof TagAnnotation)
+		{
+			writeTagAnnotation((TagAnnotation) o);
+			return;
+		}
+		if (o instanceof TermAnnotation)
+		{
+			writeTermAnnotation((TermAnnotation) o);
+			return;
+		}
+		if (o instanceof TimestampAnnotation)
+		{
+			writeTimestampAnnotation((TimestampAnnotation) o);
+			return;
+		}
+		if (o instanceof XMLAnnotation)
+		{
+			writeXMLAnnotation((XMLAnnotation) o);
+			return;
+		}
+		writeDOM(o);
+	}
+
+	public void writeAnnotationRef(AnnotationRef o) throws IOException
+	{
+		startElement(AnnotationRef.NAMESPACE, "AnnotationRef");
+		writeAnnotationRefAttributes(o);
+		endElement("AnnotationRef");
+	}
+
+	public void writeArc(Arc o) throws IOException
+	{
+		startElement(LightSource.NAMESPACE, "LightSource");
+		writeLightSourceAttributes(o);
+		writeManufacturerSpecAttributes(o);
+		startElement(Arc.NAMESPACE, "Arc");
+		writeArcAttributes(o);
+		endElement("Arc");
+		endElement("LightSource");
+	}
+
+	public void writeBinData(BinData o) throws IOException
+	{
+		startElement(BinData.NAMESPACE, "BinData");
+		writeBinDataAttributes(o);
+		endElement("BinData");
+	}
+
+	public void writeBinaryFile(BinaryFile o) throws IOException
+	{
+		startElement(BinaryFile.NAMESPACE, "BinaryFile");
+		writeBinaryFileAttributes(o);
+		writeBinaryFileContent(o);
+		endElement("BinaryFile");
+	}
+
+	public void writeBinaryOnly(BinaryOnly o) throws IOException
+	{
+		startElement(BinaryOnly.NAMESPACE, "BinaryOnly");
+		writeBinaryOnlyAttributes(o);
+		endElement("BinaryOnly");
+	}
+
+	public void writeBooleanAnnotation(BooleanAnnotation o) throws IOException
+	{
+		startElement(BooleanAnnotation.NAMESPACE, "BooleanAnnotation");
+		writeAnnotationAttributes(o);
+		writeBooleanAnnotationContent(o);
+		writeAnnotationContent(o);
+		endElement("BooleanAnnotation");
+	}
+
+	public void writeChannel(Channel o) throws IOException
+	{
+		startElement(Channel.NAMESPACE, "Channel");
+		writeChannelAttributes(o);
+		writeChannelContent(o);
+		endElement("Channel");
+	}
+
+	public void writeChannelRef(ChannelRef o) throws IOException
+	{
+		startElement(ChannelRef.NAMESPACE, "ChannelRef");
+		writeChannelRefAttributes(o);
+		endElement("ChannelRef");
+	}
+
+	public void writeCommentAnnotation(CommentAnnotation o) throws IOException
+	{
+		startElement(CommentAnnotation.NAMESPACE, "CommentAnnotation");
+		writeAnnotationAttributes(o);
+		writeCommentAnnotationContent(o);
+		writeAnnotationContent(o);
+		endElement("CommentAnnotation");
+	}
+
+	public void writeContact(Contact o) throws IOException
+	{
+		startElement(Contact.NAMESPACE, "Contact");
+		writeContactAttributes(o);
+		endElement("Contact");
+	}
+
+	public void writeDataset(Dataset o) throws IOException
+	{
+		startElement(Dataset.NAMESPACE, "Dataset");
+		writeDatasetAttributes(o);
+		writeDatasetContent(o);
+		endElement("Dataset");
+	}
+
+	public void writeDatasetRef(DatasetRef o) throws IOException
+	{
+		startElement(DatasetRef.NAMESPACE, "DatasetRef");
+		writeDatasetRefAttributes(o);
+		endElement("DatasetRef");
+	}
+
+	public void writeDetector(Detector o) throws IOException
+	{
+		startElement(Detector.NAMESPACE, "Detector");
+		writeDetectorAttributes(o);
+		writeManufacturerSpecAttributes(o);
+		endElement("Detector");
+	}
+
+	public void writeDetectorSettings(DetectorSettings o) throws IOException
+	{
+		startElement(DetectorSettings.NAMESPACE, "DetectorSettings");
+		writeDetectorSettingsAttributes(o);
+		endElement("DetectorSettings");
+	}
+
+	public void writeDichroic(Dichroic o) throws IOException
+	{
+		startElement(Dichroic.NAMESPACE, "Dichroic");
+		writeDichroicAttributes(o);
+		writeManufacturerSpecAttributes(o);
+		endElement("Dichroic");
+	}
+
+	public void writeDichroicRef(DichroicRef o) throws IOException
+	{
+		startElement(DichroicRef.NAMESPACE, "DichroicRef");
+		writeDichroicRefAttributes(o);
+		endElement("DichroicRef");
+	}
+
+	public void writeDoubleAnnotation(DoubleAnnotation o) throws IOException
+	{
+		startElement(DoubleAnnotation.NAMESPACE, "DoubleAnnotation");
+		writeAnnotationAttributes(o);
+		writeDoubleAnnotationContent(o);
+		writeAnnotationContent(o);
+		endElement("DoubleAnnotation");
+	}
+
+	public void writeEllipse(Ellipse o) throws IOException
+	{
+		startElement(Shape.NAMESPACE, "Shape");
+		writeShapeAttributes(o);
+		startElement(Ellipse.NAMESPACE, "Ellipse");
+		writeEllipseAttributes(o);
+		endElement("Ellipse");
+		writeShapeContent(o);
+		endElement("Shape");
+	}
+
+	public void writeEmissionFilterRef(EmissionFilterRef o) throws IOException
+	{
+		startElement(EmissionFilterRef.NAMESPACE, "EmissionFilterRef");
+		writeFilterRefAttributes(o);
+		endElement("EmissionFilterRef");
+	}
+
+	public void writeExcitationFilterRef(ExcitationFilterRef o) throws IOException
+	{
+		startElement(ExcitationFilterRef.NAMESPACE, "ExcitationFilterRef");
+		writeFilterRefAttributes(o);
+		endElement("ExcitationFilterRef");
+	}
+
+	public void writeExperiment(Experiment o) throws IOException
+	{
+		startElement(Experiment.NAMESPACE, "Experiment");
+		writeExperimentAttributes(o);
+		writeExperimentContent(o);
+		endElement("Experiment");
+	}
+
+	public void writeExperimentRef(ExperimentRef o) throws IOException
+	{
+		startElement(ExperimentRef.NAMESPACE, "ExperimentRef");
+		writeExperimentRefAttributes(o);
+		endElement("ExperimentRef");
+	}
+
+	public void writeExperimenter(Experimenter o) throws IOException
+	{
+		startElement(Experimenter.NAMESPACE, "Experimenter");
+		writeExperimenterAttributes(o);
+		writeExperimenterContent(o);
+		endElement("Experimenter");
+	}
+
+	public void writeExperimenterRef(ExperimenterRef o) throws IOException
+	{
+		startElement(ExperimenterRef.NAMESPACE, "ExperimenterRef");
+		writeExperimenterRefAttributes(o);
+		endElement("ExperimenterRef");
+	}
+
+	public void writeExternal(External o) throws IOException
+	{
+		startElement(External.NAMESPACE, "External");
+		writeExternalAttributes(o);
+		endElement("External");
+	}
+
+	public void writeFilament(Filament o) throws IOException
+	{
+		startElement(LightSource.NAMESPACE, "LightSource");
+		writeLightSourceAttributes(o);
+		writeManufacturerSpecAttributes(o);
+		startElement(Filament.NAMESPACE, "Filament");
+		writeFilamentAttributes(o);
+		endElement("Filament");
+		endElement("LightSource");
+	}
+
+	public void writeFileAnnotation(FileAnnotation o) throws IOException
+	{
+		startElement(FileAnnotation.NAMESPACE, "FileAnnotation");
+		writeAnnotationAttributes(o);
+		writeFileAnnotationContent(o);
+		writeAnnotationContent(o);
+		endElement("FileAnnotation");
+	}
+
+	public void writeFilter(Filter o) throws IOException
+	{
+		startElement(Filter.NAMESPACE, "Filter");
+		writeFilterAttributes(o);
+		writeManufacturerSpecAttributes(o);
+		writeFilterContent(o);
+		endElement("Filter");
+	}
+
+	public void writeFilterRef(FilterRef o) throws IOException
+	{
+		if (o instanceof EmissionFilterRef)
+		{
+			writeEmissionFilterRef((EmissionFilterRef) o);
+			return;
+		}
+		if (o instanceof ExcitationFilterRef)
+		{
+			writeExcitationFilterRef((ExcitationFilterRef) o);
+			return;
+		}
+		startElement(FilterRef.NAMESPACE, "FilterRef");
+		writeFilterRefAttributes(o);
+		endElement("FilterRef");
+	}
+
+	public void writeFilterSet(FilterSet o) throws IOException
+	{
+		startElement(FilterSet.NAMESPACE, "FilterSet");
+		writeFilterSetAttributes(o);
+		writeManufacturerSpecAttributes(o);
+		writeFilterSetContent(o);
+		endElement("FilterSet");
+	}
+
+	public void writeFilterSetRef(FilterSetRef o) throws IOException
+	{
+		startElement(FilterSetRef.NAMESPACE, "FilterSetRef");
+		writeFilterSetRefAttributes(o);
+		endElement("FilterSetRef");
+	}
+
+	public void writeGroup(Group o) throws IOException
+	{
+		startElement(Group.NAMESPACE, "Group");
+		writeGroupAttributes(o);
+		writeGroupContent(o);
+		endElement("Group");
+	}
+
+	public void writeGroupRef(GroupRef o) throws IOException
+	{
+		startElement(GroupRef.NAMESPACE, "GroupRef");
+		writeGroupRefAttributes(o);
+		endElement("GroupRef");
+	}
+
+	public void writeImage(Image o) throws IOException
+	{
+		startElement(Image.NAMESPACE, "Image");
+		writeImageAttributes(o);
+		writeImageContent(o);
+		endElement("Image");
+	}
+
+	public void writeImageRef(ImageRef o) throws IOException
+	{
+		startElement(ImageRef.NAMESPACE, "ImageRef");
+		writeImageRefAttributes(o);
+		endElement("ImageRef");
+	}
+
+	public void writeImagingEnvironment(ImagingEnvironment o) throws IOException
+	{
+		startElement(ImagingEnvironment.NAMESPACE, "ImagingEnvironment");
+		writeImagingEnvironmentAttributes(o);
+		endElement("ImagingEnvironment");
+	}
+
+	public void writeInstrument(Instrument o) throws IOException
+	{
+		startElement(Instrument.NAMESPACE, "Instrument");
+		writeInstrumentAttributes(o);
+		writeInstrumentContent(o);
+		endElement("Instrument");
+	}
+
+	public void writeInstrumentRef(InstrumentRef o) throws IOException
+	{
+		startElement(InstrumentRef.NAMESPACE, "InstrumentRef");
+		writeInstrumentRefAttributes(o);
+		endElement("InstrumentRef");
+	}
+
+	public void writeLaser(Laser o) throws IOException
+	{
+		startElement(LightSource.NAMESPACE, "LightSource");
+		writeLightSourceAttributes(o);
+		writeManufacturerSpecAttributes(o);
+		startElement(Laser.NAMESPACE, "Laser");
+		writeLaserAttributes(o);
+		writeLaserContent(o);
+		endElement("Laser");
+		endElement("LightSource");
+	}
+
+	public void writeLeader(Leader o) throws IOException
+	{
+		startElement(Leader.NAMESPACE, "Leader");
+		writeLeaderAttributes(o);
+		endElement("Leader");
+	}
+
+	public void writeLightEmittingDiode(LightEmittingDiode o) throws IOException
+	{
+		startElement(LightSource.NAMESPACE, "LightSource");
+		writeLightSourceAttributes(o);
+		writeManufacturerSpecAttributes(o);
+		startElement(LightEmittingDiode.NAMESPACE, "LightEmittingDiode");
+		endElement("LightEmittingDiode");
+		endElement("LightSource");
+	}
+
+	public void writeLightPath(LightPath o) throws IOException
+	{
+		startElement(LightPath.NAMESPACE, "LightPath");
+		writeLightPathContent(o);
+		endElement("LightPath");
+	}
+
+	public void writeLightSource(LightSource o) throws IOException
+	{
+		if (o instanceof Arc)
+		{
+			writeArc((Arc) o);
+			return;
+		}
+		if (o instanceof Filament)
+		{
+			writeFilament((Filament) o);
+			return;
+		}
+		if (o instanceof Laser)
+		{
+			writeLaser((Laser) o);
+			return;
+		}
+		if (o instanceof LightEmittingDiode)
+		{
+			writeLightEmittingDiode((LightEmittingDiode) o);
+			return;
+		}
+		writeDOM(o);
+	}
+
+	public void writeLightSourceSettings(LightSourceSettings o) throws IOException
+	{
+		startElement(LightSourceSettings.NAMESPACE, "LightSourceSettings");
+		writeLightSourceSettingsAttributes(o);
+		endElement("LightSourceSettings");
+	}
+
+	public void writeLine(Line o) throws IOException
+	{
+		startElement(Shape.NAMESPACE, "Shape");
+		writeShapeAttributes(o);
+		startElement(Line.NAMESPACE, "Line");
+		writeLineAttributes(o);
+		endElement("Line");
+		writeShapeContent(o);
+		endElement("Shape");
+	}
+
+	public void writeListAnnotation(ListAnnotation o) throws IOException
+	{
+		startElement(ListAnnotation.NAMESPACE, "ListAnnotation");
+		writeAnnotationAttributes(o);
+		writeAnnotationContent(o);
+		endElement("ListAnnotation");
+	}
+
+	public void writeLongAnnotation(LongAnnotation o) throws IOException
+	{
+		startElement(LongAnnotation.NAMESPACE, "LongAnnotation");
+		writeAnnotationAttributes(o);
+		writeLongAnnotationContent(o);
+		writeAnnotationContent(o);
+		endElement("LongAnnotation");
+	}
+
+	public void writeManufacturerSpec(ManufacturerSpec o) throws IOException
+	{
+		if (o instanceof Detector)
+		{
+			writeDetector((Detector) o);
+			return;
+		}
+		if (o instanceof Dichroic)
+		{
+			writeDichroic((Dichroic) o);
+			return;
+		}
+		if (o instanceof Filter)
+		{
+			writeFilter((Filter) o);
+			return;
+		}
+		if (o instanceof FilterSet)
+		{
+			writeFilterSet((FilterSet) o);
+			return;
+		}
+		if (o instanceof Microscope)
+		{
+			writeMicroscope((Microscope) o);
+			return;
+		}
+		if (o instanceof Objective)
+		{
+			writeObjective((Objective) o);
+			return;
+		}
+		writeDOM(o);
+	}
+
+	public void writeMask(Mask o) throws IOException
+	{
+		startElement(Shape.NAMESPACE, "Shape");
+		writeShapeAttributes(o);
+		startElement(Mask.NAMESPACE, "Mask");
+		writeMaskAttributes(o);
+		writeMaskContent(o);
+		endElement("Mask");
+		writeShapeContent(o);
+		endElement("Shape");
+	}
+
+	public void writeMetadataOnly(MetadataOnly o) throws IOException
+	{
+		startElement(MetadataOnly.NAMESPACE, "MetadataOnly");
+		endElement("MetadataOnly");
+	}
+
+	public void writeMicrobeamManipulation(MicrobeamManipulation o) throws IOException
+	{
+		startElement(MicrobeamManipulation.NAMESPACE, "MicrobeamManipulation");
+		writeMicrobeamManipulationAttributes(o);
+		writeMicrobeamManipulationContent(o);
+		endElement("MicrobeamManipulation");
+	}
+
+	public void writeMicrobeamManipulationRef(MicrobeamManipulationRef o) throws IOException
+	{
+		startElement(MicrobeamManipulationRef.NAMESPACE, "MicrobeamManipulationRef");
+		writeMicrobeamManipulationRefAttributes(o);
+		endElement("MicrobeamManipulationRef");
+	}
+
+	public void writeMicroscope(Microscope o) throws IOException
+	{
+		startElement(Microscope.NAMESPACE, "Microscope");
+		writeMicroscopeAttributes(o);
+		writeManufacturerSpecAttributes(o);
+		endElement("Microscope");
+	}
+
+	public void writeOME(OME o) throws IOException
+	{
+		startElement(OME.NAMESPACE, "OME");
+		writeOMEAttributes(o);
+		writeOMEContent(o);
+		endElement("OME");
+	}
+
+	public void writeOTF(OTF o) throws IOException
+	{
+		startElement(OTF.NAMESPACE, "OTF");
+		writeOTFAttributes(o);
+		writeOTFContent(o);
+		endElement("OTF");
+	}
+
+	public void writeOTFRef(OTFRef o) throws IOException
+	{
+		startElement(OTFRef.NAMESPACE, "OTFRef");
+		writeOTFRefAttributes(o);
+		endElement("OTFRef");
+	}
+
+	public void writeObjective(Objective o) throws IOException
+	{
+		startElement(Objective.NAMESPACE, "Objective");
+		writeObjectiveAttributes(o);
+		writeManufacturerSpecAttributes(o);
+		endElement("Objective");
+	}
+
+	public void writeObjectiveSettings(ObjectiveSettings o) throws IOException
+	{
+		startElement(ObjectiveSettings.NAMESPACE, "ObjectiveSettings");
+		writeObjectiveSettingsAttributes(o);
+		endElement("ObjectiveSettings");
+	}
+
+	public void writePath(Path o) throws IOException
+	{
+		startElement(Shape.NAMESPACE, "Shape");
+		writeShapeAttributes(o);
+		startElement(Path.NAMESPACE, "Path");
+		writePathAttributes(o);
+		endElement("Path");
+		writeShapeContent(o);
+		endElement("Shape");
+	}
+
+	public void writePixels(Pixels o) throws IOException
+	{
+		startElement(Pixels.NAMESPACE, "Pixels");
+		writePixelsAttributes(o);
+		writePixelsContent(o);
+		endElement("Pixels");
+	}
+
+	public void writePlane(Plane o) throws IOException
+	{
+		startElement(Plane.NAMESPACE, "Plane");
+		writePlaneAttributes(o);
+		writePlaneContent(o);
+		endElement("Plane");
+	}
+
+	public void writePlate(Plate o) throws IOException
+	{
+		startElement(Plate.NAMESPACE, "Plate");
+		writePlateAttributes(o);
+		writePlateContent(o);
+		endElement("Plate");
+	}
+
+	public void writePlateAcquisition(PlateAcquisition o) throws IOException
+	{
+		startElement(PlateAcquisition.NAMESPACE, "PlateAcquisition");
+		writePlateAcquisitionAttributes(o);
+		writePlateAcquisitionContent(o);
+		endElement("PlateAcquisition");
+	}
+
+	public void writePlateRef(PlateRef o) throws IOException
+	{
+		startElement(PlateRef.NAMESPACE, "PlateRef");
+		writePlateRefAttributes(o);
+		endElement("PlateRef");
+	}
+
+	public void writePoint(Point o) throws IOException
+	{
+		startElement(Shape.NAMESPACE, "Shape");
+		writeShapeAttributes(o);
+		startElement(Point.NAMESPACE, "Point");
+		writePointAttributes(o);
+		endElement("Point");
+		writeShapeContent(o);
+		endElement("Shape");
+	}
+
+	public void writePolyline(Polyline o) throws IOException
+	{
+		startElement(Shape.NAMESPACE, "Shape");
+		writeShapeAttributes(o);
+		startElement(Polyline.NAMESPACE, "Polyline");
+		writePolylineAttributes(o);
+		endElement("Polyline");
+		writeShapeContent(o);
+		endElement("Shape");
+	}
+
+	public void writeProject(Project o) throws IOException
+	{
+		startElement(Project.NAMESPACE, "Project");
+		writeProjectAttributes(o);
+		writeProjectContent(o);
+		endElement("Project");
+	}
+
+	public void writeProjectRef(ProjectRef o) throws IOException
+	{
+		startElement(ProjectRef.NAMESPACE, "ProjectRef");
+		writeProjectRefAttributes(o);
+		endElement("ProjectRef");
+	}
+
+	public void writePump(Pump o) throws IOException
+	{
+		startElement(Pump.NAMESPACE, "Pump");
+		writePumpAttributes(o);
+		endElement("Pump");
+	}
+
+	public void writeROI(ROI o) throws IOException
+	{
+		startElement(ROI.NAMESPACE, "ROI");
+		writeROIAttributes(o);
+		writeROIContent(o);
+		endElement("ROI");
+	}
+
+	public void writeROIRef(ROIRef o) throws IOException
+	{
+		startElement(ROIRef.NAMESPACE, "ROIRef");
+		writeROIRefAttributes(o);
+		endElement("ROIRef");
+	}
+
+	public void writeReagent(Reagent o) throws IOException
+	{
+		startElement(Reagent.NAMESPACE, "Reagent");
+		writeReagentAttributes(o);
+		writeReagentContent(o);
+		endElement("Reagent");
+	}
+
+	public void writeReagentRef(ReagentRef o) throws IOException
+	{
+		startElement(ReagentRef.NAMESPACE, "ReagentRef");
+		writeReagentRefAttributes(o);
+		endElement("ReagentRef");
+	}
+
+	public void writeRectangle(Rectangle o) throws IOException
+	{
+		startElement(Shape.NAMESPACE, "Shape");
+		writeShapeAttributes(o);
+		startElement(Rectangle.NAMESPACE, "Rectangle");
+		writeRectangleAttributes(o);
+		endElement("Rectangle");
+		writeShapeContent(o);
+		endElement("Shape");
+	}
+
+	public void writeReference(Reference o) throws IOException
+	{
+		if (o instanceof AnnotationRef)
+		{
+			writeAnnotationRef((AnnotationRef) o);
+			return;
+		}
+		if (o instanceof ChannelRef)
+		{
+			writeChannelRef((ChannelRef) o);
+			return;
+		}
+		if (o instanceof Contact)
+		{
+			writeContact((Contact) o);
+			return;
+		}
+		if (o instanceof DatasetRef)
+		{
+			writeDatasetRef((DatasetRef) o);
+			return;
+		}
+		if (o instanceof DichroicRef)
+		{
+			writeDichroicRef((DichroicRef) o);
+			return;
+		}
+		if (o instanceof ExperimentRef)
+		{
+			writeExperimentRef((ExperimentRef) o);
+			return;
+		}
+		if (o instanceof ExperimenterRef)
+		{
+			writeExperimenterRef((ExperimenterRef) o);
+			return;
+		}
+		if (o instanceof FilterRef)
+		{
+			writeFilterRef((FilterRef) o);
+			return;
+		}
+		if (o instanceof FilterSetRef)
+		{
+			writeFilterSetRef((FilterSetRef) o);
+			return;
+		}
+		if (o instanceof GroupRef)
+		{
+			writeGroupRef((GroupRef) o);
+			return;
+		}
+		if (o instanceof ImageRef)
+		{
+			writeImageRef((ImageRef) o);
+			return;
+		}
+		if (o instanceof InstrumentRef)
+		{
+			writeInstrumentRef((InstrumentRef) o);
+			return;
+		}
+		if (o instanceof Leader)
+		{
+			writeLeader((Leader) o);
+			return;
+		}
+		if (o instanceof MicrobeamManipulationRef)
+		{
+			writeMicrobeamManipulationRef((MicrobeamManipulationRef) o);
+			return;
+		}
+		if (o instanceof OTFRef)
+		{
+			writeOTFRef((OTFRef) o);
+			return;
+		}
+		if (o instanceof PlateRef)
+		{
+			writePlateRef((PlateRef) o);
+			return;
+		}
+		if (o instanceof ProjectRef)
+		{
+			writeProjectRef((ProjectRef) o);
+			return;
+		}
+		if (o instanceof Pump)
+		{
+			writePump((Pump) o);
+			return;
+		}
+		if (o instanceof ROIRef)
+		{
+			writeROIRef((ROIRef) o);
+			return;
+		}
+		if (o instanceof ReagentRef)
+		{
+			writeReagentRef((ReagentRef) o);
+			return;
+		}
+		if (o instanceof ScreenRef)
+		{
+			writeScreenRef((ScreenRef) o);
+			return;
+		}
+		if (o instanceof WellSampleRef)
+		{
+			writeWellSampleRef((WellSampleRef) o);
+			return;
+		}
+		writeDOM(o);
+	}
+
+	public void writeScreen(Screen o) throws IOException
+	{
+		startElement(Screen.NAMESPACE, "Screen");
+		writeScreenAttributes(o);
+		writeScreenContent(o);
+		endElement("Screen");
+	}
+
+	public void writeScreenRef(ScreenRef o) throws IOException
+	{
+		startElement(ScreenRef.NAMESPACE, "ScreenRef");
+		writeScreenRefAttributes(o);
+		endElement("ScreenRef");
+	}
+
+	public void writeSettings(Settings o) throws IOException
+	{
+		if (o instanceof DetectorSettings)
+		{
+			writeDetectorSettings((DetectorSettings) o);
+			return;
+		}
+		if (o instanceof LightSourceSettings)
+		{
+			writeLightSourceSettings((LightSourceSettings) o);
+			return;
+		}
+		if (o instanceof ObjectiveSettings)
+		{
+			writeObjectiveSettings((ObjectiveSettings) o);
+			return;
+		}
+		writeDOM(o);
+	}
+
+	public void writeShape(Shape o) throws IOException
+	{
+		if (o instanceof Ellipse)
+		{
+			writeEllipse((Ellipse) o);
+			return;
+		}
+		if (o instanceof Line)
+		{
+			writeLine((Line) o);
+			return;
+		}
+		if (o instanceof Mask)
+		{
+			writeMask((Mask) o);
+			return;
+		}
+		if (o instanceof Path)
+		{
+			writePath((Path) o);
+			return;
+		}
+		if (o instanceof Point)
+		{
+			writePoint((Point) o);
+			return;
+		}
+		if (o instanceof Polyline)
+		{
+			writePolyline((Polyline) o);
+			return;
+		}
+		if (o instanceof Rectangle)
+		{
+			writeRectangle((Rectangle) o);
+			return;
+		}
+		if (o instanceof Text)
+		{
+			writeText((Text) o);
+			return;
+		}
+		writeDOM(o);
+	}
+
+	public void writeStageLabel(StageLabel o) throws IOException
+	{
+		startElement(StageLabel.NAMESPACE, "StageLabel");
+		writeStageLabelAttributes(o);
+		endElement("StageLabel");
+	}
+
+	public void writeStructuredAnnotations(StructuredAnnotations o) throws IOException
+	{
+		startElement(StructuredAnnotations.NAMESPACE, "StructuredAnnotations");
+		writeStructuredAnnotationsContent(o);
+		endElement("StructuredAnnotations");
+	}
+
+	public void writeTagAnnotation(TagAnnotation o) throws IOException
+	{
+		startElement(TagAnnotation.NAMESPACE, "TagAnnotation");
+		writeAnnotationAttributes(o);
+		writeTagAnnotationContent(o);
+		writeAnnotationContent(o);
+		endElement("TagAnnotation");
+	}
+
+	public void writeTermAnnotation(TermAnnotation o) throws IOException
+	{
+		startElement(TermAnnotation.NAMESPACE, "TermAnnotation");
+		writeAnnotationAttributes(o);
+		writeTermAnnotationContent(o);
+		writeAnnotationContent(o);
+		endElement("TermAnnotation");
+	}
+
+	public void writeText(Text o) throws IOException
+	{
+		startElement(Shape.NAMESPACE, "Shape");
+		writeShapeAttributes(o);
+		startElement(Text.NAMESPACE, "Text");
+		writeTextAttributes(o);
+		writeTextContent(o);
+		endElement("Text");
+		writeShapeContent(o);
+		endElement("Shape");
+	}
+
+	public void writeTiffData(TiffData o) throws IOException
+	{
+		startElement(TiffData.NAMESPACE, "TiffData");
+		writeTiffDataAttributes(o);
+		writeTiffDataContent(o);
+		endElement("TiffData");
+	}
+
+	public void writeTimestampAnnotation(TimestampAnnotation o) throws IOException
+	{
+		startElement(TimestampAnnotation.NAMESPACE, "TimestampAnnotation");
+		writeAnnotationAttributes(o);
+		writeTimestampAnnotationContent(o);
+		writeAnnotationContent(o);
+		endElement("TimestampAnnotation");
+	}
+
+	public void writeTransmittanceRange(TransmittanceRange o) throws IOException
+	{
+		startElement(TransmittanceRange.NAMESPACE, "TransmittanceRange");
+		writeTransmittanceRangeAttributes(o);
+		endElement("TransmittanceRange");
+	}
+
+	public void writeUUID(UUID o) throws IOException
+	{
+		startElement(UUID.NAMESPACE, "UUID");
+		writeUUIDAttributes(o);
+		writeUUIDContent(o);
+		endElement("UUID");
+	}
+
+	public void writeUnion(Union o) throws IOException
+	{
+		startElement(Union.NAMESPACE, "Union");
+		writeUnionContent(o);
+		endElement("Union");
+	}
+
+	public void writeWell(Well o) throws IOException
+	{
+		startElement(Well.NAMESPACE, "Well");
+		writeWellAttributes(o);
+		writeWellContent(o);
+		endElement("Well");
+	}
+
+	public void writeWellSample(WellSample o) throws IOException
+	{
+		startElement(WellSample.NAMESPACE, "WellSample");
+		writeWellSampleAttributes(o);
+		writeWellSampleContent(o);
+		endElement("WellSample");
+	}
+
+	public void writeWellSampleRef(WellSampleRef o) throws IOException
+	{
+		startElement(WellSampleRef.NAMESPACE, "WellSampleRef");
+		writeWellSampleRefAttributes(o);
+		endElement("WellSampleRef");
+	}
+
+	public void writeXMLAnnotation(XMLAnnotation o) throws IOException
+	{
+		writeDOM(o);
+	}
+
+	// -- Helper methods --
+
+	private void writeAnnotationAttributes(Annotation o)
+	{
+		if (o.getNamespace() != null)
+		{
+			attribute("Namespace", o.getNamespace().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeAnnotationContent(Annotation o) throws IOException
+	{
+		if (o.getDescription() != null)
+		{
+			textElement(Annotation.NAMESPACE, "Description", o.getDescription().toString());
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+	}
+
+	private void writeAnnotationRefAttributes(AnnotationRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeArcAttributes(Arc o)
+	{
+		if (o.getType() != null)
+		{
+			attribute("Type", o.getType().toString());
+		}
+	}
+
+	private void writeBinDataAttributes(BinData o)
+	{
+		if (o.getBigEndian() != null)
+		{
+			attribute("BigEndian", o.getBigEndian().toString());
+		}
+		if (o.getLength() != null)
+		{
+			attribute("Length", o.getLength().toString());
+		}
+		if (o.getCompression() != null)
+		{
+			attribute("Compression", o.getCompression().toString());
+		}
+	}
+
+	private void writeBinaryFileAttributes(BinaryFile o)
+	{
+		if (o.getMIMEType() != null)
+		{
+			attribute("MIMEType", o.getMIMEType().toString());
+		}
+		if (o.getSize() != null)
+		{
+			attribute("Size", o.getSize().toString());
+		}
+		if (o.getFileName() != null)
+		{
+			attribute("FileName", o.getFileName().toString());
+		}
+	}
+
+	private void writeBinaryFileContent(BinaryFile o) throws IOException
+	{
+		if (o.getExternal() != null)
+		{
+			writeExternal(o.getExternal());
+		}
+		if (o.getBinData() != null)
+		{
+			writeBinData(o.getBinData());
+		}
+	}
+
+	private void writeBinaryOnlyAttributes(BinaryOnly o)
+	{
+		if (o.getMetadataFile() != null)
+		{
+			attribute("MetadataFile", o.getMetadataFile().toString());
+		}
+		if (o.getUUID() != null)
+		{
+			attribute("UUID", o.getUUID().toString());
+		}
+	}
+
+	private void writeBooleanAnnotationContent(BooleanAnnotation o) throws IOException
+	{
+		if (o.getValue() != null)
+		{
+			textElement(BooleanAnnotation.NAMESPACE, "Value", o.getValue().toString());
+		}
+	}
+
+	private void writeChannelAttributes(Channel o)
+	{
+		if (o.getPinholeSize() != null)
+		{
+			attribute("PinholeSize", o.getPinholeSize().toString());
+		}
+		if (o.getName() != null)
+		{
+			attribute("Name", o.getName().toString());
+		}
+		if (o.getAcquisitionMode() != null)
+		{
+			attribute("AcquisitionMode", o.getAcquisitionMode().toString());
+		}
+		if (o.getColor() != null)
+		{
+			attribute("Color", o.getColor().toString());
+		}
+		if (o.getContrastMethod() != null)
+		{
+			attribute("ContrastMethod", o.getContrastMethod().toString());
+		}
+		if (o.getExcitationWavelength() != null)
+		{
+			attribute("ExcitationWavelength", o.getExcitationWavelength().toString());
+		}
+		if (o.getIlluminationType() != null)
+		{
+			attribute("IlluminationType", o.getIlluminationType().toString());
+		}
+		if (o.getFluor() != null)
+		{
+			attribute("Fluor", o.getFluor().toString());
+		}
+		if (o.getPockelCellSetting() != null)
+		{
+			attribute("PockelCellSetting", o.getPockelCellSetting().toString());
+		}
+		if (o.getEmissionWavelength() != null)
+		{
+			attribute("EmissionWavelength", o.getEmissionWavelength().toString());
+		}
+		if (o.getNDFilter() != null)
+		{
+			attribute("NDFilter", o.getNDFilter().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getSamplesPerPixel() != null)
+		{
+			attribute("SamplesPerPixel", o.getSamplesPerPixel().toString());
+		}
+	}
+
+	private void writeChannelContent(Channel o) throws IOException
+	{
+		if (o.getLightSourceSettings() != null)
+		{
+			writeLightSourceSettings(o.getLightSourceSettings());
+		}
+		if (o.getLinkedOTF() != null)
+		{
+			OTFRef ref = new OTFRef();
+			ref.setID(o.getLinkedOTF().getID());
+			writeOTFRef(ref);
+		}
+		if (o.getDetectorSettings() != null)
+		{
+			writeDetectorSettings(o.getDetectorSettings());
+		}
+		if (o.getLinkedFilterSet() != null)
+		{
+			FilterSetRef ref = new FilterSetRef();
+			ref.setID(o.getLinkedFilterSet().getID());
+			writeFilterSetRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+		if (o.getLightPath() != null)
+		{
+			writeLightPath(o.getLightPath());
+		}
+	}
+
+	private void writeChannelRefAttributes(ChannelRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeCommentAnnotationContent(CommentAnnotation o) throws IOException
+	{
+		if (o.getValue() != null)
+		{
+			textElement(CommentAnnotation.NAMESPACE, "Value", o.getValue().toString());
+		}
+	}
+
+	private void writeContactAttributes(Contact o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeDatasetAttributes(Dataset o)
+	{
+		if (o.getName() != null)
+		{
+			attribute("Name", o.getName().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeDatasetContent(Dataset o) throws IOException
+	{
+		if (o.getDescription() != null)
+		{
+			textElement(Dataset.NAMESPACE, "Description", o.getDescription().toString());
+		}
+		if (o.getLinkedExperimenter() != null)
+		{
+			ExperimenterRef ref = new ExperimenterRef();
+			ref.setID(o.getLinkedExperimenter().getID());
+			writeExperimenterRef(ref);
+		}
+		if (o.getLinkedGroup() != null)
+		{
+			GroupRef ref = new GroupRef();
+			ref.setID(o.getLinkedGroup().getID());
+			writeGroupRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedProjectList(); i++)
+		{
+			ProjectRef ref = new ProjectRef();
+			ref.setID(o.getLinkedProject(i).getID());
+			writeProjectRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+	}
+
+	private void writeDatasetRefAttributes(DatasetRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeDetectorAttributes(Detector o)
+	{
+		if (o.getZoom() != null)
+		{
+			attribute("Zoom", o.getZoom().toString());
+		}
+		if (o.getAmplificationGain() != null)
+		{
+			attribute("AmplificationGain", o.getAmplificationGain().toString());
+		}
+		if (o.getGain() != null)
+		{
+			attribute("Gain", o.getGain().toString());
+		}
+		if (o.getOffset() != null)
+		{
+			attribute("Offset", o.getOffset().toString());
+		}
+		if (o.getType() != null)
+		{
+			attribute("Type", o.getType().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getVoltage() != null)
+		{
+			attribute("Voltage", o.getVoltage().toString());
+		}
+	}
+
+	private void writeDetectorSettingsAttributes(DetectorSettings o)
+	{
+		if (o.getBinning() != null)
+		{
+			attribute("Binning", o.getBinning().toString());
+		}
+		if (o.getReadOutRate() != null)
+		{
+			attribute("ReadOutRate", o.getReadOutRate().toString());
+		}
+		if (o.getGain() != null)
+		{
+			attribute("Gain", o.getGain().toString());
+		}
+		if (o.getOffset() != null)
+		{
+			attribute("Offset", o.getOffset().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getVoltage() != null)
+		{
+			attribute("Voltage", o.getVoltage().toString());
+		}
+	}
+
+	private void writeDichroicAttributes(Dichroic o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeDichroicRefAttributes(DichroicRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeDoubleAnnotationContent(DoubleAnnotation o) throws IOException
+	{
+		if (o.getValue() != null)
+		{
+			textElement(DoubleAnnotation.NAMESPACE, "Value", o.getValue().toString());
+		}
+	}
+
+	private void writeEllipseAttributes(Ellipse o)
+	{
+		if (o.getY() != null)
+		{
+			attribute("Y", o.getY().toString());
+		}
+		if (o.getX() != null)
+		{
+			attribute("X", o.getX().toString());
+		}
+		if (o.getRadiusY() != null)
+		{
+			attribute("RadiusY", o.getRadiusY().toString());
+		}
+		if (o.getRadiusX() != null)
+		{
+			attribute("RadiusX", o.getRadiusX().toString());
+		}
+	}
+
+	private void writeExperimentAttributes(Experiment o)
+	{
+		if (o.getType() != null)
+		{
+			attribute("Type", o.getType().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeExperimentContent(Experiment o) throws IOException
+	{
+		if (o.getDescription() != null)
+		{
+			textElement(Experiment.NAMESPACE, "Description", o.getDescription().toString());
+		}
+		if (o.getLinkedExperimenter() != null)
+		{
+			ExperimenterRef ref = new ExperimenterRef();
+			ref.setID(o.getLinkedExperimenter().getID());
+			writeExperimenterRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfMicrobeamManipulationList(); i++)
+		{
+			writeMicrobeamManipulation(o.getMicrobeamManipulation(i));
+		}
+	}
+
+	private void writeExperimentRefAttributes(ExperimentRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeExperimenterAttributes(Experimenter o)
+	{
+		if (o.getUserName() != null)
+		{
+			attribute("UserName", o.getUserName().toString());
+		}
+		if (o.getDisplayName() != null)
+		{
+			attribute("DisplayName", o.getDisplayName().toString());
+		}
+		if (o.getFirstName() != null)
+		{
+			attribute("FirstName", o.getFirstName().toString());
+		}
+		if (o.getMiddleName() != null)
+		{
+			attribute("MiddleName", o.getMiddleName().toString());
+		}
+		if (o.getLastName() != null)
+		{
+			attribute("LastName", o.getLastName().toString());
+		}
+		if (o.getEmail() != null)
+		{
+			attribute("Email", o.getEmail().toString());
+		}
+		if (o.getInstitution() != null)
+		{
+			attribute("Institution", o.getInstitution().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeExperimenterContent(Experimenter o) throws IOException
+	{
+		for (int i = 0; i < o.sizeOfLinkedGroupList(); i++)
+		{
+			GroupRef ref = new GroupRef();
+			ref.setID(o.getLinkedGroup(i).getID());
+			writeGroupRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+	}
+
+	private void writeExperimenterRefAttributes(ExperimenterRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeExternalAttributes(External o)
+	{
+		if (o.gethref() != null)
+		{
+			attribute("href", o.gethref().toString());
+		}
+		if (o.getCompression() != null)
+		{
+			attribute("Compression", o.getCompression().toString());
+		}
+		if (o.getSHA1() != null)
+		{
+			attribute("SHA1", o.getSHA1().toString());
+		}
+	}
+
+	private void writeFilamentAttributes(Filament o)
+	{
+		if (o.getType() != null)
+		{
+			attribute("Type", o.getType().toString());
+		}
+	}
+
+	private void writeFileAnnotationContent(FileAnnotation o) throws IOException
+	{
+		if (o.getBinaryFile() != null)
+		{
+			writeBinaryFile(o.getBinaryFile());
+		}
+	}
+
+	private void writeFilterAttributes(Filter o)
+	{
+		if (o.getFilterWheel() != null)
+		{
+			attribute("FilterWheel", o.getFilterWheel().toString());
+		}
+		if (o.getType() != null)
+		{
+			attribute("Type", o.getType().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeFilterContent(Filter o) throws IOException
+	{
+		if (o.getTransmittanceRange() != null)
+		{
+			writeTransmittanceRange(o.getTransmittanceRange());
+		}
+	}
+
+	private void writeFilterRefAttributes(FilterRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeFilterSetAttributes(FilterSet o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeFilterSetContent(FilterSet o) throws IOException
+	{
+		for (int i = 0; i < o.sizeOfLinkedExcitationFilterList(); i++)
+		{
+			ExcitationFilterRef ref = new ExcitationFilterRef();
+			ref.setID(o.getLinkedExcitationFilter(i).getID());
+			writeExcitationFilterRef(ref);
+		}
+		if (o.getLinkedDichroic() != null)
+		{
+			DichroicRef ref = new DichroicRef();
+			ref.setID(o.getLinkedDichroic().getID());
+			writeDichroicRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedEmissionFilterList(); i++)
+		{
+			EmissionFilterRef ref = new EmissionFilterRef();
+			ref.setID(o.getLinkedEmissionFilter(i).getID());
+			writeEmissionFilterRef(ref);
+		}
+	}
+
+	private void writeFilterSetRefAttributes(FilterSetRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeGroupAttributes(Group o)
+	{
+		if (o.getName() != null)
+		{
+			attribute("Name", o.getName().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeGroupContent(Group o) throws IOException
+	{
+		if (o.getDescription() != null)
+		{
+			textElement(Group.NAMESPACE, "Description", o.getDescription().toString());
+		}
+		if (o.getLinkedLeader() != null)
+		{
+			Leader ref = new Leader();
+			ref.setID(o.getLinkedLeader().getID());
+			writeLeader(ref);
+		}
+		if (o.getLinkedContact() != null)
+		{
+			Contact ref = new Contact();
+			ref.setID(o.getLinkedContact().getID());
+			writeContact(ref);
+		}
+	}
+
+	private void writeGroupRefAttributes(GroupRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeImageAttributes(Image o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getName() != null)
+		{
+			attribute("Name", o.getName().toString());
+		}
+	}
+
+	private void writeImageContent(Image o) throws IOException
+	{
+		if (o.getAcquiredDate() != null)
+		{
+			textElement(Image.NAMESPACE, "AcquiredDate", o.getAcquiredDate().toString());
+		}
+		if (o.getLinkedExperimenter() != null)
+		{
+			ExperimenterRef ref = new ExperimenterRef();
+			ref.setID(o.getLinkedExperimenter().getID());
+			writeExperimenterRef(ref);
+		}
+		if (o.getDescription() != null)
+		{
+			textElement(Image.NAMESPACE, "Description", o.getDescription().toString());
+		}
+		if (o.getLinkedExperiment() != null)
+		{
+			ExperimentRef ref = new ExperimentRef();
+			ref.setID(o.getLinkedExperiment().getID());
+			writeExperimentRef(ref);
+		}
+		if (o.getLinkedGroup() != null)
+		{
+			GroupRef ref = new GroupRef();
+			ref.setID(o.getLinkedGroup().getID());
+			writeGroupRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedDatasetList(); i++)
+		{
+			DatasetRef ref = new DatasetRef();
+			ref.setID(o.getLinkedDataset(i).getID());
+			writeDatasetRef(ref);
+		}
+		if (o.getLinkedInstrument() != null)
+		{
+			InstrumentRef ref = new InstrumentRef();
+			ref.setID(o.getLinkedInstrument().getID());
+			writeInstrumentRef(ref);
+		}
+		if (o.getObjectiveSettings() != null)
+		{
+			writeObjectiveSettings(o.getObjectiveSettings());
+		}
+		if (o.getImagingEnvironment() != null)
+		{
+			writeImagingEnvironment(o.getImagingEnvironment());
+		}
+		if (o.getStageLabel() != null)
+		{
+			writeStageLabel(o.getStageLabel());
+		}
+		if (o.getPixels() != null)
+		{
+			writePixels(o.getPixels());
+		}
+		for (int i = 0; i < o.sizeOfLinkedROIList(); i++)
+		{
+			ROIRef ref = new ROIRef();
+			ref.setID(o.getLinkedROI(i).getID());
+			writeROIRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedMicrobeamManipulationList(); i++)
+		{
+			MicrobeamManipulationRef ref = new MicrobeamManipulationRef();
+			ref.setID(o.getLinkedMicrobeamManipulation(i).getID());
+			writeMicrobeamManipulationRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+	}
+
+	private void writeImageRefAttributes(ImageRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeImagingEnvironmentAttributes(ImagingEnvironment o)
+	{
+		if (o.getCO2Percent() != null)
+		{
+			attribute("CO2Percent", o.getCO2Percent().toString());
+		}
+		if (o.getTemperature() != null)
+		{
+			attribute("Temperature", o.getTemperature().toString());
+		}
+		if (o.getAirPressure() != null)
+		{
+			attribute("AirPressure", o.getAirPressure().toString());
+		}
+		if (o.getHumidity() != null)
+		{
+			attribute("Humidity", o.getHumidity().toString());
+		}
+	}
+
+	private void writeInstrumentAttributes(Instrument o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeInstrumentContent(Instrument o) throws IOException
+	{
+		if (o.getMicroscope() != null)
+		{
+			writeMicroscope(o.getMicroscope());
+		}
+		for (int i = 0; i < o.sizeOfLightSourceList(); i++)
+		{
+			writeLightSource(o.getLightSource(i));
+		}
+		for (int i = 0; i < o.sizeOfDetectorList(); i++)
+		{
+			writeDetector(o.getDetector(i));
+		}
+		for (int i = 0; i < o.sizeOfObjectiveList(); i++)
+		{
+			writeObjective(o.getObjective(i));
+		}
+		for (int i = 0; i < o.sizeOfFilterSetList(); i++)
+		{
+			writeFilterSet(o.getFilterSet(i));
+		}
+		for (int i = 0; i < o.sizeOfFilterList(); i++)
+		{
+			writeFilter(o.getFilter(i));
+		}
+		for (int i = 0; i < o.sizeOfDichroicList(); i++)
+		{
+			writeDichroic(o.getDichroic(i));
+		}
+		for (int i = 0; i < o.sizeOfOTFList(); i++)
+		{
+			writeOTF(o.getOTF(i));
+		}
+	}
+
+	private void writeInstrumentRefAttributes(InstrumentRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeLaserAttributes(Laser o)
+	{
+		if (o.getPockelCell() != null)
+		{
+			attribute("PockelCell", o.getPockelCell().toString());
+		}
+		if (o.getPulse() != null)
+		{
+			attribute("Pulse", o.getPulse().toString());
+		}
+		if (o.getLaserMedium() != null)
+		{
+			attribute("LaserMedium", o.getLaserMedium().toString());
+		}
+		if (o.getTuneable() != null)
+		{
+			attribute("Tuneable", o.getTuneable().toString());
+		}
+		if (o.getWavelength() != null)
+		{
+			attribute("Wavelength", o.getWavelength().toString());
+		}
+		if (o.getFrequencyMultiplication() != null)
+		{
+			attribute("FrequencyMultiplication", o.getFrequencyMultiplication().toString());
+		}
+		if (o.getType() != null)
+		{
+			attribute("Type", o.getType().toString());
+		}
+		if (o.getRepetitionRate() != null)
+		{
+			attribute("RepetitionRate", o.getRepetitionRate().toString());
+		}
+	}
+
+	private void writeLaserContent(Laser o) throws IOException
+	{
+		if (o.getLinkedPump() != null)
+		{
+			Pump ref = new Pump();
+			ref.setID(o.getLinkedPump().getID());
+			writePump(ref);
+		}
+	}
+
+	private void writeLeaderAttributes(Leader o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeLightPathContent(LightPath o) throws IOException
+	{
+		for (int i = 0; i < o.sizeOfLinkedExcitationFilterList(); i++)
+		{
+			ExcitationFilterRef ref = new ExcitationFilterRef();
+			ref.setID(o.getLinkedExcitationFilter(i).getID());
+			writeExcitationFilterRef(ref);
+		}
+		if (o.getLinkedDichroic() != null)
+		{
+			DichroicRef ref = new DichroicRef();
+			ref.setID(o.getLinkedDichroic().getID());
+			writeDichroicRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedEmissionFilterList(); i++)
+		{
+			EmissionFilterRef ref = new EmissionFilterRef();
+			ref.setID(o.getLinkedEmissionFilter(i).getID());
+			writeEmissionFilterRef(ref);
+		}
+	}
+
+	private void writeLightSourceAttributes(LightSource o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getPower() != null)
+		{
+			attribute("Power", o.getPower().toString());
+		}
+	}
+
+	private void writeLightSourceSettingsAttributes(LightSourceSettings o)
+	{
+		if (o.getWavelength() != null)
+		{
+			attribute("Wavelength", o.getWavelength().toString());
+		}
+		if (o.getAttenuation() != null)
+		{
+			attribute("Attenuation", o.getAttenuation().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeLineAttributes(Line o)
+	{
+		if (o.getY1() != null)
+		{
+			attribute("Y1", o.getY1().toString());
+		}
+		if (o.getX2() != null)
+		{
+			attribute("X2", o.getX2().toString());
+		}
+		if (o.getX1() != null)
+		{
+			attribute("X1", o.getX1().toString());
+		}
+		if (o.getY2() != null)
+		{
+			attribute("Y2", o.getY2().toString());
+		}
+	}
+
+	private void writeLongAnnotationContent(LongAnnotation o) throws IOException
+	{
+		if (o.getValue() != null)
+		{
+			textElement(LongAnnotation.NAMESPACE, "Value", o.getValue().toString());
+		}
+	}
+
+	private void writeManufacturerSpecAttributes(ManufacturerSpec o)
+	{
+		if (o.getLotNumber() != null)
+		{
+			attribute("LotNumber", o.getLotNumber().toString());
+		}
+		if (o.getModel() != null)
+		{
+			attribute("Model", o.getModel().toString());
+		}
+		if (o.getSerialNumber() != null)
+		{
+			attribute("SerialNumber", o.getSerialNumber().toString());
+		}
+		if (o.getManufacturer() != null)
+		{
+			attribute("Manufacturer", o.getManufacturer().toString());
+		}
+	}
+
+	private void writeMaskAttributes(Mask o)
+	{
+		if (o.getY() != null)
+		{
+			attribute("Y", o.getY().toString());
+		}
+		if (o.getX() != null)
+		{
+			attribute("X", o.getX().toString());
+		}
+		if (o.getHeight() != null)
+		{
+			attribute("Height", o.getHeight().toString());
+		}
+		if (o.getWidth() != null)
+		{
+			attribute("Width", o.getWidth().toString());
+		}
+	}
+
+	private void writeMaskContent(Mask o) throws IOException
+	{
+		for (int i = 0; i < o.sizeOfBinDataList(); i++)
+		{
+			writeBinData(o.getBinData(i));
+		}
+	}
+
+	private void writeMicrobeamManipulationAttributes(MicrobeamManipulation o)
+	{
+		if (o.getType() != null)
+		{
+			attribute("Type", o.getType().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeMicrobeamManipulationContent(MicrobeamManipulation o) throws IOException
+	{
+		if (o.getDescription() != null)
+		{
+			textElement(MicrobeamManipulation.NAMESPACE, "Description", o.getDescription().toString());
+		}
+		for (int i = 0; i < o.sizeOfLinkedROIList(); i++)
+		{
+			ROIRef ref = new ROIRef();
+			ref.setID(o.getLinkedROI(i).getID());
+			writeROIRef(ref);
+		}
+		if (o.getLinkedExperimenter() != null)
+		{
+			ExperimenterRef ref = new ExperimenterRef();
+			ref.setID(o.getLinkedExperimenter().getID());
+			writeExperimenterRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLightSourceSettingsList(); i++)
+		{
+			writeLightSourceSettings(o.getLightSourceSettings(i));
+		}
+	}
+
+	private void writeMicrobeamManipulationRefAttributes(MicrobeamManipulationRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeMicroscopeAttributes(Microscope o)
+	{
+		if (o.getType() != null)
+		{
+			attribute("Type", o.getType().toString());
+		}
+	}
+
+	private void writeOMEAttributes(OME o)
+	{
+		if (o.getUUID() != null)
+		{
+			attribute("UUID", o.getUUID().toString());
+		}
+		if (o.getCreator() != null)
+		{
+			attribute("Creator", o.getCreator().toString());
+		}
+	}
+
+	private void writeOMEContent(OME o) throws IOException
+	{
+		for (int i = 0; i < o.sizeOfProjectList(); i++)
+		{
+			writeProject(o.getProject(i));
+		}
+		for (int i = 0; i < o.sizeOfDatasetList(); i++)
+		{
+			writeDataset(o.getDataset(i));
+		}
+		for (int i = 0; i < o.sizeOfExperimentList(); i++)
+		{
+			writeExperiment(o.getExperiment(i));
+		}
+		for (int i = 0; i < o.sizeOfPlateList(); i++)
+		{
+			writePlate(o.getPlate(i));
+		}
+		for (int i = 0; i < o.sizeOfScreenList(); i++)
+		{
+			writeScreen(o.getScreen(i));
+		}
+		for (int i = 0; i < o.sizeOfExperimenterList(); i++)
+		{
+			writeExperimenter(o.getExperimenter(i));
+		}
+		for (int i = 0; i < o.sizeOfGroupList(); i++)
+		{
+			writeGroup(o.getGroup(i));
+		}
+		for (int i = 0; i < o.sizeOfInstrumentList(); i++)
+		{
+			writeInstrument(o.getInstrument(i));
+		}
+		for (int i = 0; i < o.sizeOfImageList(); i++)
+		{
+			writeImage(o.getImage(i));
+		}
+		if (o.getStructuredAnnotations() != null)
+		{
+			writeStructuredAnnotations(o.getStructuredAnnotations());
+		}
+		for (int i = 0; i < o.sizeOfROIList(); i++)
+		{
+			writeROI(o.getROI(i));
+		}
+		if (o.getBinaryOnly() != null)
+		{
+			writeBinaryOnly(o.getBinaryOnly());
+		}
+	}
+
+	private void writeOTFAttributes(OTF o)
+	{
+		if (o.getSizeX() != null)
+		{
+			attribute("SizeX", o.getSizeX().toString());
+		}
+		if (o.getSizeY() != null)
+		{
+			attribute("SizeY", o.getSizeY().toString());
+		}
+		if (o.getType() != null)
+		{
+			attribute("Type", o.getType().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getOpticalAxisAveraged() != null)
+		{
+			attribute("OpticalAxisAveraged", o.getOpticalAxisAveraged().toString());
+		}
+	}
+
+	private void writeOTFContent(OTF o) throws IOException
+	{
+		if (o.getObjectiveSettings() != null)
+		{
+			writeObjectiveSettings(o.getObjectiveSettings());
+		}
+		if (o.getLinkedFilterSet() != null)
+		{
+			FilterSetRef ref = new FilterSetRef();
+			ref.setID(o.getLinkedFilterSet().getID());
+			writeFilterSetRef(ref);
+		}
+		if (o.getBinaryFile() != null)
+		{
+			writeBinaryFile(o.getBinaryFile());
+		}
+	}
+
+	private void writeOTFRefAttributes(OTFRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeObjectiveAttributes(Objective o)
+	{
+		if (o.getIris() != null)
+		{
+			attribute("Iris", o.getIris().toString());
+		}
+		if (o.getWorkingDistance() != null)
+		{
+			attribute("WorkingDistance", o.getWorkingDistance().toString());
+		}
+		if (o.getImmersion() != null)
+		{
+			attribute("Immersion", o.getImmersion().toString());
+		}
+		if (o.getCorrection() != null)
+		{
+			attribute("Correction", o.getCorrection().toString());
+		}
+		if (o.getLensNA() != null)
+		{
+			attribute("LensNA", o.getLensNA().toString());
+		}
+		if (o.getNominalMagnification() != null)
+		{
+			attribute("NominalMagnification", o.getNominalMagnification().toString());
+		}
+		if (o.getCalibratedMagnification() != null)
+		{
+			attribute("CalibratedMagnification", o.getCalibratedMagnification().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeObjectiveSettingsAttributes(ObjectiveSettings o)
+	{
+		if (o.getRefractiveIndex() != null)
+		{
+			attribute("RefractiveIndex", o.getRefractiveIndex().toString());
+		}
+		if (o.getCorrectionCollar() != null)
+		{
+			attribute("CorrectionCollar", o.getCorrectionCollar().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getMedium() != null)
+		{
+			attribute("Medium", o.getMedium().toString());
+		}
+	}
+
+	private void writePathAttributes(Path o)
+	{
+		if (o.getDefinition() != null)
+		{
+			attribute("Definition", o.getDefinition().toString());
+		}
+	}
+
+	private void writePixelsAttributes(Pixels o)
+	{
+		if (o.getSizeT() != null)
+		{
+			attribute("SizeT", o.getSizeT().toString());
+		}
+		if (o.getDimensionOrder() != null)
+		{
+			attribute("DimensionOrder", o.getDimensionOrder().toString());
+		}
+		if (o.getTimeIncrement() != null)
+		{
+			attribute("TimeIncrement", o.getTimeIncrement().toString());
+		}
+		if (o.getPhysicalSizeY() != null)
+		{
+			attribute("PhysicalSizeY", o.getPhysicalSizeY().toString());
+		}
+		if (o.getPhysicalSizeX() != null)
+		{
+			attribute("PhysicalSizeX", o.getPhysicalSizeX().toString());
+		}
+		if (o.getPhysicalSizeZ() != null)
+		{
+			attribute("PhysicalSizeZ", o.getPhysicalSizeZ().toString());
+		}
+		if (o.getSizeX() != null)
+		{
+			attribute("SizeX", o.getSizeX().toString());
+		}
+		if (o.getSizeY() != null)
+		{
+			attribute("SizeY", o.getSizeY().toString());
+		}
+		if (o.getSizeZ() != null)
+		{
+			attribute("SizeZ", o.getSizeZ().toString());
+		}
+		if (o.getSizeC() != null)
+		{
+			attribute("SizeC", o.getSizeC().toString());
+		}
+		if (o.getType() != null)
+		{
+			attribute("Type", o.getType().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writePixelsContent(Pixels o) throws IOException
+	{
+		for (int i = 0; i < o.sizeOfChannelList(); i++)
+		{
+			writeChannel(o.getChannel(i));
+		}
+		for (int i = 0; i < o.sizeOfBinDataList(); i++)
+		{
+			writeBinData(o.getBinData(i));
+		}
+		for (int i = 0; i < o.sizeOfTiffDataList(); i++)
+		{
+			writeTiffData(o.getTiffData(i));
+		}
+		if (o.getMetadataOnly() != null)
+		{
+			writeMetadataOnly(o.getMetadataOnly());
+		}
+		for (int i = 0; i < o.sizeOfPlaneList(); i++)
+		{
+			writePlane(o.getPlane(i));
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+	}
+
+	private void writePlaneAttributes(Plane o)
+	{
+		if (o.getExposureTime() != null)
+		{
+			attribute("ExposureTime", o.getExposureTime().toString());
+		}
+		if (o.getPositionZ() != null)
+		{
+			attribute("PositionZ", o.getPositionZ().toString());
+		}
+		if (o.getPositionX() != null)
+		{
+			attribute("PositionX", o.getPositionX().toString());
+		}
+		if (o.getPositionY() != null)
+		{
+			attribute("PositionY", o.getPositionY().toString());
+		}
+		if (o.getDeltaT() != null)
+		{
+			attribute("DeltaT", o.getDeltaT().toString());
+		}
+		if (o.getTheC() != null)
+		{
+			attribute("TheC", o.getTheC().toString());
+		}
+		if (o.getTheZ() != null)
+		{
+			attribute("TheZ", o.getTheZ().toString());
+		}
+		if (o.getTheT() != null)
+		{
+			attribute("TheT", o.getTheT().toString());
+		}
+	}
+
+	private void writePlaneContent(Plane o) throws IOException
+	{
+		if (o.getHashSHA1() != null)
+		{
+			textElement(Plane.NAMESPACE, "HashSHA1", o.getHashSHA1().toString());
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+	}
+
+	private void writePlateAttributes(Plate o)
+	{
+		if (o.getStatus() != null)
+		{
+			attribute("Status", o.getStatus().toString());
+		}
+		if (o.getRows() != null)
+		{
+			attribute("Rows", o.getRows().toString());
+		}
+		if (o.getExternalIdentifier() != null)
+		{
+			attribute("ExternalIdentifier", o.getExternalIdentifier().toString());
+		}
+		if (o.getRowNamingConvention() != null)
+		{
+			attribute("RowNamingConvention", o.getRowNamingConvention().toString());
+		}
+		if (o.getColumnNamingConvention() != null)
+		{
+			attribute("ColumnNamingConvention", o.getColumnNamingConvention().toString());
+		}
+		if (o.getWellOriginY() != null)
+		{
+			attribute("WellOriginY", o.getWellOriginY().toString());
+		}
+		if (o.getWellOriginX() != null)
+		{
+			attribute("WellOriginX", o.getWellOriginX().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getColumns() != null)
+		{
+			attribute("Columns", o.getColumns().toString());
+		}
+		if (o.getName() != null)
+		{
+			attribute("Name", o.getName().toString());
+		}
+	}
+
+	private void writePlateContent(Plate o) throws IOException
+	{
+		if (o.getDescription() != null)
+		{
+			textElement(Plate.NAMESPACE, "Description", o.getDescription().toString());
+		}
+		for (int i = 0; i < o.sizeOfLinkedScreenList(); i++)
+		{
+			ScreenRef ref = new ScreenRef();
+			ref.setID(o.getLinkedScreen(i).getID());
+			writeScreenRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfWellList(); i++)
+		{
+			writeWell(o.getWell(i));
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfPlateAcquisitionList(); i++)
+		{
+			writePlateAcquisition(o.getPlateAcquisition(i));
+		}
+	}
+
+	private void writePlateAcquisitionAttributes(PlateAcquisition o)
+	{
+		if (o.getMaximumFieldCount() != null)
+		{
+			attribute("MaximumFieldCount", o.getMaximumFieldCount().toString());
+		}
+		if (o.getEndTime() != null)
+		{
+			attribute("EndTime", o.getEndTime().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getStartTime() != null)
+		{
+			attribute("StartTime", o.getStartTime().toString());
+		}
+		if (o.getName() != null)
+		{
+			attribute("Name", o.getName().toString());
+		}
+	}
+
+	private void writePlateAcquisitionContent(PlateAcquisition o) throws IOException
+	{
+		if (o.getDescription() != null)
+		{
+			textElement(PlateAcquisition.NAMESPACE, "Description", o.getDescription().toString());
+		}
+		for (int i = 0; i < o.sizeOfLinkedWellSampleList(); i++)
+		{
+			WellSampleRef ref = new WellSampleRef();
+			ref.setID(o.getLinkedWellSample(i).getID());
+			writeWellSampleRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+	}
+
+	private void writePlateRefAttributes(PlateRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writePointAttributes(Point o)
+	{
+		if (o.getY() != null)
+		{
+			attribute("Y", o.getY().toString());
+		}
+		if (o.getX() != null)
+		{
+			attribute("X", o.getX().toString());
+		}
+	}
+
+	private void writePolylineAttributes(Polyline o)
+	{
+		if (o.getPoints() != null)
+		{
+			attribute("Points", o.getPoints().toString());
+		}
+		if (o.getClosed() != null)
+		{
+			attribute("Closed", o.getClosed().toString());
+		}
+	}
+
+	private void writeProjectAttributes(Project o)
+	{
+		if (o.getName() != null)
+		{
+			attribute("Name", o.getName().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeProjectContent(Project o) throws IOException
+	{
+		if (o.getDescription() != null)
+		{
+			textElement(Project.NAMESPACE, "Description", o.getDescription().toString());
+		}
+		if (o.getLinkedExperimenter() != null)
+		{
+			ExperimenterRef ref = new ExperimenterRef();
+			ref.setID(o.getLinkedExperimenter().getID());
+			writeExperimenterRef(ref);
+		}
+		if (o.getLinkedGroup() != null)
+		{
+			GroupRef ref = new GroupRef();
+			ref.setID(o.getLinkedGroup().getID());
+			writeGroupRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+	}
+
+	private void writeProjectRefAttributes(ProjectRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writePumpAttributes(Pump o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeROIAttributes(ROI o)
+	{
+		if (o.getNamespace() != null)
+		{
+			attribute("Namespace", o.getNamespace().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getName() != null)
+		{
+			attribute("Name", o.getName().toString());
+		}
+	}
+
+	private void writeROIContent(ROI o) throws IOException
+	{
+		if (o.getUnion() != null)
+		{
+			writeUnion(o.getUnion());
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+		if (o.getDescription() != null)
+		{
+			textElement(ROI.NAMESPACE, "Description", o.getDescription().toString());
+		}
+	}
+
+	private void writeROIRefAttributes(ROIRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeReagentAttributes(Reagent o)
+	{
+		if (o.getReagentIdentifier() != null)
+		{
+			attribute("ReagentIdentifier", o.getReagentIdentifier().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getName() != null)
+		{
+			attribute("Name", o.getName().toString());
+		}
+	}
+
+	private void writeReagentContent(Reagent o) throws IOException
+	{
+		if (o.getDescription() != null)
+		{
+			textElement(Reagent.NAMESPACE, "Description", o.getDescription().toString());
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+	}
+
+	private void writeReagentRefAttributes(ReagentRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeRectangleAttributes(Rectangle o)
+	{
+		if (o.getY() != null)
+		{
+			attribute("Y", o.getY().toString());
+		}
+		if (o.getX() != null)
+		{
+			attribute("X", o.getX().toString());
+		}
+		if (o.getHeight() != null)
+		{
+			attribute("Height", o.getHeight().toString());
+		}
+		if (o.getWidth() != null)
+		{
+			attribute("Width", o.getWidth().toString());
+		}
+	}
+
+	private void writeScreenAttributes(Screen o)
+	{
+		if (o.getName() != null)
+		{
+			attribute("Name", o.getName().toString());
+		}
+		if (o.getProtocolDescription() != null)
+		{
+			attribute("ProtocolDescription", o.getProtocolDescription().toString());
+		}
+		if (o.getProtocolIdentifier() != null)
+		{
+			attribute("ProtocolIdentifier", o.getProtocolIdentifier().toString());
+		}
+		if (o.getReagentSetDescription() != null)
+		{
+			attribute("ReagentSetDescription", o.getReagentSetDescription().toString());
+		}
+		if (o.getType() != null)
+		{
+			attribute("Type", o.getType().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getReagentSetIdentifier() != null)
+		{
+			attribute("ReagentSetIdentifier", o.getReagentSetIdentifier().toString());
+		}
+	}
+
+	private void writeScreenContent(Screen o) throws IOException
+	{
+		if (o.getDescription() != null)
+		{
+			textElement(Screen.NAMESPACE, "Description", o.getDescription().toString());
+		}
+		for (int i = 0; i < o.sizeOfReagentList(); i++)
+		{
+			writeReagent(o.getReagent(i));
+		}
+		for (int i = 0; i < o.sizeOfLinkedPlateList(); i++)
+		{
+			PlateRef ref = new PlateRef();
+			ref.setID(o.getLinkedPlate(i).getID());
+			writePlateRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+	}
+
+	private void writeScreenRefAttributes(ScreenRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+
+	private void writeShapeAttributes(Shape o)
+	{
+		if (o.getStrokeDashArray() != null)
+		{
+			attribute("StrokeDashArray", o.getStrokeDashArray().toString());
+		}
+		if (o.getStrokeWidth() != null)
+		{
+			attribute("StrokeWidth", o.getStrokeWidth().toString());
+		}
+		if (o.getFillRule() != null)
+		{
+			attribute("FillRule", o.getFillRule().toString());
+		}
+		if (o.getLineCap() != null)
+		{
+			attribute("LineCap", o.getLineCap().toString());
+		}
+		if (o.getTheC() != null)
+		{
+			attribute("TheC", o.getTheC().toString());
+		}
+		if (o.getTheT() != null)
+		{
+			attribute("TheT", o.getTheT().toString());
+		}
+		if (o.getTransform() != null)
+		{
+			attribute("Transform", o.getTransform().toString());
+		}
+		if (o.getLabel() != null)
+		{
+			attribute("Label", o.getLabel().toString());
+		}
+		if (o.getFontFamily() != null)
+		{
+			attribute("FontFamily", o.getFontFamily().toString());
+		}
+		if (o.getStroke() != null)
+		{
+			attribute("Stroke", o.getStroke().toString());
+		}
+		if (o.getFontStyle() != null)
+		{
+			attribute("FontStyle", o.getFontStyle().toString());
+		}
+		if (o.getMarkerEnd() != null)
+		{
+			attribute("MarkerEnd", o.getMarkerEnd().toString());
+		}
+		if (o.getTheZ() != null)
+		{
+			attribute("TheZ", o.getTheZ().toString());
+		}
+		if (o.getFontSize() != null)
+		{
+			attribute("FontSize", o.getFontSize().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getFill() != null)
+		{
+			attribute("Fill", o.getFill().toString());
+		}
+		if (o.getMarkerStart() != null)
+		{
+			attribute("MarkerStart", o.getMarkerStart().toString());
+		}
+		if (o.getName() != null)
+		{
+			attribute("Name", o.getName().toString());
+		}
+	}
+
+	private void writeShapeContent(Shape o) throws IOException
+	{
+		if (o.getDescription() != null)
+		{
+			textElement(Shape.NAMESPACE, "Description", o.getDescription().toString());
+		}
+	}
+
+	private void writeStageLabelAttributes(StageLabel o)
+	{
+		if (o.getY() != null)
+		{
+			attribute("Y", o.getY().toString());
+		}
+		if (o.getX() != null)
+		{
+			attribute("X", o.getX().toString());
+		}
+		if (o.getZ() != null)
+		{
+			attribute("Z", o.getZ().toString());
+		}
+		if (o.getName() != null)
+		{
+			attribute("Name", o.getName().toString());
+		}
+	}
+
+	private void writeStructuredAnnotationsContent(StructuredAnnotations o) throws IOException
+	{
+		for (int i = 0; i < o.sizeOfXMLAnnotationList(); i++)
+		{
+			writeXMLAnnotation(o.getXMLAnnotation(i));
+		}
+		for (int i = 0; i < o.sizeOfFileAnnotationList(); i++)
+		{
+			writeFileAnnotation(o.getFileAnnotation(i));
+		}
+		for (int i = 0; i < o.sizeOfListAnnotationList(); i++)
+		{
+			writeListAnnotation(o.getListAnnotation(i));
+		}
+		for (int i = 0; i < o.sizeOfLongAnnotationList(); i++)
+		{
+			writeLongAnnotation(o.getLongAnnotation(i));
+		}
+		for (int i = 0; i < o.sizeOfDoubleAnnotationList(); i++)
+		{
+			writeDoubleAnnotation(o.getDoubleAnnotation(i));
+		}
+		for (int i = 0; i < o.sizeOfCommentAnnotationList(); i++)
+		{
+			writeCommentAnnotation(o.getCommentAnnotation(i));
+		}
+		for (int i = 0; i < o.sizeOfBooleanAnnotationList(); i++)
+		{
+			writeBooleanAnnotation(o.getBooleanAnnotation(i));
+		}
+		for (int i = 0; i < o.sizeOfTimestampAnnotationList(); i++)
+		{
+			writeTimestampAnnotation(o.getTimestampAnnotation(i));
+		}
+		for (int i = 0; i < o.sizeOfTagAnnotationList(); i++)
+		{
+			writeTagAnnotation(o.getTagAnnotation(i));
+		}
+		for (int i = 0; i < o.sizeOfTermAnnotationList(); i++)
+		{
+			writeTermAnnotation(o.getTermAnnotation(i));
+		}
+	}
+
+	private void writeTagAnnotationContent(TagAnnotation o) throws IOException
+	{
+		if (o.getValue() != null)
+		{
+			textElement(TagAnnotation.NAMESPACE, "Value", o.getValue().toString());
+		}
+	}
+
+	private void writeTermAnnotationContent(TermAnnotation o) throws IOException
+	{
+		if (o.getValue() != null)
+		{
+			textElement(TermAnnotation.NAMESPACE, "Value", o.getValue().toString());
+		}
+	}
+
+	private void writeTextAttributes(Text o)
+	{
+		if (o.getY() != null)
+		{
+			attribute("Y", o.getY().toString());
+		}
+		if (o.getX() != null)
+		{
+			attribute("X", o.getX().toString());
+		}
+	}
+
+	private void writeTextContent(Text o) throws IOException
+	{
+		if (o.getValue() != null)
+		{
+			textElement(Text.NAMESPACE, "Value", o.getValue().toString());
+		}
+	}
+
+	private void writeTiffDataAttributes(TiffData o)
+	{
+		if (o.getIFD() != null)
+		{
+			attribute("IFD", o.getIFD().toString());
+		}
+		if (o.getPlaneCount() != null)
+		{
+			attribute("PlaneCount", o.getPlaneCount().toString());
+		}
+		if (o.getFirstZ() != null)
+		{
+			attribute("FirstZ", o.getFirstZ().toString());
+		}
+		if (o.getFirstC() != null)
+		{
+			attribute("FirstC", o.getFirstC().toString());
+		}
+		if (o.getFirstT() != null)
+		{
+			attribute("FirstT", o.getFirstT().toString());
+		}
+	}
+
+	private void writeTiffDataContent(TiffData o) throws IOException
+	{
+		if (o.getUUID() != null)
+		{
+			writeUUID(o.getUUID());
+		}
+	}
+
+	private void writeTimestampAnnotationContent(TimestampAnnotation o) throws IOException
+	{
+		if (o.getValue() != null)
+		{
+			textElement(TimestampAnnotation.NAMESPACE, "Value", o.getValue().toString());
+		}
+	}
+
+	private void writeTransmittanceRangeAttributes(TransmittanceRange o)
+	{
+		if (o.getCutIn() != null)
+		{
+			attribute("CutIn", o.getCutIn().toString());
+		}
+		if (o.getTransmittance() != null)
+		{
+			attribute("Transmittance", o.getTransmittance().toString());
+		}
+		if (o.getCutOut() != null)
+		{
+			attribute("CutOut", o.getCutOut().toString());
+		}
+		if (o.getCutInTolerance() != null)
+		{
+			attribute("CutInTolerance", o.getCutInTolerance().toString());
+		}
+		if (o.getCutOutTolerance() != null)
+		{
+			attribute("CutOutTolerance", o.getCutOutTolerance().toString());
+		}
+	}
+
+	private void writeUUIDAttributes(UUID o)
+	{
+		if (o.getFileName() != null)
+		{
+			attribute("FileName", o.getFileName().toString());
+		}
+	}
+
+	private void writeUUIDContent(UUID o) throws IOException
+	{
+		if (o.getValue() != null)
+		{
+			text(o.getValue().toString());
+		}
+	}
+
+	private void writeUnionContent(Union o) throws IOException
+	{
+		for (int i = 0; i < o.sizeOfShapeList(); i++)
+		{
+			writeShape(o.getShape(i));
+		}
+	}
+
+	private void writeWellAttributes(Well o)
+	{
+		if (o.getStatus() != null)
+		{
+			attribute("Status", o.getStatus().toString());
+		}
+		if (o.getExternalIdentifier() != null)
+		{
+			attribute("ExternalIdentifier", o.getExternalIdentifier().toString());
+		}
+		if (o.getColumn() != null)
+		{
+			attribute("Column", o.getColumn().toString());
+		}
+		if (o.getExternalDescription() != null)
+		{
+			attribute("ExternalDescription", o.getExternalDescription().toString());
+		}
+		if (o.getColor() != null)
+		{
+			attribute("Color", o.getColor().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getRow() != null)
+		{
+			attribute("Row", o.getRow().toString());
+		}
+	}
+
+	private void writeWellContent(Well o) throws IOException
+	{
+		for (int i = 0; i < o.sizeOfWellSampleList(); i++)
+		{
+			writeWellSample(o.getWellSample(i));
+		}
+		if (o.getLinkedReagent() != null)
+		{
+			ReagentRef ref = new ReagentRef();
+			ref.setID(o.getLinkedReagent().getID());
+			writeReagentRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+	}
+
+	private void writeWellSampleAttributes(WellSample o)
+	{
+		if (o.getIndex() != null)
+		{
+			attribute("Index", o.getIndex().toString());
+		}
+		if (o.getPositionX() != null)
+		{
+			attribute("PositionX", o.getPositionX().toString());
+		}
+		if (o.getPositionY() != null)
+		{
+			attribute("PositionY", o.getPositionY().toString());
+		}
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+		if (o.getTimepoint() != null)
+		{
+			attribute("Timepoint", o.getTimepoint().toString());
+		}
+	}
+
+	private void writeWellSampleContent(WellSample o) throws IOException
+	{
+		if (o.getLinkedImage() != null)
+		{
+			ImageRef ref = new ImageRef();
+			ref.setID(o.getLinkedImage().getID());
+			writeImageRef(ref);
+		}
+		for (int i = 0; i < o.sizeOfLinkedAnnotationList(); i++)
+		{
+			AnnotationRef ref = new AnnotationRef();
+			ref.setID(o.getLinkedAnnotation(i).getID());
+			writeAnnotationRef(ref);
+		}
+	}
+
+	private void writeWellSampleRefAttributes(WellSampleRef o)
+	{
+		if (o.getID() != null)
+		{
+			attribute("ID", o.getID().toString());
+		}
+	}
+}
@@ -0,0 +1,172 @@
+//
+// OMEModelWriterTest.java
+//
+
+/*
+ * ome.xml.utests
+ *
+ *-----------------------------------------------------------------------------
+ *
+ *  Copyright (C) 2007-2008 Open Microscopy Environment
+ *      Massachusetts Institute of Technology,
+ *      National Institutes of Health,
+ *      University of Dundee,
+ *      University of Wisconsin-Madison
+ *
+ *
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation; either
+ *    version 2.1 of the License, or (at your option) any later version.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public
+ *    License along with this library; if not, write to the Free Software
+ *    Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+ *
+ *-----------------------------------------------------------------------------
+ */
+
+package ome.xml.utests;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.ByteArrayOutputStream;
+
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import ome.xml.model.BinData;
+import ome.xml.model.Channel;
+import ome.xml.model.Image;
+import ome.xml.model.Instrument;
+import ome.xml.model.Laser;
+import ome.xml.model.OME;
+import ome.xml.model.OMEModelObject;
+import ome.xml.model.OMEModelWriter;
+import ome.xml.model.Pixels;
+import ome.xml.model.Plane;
+import ome.xml.model.StructuredAnnotations;
+import ome.xml.model.XMLAnnotation;
+import ome.xml.model.enums.DimensionOrder;
+import ome.xml.model.enums.PixelType;
+import ome.xml.model.primitives.NonNegativeInteger;
+import ome.xml.model.primitives.PositiveInteger;
+
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+
+/**
+ * Checks that the streaming OME-XML writer produces the same XML as
+ * serializing the DOM built by the model objects.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/ome-xml/test/ome/xml/utests/OMEModelWriterTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/ome-xml/test/ome/xml/utests/OMEModelWriterTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class OMEModelWriterTest {
+
+  @Test
+  public void testEmpty() throws Exception {
+    assertEquals(dom(new OME()), stream(new OME()));
+  }
+
+  @Test
+  public void testModel() throws Exception {
+    OME ome = createModel();
+    assertEquals(dom(ome), stream(ome));
+  }
+
+  @Test
+  public void testRootAttributes() throws Exception {
+    OME ome = createModel();
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    OMEModelWriter writer = new OMEModelWriter(out);
+    writer.setRootAttribute("xmlns:xsi",
+      "http://www.w3.org/2001/XMLSchema-instance");
+    writer.writeDocument(ome);
+    String xml = out.toString("UTF-8");
+    assertTrue(xml.startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\" " +
+      "standalone=\"no\"?><OME UUID=\"urn:uuid:1234\" xmlns:xsi="));
+    assertEquals(1, xml.split("xmlns:xsi").length - 1);
+  }
+
+  // -- Helper methods --
+
+  private OME createModel() {
+    OME ome = new OME();
+    ome.setUUID("urn:uuid:1234");
+
+    Instrument instrument = new Instrument();
+    instrument.setID("Instrument:0");
+    Laser laser = new Laser();
+    laser.setID("LightSource:0");
+    laser.setModel("Laser \"model\" <1> & 2");
+    laser.setWavelength(new PositiveInteger(488));
+    instrument.addLightSource(laser);
+    ome.addInstrument(instrument);
+
+    Image image = new Image();
+    image.setID("Image:0");
+    image.setName("first\tline\r\nsecond line");
+    image.setDescription("");
+    Pixels pixels = new Pixels();
+    pixels.setID("Pixels:0");
+    pixels.setDimensionOrder(DimensionOrder.XYZCT);
+    pixels.setType(PixelType.UINT16);
+    pixels.setSizeX(new PositiveInteger(64));
+    pixels.setSizeY(new PositiveInteger(64));
+    pixels.setSizeZ(new PositiveInteger(3));
+    pixels.setSizeC(new PositiveInteger(1));
+    pixels.setSizeT(new PositiveInteger(1));
+    Channel channel = new Channel();
+    channel.setID("Channel:0:0");
+    channel.setName("\u00e9\u4e2d");
+    pixels.addChannel(channel);
+    BinData binData = new BinData();
+    binData.setBigEndian(Boolean.TRUE);
+    pixels.addBinData(binData);
+    for (int z=0; z<3; z++) {
+      Plane plane = new Plane();
+      plane.setTheZ(new NonNegativeInteger(z));
+      plane.setTheC(new NonNegativeInteger(0));
+      plane.setTheT(new NonNegativeInteger(0));
+      plane.setDeltaT(new Double(z * 0.5));
+      pixels.addPlane(plane);
+    }
+    image.setPixels(pixels);
+    ome.addImage(image);
+
+    StructuredAnnotations annotations = new StructuredAnnotations();
+    XMLAnnotation annotation = new XMLAnnotation();
+    annotation.setID("Annotation:0");
+    annotation.setValue("<a xmlns=\"urn:test\"><b c=\"d\">e &amp; f</b></a>");
+    annotations.addXMLAnnotation(annotation);
+    ome.setStructuredAnnotations(annotations);
+    return ome;
+  }
+
+  private String dom(OMEModelObject o) throws Exception {
+    Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder()
+      .newDocument();
+    doc.appendChild(o.asXMLElement(doc));
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    TransformerFactory.newInstance().newTransformer().transform(
+      new DOMSource(doc), new StreamResult(out));
+    return out.toString("UTF-8");
+  }
+
+  private String stream(OMEModelObject o) throws Exception {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    new OMEModelWriter(out).writeDocument(o);
+    return out.toString("UTF-8");
+  }
+
+}
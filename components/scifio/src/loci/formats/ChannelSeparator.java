@@ -24,6 +24,8 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats;
 
 import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedList;
 
 /**
  * Logic to automatically separate the channels in a file.
@@ -34,6 +36,11 @@ import java.io.IOException;
  */
 public class ChannelSeparator extends ReaderWrapper {
 
+  // -- Constants --
+
+  /** Default maximum number of bytes of decoded planes to cache. */
+  public static final long DEFAULT_CACHE_SIZE = 64 * 1024 * 1024;
+
   // -- Utility methods --
 
   /** Converts the given reader into a ChannelSeparator, wrapping if needed. */
@@ -44,26 +51,17 @@ public class ChannelSeparator extends ReaderWrapper {
 
   // -- Fields --
 
-  /** Last image opened. */
-  private byte[] lastImage;
-
-  /** Index of last image opened. */
-  private int lastImageIndex = -1;
-
-  /** Series of last image opened. */
-  private int lastImageSeries = -1;
-
-  /** X index of last image opened. */
-  private int lastImageX = -1;
-
-  /** Y index of last image opened. */
-  private int lastImageY = -1;
+  /**
+   * Most recently decoded regions of the original planes, most recently
+   * used first.
+   */
+  private LinkedList<CachedRegion> cache = new LinkedList<CachedRegion>();
 
-  /** Width of last image opened. */
-  private int lastImageWidth = -1;
+  /** Total number of bytes in the cached regions. */
+  private long cachedBytes;
 
-  /** Height of last image opened. */
-  private int lastImageHeight = -1;
+  /** Maximum number of bytes of decoded planes to cache. */
+  private long cacheSize = DEFAULT_CACHE_SIZE;
 
   // -- Constructors --
 
@@ -94,6 +92,22 @@ public class ChannelSeparator extends ReaderWrapper {
     return reader.getIndex(coords[0], coords[1], coords[2]);
   }
 
+  /**
+   * Sets the maximum number of bytes of decoded planes which are kept, so
+   * that each channel of a plane (or of any region within it) can be split
+   * without decoding the plane again.  The cache is also limited to a
+   * quarter of the maximum heap size.  A size of 0 disables caching.
+   */
+  public void setCacheSize(long cacheSize) {
+    this.cacheSize = cacheSize;
+    trimCache(0);
+  }
+
+  /** Gets the maximum number of bytes of decoded planes which are kept. */
+  public long getCacheSize() {
+    return cacheSize;
+  }
+
   // -- IFormatReader API methods --
 
   /* @see IFormatReader#getImageCount() */
@@ -156,53 +170,31 @@ public class ChannelSeparator extends ReaderWrapper {
       int channel = no % c;
       int series = getSeries();
       int bpp = FormatTools.getBytesPerPixel(getPixelType());
+      boolean interleaved = isInterleaved();
 
-      if (source != lastImageIndex || series != lastImageSeries ||
-        x != lastImageX || y != lastImageY || w != lastImageWidth ||
-        h != lastImageHeight)
-      {
-        int strips = 1;
-
-        // check how big the original image is; if it's larger than the
-        // available memory, we will need to split it into strips
-
-        Runtime rt = Runtime.getRuntime();
-        long availableMemory = rt.freeMemory();
-
-        if (availableMemory < w * h * bpp * c) {
-          strips = (int) Math.sqrt(h);
-        }
-
-        int stripHeight = h / strips;
-        int lastStripHeight = stripHeight + (h - (stripHeight * strips));
-        byte[] strip = strips == 1 ? buf : new byte[stripHeight * w * bpp];
-        for (int i=0; i<strips; i++) {
-          lastImage = reader.openBytes(source, x, y + i * stripHeight, w,
-            i == strips - 1 ? lastStripHeight : stripHeight);
-          lastImageIndex = source;
-          lastImageSeries = series;
-          lastImageX = x;
-          lastImageY = y + i * stripHeight;
-          lastImageWidth = w;
-          lastImageHeight = i == strips - 1 ? lastStripHeight : stripHeight;
-
-          if (strips != 1 && lastStripHeight != stripHeight && i == strips - 1)
-          {
-            strip = new byte[lastStripHeight * w * bpp];
-          }
-
-          ImageTools.splitChannels(lastImage, strip, channel, c, bpp,
-            false, isInterleaved(), strips == 1 ? w * h * bpp : strip.length);
-          if (strips != 1) {
-            System.arraycopy(strip, 0, buf, i * stripHeight * w * bpp,
-              strip.length);
-          }
-        }
+      CachedRegion region = getCachedRegion(series, source, x, y, w, h);
+      if (region != null) {
+        copyChannel(region, x, y, w, h, channel, c, bpp, interleaved, buf, 0);
+        return buf;
       }
-      else {
-        ImageTools.splitChannels(lastImage, buf, channel, c, bpp,
-          false, isInterleaved(), w * h * bpp);
+
+      // check how big the original image is; if it's larger than the
+      // available memory, we will need to split it into strips
+
+      long size = (long) w * h * bpp * c;
+      Runtime rt = Runtime.getRuntime();
+      int strips = rt.freeMemory() < size ? (int) Math.sqrt(h) : 1;
+
+      int stripHeight = h / strips;
+      for (int i=0; i<strips; i++) {
+        int stripY = y + i * stripHeight;
+        int height = i == strips - 1 ? h - i * stripHeight : stripHeight;
+        region = new CachedRegion(series, source, x, stripY, w, height,
+          reader.openBytes(source, x, stripY, w, height));
+        copyChannel(region, x, stripY, w, height, channel, c, bpp,
+          interleaved, buf, i * stripHeight * w * bpp);
       }
+      if (strips == 1) cacheRegion(region);
 
       return buf;
     }
@@ -226,15 +218,15 @@ public class ChannelSeparator extends ReaderWrapper {
   /* @see IFormatReader#close(boolean) */
   public void close(boolean fileOnly) throws IOException {
     super.close(fileOnly);
-    if (!fileOnly) {
-      lastImage = null;
-      lastImageIndex = -1;
-      lastImageSeries = -1;
-      lastImageX = -1;
-      lastImageY = -1;
-      lastImageWidth = -1;
-      lastImageHeight = -1;
-    }
+    if (!fileOnly) clearCache();
+  }
+
+  /* @see IFormatReader#refresh() */
+  public boolean refresh() throws FormatException, IOException {
+    boolean changed = super.refresh();
+    // cached regions may belong to planes whose indices have changed
+    if (changed) clearCache();
+    return changed;
   }
 
   public int getIndex(int z, int c, int t) {
@@ -256,14 +248,141 @@ public class ChannelSeparator extends ReaderWrapper {
   public void setId(String id) throws FormatException, IOException {
     super.setId(id);
 
-    // clear last image cache
-    lastImage = null;
-    lastImageIndex = -1;
-    lastImageSeries = -1;
-    lastImageX = -1;
-    lastImageY = -1;
-    lastImageWidth = -1;
-    lastImageHeight = -1;
+    clearCache();
+  }
+
+  // -- Helper methods --
+
+  /**
+   * Returns the cached region of the given original plane which contains
+   * the given rectangle, or null if no such region is cached.
+   */
+  private CachedRegion getCachedRegion(int series, int source, int x, int y,
+    int w, int h)
+  {
+    for (Iterator<CachedRegion> it=cache.iterator(); it.hasNext();) {
+      CachedRegion region = it.next();
+      if (region.contains(series, source, x, y, w, h)) {
+        if (region != cache.getFirst()) {
+          it.remove();
+          cache.addFirst(region);
+        }
+        return region;
+      }
+    }
+    return null;
+  }
+
+  /** Adds the given region to the cache, if it is within budget. */
+  private void cacheRegion(CachedRegion region) {
+    long budget = Math.min(cacheSize, Runtime.getRuntime().maxMemory() / 4);
+    if (region.data.length > budget) return;
+    trimCache(region.data.length);
+    cache.addFirst(region);
+    cachedBytes += region.data.length;
+  }
+
+  /**
+   * Discards least recently used regions until the given number of bytes
+   * can be added without exceeding the cache size.
+   */
+  private void trimCache(long bytes) {
+    long budget = Math.min(cacheSize, Runtime.getRuntime().maxMemory() / 4);
+    while (!cache.isEmpty() && cachedBytes + bytes > budget) {
+      cachedBytes -= cache.removeLast().data.length;
+    }
+  }
+
+  private void clearCache() {
+    cache.clear();
+    cachedBytes = 0;
+  }
+
+  /**
+   * Copies one channel of the given rectangle from a decoded region into
+   * the destination array, starting at the given offset.
+   */
+  private static void copyChannel(CachedRegion region, int x, int y, int w,
+    int h, int channel, int c, int bpp, boolean interleaved, byte[] dest,
+    int offset)
+  {
+    int rowLength = w * bpp;
+    byte[] src = region.data;
+    if (!interleaved) {
+      int channelLength = region.width * region.height * bpp;
+      int srcRow = channelLength * channel +
+        ((y - region.y) * region.width + x - region.x) * bpp;
+      for (int row=0; row<h; row++) {
+        System.arraycopy(src, srcRow, dest, offset, rowLength);
+        srcRow += region.width * bpp;
+        offset += rowLength;
+      }
+      return;
+    }
+
+    int pixel = c * bpp;
+    for (int row=0; row<h; row++) {
+      int next = (((y - region.y + row) * region.width) + x - region.x) *
+        pixel + channel * bpp;
+      int end = offset + rowLength;
+      switch (bpp) {
+        case 1:
+          for (; offset<end; offset++, next+=pixel) {
+            dest[offset] = src[next];
+          }
+          break;
+        case 2:
+          for (; offset<end; offset+=2, next+=pixel) {
+            dest[offset] = src[next];
+            dest[offset + 1] = src[next + 1];
+          }
+          break;
+        case 4:
+          for (; offset<end; offset+=4, next+=pixel) {
+            dest[offset] = src[next];
+            dest[offset + 1] = src[next + 1];
+            dest[offset + 2] = src[next + 2];
+            dest[offset + 3] = src[next + 3];
+          }
+          break;
+        default:
+          for (; offset<end; offset+=bpp, next+=pixel) {
+            System.arraycopy(src, next, dest, offset, bpp);
+          }
+      }
+    }
+  }
+
+  // -- Helper classes --
+
+  /** A decoded rectangle of one of the original planes. */
+  private static class CachedRegion {
+    private int series, source, x, y, width, height;
+    private byte[] data;
+
+    public CachedRegion(int series, int source, int x, int y, int width,
+      int height, byte[] data)
+    {
+      this.series = series;
+      this.source = source;
+      this.x = x;
+      this.y = y;
+      this.width = width;
+      this.height = height;
+      this.data = data;
+    }
+
+    /**
+     * Returns true if this region is from the given plane, and contains the
+     * given rectangle.
+     */
+    public boolean contains(int series, int source, int x, int y, int w,
+      int h)
+    {
+      return series == this.series && source == this.source &&
+        x >= this.x && y >= this.y && x + w <= this.x + width &&
+        y + h <= this.y + height;
+    }
   }
 
 }
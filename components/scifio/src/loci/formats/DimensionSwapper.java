@@ -271,6 +271,31 @@ public class DimensionSwapper extends ReaderWrapper {
     return core;
   }
 
+  /* @see IFormatReader#refresh() */
+  public boolean refresh() throws FormatException, IOException {
+    FormatTools.assertId(getCurrentFile(), true, 2);
+    if (!super.refresh()) return false;
+
+    // reapply the input and output orders to a new copy of the metadata
+    String[] inputOrder = new String[core.length];
+    for (int i=0; i<inputOrder.length; i++) {
+      inputOrder[i] = core[i].dimensionOrder;
+    }
+    String[] oldOutputOrder = outputOrder;
+    core = copyCoreMetadata(reader);
+    outputOrder = new String[getSeriesCount()];
+    if (inputOrder.length == outputOrder.length) {
+      int oldSeries = getSeries();
+      for (int i=0; i<inputOrder.length; i++) {
+        setSeries(i);
+        swapDimensions(inputOrder[i]);
+        outputOrder[i] = oldOutputOrder[i];
+      }
+      setSeries(oldSeries);
+    }
+    return true;
+  }
+
   // -- IFormatHandler API methods --
 
   /* @see IFormatHandler#setId(String) */
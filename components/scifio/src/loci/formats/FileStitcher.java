@@ -41,6 +41,8 @@ import loci.formats.in.MetadataLevel;
 import loci.formats.in.MetadataOptions;
 import loci.formats.meta.MetadataStore;
 
+import ome.xml.model.primitives.PositiveInteger;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -89,6 +91,9 @@ public class FileStitcher extends ReaderWrapper {
   private ExternalSeries[] externals;
   private ClassList<IFormatReader> classList;
 
+  /** The file name or pattern with which the stitcher was initialized. */
+  private String currentId;
+
   // -- Constructors --
 
   /** Constructs a FileStitcher around a new image reader. */
@@ -514,7 +519,47 @@ public class FileStitcher extends ReaderWrapper {
       core = null;
       series = 0;
       store = null;
+      currentId = null;
+    }
+  }
+
+  /* @see IFormatReader#refresh() */
+  public boolean refresh() throws FormatException, IOException {
+    FormatTools.assertId(getCurrentFile(), true, 2);
+    if (noStitch) return reader.refresh();
+
+    // look for files that extend the pattern of each series
+    String[] patterns = findPatterns(currentId);
+    if (patterns.length == 0) patterns = new String[] {currentId};
+    boolean reinitialize = patterns.length != externals.length;
+    boolean changed = false;
+    for (int i=0; i<externals.length && !reinitialize; i++) {
+      FilePattern fp = new FilePattern(patterns[i]);
+      ExternalSeries s = externals[i];
+      if (fp.getPattern().equals(s.getFilePattern().getPattern())) continue;
+      // wait until every file matched by the new pattern exists
+      if (!fp.isValid() || !filesExist(fp.getFiles())) continue;
+      if (s.append(fp)) changed = true;
+      else reinitialize = true;
+    }
+
+    int oldSeries = getSeries();
+    if (reinitialize) {
+      setId(currentId);
+      setSeries(Math.min(oldSeries, getSeriesCount() - 1));
+      return true;
     }
+    if (!changed) return false;
+
+    for (int i=0; i<core.length; i++) {
+      setSeries(i);
+      computeAxisLengths();
+      store.setPixelsSizeZ(new PositiveInteger(getSizeZ()), i);
+      store.setPixelsSizeC(new PositiveInteger(getSizeC()), i);
+      store.setPixelsSizeT(new PositiveInteger(getSizeT()), i);
+    }
+    setSeries(oldSeries);
+    return true;
   }
 
   /* @see IFormatReader#getSeriesCount() */
@@ -739,6 +784,7 @@ public class FileStitcher extends ReaderWrapper {
   /** Initializes the given file or file pattern. */
   protected void initFile(String id) throws FormatException, IOException {
     LOGGER.debug("initFile: {}", id);
+    currentId = id;
 
     FilePattern fp = new FilePattern(id);
     if (!patternIds) {
@@ -830,14 +876,9 @@ public class FileStitcher extends ReaderWrapper {
     }
 
     for (int i=0; i<files.length; i++) {
-      String file = files[i];
-
-      // HACK: skip file existence check for fake files
-      if (file.toLowerCase().endsWith(".fake")) continue;
-
-      if (!new Location(file).exists()) {
+      if (!filesExist(new String[] {files[i]})) {
         throw new FormatException("File #" + i +
-          " (" + file + ") does not exist.");
+          " (" + files[i] + ") does not exist.");
       }
     }
 
@@ -917,6 +958,17 @@ public class FileStitcher extends ReaderWrapper {
 
   // -- Helper methods --
 
+  /** Returns true if each of the given files exists. */
+  private boolean filesExist(String[] files) {
+    for (String file : files) {
+      // HACK: skip file existence check for fake files
+      if (file.toLowerCase().endsWith(".fake")) continue;
+
+      if (!new Location(file).exists()) return false;
+    }
+    return true;
+  }
+
   private int getExternalSeries() {
     return getExternalSeries(getSeries());
   }
@@ -1122,11 +1174,7 @@ public class FileStitcher extends ReaderWrapper {
 
       readers = new DimensionSwapper[files.length];
       for (int i=0; i<readers.length; i++) {
-        if (classList != null) {
-          readers[i] = new DimensionSwapper(new ImageReader(classList));
-        }
-        else readers[i] = new DimensionSwapper();
-        readers[i].setGroupFiles(false);
+        readers[i] = createReader();
       }
       readers[0].setId(files[0]);
 
@@ -1169,6 +1217,43 @@ public class FileStitcher extends ReaderWrapper {
       return imagesPerFile;
     }
 
+    /**
+     * Extends this series with the files matched by the given pattern, which
+     * must list the files already in this series first.  The axis types are
+     * kept.  Returns false if the pattern does not extend this series.
+     */
+    public boolean append(FilePattern newPattern) {
+      String[] newFiles = newPattern.getFiles();
+      if (newFiles.length <= files.length ||
+        newPattern.getCount().length != pattern.getCount().length)
+      {
+        return false;
+      }
+      for (int i=0; i<files.length; i++) {
+        if (!newFiles[i].equals(files[i])) return false;
+      }
+
+      DimensionSwapper[] newReaders = new DimensionSwapper[newFiles.length];
+      System.arraycopy(readers, 0, newReaders, 0, readers.length);
+      for (int i=readers.length; i<newReaders.length; i++) {
+        newReaders[i] = createReader();
+      }
+      readers = newReaders;
+      files = newFiles;
+      pattern = newPattern;
+      return true;
+    }
+
+    private DimensionSwapper createReader() {
+      DimensionSwapper r;
+      if (classList != null) {
+        r = new DimensionSwapper(new ImageReader(classList));
+      }
+      else r = new DimensionSwapper();
+      r.setGroupFiles(false);
+      return r;
+    }
+
   }
 
 }
@@ -23,7 +23,10 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package loci.formats;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Hashtable;
 import java.util.Set;
@@ -176,6 +179,9 @@ public abstract class FormatReader extends FormatHandler
   private ServiceFactory factory;
   private OMEXMLService service;
 
+  /** Length and modification time of the current file when it was opened. */
+  private long[] fileStamp;
+
   // -- Constructors --
 
   /** Constructs a format reader with the given name and default suffix. */
@@ -219,6 +225,19 @@ public abstract class FormatReader extends FormatHandler
     getMetadataStore().createRoot();
   }
 
+  /**
+   * Reinitializes the current file, keeping the current series if it still
+   * exists.  This is how {@link #refresh()} handles changes that a reader
+   * cannot parse incrementally.
+   */
+  protected void reinitialize() throws FormatException, IOException {
+    String id = currentId;
+    int oldSeries = getSeries();
+    close();
+    setId(id);
+    setSeries(Math.min(oldSeries, getSeriesCount() - 1));
+  }
+
   /** Returns true if the given file name is in the used files list. */
   protected boolean isUsedFile(String file) {
     String[] usedFiles = getUsedFiles();
@@ -761,6 +780,13 @@ public abstract class FormatReader extends FormatHandler
     return openBytes(no, x, y, w, h);
   }
 
+  /* @see IFormatReader#openBytes(int, ByteBuffer, int, int, int, int) */
+  public ByteBuffer openBytes(int no, ByteBuffer buf, int x, int y, int w,
+    int h) throws FormatException, IOException
+  {
+    return FormatTools.openBytes(this, no, buf, x, y, w, h);
+  }
+
   /* @see IFormatReader#openThumbBytes(int) */
   public byte[] openThumbBytes(int no) throws FormatException, IOException {
     FormatTools.assertId(currentId, true, 1);
@@ -773,9 +799,19 @@ public abstract class FormatReader extends FormatHandler
     if (!fileOnly) {
       in = null;
       currentId = null;
+      fileStamp = null;
     }
   }
 
+  /* @see IFormatReader#refresh() */
+  public boolean refresh() throws FormatException, IOException {
+    FormatTools.assertId(currentId, true, 1);
+    // by default, reinitialize if the file's length or time stamp changed
+    if (Arrays.equals(fileStamp, getFileStamp())) return false;
+    reinitialize();
+    return true;
+  }
+
   /* @see IFormatReader#getSeriesCount() */
   public int getSeriesCount() {
     FormatTools.assertId(currentId, true, 1);
@@ -1085,6 +1121,7 @@ public abstract class FormatReader extends FormatHandler
   public void setId(String id) throws FormatException, IOException {
     if (!id.equals(currentId)) {
       initFile(id);
+      fileStamp = getFileStamp();
 
       if (saveOriginalMetadata) {
         MetadataStore store = getMetadataStore();
@@ -1567,4 +1604,12 @@ public abstract class FormatReader extends FormatHandler
     }
   }
 
+  // -- Helper methods --
+
+  /** Gets the length and modification time of the current file. */
+  private long[] getFileStamp() {
+    File file = new File(Location.getMappedId(currentId));
+    return new long[] {file.length(), file.lastModified()};
+  }
+
 }
@@ -24,6 +24,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Vector;
 
 import loci.common.DateTools;
@@ -144,6 +145,12 @@ public final class FormatTools {
   public static final String T_NUM = "%t";
   public static final String TIMESTAMP = "%A";
 
+  /**
+   * Maximum number of bytes read at once by
+   * {@link #openBytes(IFormatReader, int, ByteBuffer, int, int, int, int)}.
+   */
+  public static final int BUFFER_BAND_SIZE = 16 * 1024 * 1024;
+
   // -- Constants - versioning --
 
   /**
@@ -715,6 +722,22 @@ public final class FormatTools {
     if (bufLength >= 0) checkBufferSize(r, bufLength, w, h);
   }
 
+  /**
+   * Convenience method for checking that the plane number, tile size and
+   * buffer sizes are all valid for the given reader, when the buffer size
+   * may exceed 2 GB.
+   * If 'bufLength' is less than 0, then the buffer length check is not
+   * performed.
+   */
+  public static void checkPlaneParameters(IFormatReader r, int no,
+    long bufLength, int x, int y, int w, int h) throws FormatException
+  {
+    assertId(r.getCurrentFile(), true, 2);
+    checkPlaneNumber(r, no);
+    checkTileSize(r, x, y, w, h);
+    if (bufLength >= 0) checkBufferSize(r, bufLength, w, h);
+  }
+
   /** Checks that the given plane number is valid for the given reader. */
   public static void checkPlaneNumber(IFormatReader r, int no)
     throws FormatException
@@ -761,6 +784,22 @@ public final class FormatTools {
     }
   }
 
+  /**
+   * Checks that the given buffer size is large enough to hold a w * h
+   * image as returned by the given reader, when the buffer size may
+   * exceed 2 GB.
+   * @throws FormatException if the buffer is too small
+   */
+  public static void checkBufferSize(IFormatReader r, long len, int w, int h)
+    throws FormatException
+  {
+    long size = getPlaneSizeLong(r, w, h);
+    if (size > len) {
+      throw new FormatException("Buffer too small (got " + len +
+        ", expected " + size + ").");
+    }
+  }
+
   /**
    * Returns true if the given RandomAccessInputStream conatins at least
    * 'len' bytes.
@@ -783,6 +822,15 @@ public final class FormatTools {
     return w * h * r.getRGBChannelCount() * getBytesPerPixel(r.getPixelType());
   }
 
+  /**
+   * Returns the size in bytes of a w * h tile, which may be larger than
+   * 2 GB.
+   */
+  public static long getPlaneSizeLong(IFormatReader r, int w, int h) {
+    return (long) w * h * r.getRGBChannelCount() *
+      getBytesPerPixel(r.getPixelType());
+  }
+
   // -- Utility methods -- export
 
   /**
@@ -942,6 +990,62 @@ public final class FormatTools {
     return rtn;
   }
 
+  /**
+   * Default implementation for
+   * {@link IFormatReader#openBytes(int, ByteBuffer, int, int, int, int)}.
+   *
+   * The sub-image is read in bands of rows using
+   * {@link IFormatReader#openBytes(int, byte[], int, int, int, int)}, so that
+   * no more than {@link #BUFFER_BAND_SIZE} bytes (or one row, if larger) are
+   * held on the heap at once.
+   */
+  public static ByteBuffer openBytes(IFormatReader reader, int no,
+    ByteBuffer buf, int x, int y, int w, int h)
+    throws FormatException, IOException
+  {
+    checkPlaneParameters(reader, no, (long) buf.remaining(), x, y, w, h);
+
+    int bpp = getBytesPerPixel(reader.getPixelType());
+    int channels = reader.getRGBChannelCount();
+    boolean planar = channels > 1 && !reader.isInterleaved();
+    long rowSize = (long) w * channels * bpp;
+    if (rowSize > Integer.MAX_VALUE) {
+      throw new FormatException("Image row too large (" + rowSize +
+        " bytes); only 2GB of data can be extracted at one time.");
+    }
+
+    int bandHeight = (int) Math.min(h, BUFFER_BAND_SIZE / Math.max(rowSize, 1));
+    int tileHeight = reader.getOptimalTileHeight();
+    if (tileHeight > 0 && bandHeight > tileHeight && bandHeight < h) {
+      bandHeight -= bandHeight % tileHeight;
+    }
+    bandHeight = Math.max(bandHeight, 1);
+
+    int start = buf.position();
+    int channelSize = w * h * bpp;
+    byte[] band = null;
+    for (int row=0; row<h; row+=bandHeight) {
+      int rows = Math.min(bandHeight, h - row);
+      int bandSize = (int) (rowSize * rows);
+      if (band == null || band.length != bandSize) band = new byte[bandSize];
+      reader.openBytes(no, band, x, y + row, w, rows);
+
+      if (planar) {
+        int chunk = w * rows * bpp;
+        for (int c=0; c<channels; c++) {
+          buf.position(start + c * channelSize + row * w * bpp);
+          buf.put(band, c * chunk, chunk);
+        }
+      }
+      else {
+        buf.position(start + (int) (row * rowSize));
+        buf.put(band);
+      }
+    }
+    buf.position(start + (int) (h * rowSize));
+    return buf;
+  }
+
   // -- Conversion convenience methods --
 
   /**
@@ -24,6 +24,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.Hashtable;
 
 import loci.common.RandomAccessInputStream;
@@ -273,6 +274,33 @@ public interface IFormatReader extends IFormatHandler, IMetadataConfigurable {
   byte[] openBytes(int no, byte[] buf, int x, int y, int w, int h)
     throws FormatException, IOException;
 
+  /**
+   * Obtains a sub-image of the specified image plane into the given
+   * {@link ByteBuffer}, which may be direct or memory-mapped.
+   *
+   * The sub-image is written starting at the buffer's current position, in
+   * the same layout as {@link #openBytes(int, byte[], int, int, int, int)},
+   * and the position is advanced past it.  The buffer must have at least
+   * (w * h * bytesPerPixel * RGB channel count) bytes remaining.
+   *
+   * Unlike the byte array methods, this method does not require the plane
+   * (or any intermediate copy of it) to fit in a single Java array, so
+   * planes larger than 2 GB can be read as a sequence of sub-images.
+   *
+   * @param no the image index within the file.
+   * @param buf the buffer into which the sub-image is written.
+   * @param x X coordinate of the upper-left corner of the sub-image
+   * @param y Y coordinate of the upper-left corner of the sub-image
+   * @param w width of the sub-image
+   * @param h height of the sub-image
+   * @return the buffer <code>buf</code> for convenience.
+   * @throws FormatException if there was a problem parsing the metadata of the
+   *   file.
+   * @throws IOException if there was a problem reading the file.
+   */
+  ByteBuffer openBytes(int no, ByteBuffer buf, int x, int y, int w, int h)
+    throws FormatException, IOException;
+
   /**
    * Obtains the specified image plane (or sub-image thereof) in the reader's
    * native data structure. For most readers this is a byte array; however,
@@ -300,6 +328,20 @@ public interface IFormatReader extends IFormatHandler, IMetadataConfigurable {
    */
   void close(boolean fileOnly) throws IOException;
 
+  /**
+   * Checks whether the current dataset has grown since it was initialized
+   * (or last refreshed), as happens while an acquisition is still being
+   * written, and updates the core metadata and metadata store to include
+   * any new image planes.  Readers which cannot parse the new data
+   * incrementally reinitialize the dataset instead.
+   *
+   * @return true if the dataset changed.
+   * @throws FormatException if there was a problem parsing the metadata of the
+   *   new data.
+   * @throws IOException if there was a problem reading the file.
+   */
+  boolean refresh() throws FormatException, IOException;
+
   /** Gets the number of series in this file. */
   int getSeriesCount();
 
@@ -24,6 +24,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
@@ -401,6 +402,13 @@ public class ImageReader implements IFormatReader {
     return getReader().openBytes(no, buf, x, y, w, h);
   }
 
+  /* @see IFormatReader#openBytes(int, ByteBuffer, int, int, int, int) */
+  public ByteBuffer openBytes(int no, ByteBuffer buf, int x, int y, int w,
+    int h) throws FormatException, IOException
+  {
+    return getReader().openBytes(no, buf, x, y, w, h);
+  }
+
   /* @see IFormatReader#openPlane(int, int, int, int, int) */
   public Object openPlane(int no, int x, int y, int w, int h)
     throws FormatException, IOException
@@ -504,6 +512,11 @@ public class ImageReader implements IFormatReader {
     if (!fileOnly) currentId = null;
   }
 
+  /* @see IFormatReader#refresh() */
+  public boolean refresh() throws FormatException, IOException {
+    return getReader().refresh();
+  }
+
   /* @see IFormatReader#setGroupFiles(boolean) */
   public void setGroupFiles(boolean group) {
     FormatTools.assertId(currentId, false, 2);
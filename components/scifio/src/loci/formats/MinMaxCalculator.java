@@ -23,12 +23,32 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package loci.formats;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-
-import loci.common.DataTools;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import loci.common.Location;
 import loci.formats.meta.IMinMaxStore;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 /**
  * Logic to compute minimum and maximum values for each channel.
  *
@@ -38,6 +58,17 @@ import loci.formats.meta.IMinMaxStore;
  */
 public class MinMaxCalculator extends ReaderWrapper {
 
+  // -- Constants --
+
+  private static final Logger LOGGER =
+    LoggerFactory.getLogger(MinMaxCalculator.class);
+
+  /** Version of the min/max cache file format. */
+  private static final int CACHE_VERSION = 2;
+
+  /** Suffix of min/max cache files. */
+  private static final String CACHE_SUFFIX = ".minmax";
+
   // -- Utility methods --
 
   /** Converts the given reader into a MinMaxCalculator, wrapping if needed. */
@@ -63,9 +94,27 @@ public class MinMaxCalculator extends ReaderWrapper {
   /** Number of planes for which min/max computations have been completed. */
   protected int[] minMaxDone;
 
+  /** Planes of each series whose every pixel has been scanned. */
+  private BitSet[] planeDone;
+
+  /**
+   * Rows scanned so far by full-width reads of incomplete planes, keyed by
+   * series and plane index.
+   */
+  private Map<Long, BitSet> rowsDone = new HashMap<Long, BitSet>();
+
   /** Consumer of channel global minima and maxima */
   protected IMinMaxStore minMaxStore;
 
+  /** Executor used to compute plane minima and maxima, if set. */
+  private ExecutorService executor;
+
+  /** Directory in which min/max values are cached, if set. */
+  private String cacheDirectory;
+
+  /** Whether min/max values have changed since they were cached. */
+  private boolean cacheChanged;
+
   // -- Constructors --
 
   /** Constructs a MinMaxCalculator around a new image reader. */
@@ -92,6 +141,40 @@ public class MinMaxCalculator extends ReaderWrapper {
     return minMaxStore;
   }
 
+  /**
+   * Sets the executor used by {@link #computeMinMax()} to compute the minima
+   * and maxima of several planes in parallel.  Planes are still read on the
+   * calling thread.  If null (the default), planes are processed on the
+   * calling thread.  The executor is not shut down by this class.
+   */
+  public void setExecutor(ExecutorService executor) {
+    this.executor = executor;
+  }
+
+  /** Retrieves the executor used by {@link #computeMinMax()}. */
+  public ExecutorService getExecutor() {
+    return executor;
+  }
+
+  /**
+   * Sets the directory in which per-plane minima and maxima are cached.
+   * Values are loaded when a file is initialized, and saved when it is
+   * closed; cache files are keyed by the path, length and modification time
+   * of the file, so a modified file is never matched with stale values.
+   * If null (the default), values are not cached.
+   */
+  public void setCacheDirectory(String directory) {
+    cacheDirectory = directory;
+    if (directory != null && getCurrentFile() != null && chanMin == null) {
+      loadCache();
+    }
+  }
+
+  /** Retrieves the directory in which minima and maxima are cached. */
+  public String getCacheDirectory() {
+    return cacheDirectory;
+  }
+
   // -- MinMaxCalculator API methods --
 
   /**
@@ -229,6 +312,141 @@ public class MinMaxCalculator extends ReaderWrapper {
     return minMaxDone != null && minMaxDone[getSeries()] == getImageCount();
   }
 
+  /**
+   * Reads every plane of the current series whose minimum and maximum have
+   * not yet been computed, so that {@link #isMinMaxPopulated()} is true
+   * afterwards.  If an executor has been set, the values for each plane are
+   * computed on the executor while the following planes are read.
+   */
+  public void computeMinMax() throws FormatException, IOException {
+    FormatTools.assertId(getCurrentFile(), true, 2);
+    initMinMax();
+
+    final int series = getSeries();
+    final int numRGB = getRGBChannelCount();
+    final int pixelType = getPixelType();
+    final boolean little = isLittleEndian();
+    final boolean interleaved = isInterleaved();
+    final int pixels = getSizeX() * getSizeY();
+    int planeSize =
+      pixels * numRGB * FormatTools.getBytesPerPixel(pixelType);
+    int imageCount = getImageCount();
+
+    if (executor == null) {
+      byte[] buf = null;
+      for (int no=0; no<imageCount; no++) {
+        if (planeDone[series].get(no)) continue;
+        if (buf == null) buf = new byte[planeSize];
+        openBytes(no, buf);
+      }
+      return;
+    }
+
+    int window = Math.max(2, Runtime.getRuntime().availableProcessors());
+    LinkedList<Future<double[]>> futures = new LinkedList<Future<double[]>>();
+    LinkedList<Integer> planes = new LinkedList<Integer>();
+    LinkedList<byte[]> buffers = new LinkedList<byte[]>();
+    List<byte[]> free = new ArrayList<byte[]>();
+    try {
+      for (int no=0; no<imageCount || futures.size() > 0; no++) {
+        if (no < imageCount) {
+          if (planeDone[series].get(no)) continue;
+          final byte[] buf = free.size() > 0 ?
+            free.remove(free.size() - 1) : new byte[planeSize];
+          reader.openBytes(no, buf);
+          futures.add(executor.submit(new Callable<double[]>() {
+            public double[] call() {
+              return computeMinMax(buf, pixelType, little, interleaved,
+                numRGB, pixels);
+            }
+          }));
+          planes.add(no);
+          buffers.add(buf);
+          if (futures.size() < window) continue;
+        }
+        double[] range = futures.removeFirst().get();
+        int plane = planes.removeFirst();
+        recordMinMax(series, plane, range, true);
+        completePlane(series, plane);
+        free.add(buffers.removeFirst());
+      }
+    }
+    catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      IOException exc =
+        new IOException("Interrupted while computing minima and maxima");
+      exc.initCause(e);
+      throw exc;
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new FormatException(cause);
+    }
+    finally {
+      for (Future<double[]> future : futures) {
+        future.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Merges the minimum and maximum values computed by another calculator
+   * into this one.  This allows the planes of a dataset to be divided among
+   * several independent reader stacks (e.g., one per thread) without losing
+   * the global minima and maxima.  The other calculator must have been
+   * initialized with the same dataset and dimension order.
+   *
+   * @throws IOException Not actually thrown.
+   */
+  public void merge(MinMaxCalculator calculator)
+    throws FormatException, IOException
+  {
+    FormatTools.assertId(getCurrentFile(), true, 2);
+    if (calculator.minMaxDone == null) return;
+    initMinMax();
+
+    int oldSeries = getSeries();
+    for (int s=0; s<chanMin.length; s++) {
+      setSeries(s);
+      int numRGB = getRGBChannelCount();
+      for (int c=0; c<chanMin[s].length; c++) {
+        chanMin[s][c] = Math.min(chanMin[s][c], calculator.chanMin[s][c]);
+        chanMax[s][c] = Math.max(chanMax[s][c], calculator.chanMax[s][c]);
+      }
+      for (int no=0; no<getImageCount(); no++) {
+        if (planeDone[s].get(no)) continue;
+        boolean done = calculator.planeDone[s].get(no);
+        for (int p=no*numRGB; p<(no + 1)*numRGB; p++) {
+          double min = calculator.planeMin[s][p];
+          double max = calculator.planeMax[s][p];
+          if (Double.isNaN(min)) continue;
+          if (!done && !Double.isNaN(planeMin[s][p])) {
+            // both calculators have only scanned part of the plane
+            min = Math.min(min, planeMin[s][p]);
+            max = Math.max(max, planeMax[s][p]);
+          }
+          planeMin[s][p] = min;
+          planeMax[s][p] = max;
+        }
+        if (done) {
+          planeDone[s].set(no);
+          rowsDone.remove(getPlaneKey(s, no));
+        }
+      }
+      minMaxDone[s] = planeDone[s].cardinality();
+      cacheChanged = true;
+
+      if (minMaxStore != null && minMaxDone[s] == getImageCount()) {
+        for (int c=0; c<getSizeC(); c++) {
+          minMaxStore.setChannelGlobalMinMax(c,
+            chanMin[s][c], chanMax[s][c], s);
+        }
+      }
+    }
+    setSeries(oldSeries);
+  }
+
   // -- IFormatReader API methods --
 
   /* @see IFormatReader#openBytes(int) */
@@ -258,13 +476,19 @@ public class MinMaxCalculator extends ReaderWrapper {
   {
     FormatTools.assertId(getCurrentFile(), true, 2);
     super.openBytes(no, buf, x, y, w, h);
-    
-    updateMinMax(no, buf, FormatTools.getBytesPerPixel(getPixelType()) * w * h);
+
+    int len = FormatTools.getBytesPerPixel(getPixelType()) * w * h *
+      getRGBChannelCount();
+    if (x == 0 && w == getSizeX() && h < getSizeY()) {
+      updateMinMax(no, buf, len, y, h);
+    }
+    else updateMinMax(no, buf, len);
     return buf;
   }
 
   /* @see IFormatReader#close(boolean) */
   public void close(boolean fileOnly) throws IOException {
+    if (!fileOnly) saveCache();
     reader.close(fileOnly);
     if (!fileOnly) {
       chanMin = null;
@@ -272,11 +496,53 @@ public class MinMaxCalculator extends ReaderWrapper {
       planeMin = null;
       planeMax = null;
       minMaxDone = null;
+      planeDone = null;
+      rowsDone.clear();
+    }
+  }
+
+  /* @see IFormatReader#refresh() */
+  public boolean refresh() throws FormatException, IOException {
+    FormatTools.assertId(getCurrentFile(), true, 2);
+    String[] layout = getPlaneLayout();
+    if (!super.refresh()) return false;
+
+    if (planeMin != null && Arrays.equals(layout, getPlaneLayout())) {
+      // only time points were added, so the known values are still valid
+      int oldSeries = getSeries();
+      for (int i=0; i<planeMin.length; i++) {
+        setSeries(i);
+        int length = getImageCount() * getRGBChannelCount();
+        planeMin[i] = extend(planeMin[i], length);
+        planeMax[i] = extend(planeMax[i], length);
+      }
+      setSeries(oldSeries);
+    }
+    else {
+      chanMin = null;
+      chanMax = null;
+      planeMin = null;
+      planeMax = null;
+      minMaxDone = null;
+      planeDone = null;
+      rowsDone.clear();
     }
+    return true;
   }
 
   // -- IFormatHandler API methods --
 
+  /* @see IFormatHandler#close() */
+  public void close() throws IOException {
+    close(false);
+  }
+
+  /* @see IFormatHandler#setId(String) */
+  public void setId(String id) throws FormatException, IOException {
+    super.setId(id);
+    if (cacheDirectory != null && chanMin == null) loadCache();
+  }
+
   /* @see IFormatHandler#getNativeDataType() */
   public Class<?> getNativeDataType() {
     return byte[].class;
@@ -301,68 +567,369 @@ public class MinMaxCalculator extends ReaderWrapper {
     int series = getSeries();
     int pixelType = getPixelType();
     int bpp = FormatTools.getBytesPerPixel(pixelType);
-    int planeSize = getSizeX() * getSizeY() * bpp;
+    int planeSize = getSizeX() * getSizeY() * numRGB * bpp;
     // check whether min/max values have already been computed for this plane
     // and that the buffer requested is actually the entire plane
-    if (len == planeSize
-        && !Double.isNaN(planeMin[series][no * numRGB])) return;
+    if (len == planeSize && planeDone[series].get(no)) return;
 
-    boolean little = isLittleEndian();
-    
-    int pixels = len / (bpp * numRGB);
-    boolean interleaved = isInterleaved();
+    double[] range = computeMinMax(buf, pixelType, isLittleEndian(),
+      isInterleaved(), numRGB, len / (bpp * numRGB));
+    recordMinMax(series, no, range, len == planeSize);
+    if (len == planeSize) completePlane(series, no);
+  }
+
+  /**
+   * Updates min/max values based on the given full-width band of rows.
+   * The plane is complete once every row has been read.
+   */
+  private void updateMinMax(int no, byte[] buf, int len, int y, int h)
+    throws FormatException, IOException
+  {
+    if (buf == null) return;
+    initMinMax();
+    int series = getSeries();
+    if (planeDone[series].get(no)) return;
+
+    updateMinMax(no, buf, len);
+    Long key = getPlaneKey(series, no);
+    BitSet rows = rowsDone.get(key);
+    if (rows == null) {
+      rows = new BitSet(getSizeY());
+      rowsDone.put(key, rows);
+    }
+    rows.set(y, y + h);
+    if (rows.cardinality() == getSizeY()) completePlane(series, no);
+  }
 
+  /**
+   * Stores the minimum and maximum values of some or all of a plane.
+   * @param range the minimum and maximum of each channel in the plane,
+   *   as returned by {@link #computeMinMax(byte[], int, boolean, boolean,
+   *   int, int)}.
+   * @param fullPlane whether the values were computed from the entire plane;
+   *   otherwise, they are combined with any values already known for the
+   *   plane.  In either case, the plane is only counted as done by
+   *   {@link #completePlane(int, int)}.
+   */
+  private void recordMinMax(int series, int no, double[] range,
+    boolean fullPlane)
+  {
+    int numRGB = range.length / 2;
     int[] coords = getZCTCoords(no);
     int cBase = coords[1] * numRGB;
     int pBase = no * numRGB;
     for (int c=0; c<numRGB; c++) {
-      planeMin[series][pBase + c] = Double.POSITIVE_INFINITY;
-      planeMax[series][pBase + c] = Double.NEGATIVE_INFINITY;
+      double min = range[c];
+      double max = range[numRGB + c];
+      if (!fullPlane && !Double.isNaN(planeMin[series][pBase + c])) {
+        min = Math.min(min, planeMin[series][pBase + c]);
+        max = Math.max(max, planeMax[series][pBase + c]);
+      }
+      planeMin[series][pBase + c] = min;
+      planeMax[series][pBase + c] = max;
+      chanMin[series][cBase + c] = Math.min(chanMin[series][cBase + c], min);
+      chanMax[series][cBase + c] = Math.max(chanMax[series][cBase + c], max);
     }
+    cacheChanged = true;
+  }
 
-    boolean signed = FormatTools.isSigned(pixelType);
+  /**
+   * Marks the given plane as done, once its recorded values cover every
+   * pixel, and notifies the min/max store if the series is then complete.
+   */
+  private void completePlane(int series, int no) {
+    rowsDone.remove(getPlaneKey(series, no));
+    if (planeDone[series].get(no)) return;
+    planeDone[series].set(no);
+    minMaxDone[series] = planeDone[series].cardinality();
 
-    long threshold = (long) Math.pow(2, bpp * 8 - 1);
-    for (int i=0; i<pixels; i++) {
-      for (int c=0; c<numRGB; c++) {
-        int idx = bpp * (interleaved ? i * numRGB + c : c * pixels + i);
-        long bits = DataTools.bytesToLong(buf, idx, bpp, little);
-        if (signed) {
-          if (bits >= threshold) bits -= 2*threshold;
-        }
-        double v = bits;
-        if (pixelType == FormatTools.FLOAT) {
-          v = Float.intBitsToFloat((int) bits);
-        }
-        else if (pixelType == FormatTools.DOUBLE) {
-          v = Double.longBitsToDouble(bits);
-        }
+    if (minMaxDone[series] == getImageCount() && minMaxStore != null) {
+      for (int c=0; c<getSizeC(); c++) {
+        minMaxStore.setChannelGlobalMinMax(c, chanMin[series][c],
+          chanMax[series][c], series);
+      }
+    }
+  }
+
+  /** Gets the key of the given plane in {@link #rowsDone}. */
+  private static Long getPlaneKey(int series, int no) {
+    return new Long(((long) series << 32) | no);
+  }
+
+  /**
+   * Describes how the planes of each series are arranged, apart from the
+   * number of time points when those vary slowest.  If this is unchanged
+   * by a refresh, every plane keeps its index.
+   */
+  private String[] getPlaneLayout() {
+    int oldSeries = getSeries();
+    String[] layout = new String[getSeriesCount()];
+    for (int i=0; i<layout.length; i++) {
+      setSeries(i);
+      String order = getDimensionOrder();
+      layout[i] = order + " " + getSizeZ() + " " + getSizeC() + " " +
+        getRGBChannelCount() + " " + (order.endsWith("T") ? 0 : getSizeT());
+    }
+    setSeries(oldSeries);
+    return layout;
+  }
+
+  /** Copies the given values into a longer array padded with NaN. */
+  private static double[] extend(double[] values, int length) {
+    if (values.length >= length) return values;
+    double[] extended = new double[length];
+    System.arraycopy(values, 0, extended, 0, values.length);
+    Arrays.fill(extended, values.length, length, Double.NaN);
+    return extended;
+  }
+
+  /**
+   * Computes the minimum and maximum of each channel in the given pixels.
+   * Each channel is scanned with a single loop specialized for the pixel
+   * type, stepping over the other channels when they are interleaved.
+   *
+   * @param pixels the number of pixels in each channel.
+   * @return the minimum of each channel, followed by the maximum of each
+   *   channel.
+   */
+  private static double[] computeMinMax(byte[] buf, int pixelType,
+    boolean little, boolean interleaved, int numRGB, int pixels)
+  {
+    int bpp = FormatTools.getBytesPerPixel(pixelType);
+    int step = interleaved ? numRGB * bpp : bpp;
+    double[] range = new double[numRGB * 2];
+    for (int c=0; c<numRGB; c++) {
+      int start = interleaved ? c * bpp : c * pixels * bpp;
+      int end = start + pixels * step;
+      double min = Double.POSITIVE_INFINITY;
+      double max = Double.NEGATIVE_INFINITY;
+      switch (pixelType) {
+        case FormatTools.INT8:
+          for (int i=start; i<end; i+=step) {
+            int v = buf[i];
+            if (v < min) min = v;
+            if (v > max) max = v;
+          }
+          break;
+        case FormatTools.UINT8:
+          for (int i=start; i<end; i+=step) {
+            int v = buf[i] & 0xff;
+            if (v < min) min = v;
+            if (v > max) max = v;
+          }
+          break;
+        case FormatTools.INT16:
+          for (int i=start; i<end; i+=step) {
+            int v = (short) (little ?
+              (buf[i] & 0xff) | (buf[i + 1] << 8) :
+              (buf[i] << 8) | (buf[i + 1] & 0xff));
+            if (v < min) min = v;
+            if (v > max) max = v;
+          }
+          break;
+        case FormatTools.UINT16:
+          for (int i=start; i<end; i+=step) {
+            int v = little ?
+              (buf[i] & 0xff) | ((buf[i + 1] & 0xff) << 8) :
+              ((buf[i] & 0xff) << 8) | (buf[i + 1] & 0xff);
+            if (v < min) min = v;
+            if (v > max) max = v;
+          }
+          break;
+        case FormatTools.INT32:
+          for (int i=start; i<end; i+=step) {
+            int v = getInt(buf, i, little);
+            if (v < min) min = v;
+            if (v > max) max = v;
+          }
+          break;
+        case FormatTools.UINT32:
+          for (int i=start; i<end; i+=step) {
+            long v = getInt(buf, i, little) & 0xffffffffL;
+            if (v < min) min = v;
+            if (v > max) max = v;
+          }
+          break;
+        case FormatTools.FLOAT:
+          for (int i=start; i<end; i+=step) {
+            float v = Float.intBitsToFloat(getInt(buf, i, little));
+            if (v < min) min = v;
+            if (v > max) max = v;
+          }
+          break;
+        case FormatTools.DOUBLE:
+          for (int i=start; i<end; i+=step) {
+            long bits = little ?
+              (getInt(buf, i, true) & 0xffffffffL) |
+              ((long) getInt(buf, i + 4, true) << 32) :
+              ((long) getInt(buf, i, false) << 32) |
+              (getInt(buf, i + 4, false) & 0xffffffffL);
+            double v = Double.longBitsToDouble(bits);
+            if (v < min) min = v;
+            if (v > max) max = v;
+          }
+          break;
+        default:
+          throw new IllegalArgumentException("Unsupported pixel type: " +
+            FormatTools.getPixelTypeString(pixelType));
+      }
+      range[c] = min;
+      range[numRGB + c] = max;
+    }
+    return range;
+  }
+
+  /** Decodes a 32-bit integer from the given buffer. */
+  private static int getInt(byte[] buf, int i, boolean little) {
+    if (little) {
+      return (buf[i] & 0xff) | ((buf[i + 1] & 0xff) << 8) |
+        ((buf[i + 2] & 0xff) << 16) | (buf[i + 3] << 24);
+    }
+    return (buf[i] << 24) | ((buf[i + 1] & 0xff) << 16) |
+      ((buf[i + 2] & 0xff) << 8) | (buf[i + 3] & 0xff);
+  }
+
+  /**
+   * Returns the cache file for the current file, or null if values are not
+   * cached.  The returned key identifies the current state of the file.
+   */
+  private File getCacheFile(String[] key) {
+    if (cacheDirectory == null || getCurrentFile() == null) return null;
+    Location file = new Location(getCurrentFile()).getAbsoluteFile();
+    key[0] = file.getAbsolutePath() + ":" + file.length() + ":" +
+      file.lastModified() + ":" + getSeriesCount();
+    return new File(cacheDirectory, file.getName() + "." +
+      Integer.toHexString(key[0].hashCode()) + CACHE_SUFFIX);
+  }
 
-        if (v > chanMax[series][cBase + c]) {
-          chanMax[series][cBase + c] = v;
+  /** Loads cached min/max values for the current file, if there are any. */
+  private void loadCache() {
+    String[] key = new String[1];
+    File file = getCacheFile(key);
+    if (file == null || !file.exists()) return;
+    try {
+      initMinMax();
+      DataInputStream in = new DataInputStream(
+        new BufferedInputStream(new FileInputStream(file)));
+      try {
+        if (in.readInt() != CACHE_VERSION || !key[0].equals(in.readUTF())) {
+          return;
         }
-        if (v < chanMin[series][cBase + c]) {
-          chanMin[series][cBase + c] = v;
+        double[][][] values = {chanMin, chanMax, planeMin, planeMax};
+        double[][][] cached = new double[values.length][values[0].length][];
+        BitSet[] done = new BitSet[minMaxDone.length];
+        for (int s=0; s<done.length; s++) {
+          for (int v=0; v<values.length; v++) {
+            int n = in.readInt();
+            if (n != values[v][s].length) return;
+            cached[v][s] = new double[n];
+            for (int i=0; i<n; i++) cached[v][s][i] = in.readDouble();
+          }
+          // only complete planes are cached
+          done[s] = new BitSet();
+          int numRGB = getRGBChannelCount(s);
+          for (int no=0; no*numRGB<cached[2][s].length; no++) {
+            if (!Double.isNaN(cached[2][s][no * numRGB])) done[s].set(no);
+          }
         }
+        chanMin = cached[0];
+        chanMax = cached[1];
+        planeMin = cached[2];
+        planeMax = cached[3];
+        planeDone = done;
+        for (int s=0; s<done.length; s++) {
+          minMaxDone[s] = done[s].cardinality();
+        }
+        cacheChanged = false;
+        LOGGER.debug("Loaded minima and maxima from {}", file);
+      }
+      finally {
+        in.close();
       }
     }
+    catch (FormatException e) {
+      LOGGER.debug("Could not load minima and maxima", e);
+    }
+    catch (IOException e) {
+      LOGGER.debug("Could not load minima and maxima", e);
+    }
+  }
 
-    for (int c=0; c<numRGB; c++) {
-      if (chanMin[series][cBase + c] < planeMin[series][pBase + c]) {
-        planeMin[series][pBase + c] = chanMin[series][cBase + c];
+  /** Saves the min/max values for the current file, if they have changed. */
+  private void saveCache() {
+    if (!cacheChanged || chanMin == null) return;
+    String[] key = new String[1];
+    File file = getCacheFile(key);
+    if (file == null) return;
+    try {
+      DataOutputStream out = new DataOutputStream(
+        new BufferedOutputStream(new FileOutputStream(file)));
+      try {
+        out.writeInt(CACHE_VERSION);
+        out.writeUTF(key[0]);
+        double[][][] values = getCompleteValues();
+        for (int s=0; s<minMaxDone.length; s++) {
+          for (int v=0; v<values.length; v++) {
+            out.writeInt(values[v][s].length);
+            for (double d : values[v][s]) out.writeDouble(d);
+          }
+        }
       }
-      if (chanMax[series][cBase + c] > planeMax[series][pBase + c]) {
-        planeMax[series][pBase + c] = chanMax[series][cBase + c];
+      finally {
+        out.close();
       }
+      cacheChanged = false;
     }
-    minMaxDone[series] = Math.max(minMaxDone[series], no + 1);
+    catch (IOException e) {
+      LOGGER.warn("Could not save minima and maxima to " + file, e);
+    }
+  }
 
-    if (minMaxDone[getSeries()] == getImageCount() && minMaxStore != null) {
-      for (int c=0; c<getSizeC(); c++) {
-        minMaxStore.setChannelGlobalMinMax(c, chanMin[getSeries()][c],
-          chanMax[getSeries()][c], getSeries());
+  /**
+   * Gets the channel and plane minima and maxima of each series, computed
+   * only from the planes which are done.  Values for the other planes are
+   * NaN.
+   */
+  private double[][][] getCompleteValues() {
+    int seriesCount = minMaxDone.length;
+    double[][][] values = new double[4][seriesCount][];
+    int oldSeries = getSeries();
+    for (int s=0; s<seriesCount; s++) {
+      setSeries(s);
+      int numRGB = getRGBChannelCount();
+      values[0][s] = new double[chanMin[s].length];
+      values[1][s] = new double[chanMax[s].length];
+      values[2][s] = new double[planeMin[s].length];
+      values[3][s] = new double[planeMax[s].length];
+      Arrays.fill(values[0][s], Double.POSITIVE_INFINITY);
+      Arrays.fill(values[1][s], Double.NEGATIVE_INFINITY);
+      Arrays.fill(values[2][s], Double.NaN);
+      Arrays.fill(values[3][s], Double.NaN);
+      for (int no=planeDone[s].nextSetBit(0); no>=0;
+        no=planeDone[s].nextSetBit(no + 1))
+      {
+        int cBase = getZCTCoords(no)[1] * numRGB;
+        for (int c=0; c<numRGB; c++) {
+          double min = planeMin[s][no * numRGB + c];
+          double max = planeMax[s][no * numRGB + c];
+          values[0][s][cBase + c] = Math.min(values[0][s][cBase + c], min);
+          values[1][s][cBase + c] = Math.max(values[1][s][cBase + c], max);
+          values[2][s][no * numRGB + c] = min;
+          values[3][s][no * numRGB + c] = max;
+        }
       }
     }
+    setSeries(oldSeries);
+    return values;
+  }
+
+  /** Gets the number of channels per plane in the given series. */
+  private int getRGBChannelCount(int series) {
+    int oldSeries = getSeries();
+    setSeries(series);
+    int numRGB = getRGBChannelCount();
+    setSeries(oldSeries);
+    return numRGB;
   }
 
   /**
@@ -414,6 +981,12 @@ public class MinMaxCalculator extends ReaderWrapper {
       setSeries(oldSeries);
     }
     if (minMaxDone == null) minMaxDone = new int[seriesCount];
+    if (planeDone == null) {
+      planeDone = new BitSet[seriesCount];
+      for (int i=0; i<seriesCount; i++) {
+        planeDone[i] = new BitSet();
+      }
+    }
   }
 
 }
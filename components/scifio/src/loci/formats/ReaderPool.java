@@ -0,0 +1,216 @@
+//
+// ReaderPool.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.formats;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import loci.formats.in.MinimalTiffReader;
+
+/**
+ * Pool of helper readers for formats whose pixel data is spread over many
+ * files (e.g. one TIFF per plane or per well).
+ *
+ * Each file is given its own reader, which is initialized the first time
+ * the file is requested.  At most {@link #getMaxOpenFiles()} readers hold
+ * an open file handle at any one time; once that budget is exceeded, the
+ * least recently used file is closed.  A {@link MinimalTiffReader} whose
+ * file was closed by the pool is reopened without re-parsing its IFDs;
+ * other readers are reinitialized.
+ *
+ * Initialized readers hold the metadata of their file, so at most
+ * {@link #getMaxReaders()} of them are retained; beyond that, the least
+ * recently used reader is discarded and its file is parsed again the next
+ * time it is requested.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/scifio/src/loci/formats/ReaderPool.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/scifio/src/loci/formats/ReaderPool.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class ReaderPool {
+
+  // -- Constants --
+
+  /** Default maximum number of simultaneously open files. */
+  public static final int DEFAULT_MAX_OPEN_FILES = 64;
+
+  /** Default maximum number of retained readers. */
+  public static final int DEFAULT_MAX_READERS = 1024;
+
+  // -- Fields --
+
+  /** Maximum number of simultaneously open files. */
+  private int maxOpenFiles;
+
+  /** Maximum number of retained readers. */
+  private int maxReaders = DEFAULT_MAX_READERS;
+
+  /** Initialized readers, in least recently used order. */
+  private LinkedHashMap<String, IFormatReader> readers =
+    new LinkedHashMap<String, IFormatReader>(16, 0.75f, true);
+
+  /** Readers with an open file handle, in least recently used order. */
+  private LinkedHashMap<String, IFormatReader> openReaders =
+    new LinkedHashMap<String, IFormatReader>(16, 0.75f, true);
+
+  // -- Constructors --
+
+  /** Constructs a pool with the default open file budget. */
+  public ReaderPool() {
+    this(DEFAULT_MAX_OPEN_FILES);
+  }
+
+  /** Constructs a pool that keeps at most the given number of files open. */
+  public ReaderPool(int maxOpenFiles) {
+    setMaxOpenFiles(maxOpenFiles);
+  }
+
+  // -- ReaderPool API methods --
+
+  /** Sets the maximum number of simultaneously open files. */
+  public synchronized void setMaxOpenFiles(int maxOpenFiles) {
+    if (maxOpenFiles < 1) {
+      throw new IllegalArgumentException("Invalid file budget: " +
+        maxOpenFiles);
+    }
+    this.maxOpenFiles = maxOpenFiles;
+    maxReaders = Math.max(maxReaders, maxOpenFiles);
+  }
+
+  /** Gets the maximum number of simultaneously open files. */
+  public synchronized int getMaxOpenFiles() {
+    return maxOpenFiles;
+  }
+
+  /**
+   * Sets the maximum number of initialized readers that are retained.
+   * This may not be less than the maximum number of open files.
+   */
+  public synchronized void setMaxReaders(int maxReaders) {
+    if (maxReaders < maxOpenFiles) {
+      throw new IllegalArgumentException("Invalid reader budget: " +
+        maxReaders);
+    }
+    this.maxReaders = maxReaders;
+  }
+
+  /** Gets the maximum number of initialized readers that are retained. */
+  public synchronized int getMaxReaders() {
+    return maxReaders;
+  }
+
+  /** Gets the number of initialized readers that are retained. */
+  public synchronized int getReaderCount() {
+    return readers.size();
+  }
+
+  /** Gets the number of files that are currently open. */
+  public synchronized int getOpenFileCount() {
+    return openReaders.size();
+  }
+
+  /**
+   * Gets an initialized reader with an open handle for the given file,
+   * closing the least recently used file if necessary.
+   */
+  public synchronized IFormatReader getReader(String file)
+    throws FormatException, IOException
+  {
+    IFormatReader reader = openReaders.get(file);
+    if (reader != null) {
+      readers.get(file);
+      return reader;
+    }
+
+    while (openReaders.size() >= maxOpenFiles) {
+      Iterator<Map.Entry<String, IFormatReader>> eldest =
+        openReaders.entrySet().iterator();
+      closeFile(eldest.next().getValue());
+      eldest.remove();
+    }
+
+    reader = readers.get(file);
+    if (reader == null) {
+      while (readers.size() >= maxReaders) {
+        Iterator<Map.Entry<String, IFormatReader>> eldest =
+          readers.entrySet().iterator();
+        Map.Entry<String, IFormatReader> entry = eldest.next();
+        openReaders.remove(entry.getKey());
+        entry.getValue().close();
+        eldest.remove();
+      }
+      reader = createReader(file);
+      reader.setId(file);
+      readers.put(file, reader);
+    }
+    else if (reader instanceof MinimalTiffReader) {
+      ((MinimalTiffReader) reader).reopenFile();
+    }
+    else reader.setId(file);
+
+    openReaders.put(file, reader);
+    return reader;
+  }
+
+  /**
+   * Closes the handles of all open files.  Any cached state (such as
+   * parsed IFDs) is retained, and files are reopened on demand.
+   */
+  public synchronized void closeFiles() throws IOException {
+    for (IFormatReader reader : openReaders.values()) {
+      closeFile(reader);
+    }
+    openReaders.clear();
+  }
+
+  /** Closes and discards all readers in the pool. */
+  public synchronized void close() throws IOException {
+    for (IFormatReader reader : readers.values()) {
+      reader.close();
+    }
+    readers.clear();
+    openReaders.clear();
+  }
+
+  // -- Helper methods --
+
+  /**
+   * Creates a new, uninitialized reader for the given file.  Subclasses may
+   * override this method to configure the helper readers for a particular
+   * format.  The default implementation returns a
+   * {@link MinimalTiffReader}.
+   */
+  protected IFormatReader createReader(String file) {
+    return new MinimalTiffReader();
+  }
+
+  /** Closes the handle of an open reader. */
+  private void closeFile(IFormatReader reader) throws IOException {
+    if (reader instanceof MinimalTiffReader) reader.close(true);
+    else reader.close();
+  }
+
+}
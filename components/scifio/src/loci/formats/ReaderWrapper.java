@@ -25,6 +25,7 @@ package loci.formats;
 
 import java.io.IOException;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 import java.util.Hashtable;
 import java.util.Set;
 
@@ -304,6 +305,16 @@ public abstract class ReaderWrapper implements IFormatReader {
     return reader.openBytes(no, buf, x, y, w, h);
   }
 
+  /**
+   * Reads the sub-image through this wrapper's byte array methods, so that
+   * any transformation applied by a subclass is preserved.
+   */
+  public ByteBuffer openBytes(int no, ByteBuffer buf, int x, int y, int w,
+    int h) throws FormatException, IOException
+  {
+    return FormatTools.openBytes(this, no, buf, x, y, w, h);
+  }
+
   public Object openPlane(int no, int x, int y, int w, int h)
     throws FormatException, IOException
   {
@@ -318,6 +329,10 @@ public abstract class ReaderWrapper implements IFormatReader {
     reader.close(fileOnly);
   }
 
+  public boolean refresh() throws FormatException, IOException {
+    return reader.refresh();
+  }
+
   public int getSeriesCount() {
     return reader.getSeriesCount();
   }
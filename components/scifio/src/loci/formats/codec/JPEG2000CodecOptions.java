@@ -23,6 +23,8 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package loci.formats.codec;
 
+import loci.common.Region;
+
 /**
  * Options for compressing and decompressing JPEG-2000 data.
  *
@@ -60,6 +62,15 @@ public class JPEG2000CodecOptions extends CodecOptions {
    */
   public Integer resolution;
 
+  /**
+   * The region to decode, in reference grid coordinates at the requested
+   * resolution level, as would be provided to:
+   * {@link javax.imageio.ImageReadParam#setSourceRegion(java.awt.Rectangle)}
+   * (READ). Only the tiles which intersect the region are decoded. Leaving
+   * this value <code>null</code> signifies that the whole image is decoded.
+   */
+  public Region region;
+
   // -- Constructors --
 
   /** Creates a new instance. */
@@ -80,6 +91,7 @@ public class JPEG2000CodecOptions extends CodecOptions {
       }
       numDecompositionLevels = j2kOptions.numDecompositionLevels;
       resolution = j2kOptions.resolution;
+      region = j2kOptions.region;
     }
   }
 
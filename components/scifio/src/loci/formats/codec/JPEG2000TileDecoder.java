@@ -0,0 +1,387 @@
+//
+// JPEG2000TileDecoder.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.formats.codec;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import loci.common.RandomAccessInputStream;
+import loci.common.Region;
+import loci.formats.FormatException;
+
+/**
+ * Decodes rectangular regions of a tiled JPEG 2000 codestream.
+ *
+ * Only the codestream tiles which intersect the requested region are
+ * decoded, each at the requested resolution level; tiles which are not
+ * already cached are decoded in parallel.  Decoded tiles are kept in a
+ * least recently used cache, so that neighbouring regions of the same plane
+ * can be read without decoding the codestream again.  An untiled codestream
+ * is treated as a single tile.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/scifio/src/loci/formats/codec/JPEG2000TileDecoder.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/scifio/src/loci/formats/codec/JPEG2000TileDecoder.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class JPEG2000TileDecoder {
+
+  // -- Constants --
+
+  /** Default maximum size in bytes of the decoded tile cache. */
+  public static final long DEFAULT_CACHE_SIZE = 64 * 1024 * 1024;
+
+  // -- Fields --
+
+  /** Reference grid geometry, as stored in the SIZ marker segment. */
+  private int sizeX, sizeY, imageOffsetX, imageOffsetY;
+  private int tileSizeX, tileSizeY, tileOffsetX, tileOffsetY;
+
+  /** Number of tiles in each dimension. */
+  private int tilesX, tilesY;
+
+  /** Number of decomposition levels, as stored in the COD marker segment. */
+  private int decompositionLevels;
+
+  /** Maximum number of tiles to decode simultaneously. */
+  private int threadCount = Runtime.getRuntime().availableProcessors();
+
+  /** Maximum size in bytes of the decoded tile cache. */
+  private long cacheSize = DEFAULT_CACHE_SIZE;
+
+  /** Total size in bytes of the cached tiles. */
+  private long cachedBytes;
+
+  /** Decoded tiles, in least recently used order. */
+  private LinkedHashMap<TileKey, byte[]> tiles =
+    new LinkedHashMap<TileKey, byte[]>(16, 0.75f, true);
+
+  /**
+   * Most recently read codestream, and its offset and length in the stream;
+   * it is kept so that decoding further tiles does not read it again.
+   */
+  private byte[] codestream;
+  private long codestreamOffset = -1;
+  private long codestreamLength = -1;
+
+  // -- Constructor --
+
+  /**
+   * Constructs a new tile decoder for codestreams with the given reference
+   * grid and tile grid; all values are as stored in the SIZ and COD marker
+   * segments.
+   */
+  public JPEG2000TileDecoder(int sizeX, int sizeY, int imageOffsetX,
+    int imageOffsetY, int tileSizeX, int tileSizeY, int tileOffsetX,
+    int tileOffsetY, int decompositionLevels)
+  {
+    this.sizeX = sizeX;
+    this.sizeY = sizeY;
+    this.imageOffsetX = imageOffsetX;
+    this.imageOffsetY = imageOffsetY;
+    this.tileSizeX = tileSizeX;
+    this.tileSizeY = tileSizeY;
+    this.tileOffsetX = tileOffsetX;
+    this.tileOffsetY = tileOffsetY;
+    this.decompositionLevels = decompositionLevels;
+    tilesX = (sizeX - tileOffsetX + tileSizeX - 1) / tileSizeX;
+    tilesY = (sizeY - tileOffsetY + tileSizeY - 1) / tileSizeY;
+  }
+
+  // -- JPEG2000TileDecoder API methods --
+
+  /** Sets the maximum number of tiles to decode simultaneously. */
+  public void setThreadCount(int threadCount) {
+    if (threadCount < 1) {
+      throw new IllegalArgumentException("Invalid thread count: " +
+        threadCount);
+    }
+    this.threadCount = threadCount;
+  }
+
+  /** Gets the maximum number of tiles to decode simultaneously. */
+  public int getThreadCount() {
+    return threadCount;
+  }
+
+  /**
+   * Sets the maximum size in bytes of the decoded tile cache.  The most
+   * recently used tile is always retained, even if it is larger.
+   */
+  public void setCacheSize(long cacheSize) {
+    this.cacheSize = cacheSize;
+    trimCache();
+  }
+
+  /** Gets the maximum size in bytes of the decoded tile cache. */
+  public long getCacheSize() {
+    return cacheSize;
+  }
+
+  /** Gets the total size in bytes of the cached tiles. */
+  public long getCachedSize() {
+    return cachedBytes;
+  }
+
+  /** Discards all cached tiles and the retained codestream. */
+  public void clearCache() {
+    tiles.clear();
+    cachedBytes = 0;
+    codestream = null;
+    codestreamOffset = -1;
+    codestreamLength = -1;
+  }
+
+  /**
+   * Decodes a region of the codestream of the given length stored at the
+   * given offset.  The {@link CodecOptions#channels channels} and
+   * {@link CodecOptions#bitsPerSample bitsPerSample} options must be set;
+   * the region is given in pixels of the image at the requested
+   * {@link JPEG2000CodecOptions#resolution resolution} level, and is always
+   * returned interleaved.
+   */
+  public byte[] decode(RandomAccessInputStream in, long offset, long length,
+    JPEG2000CodecOptions options, int x, int y, int w, int h, byte[] buf)
+    throws FormatException, IOException
+  {
+    int reduction = 0;
+    if (options.resolution != null &&
+      options.resolution.intValue() < decompositionLevels)
+    {
+      reduction = decompositionLevels - options.resolution.intValue();
+    }
+    int pixel = options.channels * (options.bitsPerSample / 8);
+    int originX = reduce(imageOffsetX, reduction);
+    int originY = reduce(imageOffsetY, reduction);
+
+    List<TileKey> needed = new ArrayList<TileKey>();
+    List<TileKey> missing = new ArrayList<TileKey>();
+    for (int ty=0; ty<tilesY; ty++) {
+      Region tile = getTile(0, ty, reduction);
+      if (tile.height == 0 || tile.y >= originY + y + h ||
+        tile.y + tile.height <= originY + y)
+      {
+        continue;
+      }
+      for (int tx=0; tx<tilesX; tx++) {
+        tile = getTile(tx, ty, reduction);
+        if (tile.width == 0 || tile.x >= originX + x + w ||
+          tile.x + tile.width <= originX + x)
+        {
+          continue;
+        }
+        TileKey key = new TileKey(offset, reduction, ty * tilesX + tx, tile);
+        needed.add(key);
+        if (!tiles.containsKey(key)) missing.add(key);
+      }
+    }
+
+    Map<TileKey, byte[]> decoded = decodeTiles(in, offset, length, options,
+      missing);
+
+    for (TileKey key : needed) {
+      byte[] tile = decoded.get(key);
+      if (tile == null) tile = tiles.get(key);
+      Region r = key.region;
+      if (tile.length < r.width * r.height * pixel) {
+        throw new FormatException("Decoded tile " + key.tile + " has " +
+          tile.length + " bytes; expected " + r.width * r.height * pixel);
+      }
+      int left = Math.max(r.x, originX + x);
+      int right = Math.min(r.x + r.width, originX + x + w);
+      int top = Math.max(r.y, originY + y);
+      int bottom = Math.min(r.y + r.height, originY + y + h);
+      int len = (right - left) * pixel;
+      for (int row=top; row<bottom; row++) {
+        int src = ((row - r.y) * r.width + left - r.x) * pixel;
+        int dest = ((row - originY - y) * w + left - originX - x) * pixel;
+        System.arraycopy(tile, src, buf, dest, len);
+      }
+    }
+
+    for (TileKey key : missing) {
+      byte[] tile = decoded.get(key);
+      tiles.put(key, tile);
+      cachedBytes += tile.length;
+    }
+    trimCache();
+    return buf;
+  }
+
+  // -- Helper methods --
+
+  /**
+   * Returns the bounds of the given tile on the reference grid at the given
+   * reduction, clipped to the image.
+   */
+  private Region getTile(int tx, int ty, int reduction) {
+    int x0 = Math.max(tileOffsetX + tx * tileSizeX, imageOffsetX);
+    int y0 = Math.max(tileOffsetY + ty * tileSizeY, imageOffsetY);
+    int x1 = Math.min(tileOffsetX + (tx + 1) * tileSizeX, sizeX);
+    int y1 = Math.min(tileOffsetY + (ty + 1) * tileSizeY, sizeY);
+    x0 = reduce(x0, reduction);
+    y0 = reduce(y0, reduction);
+    return new Region(x0, y0, reduce(x1, reduction) - x0,
+      reduce(y1, reduction) - y0);
+  }
+
+  /** Maps a reference grid coordinate to the given reduction. */
+  private static int reduce(int v, int reduction) {
+    return (int) (((long) v + (1 << reduction) - 1) >> reduction);
+  }
+
+  /**
+   * Returns the codestream of the given length stored at the given offset,
+   * reading it only if it is not the one already retained.
+   */
+  private byte[] readCodestream(RandomAccessInputStream in, long offset,
+    long length)
+    throws FormatException, IOException
+  {
+    if (codestream != null && offset == codestreamOffset &&
+      length == codestreamLength)
+    {
+      return codestream;
+    }
+    if (length < 0 || length > Integer.MAX_VALUE) {
+      throw new FormatException("Unsupported codestream length: " + length);
+    }
+    codestream = null;
+    byte[] bytes = new byte[(int) length];
+    in.seek(offset);
+    in.readFully(bytes);
+    codestream = bytes;
+    codestreamOffset = offset;
+    codestreamLength = length;
+    return codestream;
+  }
+
+  /** Decodes the given tiles, in parallel if there are several. */
+  private Map<TileKey, byte[]> decodeTiles(RandomAccessInputStream in,
+    long offset, long length, JPEG2000CodecOptions options,
+    List<TileKey> keys)
+    throws FormatException, IOException
+  {
+    Map<TileKey, byte[]> decoded = new LinkedHashMap<TileKey, byte[]>();
+    if (keys.size() == 0) return decoded;
+
+    final byte[] codestream = readCodestream(in, offset, length);
+
+    List<Callable<byte[]>> tasks = new ArrayList<Callable<byte[]>>();
+    for (TileKey key : keys) {
+      final JPEG2000CodecOptions tileOptions =
+        new JPEG2000CodecOptions(options);
+      tileOptions.interleaved = true;
+      tileOptions.region = key.region;
+      tasks.add(new Callable<byte[]>() {
+        public byte[] call() throws FormatException {
+          return new JPEG2000Codec().decompress(codestream, tileOptions);
+        }
+      });
+    }
+
+    if (tasks.size() == 1 || threadCount == 1) {
+      for (int i=0; i<tasks.size(); i++) {
+        try {
+          decoded.put(keys.get(i), tasks.get(i).call());
+        }
+        catch (FormatException e) {
+          throw e;
+        }
+        catch (Exception e) {
+          throw new FormatException(e);
+        }
+      }
+      return decoded;
+    }
+
+    ExecutorService executor =
+      Executors.newFixedThreadPool(Math.min(threadCount, tasks.size()));
+    try {
+      List<Future<byte[]>> results = executor.invokeAll(tasks);
+      for (int i=0; i<results.size(); i++) {
+        decoded.put(keys.get(i), results.get(i).get());
+      }
+    }
+    catch (InterruptedException e) {
+      throw new FormatException(e);
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof FormatException) throw (FormatException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new FormatException(cause);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    return decoded;
+  }
+
+  /** Evicts least recently used tiles until the cache fits its budget. */
+  private void trimCache() {
+    Iterator<byte[]> eldest = tiles.values().iterator();
+    while (cachedBytes > cacheSize && tiles.size() > 1) {
+      cachedBytes -= eldest.next().length;
+      eldest.remove();
+    }
+  }
+
+  // -- Helper classes --
+
+  /** Identifies a decoded tile of a particular codestream. */
+  private static class TileKey {
+    private long offset;
+    private int reduction;
+    private int tile;
+    private Region region;
+
+    public TileKey(long offset, int reduction, int tile, Region region) {
+      this.offset = offset;
+      this.reduction = reduction;
+      this.tile = tile;
+      this.region = region;
+    }
+
+    public boolean equals(Object o) {
+      if (!(o instanceof TileKey)) return false;
+      TileKey k = (TileKey) o;
+      return offset == k.offset && reduction == k.reduction && tile == k.tile;
+    }
+
+    public int hashCode() {
+      return (int) (offset ^ (offset >>> 32)) * 31 * 31 + reduction * 31 +
+        tile;
+    }
+  }
+
+}
@@ -494,6 +494,14 @@ public abstract class BaseTiffReader extends MinimalTiffReader {
     put(key, ifd.getIFDIntValue(tag));
   }
 
+  // -- Internal MinimalTiffReader API methods --
+
+  /* @see MinimalTiffReader#canAppendIFDs() */
+  protected boolean canAppendIFDs() {
+    // most subclasses derive their metadata from the complete list of IFDs
+    return false;
+  }
+
   // -- Internal FormatReader API methods --
 
   /* @see loci.formats.FormatReader#initFile(String) */
@@ -33,6 +33,7 @@ import loci.common.RandomAccessInputStream;
 import loci.formats.FormatTools;
 import loci.formats.codec.JPEG2000BoxType;
 import loci.formats.codec.JPEG2000SegmentMarker;
+import loci.formats.codec.JPEG2000TileDecoder;
 
 /**
  * A parser for JPEG 2000 metadata.
@@ -78,6 +79,24 @@ public class JPEG2000MetadataParser {
   /** Height of the image as specified in the JPEG 2000 codestream. */
   private Integer codestreamSizeY;
 
+  /** Offset of the image on the reference grid. */
+  private Integer codestreamImageOffsetX;
+
+  /** Offset of the image on the reference grid. */
+  private Integer codestreamImageOffsetY;
+
+  /** Width of a tile on the reference grid. */
+  private Integer codestreamTileSizeX;
+
+  /** Height of a tile on the reference grid. */
+  private Integer codestreamTileSizeY;
+
+  /** Offset of the first tile on the reference grid. */
+  private Integer codestreamTileOffsetX;
+
+  /** Offset of the first tile on the reference grid. */
+  private Integer codestreamTileOffsetY;
+
   /** Number of channels the image as specified in the JPEG 2000 codestream. */
   private Short codestreamSizeC;
 
@@ -301,14 +320,14 @@ public class JPEG2000MetadataParser {
             codestreamSizeY = in.readInt();
             LOGGER.trace("Read reference grid height {} at {}", codestreamSizeY,
                 in.getFilePointer());
-            // Skipping:
-            //  * Horizontal image offset (uint32)
-            //  * Vertical image offset (uint32)
-            //  * Tile width (uint32)
-            //  * Tile height (uint32)
-            //  * Horizontal tile offset (uint32)
-            //  * Vertical tile offset (uint32)
-            in.skipBytes(24);
+            codestreamImageOffsetX = in.readInt();
+            codestreamImageOffsetY = in.readInt();
+            codestreamTileSizeX = in.readInt();
+            codestreamTileSizeY = in.readInt();
+            LOGGER.trace("Read tile size {}x{} at {}", new Object[] {
+                codestreamTileSizeX, codestreamTileSizeY, in.getFilePointer()});
+            codestreamTileOffsetX = in.readInt();
+            codestreamTileOffsetY = in.readInt();
             codestreamSizeC = in.readShort();
             LOGGER.trace("Read total components {} at {}",
                 codestreamSizeC, in.getFilePointer());
@@ -352,6 +371,25 @@ public class JPEG2000MetadataParser {
     return isRawCodestream;
   }
 
+  /**
+   * Creates a tile decoder for the codestream's tile grid.  If the codestream
+   * header could not be parsed, the image is decoded as a single tile.
+   * @return See above.
+   */
+  public JPEG2000TileDecoder createTileDecoder() {
+    int levels = resolutionLevels == null ? 0 : resolutionLevels;
+    if (codestreamTileSizeX == null) {
+      int sizeX = headerSizeX == null ? 0 : headerSizeX;
+      int sizeY = headerSizeY == null ? 0 : headerSizeY;
+      return new JPEG2000TileDecoder(sizeX, sizeY, 0, 0,
+        Math.max(sizeX, 1), Math.max(sizeY, 1), 0, 0, levels);
+    }
+    return new JPEG2000TileDecoder(codestreamSizeX, codestreamSizeY,
+      codestreamImageOffsetX, codestreamImageOffsetY, codestreamTileSizeX,
+      codestreamTileSizeY, codestreamTileOffsetX, codestreamTileOffsetY,
+      levels);
+  }
+
   /**
    * Returns the number of resolution levels the file JPEG 2000 data has.
    * @return The number of resolution levels or <code>null</code> if the
@@ -409,6 +447,54 @@ public class JPEG2000MetadataParser {
     return codestreamSizeY;
   }
 
+  /**
+   * Returns the horizontal offset of the image on the reference grid.
+   * @return See above.
+   */
+  public Integer getCodestreamImageOffsetX() {
+    return codestreamImageOffsetX;
+  }
+
+  /**
+   * Returns the vertical offset of the image on the reference grid.
+   * @return See above.
+   */
+  public Integer getCodestreamImageOffsetY() {
+    return codestreamImageOffsetY;
+  }
+
+  /**
+   * Returns the width of a tile on the reference grid.
+   * @return See above.
+   */
+  public Integer getCodestreamTileSizeX() {
+    return codestreamTileSizeX;
+  }
+
+  /**
+   * Returns the height of a tile on the reference grid.
+   * @return See above.
+   */
+  public Integer getCodestreamTileSizeY() {
+    return codestreamTileSizeY;
+  }
+
+  /**
+   * Returns the horizontal offset of the first tile on the reference grid.
+   * @return See above.
+   */
+  public Integer getCodestreamTileOffsetX() {
+    return codestreamTileOffsetX;
+  }
+
+  /**
+   * Returns the vertical offset of the first tile on the reference grid.
+   * @return See above.
+   */
+  public Integer getCodestreamTileOffsetY() {
+    return codestreamTileOffsetY;
+  }
+
   /**
    * Returns the number of channels the image has as specified in the header.
    * @return See above.
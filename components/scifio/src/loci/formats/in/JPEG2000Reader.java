@@ -35,8 +35,8 @@ import loci.formats.FormatReader;
 import loci.formats.FormatTools;
 import loci.formats.MetadataTools;
 import loci.formats.codec.JPEG2000BoxType;
-import loci.formats.codec.JPEG2000Codec;
 import loci.formats.codec.JPEG2000CodecOptions;
+import loci.formats.codec.JPEG2000TileDecoder;
 import loci.formats.meta.MetadataStore;
 
 /**
@@ -64,8 +64,8 @@ public class JPEG2000Reader extends FormatReader {
 
   private long pixelsOffset;
 
-  private int lastSeries = -1;
-  private byte[] lastSeriesPlane;
+  /** Decodes and caches the codestream tiles. */
+  private JPEG2000TileDecoder tileDecoder;
 
   // -- Constructor --
 
@@ -131,8 +131,7 @@ public class JPEG2000Reader extends FormatReader {
       resolutionLevels = null;
       lut = null;
       pixelsOffset = 0;
-      lastSeries = -1;
-      lastSeriesPlane = null;
+      tileDecoder = null;
     }
   }
 
@@ -144,16 +143,11 @@ public class JPEG2000Reader extends FormatReader {
   {
     FormatTools.checkPlaneParameters(this, no, buf.length, x, y, w, h);
 
-    if (lastSeries == getSeries() && lastSeriesPlane != null) {
-      RandomAccessInputStream s = new RandomAccessInputStream(lastSeriesPlane);
-      readPlane(s, x, y, w, h, buf);
-      s.close();
-      return buf;
-    }
-
     JPEG2000CodecOptions options = JPEG2000CodecOptions.getDefaultOptions();
     options.interleaved = isInterleaved();
     options.littleEndian = isLittleEndian();
+    options.channels = getRGBChannelCount();
+    options.bitsPerSample = FormatTools.getBytesPerPixel(getPixelType()) * 8;
     if (resolutionLevels != null) {
       options.resolution = Math.abs(series - resolutionLevels);
     }
@@ -161,13 +155,8 @@ public class JPEG2000Reader extends FormatReader {
       options.resolution = series;
     }
 
-    in.seek(pixelsOffset);
-    lastSeriesPlane = new JPEG2000Codec().decompress(in, options);
-    RandomAccessInputStream s = new RandomAccessInputStream(lastSeriesPlane);
-    readPlane(s, x, y, w, h, buf);
-    s.close();
-    lastSeries = getSeries();
-    return buf;
+    return tileDecoder.decode(in, pixelsOffset, in.length() - pixelsOffset,
+      options, x, y, w, h, buf);
   }
 
   // -- Internal FormatReader API methods --
@@ -196,6 +185,7 @@ public class JPEG2000Reader extends FormatReader {
     lut = metadataParser.getLookupTable();
 
     pixelsOffset = metadataParser.getCodestreamOffset();
+    tileDecoder = metadataParser.createTileDecoder();
 
     core[0].sizeZ = 1;
     core[0].sizeT = 1;
@@ -24,6 +24,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats.in;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
@@ -47,6 +48,8 @@ import loci.formats.tiff.PhotoInterp;
 import loci.formats.tiff.TiffCompression;
 import loci.formats.tiff.TiffParser;
 
+import ome.xml.model.primitives.PositiveInteger;
+
 /**
  * MinimalTiffReader is the superclass for file format readers compatible with
  * or derived from the TIFF 6.0 file format.
@@ -85,6 +88,9 @@ public class MinimalTiffReader extends FormatReader {
 
   private int lastPlane = 0;
 
+  /** Offset to the last IFD in the chain, where a refresh starts reading. */
+  private long lastIFDOffset;
+
   /** Number of JPEG 2000 resolution levels. */
   private Integer resolutionLevels;
 
@@ -122,8 +128,61 @@ public class MinimalTiffReader extends FormatReader {
     return thumbnailIFDs;
   }
 
+  /**
+   * Reopens the current file after its handle has been closed via
+   * {@link #close(boolean) close(true)}.  The IFDs that were parsed when the
+   * file was initialized are reused, so only the TIFF header is reread.
+   */
+  public void reopenFile() throws FormatException, IOException {
+    FormatTools.assertId(currentId, true, 1);
+    if (in != null) in.close();
+    in = new RandomAccessInputStream(currentId);
+    tiffParser = new TiffParser(in);
+    tiffParser.setDoCaching(false);
+    tiffParser.setUse64BitOffsets(use64Bit);
+    Boolean littleEndian = tiffParser.checkHeader();
+    if (littleEndian == null) {
+      throw new FormatException("Invalid TIFF file");
+    }
+    in.order(littleEndian.booleanValue());
+  }
+
   // -- IFormatReader API methods --
 
+  /* @see loci.formats.IFormatReader#refresh() */
+  public boolean refresh() throws FormatException, IOException {
+    FormatTools.assertId(currentId, true, 1);
+    if (lastIFDOffset <= 0 || !canAppendIFDs()) return super.refresh();
+
+    // reopen the file, so that no stale buffered data is read
+    reopenFile();
+    long length = in.length();
+    IFDList newIFDs = new IFDList();
+    long last = lastIFDOffset;
+    for (long offset : tiffParser.getNextIFDOffsets(lastIFDOffset)) {
+      IFD ifd = tiffParser.getIFD(offset);
+      if (ifd == null) break;
+      if (ifd.containsKey(IFD.SUB_IFD)) {
+        reinitialize();
+        return true;
+      }
+      if (ifd.containsKey(IFD.IMAGE_WIDTH)) {
+        tiffParser.fillInIFD(ifd);
+        // stop at the first image whose pixels have not all been written
+        if (!isWritten(ifd, length)) break;
+        newIFDs.add(ifd);
+      }
+      last = offset;
+    }
+
+    if (newIFDs.size() > 0 && !appendIFDs(newIFDs)) {
+      reinitialize();
+      return true;
+    }
+    lastIFDOffset = last;
+    return newIFDs.size() > 0;
+  }
+
   /* @see loci.formats.IFormatReader#isThisType(RandomAccessInputStream) */
   public boolean isThisType(RandomAccessInputStream stream) throws IOException {
     return new TiffParser(stream).isValidHeader();
@@ -325,6 +384,28 @@ public class MinimalTiffReader extends FormatReader {
     return buf;
   }
 
+  /**
+   * @see loci.formats.FormatReader#openBytes(int, ByteBuffer, int, int, int,
+   *   int)
+   */
+  public ByteBuffer openBytes(int no, ByteBuffer buf, int x, int y, int w,
+    int h) throws FormatException, IOException
+  {
+    // readers which post-process the pixels read by openBytes, and images
+    // which need float conversion or resolution selection, are read in bands
+    int bits = ifds.get(0).getBitsPerSample()[0];
+    if (!canReadIntoBuffer() || resolutionLevels != null ||
+      (getPixelType() == FormatTools.FLOAT && bits != 32))
+    {
+      return super.openBytes(no, buf, x, y, w, h);
+    }
+
+    FormatTools.checkPlaneParameters(this, no, (long) buf.remaining(),
+      x, y, w, h);
+    lastPlane = no;
+    return tiffParser.getSamples(ifds.get(no), buf, x, y, w, h);
+  }
+
   /* @see loci.formats.IFormatReader#close(boolean) */
   public void close(boolean fileOnly) throws IOException {
     super.close(fileOnly);
@@ -333,6 +414,7 @@ public class MinimalTiffReader extends FormatReader {
       thumbnailIFDs = null;
       subResolutionIFDs = new ArrayList<IFDList>();
       lastPlane = 0;
+      lastIFDOffset = 0;
       tiffParser = null;
       resolutionLevels = null;
       j2kCodecOptions = JPEG2000CodecOptions.getDefaultOptions();
@@ -381,11 +463,13 @@ public class MinimalTiffReader extends FormatReader {
 
     LOGGER.info("Reading IFDs");
 
-    IFDList allIFDs = tiffParser.getIFDs();
+    long[] offsets = tiffParser.getIFDOffsets();
+    IFDList allIFDs = tiffParser.getIFDs(offsets);
 
     if (allIFDs == null || allIFDs.size() == 0) {
       throw new FormatException("No IFDs found");
     }
+    lastIFDOffset = offsets[offsets.length - 1];
 
     ifds = new IFDList();
     thumbnailIFDs = new IFDList();
@@ -526,6 +610,73 @@ public class MinimalTiffReader extends FormatReader {
     MetadataTools.populatePixels(store, this);
   }
 
+  /**
+   * Returns true if {@link #openBytes(int, ByteBuffer, int, int, int, int)}
+   * may decode pixels straight into the buffer.  Subclasses which override
+   * {@link #openBytes(int, byte[], int, int, int, int)} to post-process the
+   * pixels must return false, so that buffers are filled through that
+   * method instead.
+   */
+  protected boolean canReadIntoBuffer() {
+    return true;
+  }
+
+  /**
+   * Returns true if IFDs appended to the file can be added to the current
+   * dataset by {@link #appendIFDs(IFDList)}.  Otherwise, {@link #refresh()}
+   * reinitializes the file when it changes.
+   */
+  protected boolean canAppendIFDs() {
+    return true;
+  }
+
+  /**
+   * Adds IFDs that were appended to the file since it was parsed to the
+   * current dataset, as new time points.  Returns false if the IFDs cannot
+   * be added without reinitializing the file.
+   */
+  protected boolean appendIFDs(IFDList newIFDs)
+    throws FormatException, IOException
+  {
+    IFD firstIFD = ifds.get(0);
+    int planesPerTimepoint = getSizeZ() * getEffectiveSizeC();
+    int count = ifds.size();
+    for (IFD ifd : newIFDs) {
+      if (isThumbnail(ifd)) continue;
+      if (ifd.getImageWidth() != firstIFD.getImageWidth() ||
+        ifd.getImageLength() != firstIFD.getImageLength() ||
+        ifd.getPixelType() != firstIFD.getPixelType() ||
+        ifd.getSamplesPerPixel() != firstIFD.getSamplesPerPixel())
+      {
+        return false;
+      }
+      count++;
+    }
+    if (getSeriesCount() > 1 || resolutionLevels != null ||
+      !getDimensionOrder().endsWith("T") || count % planesPerTimepoint != 0)
+    {
+      return false;
+    }
+
+    for (IFD ifd : newIFDs) {
+      if (isThumbnail(ifd)) {
+        thumbnailIFDs.add(ifd);
+        continue;
+      }
+      if (isIndexed()) {
+        ifd.putIFDValue(IFD.PHOTOMETRIC_INTERPRETATION,
+          PhotoInterp.RGB_PALETTE);
+      }
+      ifds.add(ifd);
+    }
+
+    core[0].imageCount = ifds.size();
+    core[0].sizeT = ifds.size() / planesPerTimepoint;
+    MetadataStore store = makeFilterMetadata();
+    store.setPixelsSizeT(new PositiveInteger(getSizeT()), 0);
+    return true;
+  }
+
   /**
    * Sets the resolution level when we have JPEG 2000 compressed data.
    * @param ifd The active IFD that is being used in our current
@@ -538,4 +689,28 @@ public class MinimalTiffReader extends FormatReader {
         j2kCodecOptions.resolution);
     tiffParser.setCodecOptions(j2kCodecOptions);
   }
+
+  // -- Helper methods --
+
+  /** Returns true if the given IFD holds a thumbnail image. */
+  private boolean isThumbnail(IFD ifd) {
+    Number subfile = (Number) ifd.getIFDValue(IFD.NEW_SUBFILE_TYPE);
+    return subfile != null && subfile.intValue() == 1;
+  }
+
+  /**
+   * Returns true if all of the given IFD's pixel data has been written
+   * within the given length of the file.
+   */
+  private boolean isWritten(IFD ifd, long length) throws FormatException {
+    long[] offsets = ifd.getStripOffsets();
+    long[] byteCounts = ifd.getStripByteCounts();
+    for (int i=0; i<offsets.length && i<byteCounts.length; i++) {
+      if (offsets[i] <= 0 || offsets[i] + byteCounts[i] > length) {
+        return false;
+      }
+    }
+    return true;
+  }
+
 }
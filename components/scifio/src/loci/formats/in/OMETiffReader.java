@@ -82,6 +82,9 @@ public class OMETiffReader extends FormatReader {
 
   private OMEXMLService service;
 
+  /** OME-XML block of the first file, as it was when the file was parsed. */
+  private String omexml;
+
   // -- Constructor --
 
   /** Constructs a new OME-TIFF reader. */
@@ -276,7 +279,45 @@ public class OMETiffReader extends FormatReader {
       lastPlane = 0;
       tileWidth = null;
       tileHeight = null;
+      omexml = null;
+    }
+  }
+
+  /* @see loci.formats.IFormatReader#refresh() */
+  public boolean refresh() throws FormatException, IOException {
+    FormatTools.assertId(currentId, true, 1);
+
+    // a rewritten OME-XML block may describe a different dataset
+    String fileName = new Location(currentId).getAbsolutePath();
+    RandomAccessInputStream ras = new RandomAccessInputStream(fileName);
+    String xml;
+    try {
+      xml = new TiffParser(ras).getComment();
+    }
+    finally {
+      ras.close();
+    }
+    if (!omexml.equals(xml)) {
+      reinitialize();
+      return true;
+    }
+
+    // otherwise, IFDs appended to each file make missing planes readable
+    HashSet<IFormatReader> readers = new HashSet<IFormatReader>();
+    for (OMETiffPlane[] planes : info) {
+      for (OMETiffPlane plane : planes) {
+        if (plane.reader instanceof TiffReader) {
+          // the number of planes was taken from the number of IFDs
+          return super.refresh();
+        }
+        if (plane.reader != null) readers.add(plane.reader);
+      }
+    }
+    boolean changed = false;
+    for (IFormatReader r : readers) {
+      if (r.getCurrentFile() != null && r.refresh()) changed = true;
     }
+    return changed;
   }
 
   /* @see loci.formats.IFormatReader#getOptimalTileWidth() */
@@ -313,6 +354,7 @@ public class OMETiffReader extends FormatReader {
     finally {
       ras.close();
     }
+    omexml = xml;
 
     if (service == null) setupService();
     OMEXMLMetadata meta;
@@ -215,6 +215,27 @@ public class TiffReader extends BaseTiffReader {
     populateMetadataStoreImageJ(store);
   }
 
+  // -- Internal MinimalTiffReader API methods --
+
+  /* @see MinimalTiffReader#canAppendIFDs() */
+  protected boolean canAppendIFDs() {
+    // ImageJ dimensions (and any IFDs made up for them) cover the whole file
+    return !checkCommentImageJ(ifds.get(0).getComment());
+  }
+
+  /* @see MinimalTiffReader#appendIFDs(IFDList) */
+  protected boolean appendIFDs(IFDList newIFDs)
+    throws FormatException, IOException
+  {
+    int first = ifds.size();
+    if (!super.appendIFDs(newIFDs)) return false;
+    for (int i=first; i<ifds.size(); i++) {
+      put("PageName #" + i, ifds.get(i), IFD.PAGE_NAME);
+    }
+    if (ifds.size() > 1) core[0].orderCertain = false;
+    return true;
+  }
+
   // -- Helper methods --
 
   private boolean checkCommentImageJ(String comment) {
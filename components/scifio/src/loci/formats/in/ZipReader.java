@@ -24,19 +24,16 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats.in;
 
 import java.io.IOException;
-import java.util.Enumeration;
-import java.util.zip.ZipEntry;
-import java.util.zip.ZipInputStream;
 
-import loci.common.Location;
-import loci.common.RandomAccessInputStream;
-import loci.common.ZipHandle;
+import loci.common.ZipIndex;
 import loci.formats.FormatException;
 import loci.formats.FormatReader;
 import loci.formats.ImageReader;
 
 /**
- * Reader for Zip files.
+ * Reader for Zip files.  Every file in the archive is mapped to a path within
+ * a directory named after the Zip file, so that readers for multi-file
+ * formats can find the other files in the dataset.
  *
  * <dl><dt><b>Source code:</b></dt>
  * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/bio-formats/src/loci/formats/in/ZipReader.java">Trac</a>,
@@ -48,6 +45,9 @@ public class ZipReader extends FormatReader {
 
   private ImageReader reader;
 
+  /** Index of the files in the archive. */
+  private ZipIndex index;
+
   // -- Constructor --
 
   public ZipReader() {
@@ -85,7 +85,11 @@ public class ZipReader extends FormatReader {
   public void close(boolean fileOnly) throws IOException {
     super.close(fileOnly);
     if (reader != null) reader.close(fileOnly);
-    if (!fileOnly) reader = null;
+    if (!fileOnly) {
+      reader = null;
+      if (index != null) index.close();
+      index = null;
+    }
   }
 
   // -- Internal FormatReader API methods --
@@ -101,18 +105,14 @@ public class ZipReader extends FormatReader {
     reader.setNormalized(isNormalized());
     reader.setMetadataStore(getMetadataStore());
 
-    in = new RandomAccessInputStream(id);
+    index = new ZipIndex(id);
+    index.mapEntries();
 
-    ZipInputStream zip = new ZipInputStream(in);
-    while (true) {
-      ZipEntry ze = zip.getNextEntry();
-      if (ze == null) break;
-      ZipHandle handle = new ZipHandle(id, ze);
-      Location.mapFile(ze.getName(), handle);
+    String entry = index.getDefaultEntry();
+    if (entry == null) {
+      throw new FormatException("No files found in " + id);
     }
-
-    ZipHandle base = new ZipHandle(id);
-    reader.setId(base.getEntryName());
+    reader.setId(index.getMappedPath(entry));
 
     metadataStore = reader.getMetadataStore();
     core = reader.getCoreMetadata();
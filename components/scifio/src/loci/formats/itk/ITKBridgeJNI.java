@@ -24,6 +24,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats.itk;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 import loci.formats.FormatException;
 import loci.formats.MetadataTools;
@@ -155,6 +156,23 @@ public class ITKBridgeJNI {
 	  }
   }
   
+  /**
+   * Reads a region of a plane into the given buffer, which is typically a
+   * direct buffer wrapping native memory (see NewDirectByteBuffer), so that
+   * the pixels do not need to be copied out of a Java array.
+   */
+  public static void readPlane(int z, int c, int t, ByteBuffer buf, int xStart, int yStart, int xCount, int yCount) {
+	  int no = reader.getIndex(z, c, t);
+
+	  try {
+		  reader.openBytes(no, buf, xStart, yStart, xCount, yCount);
+	  } catch (FormatException e) {
+		  e.printStackTrace();
+	  } catch (IOException e) {
+		  e.printStackTrace();
+	  }
+  }
+
   public static void close() {
 	  try {
 		  reader.close();
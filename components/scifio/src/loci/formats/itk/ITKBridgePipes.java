@@ -24,11 +24,13 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats.itk;
 
 import java.io.BufferedInputStream;
-import java.io.BufferedOutputStream;
 import java.io.BufferedReader;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Iterator;
 import java.util.Set;
 import java.util.Map;
@@ -87,7 +89,8 @@ public class ITKBridgePipes {
    * Executes the given command line. The following commands are supported:
    * <ul>
    * <li>info</li> - Dumps image metadata
-   * <li>read</li> - Dumps image pixels
+   * <li>read</li> - Dumps image pixels, to stdout or to a shared
+   *   memory-mapped file
    * <li>canRead</li> - Tests whether the given file path can be parsed
    * </ul>
    */
@@ -117,7 +120,9 @@ public class ITKBridgePipes {
       int tEnd =   Integer.parseInt( args[9] ) + tBegin - 1;
       int cBegin = Integer.parseInt( args[10] );
       int cEnd =   Integer.parseInt( args[11] ) + cBegin - 1;
-      return read(filePath, xBegin, xEnd, yBegin, yEnd, zBegin, zEnd, tBegin, tEnd, cBegin, cEnd);
+      // optional path to a memory-mapped file shared with the native side
+      String sharedFile = args.length > 12 ? args[12].trim() : null;
+      return read(filePath, xBegin, xEnd, yBegin, yEnd, zBegin, zEnd, tBegin, tEnd, cBegin, cEnd, sharedFile);
     }
     else if (command.equals("canRead")) {
       final String filePath = args[1].trim();
@@ -288,56 +293,141 @@ public class ITKBridgePipes {
        int tBegin, int tEnd,
        int cBegin, int cEnd)
     throws FormatException, IOException
+  {
+    return read(filePath, xBegin, xEnd, yBegin, yEnd, zBegin, zEnd,
+      tBegin, tEnd, cBegin, cEnd, null);
+  }
+
+  /**
+   * Reads image pixels from the given file path into a memory-mapped file,
+   * such as a POSIX shared memory segment (/dev/shm/...) that the native
+   * side has mapped.  The pixels are laid out exactly as they would be on
+   * stdout; only the total number of bytes written, followed by an empty
+   * line, is printed to stdout.  If sharedFile is null, the pixels are
+   * written to stdout instead.
+   *
+   * @see #read(String, int, int, int, int, int, int, int, int, int, int)
+   */
+  public boolean read(String filePath,
+       int xBegin, int xEnd,
+       int yBegin, int yEnd,
+       int zBegin, int zEnd,
+       int tBegin, int tEnd,
+       int cBegin, int cEnd,
+       String sharedFile)
+    throws FormatException, IOException
   {
     createReader(filePath);
 
     int rgbChannelCount = reader.getRGBChannelCount();
     int bpp = FormatTools.getBytesPerPixel( reader.getPixelType() );
-    int xCount = reader.getSizeX();
-    int yCount = reader.getSizeY();
-    
-    //TODO: this isn't being used at all..
-    boolean isInterleaved = reader.isInterleaved();
-    boolean canDoDirect = xBegin == 0 && yBegin == 0 && xEnd == xCount-1 && yEnd == yCount-1 && rgbChannelCount == 1;
-
-    BufferedOutputStream out = new BufferedOutputStream(System.out, 100*1024*1024);
-    // System.err.println("canDoDirect = "+canDoDirect);
+    int w = xEnd - xBegin + 1;
+    int h = yEnd - yBegin + 1;
+
+    // ITK expects the components of each pixel to be adjacent
+    boolean canDoDirect = rgbChannelCount == 1 || reader.isInterleaved();
+    int rowBytes = w * rgbChannelCount * bpp;
+    long planeBytes = (long) rowBytes * h;
+    long planeCount =
+      (long) (cEnd - cBegin + 1) * (tEnd - tBegin + 1) * (zEnd - zBegin + 1);
+
+    RandomAccessFile shared = null;
+    FileChannel channel = null;
+    if (sharedFile != null) {
+      shared = new RandomAccessFile(sharedFile, "rw");
+      if (shared.length() < planeBytes * planeCount) {
+        shared.setLength(planeBytes * planeCount);
+      }
+      channel = shared.getChannel();
+    }
 
-    for( int c=cBegin; c<=cEnd; c++ )
-      {
-      for( int t=tBegin; t<=tEnd; t++ )
+    byte[] image = null;
+    byte[] pixels = null;
+    long offset = 0;
+    try {
+      for( int c=cBegin; c<=cEnd; c++ )
         {
-        for( int z=zBegin; z<=zEnd; z++ )
+        for( int t=tBegin; t<=tEnd; t++ )
           {
-          byte[] image = reader.openBytes( reader.getIndex(z, c, t) );
-          if( canDoDirect )
+          for( int z=zBegin; z<=zEnd; z++ )
             {
-            out.write(image);
-            }
-          else
-            {
-            for( int y=yBegin; y<=yEnd; y++ )
+            int no = reader.getIndex(z, c, t);
+            if( channel != null && canDoDirect )
               {
-              for( int x=xBegin; x<=xEnd; x++ )
+              // decode straight into the mapped file, one band of rows at a
+              // time so that each mapping stays below 2 GB
+              int bandRows = Math.max(1, Integer.MAX_VALUE / rowBytes);
+              for( int y=0; y<h; y+=bandRows )
                 {
-                for( int i=0; i<rgbChannelCount; i++ )
+                int rows = Math.min(bandRows, h - y);
+                ByteBuffer buf = channel.map(FileChannel.MapMode.READ_WRITE,
+                  offset + (long) y * rowBytes, (long) rows * rowBytes);
+                reader.openBytes(no, buf, xBegin, yBegin + y, w, rows);
+                }
+              }
+            else
+              {
+              if( image == null ) image = new byte[(int) planeBytes];
+              reader.openBytes(no, image, xBegin, yBegin, w, h);
+              byte[] data = image;
+              if( !canDoDirect )
+                {
+                if( pixels == null ) pixels = new byte[image.length];
+                interleave(image, pixels, w * h, rgbChannelCount, bpp);
+                data = pixels;
+                }
+              if( channel != null )
+                {
+                ByteBuffer buf = ByteBuffer.wrap(data);
+                while( buf.hasRemaining() )
                   {
-                  for( int b=0; b<bpp; b++ )
-                    {
-                    int index = xCount * (yCount * (rgbChannelCount * b + i) + y) + x;
-                    out.write( image[index] );
-                    }
+                  channel.write(buf, offset + buf.position());
                   }
                 }
+              else
+                {
+                System.out.write(data, 0, data.length);
+                }
               }
+            offset += planeBytes;
             }
           }
         }
+    }
+    finally {
+      if( shared != null ) shared.close();
+    }
+
+    if( channel != null )
+      {
+      // tell native code that the pixels are ready
+      System.out.print(offset + "\n\n");
       }
-    out.flush();
+    System.out.flush();
     return true;
   }
-  
+
+  /**
+   * Converts planar pixel data to interleaved, copying each
+   * bpp-byte sample as a block.
+   */
+  private void interleave(byte[] planar, byte[] interleaved, int pixelCount,
+    int rgbChannelCount, int bpp)
+  {
+    for( int i=0; i<rgbChannelCount; i++ )
+      {
+      int src = i * pixelCount * bpp;
+      int dest = i * bpp;
+      int step = rgbChannelCount * bpp;
+      for( int p=0; p<pixelCount; p++ )
+        {
+        System.arraycopy(planar, src, interleaved, dest, bpp);
+        src += bpp;
+        dest += step;
+        }
+      }
+  }
+
   /**
    * 
    */
@@ -529,7 +619,8 @@ public class ITKBridgePipes {
       int tEnd =   Integer.parseInt( args[9] ) + tBegin - 1;
       int cBegin = Integer.parseInt( args[10] );
       int cEnd =   Integer.parseInt( args[11] ) + cBegin - 1;
-      if (!new ITKBridgePipes().read(args[1], xBegin, xEnd, yBegin, yEnd, zBegin, zEnd, tBegin, tEnd, cBegin, cEnd)) System.exit(1);
+      String sharedFile = args.length > 12 ? args[12] : null;
+      if (!new ITKBridgePipes().read(args[1], xBegin, xEnd, yBegin, yEnd, zBegin, zEnd, tBegin, tEnd, cBegin, cEnd, sharedFile)) System.exit(1);
     }
     else if(args[0].equals("canRead")) {
       if (!new ITKBridgePipes().canRead(args[1])) System.exit(1);
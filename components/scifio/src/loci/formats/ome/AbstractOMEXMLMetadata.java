@@ -24,18 +24,19 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats.ome;
 
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Hashtable;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
 
 import ome.xml.DOMUtil;
 import ome.xml.model.OME;
+import ome.xml.model.OMEModelWriter;
 import ome.xml.model.OMEModelObject;
 
-import org.w3c.dom.Document;
 import org.w3c.dom.Element;
 
 /**
@@ -89,29 +90,29 @@ public abstract class AbstractOMEXMLMetadata implements OMEXMLMetadata {
    * @return OME-XML as a string.
    */
   public String dumpXML() {
-    if (root == null) {
-      root = (OMEModelObject) getRoot();
-      if (root == null) return null;
-    }
     try {
       ByteArrayOutputStream os = new ByteArrayOutputStream();
-      Document doc = builder.newDocument();
-      Element r = root.asXMLElement(doc);
-      r.setAttribute("xmlns:xsi", XSI_NS);
-      r.setAttribute("xsi:schemaLocation", OME.NAMESPACE + " " + SCHEMA);
-      doc.appendChild(r);
-      DOMUtil.writeXML(os, doc);
-      return os.toString();
+      if (!writeXML(os)) return null;
+      return os.toString("UTF-8");
     }
-    catch (TransformerException exc) {
+    catch (IOException exc) {
     }
     return null;
   }
 
+  /**
+   * Writes the given OME-XML tree to a stream as UTF-8, without building
+   * a DOM.
+   */
+  public void dumpXML(OutputStream out) throws IOException {
+    writeXML(out);
+  }
+
   // -- MetadataRetrieve API methods --
 
   /* @see loci.formats.meta.MetadataRetrieve#getUUID() */
   public String getUUID() {
+    if (root instanceof OME) return ((OME) root).getUUID();
     Element ome = root.asXMLElement(builder.newDocument());
     return DOMUtil.getAttribute("UUID", ome);
   }
@@ -171,4 +172,23 @@ public abstract class AbstractOMEXMLMetadata implements OMEXMLMetadata {
     return value == null ? null : new Double(value.doubleValue());
   }
 
+  // -- Helper methods --
+
+  /**
+   * Streams the OME-XML tree to the given output stream.
+   * @return false if there is no tree to write.
+   */
+  private boolean writeXML(OutputStream out) throws IOException {
+    if (root == null) {
+      root = (OMEModelObject) getRoot();
+      if (root == null) return false;
+    }
+    OMEModelWriter writer = new OMEModelWriter(out);
+    writer.setRootAttribute("xmlns:xsi", XSI_NS);
+    writer.setRootAttribute("xsi:schemaLocation",
+      OME.NAMESPACE + " " + SCHEMA);
+    writer.writeDocument(root);
+    return true;
+  }
+
 }
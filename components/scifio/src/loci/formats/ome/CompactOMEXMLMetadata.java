@@ -0,0 +1,663 @@
+//
+// CompactOMEXMLMetadata.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.formats.ome;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+import ome.xml.model.Image;
+import ome.xml.model.OME;
+import ome.xml.model.Pixels;
+import ome.xml.model.Plane;
+import ome.xml.model.TiffData;
+import ome.xml.model.UUID;
+import ome.xml.model.primitives.NonNegativeInteger;
+
+/**
+ * An OME-XML metadata store which keeps per-plane metadata in compact form.
+ *
+ * Plane and TiffData (including UUID) values are stored in primitive arrays
+ * for each image, rather than as one object per plane in the OME-XML object
+ * model; all other metadata is stored as in {@link OMEXMLMetadataImpl}.
+ * The object model is completed the first time that it is needed, i.e. when
+ * {@link #getRoot()} is called or the OME-XML is dumped, after which this
+ * class behaves exactly like its superclass.  Plane annotation references
+ * are only stored in the object model, so setting one also completes it.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/scifio/src/loci/formats/ome/CompactOMEXMLMetadata.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/scifio/src/loci/formats/ome/CompactOMEXMLMetadata.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class CompactOMEXMLMetadata extends OMEXMLMetadataImpl {
+
+  // -- Constants --
+
+  private static final int THE_Z = 0;
+  private static final int THE_C = 1;
+  private static final int THE_T = 2;
+  private static final int DELTA_T = 0;
+  private static final int EXPOSURE_TIME = 1;
+  private static final int POSITION_X = 2;
+  private static final int POSITION_Y = 3;
+  private static final int POSITION_Z = 4;
+  private static final int HASH_SHA1 = 0;
+
+  private static final int FIRST_C = 0;
+  private static final int FIRST_T = 1;
+  private static final int FIRST_Z = 2;
+  private static final int IFD = 3;
+  private static final int PLANE_COUNT = 4;
+  private static final int UUID_VALUE = 0;
+  private static final int UUID_FILE_NAME = 1;
+
+  // -- Fields --
+
+  /** Plane values for each image, or null once the model is complete. */
+  private List<Table> planes;
+
+  /** TiffData values for each image, or null once the model is complete. */
+  private List<Table> tiffData;
+
+  // -- CompactOMEXMLMetadata API methods --
+
+  /**
+   * Moves all compactly stored values into the OME-XML object model.
+   * This happens automatically when the object model is needed.
+   */
+  public void completeModel() {
+    if (planes == null) return;
+    OME root = (OME) super.getRoot();
+    for (int image=0; image<planes.size(); image++) {
+      Table t = planes.get(image);
+      if (t == null) continue;
+      Pixels pixels = root.getImage(image).getPixels();
+      for (int p=0; p<t.count; p++) {
+        Plane plane = new Plane();
+        plane.setTheZ(t.getInt(THE_Z, p));
+        plane.setTheC(t.getInt(THE_C, p));
+        plane.setTheT(t.getInt(THE_T, p));
+        plane.setDeltaT(t.getDouble(DELTA_T, p));
+        plane.setExposureTime(t.getDouble(EXPOSURE_TIME, p));
+        plane.setPositionX(t.getDouble(POSITION_X, p));
+        plane.setPositionY(t.getDouble(POSITION_Y, p));
+        plane.setPositionZ(t.getDouble(POSITION_Z, p));
+        plane.setHashSHA1(t.getString(HASH_SHA1, p));
+        pixels.addPlane(plane);
+      }
+      planes.set(image, null);
+    }
+    for (int image=0; image<tiffData.size(); image++) {
+      Table t = tiffData.get(image);
+      if (t == null) continue;
+      Pixels pixels = root.getImage(image).getPixels();
+      for (int i=0; i<t.count; i++) {
+        TiffData td = new TiffData();
+        td.setFirstC(t.getInt(FIRST_C, i));
+        td.setFirstT(t.getInt(FIRST_T, i));
+        td.setFirstZ(t.getInt(FIRST_Z, i));
+        td.setIFD(t.getInt(IFD, i));
+        td.setPlaneCount(t.getInt(PLANE_COUNT, i));
+        if (t.flags.get(i)) {
+          UUID uuid = new UUID();
+          uuid.setValue(t.getString(UUID_VALUE, i));
+          uuid.setFileName(t.getString(UUID_FILE_NAME, i));
+          td.setUUID(uuid);
+        }
+        pixels.addTiffData(td);
+      }
+      tiffData.set(image, null);
+    }
+    planes = null;
+    tiffData = null;
+  }
+
+  // -- OMEXMLMetadata API methods --
+
+  /* @see OMEXMLMetadata#dumpXML() */
+  public String dumpXML() {
+    completeModel();
+    return super.dumpXML();
+  }
+
+  /* @see OMEXMLMetadata#dumpXML(OutputStream) */
+  public void dumpXML(OutputStream out) throws IOException {
+    completeModel();
+    super.dumpXML(out);
+  }
+
+  // -- MetadataStore API methods --
+
+  /* @see loci.formats.meta.MetadataStore#createRoot() */
+  public void createRoot() {
+    super.createRoot();
+    planes = new ArrayList<Table>();
+    tiffData = new ArrayList<Table>();
+  }
+
+  /* @see loci.formats.meta.MetadataStore#getRoot() */
+  public Object getRoot() {
+    completeModel();
+    return super.getRoot();
+  }
+
+  /* @see loci.formats.meta.MetadataStore#setRoot(Object) */
+  public void setRoot(Object root) {
+    super.setRoot(root);
+    planes = null;
+    tiffData = null;
+  }
+
+  /*
+   * @see loci.formats.meta.MetadataStore#setPlaneAnnotationRef(String, int, int, int)
+   */
+  public void setPlaneAnnotationRef(String annotation, int imageIndex,
+    int planeIndex, int annotationRefIndex)
+  {
+    completeModel();
+    super.setPlaneAnnotationRef(annotation, imageIndex, planeIndex,
+      annotationRefIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataStore#setPlaneDeltaT(Double, int, int) */
+  public void setPlaneDeltaT(Double deltaT, int imageIndex, int planeIndex) {
+    Table t = getPlanes(imageIndex, true);
+    if (t == null) super.setPlaneDeltaT(deltaT, imageIndex, planeIndex);
+    else t.setDouble(DELTA_T, t.add(planeIndex), deltaT);
+  }
+
+  /*
+   * @see loci.formats.meta.MetadataStore#setPlaneExposureTime(Double, int, int)
+   */
+  public void setPlaneExposureTime(Double exposureTime, int imageIndex,
+    int planeIndex)
+  {
+    Table t = getPlanes(imageIndex, true);
+    if (t == null) {
+      super.setPlaneExposureTime(exposureTime, imageIndex, planeIndex);
+    }
+    else t.setDouble(EXPOSURE_TIME, t.add(planeIndex), exposureTime);
+  }
+
+  /* @see loci.formats.meta.MetadataStore#setPlaneHashSHA1(String, int, int) */
+  public void setPlaneHashSHA1(String hashSHA1, int imageIndex,
+    int planeIndex)
+  {
+    Table t = getPlanes(imageIndex, true);
+    if (t == null) super.setPlaneHashSHA1(hashSHA1, imageIndex, planeIndex);
+    else t.setString(HASH_SHA1, t.add(planeIndex), hashSHA1);
+  }
+
+  /* @see loci.formats.meta.MetadataStore#setPlanePositionX(Double, int, int) */
+  public void setPlanePositionX(Double positionX, int imageIndex,
+    int planeIndex)
+  {
+    Table t = getPlanes(imageIndex, true);
+    if (t == null) super.setPlanePositionX(positionX, imageIndex, planeIndex);
+    else t.setDouble(POSITION_X, t.add(planeIndex), positionX);
+  }
+
+  /* @see loci.formats.meta.MetadataStore#setPlanePositionY(Double, int, int) */
+  public void setPlanePositionY(Double positionY, int imageIndex,
+    int planeIndex)
+  {
+    Table t = getPlanes(imageIndex, true);
+    if (t == null) super.setPlanePositionY(positionY, imageIndex, planeIndex);
+    else t.setDouble(POSITION_Y, t.add(planeIndex), positionY);
+  }
+
+  /* @see loci.formats.meta.MetadataStore#setPlanePositionZ(Double, int, int) */
+  public void setPlanePositionZ(Double positionZ, int imageIndex,
+    int planeIndex)
+  {
+    Table t = getPlanes(imageIndex, true);
+    if (t == null) super.setPlanePositionZ(positionZ, imageIndex, planeIndex);
+    else t.setDouble(POSITION_Z, t.add(planeIndex), positionZ);
+  }
+
+  /*
+   * @see loci.formats.meta.MetadataStore#setPlaneTheC(NonNegativeInteger, int, int)
+   */
+  public void setPlaneTheC(NonNegativeInteger theC, int imageIndex,
+    int planeIndex)
+  {
+    Table t = getPlanes(imageIndex, true);
+    if (t == null) super.setPlaneTheC(theC, imageIndex, planeIndex);
+    else t.setInt(THE_C, t.add(planeIndex), theC);
+  }
+
+  /*
+   * @see loci.formats.meta.MetadataStore#setPlaneTheT(NonNegativeInteger, int, int)
+   */
+  public void setPlaneTheT(NonNegativeInteger theT, int imageIndex,
+    int planeIndex)
+  {
+    Table t = getPlanes(imageIndex, true);
+    if (t == null) super.setPlaneTheT(theT, imageIndex, planeIndex);
+    else t.setInt(THE_T, t.add(planeIndex), theT);
+  }
+
+  /*
+   * @see loci.formats.meta.MetadataStore#setPlaneTheZ(NonNegativeInteger, int, int)
+   */
+  public void setPlaneTheZ(NonNegativeInteger theZ, int imageIndex,
+    int planeIndex)
+  {
+    Table t = getPlanes(imageIndex, true);
+    if (t == null) super.setPlaneTheZ(theZ, imageIndex, planeIndex);
+    else t.setInt(THE_Z, t.add(planeIndex), theZ);
+  }
+
+  /*
+   * @see loci.formats.meta.MetadataStore#setTiffDataFirstC(NonNegativeInteger, int, int)
+   */
+  public void setTiffDataFirstC(NonNegativeInteger firstC, int imageIndex,
+    int tiffDataIndex)
+  {
+    Table t = getTiffData(imageIndex, true);
+    if (t == null) super.setTiffDataFirstC(firstC, imageIndex, tiffDataIndex);
+    else t.setInt(FIRST_C, t.add(tiffDataIndex), firstC);
+  }
+
+  /*
+   * @see loci.formats.meta.MetadataStore#setTiffDataFirstT(NonNegativeInteger, int, int)
+   */
+  public void setTiffDataFirstT(NonNegativeInteger firstT, int imageIndex,
+    int tiffDataIndex)
+  {
+    Table t = getTiffData(imageIndex, true);
+    if (t == null) super.setTiffDataFirstT(firstT, imageIndex, tiffDataIndex);
+    else t.setInt(FIRST_T, t.add(tiffDataIndex), firstT);
+  }
+
+  /*
+   * @see loci.formats.meta.MetadataStore#setTiffDataFirstZ(NonNegativeInteger, int, int)
+   */
+  public void setTiffDataFirstZ(NonNegativeInteger firstZ, int imageIndex,
+    int tiffDataIndex)
+  {
+    Table t = getTiffData(imageIndex, true);
+    if (t == null) super.setTiffDataFirstZ(firstZ, imageIndex, tiffDataIndex);
+    else t.setInt(FIRST_Z, t.add(tiffDataIndex), firstZ);
+  }
+
+  /*
+   * @see loci.formats.meta.MetadataStore#setTiffDataIFD(NonNegativeInteger, int, int)
+   */
+  public void setTiffDataIFD(NonNegativeInteger ifd, int imageIndex,
+    int tiffDataIndex)
+  {
+    Table t = getTiffData(imageIndex, true);
+    if (t == null) super.setTiffDataIFD(ifd, imageIndex, tiffDataIndex);
+    else t.setInt(IFD, t.add(tiffDataIndex), ifd);
+  }
+
+  /*
+   * @see loci.formats.meta.MetadataStore#setTiffDataPlaneCount(NonNegativeInteger, int, int)
+   */
+  public void setTiffDataPlaneCount(NonNegativeInteger planeCount,
+    int imageIndex, int tiffDataIndex)
+  {
+    Table t = getTiffData(imageIndex, true);
+    if (t == null) {
+      super.setTiffDataPlaneCount(planeCount, imageIndex, tiffDataIndex);
+    }
+    else t.setInt(PLANE_COUNT, t.add(tiffDataIndex), planeCount);
+  }
+
+  /* @see loci.formats.meta.MetadataStore#setUUIDFileName(String, int, int) */
+  public void setUUIDFileName(String fileName, int imageIndex,
+    int tiffDataIndex)
+  {
+    Table t = getTiffData(imageIndex, true);
+    if (t == null) super.setUUIDFileName(fileName, imageIndex, tiffDataIndex);
+    else {
+      int row = t.add(tiffDataIndex);
+      t.flags.set(row);
+      t.setString(UUID_FILE_NAME, row, fileName);
+    }
+  }
+
+  /* @see loci.formats.meta.MetadataStore#setUUIDValue(String, int, int) */
+  public void setUUIDValue(String value, int imageIndex, int tiffDataIndex) {
+    Table t = getTiffData(imageIndex, true);
+    if (t == null) super.setUUIDValue(value, imageIndex, tiffDataIndex);
+    else {
+      int row = t.add(tiffDataIndex);
+      t.flags.set(row);
+      t.setString(UUID_VALUE, row, value);
+    }
+  }
+
+  // -- MetadataRetrieve API methods --
+
+  /* @see loci.formats.meta.MetadataRetrieve#getPlaneCount(int) */
+  public int getPlaneCount(int imageIndex) {
+    Table t = getPlanes(imageIndex, false);
+    return t == null ? super.getPlaneCount(imageIndex) : t.count;
+  }
+
+  /*
+   * @see loci.formats.meta.MetadataRetrieve#getPlaneAnnotationRefCount(int, int)
+   */
+  public int getPlaneAnnotationRefCount(int imageIndex, int planeIndex) {
+    Table t = getPlanes(imageIndex, false);
+    if (t == null) {
+      return super.getPlaneAnnotationRefCount(imageIndex, planeIndex);
+    }
+    t.check(planeIndex);
+    return 0;
+  }
+
+  /*
+   * @see loci.formats.meta.MetadataRetrieve#getPlaneAnnotationRef(int, int, int)
+   */
+  public String getPlaneAnnotationRef(int imageIndex, int planeIndex,
+    int annotationRefIndex)
+  {
+    completeModel();
+    return super.getPlaneAnnotationRef(imageIndex, planeIndex,
+      annotationRefIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getPlaneDeltaT(int, int) */
+  public Double getPlaneDeltaT(int imageIndex, int planeIndex) {
+    Table t = getPlanes(imageIndex, false);
+    return t == null ? super.getPlaneDeltaT(imageIndex, planeIndex) :
+      t.getDouble(DELTA_T, planeIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getPlaneExposureTime(int, int) */
+  public Double getPlaneExposureTime(int imageIndex, int planeIndex) {
+    Table t = getPlanes(imageIndex, false);
+    return t == null ? super.getPlaneExposureTime(imageIndex, planeIndex) :
+      t.getDouble(EXPOSURE_TIME, planeIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getPlaneHashSHA1(int, int) */
+  public String getPlaneHashSHA1(int imageIndex, int planeIndex) {
+    Table t = getPlanes(imageIndex, false);
+    return t == null ? super.getPlaneHashSHA1(imageIndex, planeIndex) :
+      t.getString(HASH_SHA1, planeIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getPlanePositionX(int, int) */
+  public Double getPlanePositionX(int imageIndex, int planeIndex) {
+    Table t = getPlanes(imageIndex, false);
+    return t == null ? super.getPlanePositionX(imageIndex, planeIndex) :
+      t.getDouble(POSITION_X, planeIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getPlanePositionY(int, int) */
+  public Double getPlanePositionY(int imageIndex, int planeIndex) {
+    Table t = getPlanes(imageIndex, false);
+    return t == null ? super.getPlanePositionY(imageIndex, planeIndex) :
+      t.getDouble(POSITION_Y, planeIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getPlanePositionZ(int, int) */
+  public Double getPlanePositionZ(int imageIndex, int planeIndex) {
+    Table t = getPlanes(imageIndex, false);
+    return t == null ? super.getPlanePositionZ(imageIndex, planeIndex) :
+      t.getDouble(POSITION_Z, planeIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getPlaneTheC(int, int) */
+  public NonNegativeInteger getPlaneTheC(int imageIndex, int planeIndex) {
+    Table t = getPlanes(imageIndex, false);
+    return t == null ? super.getPlaneTheC(imageIndex, planeIndex) :
+      t.getInt(THE_C, planeIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getPlaneTheT(int, int) */
+  public NonNegativeInteger getPlaneTheT(int imageIndex, int planeIndex) {
+    Table t = getPlanes(imageIndex, false);
+    return t == null ? super.getPlaneTheT(imageIndex, planeIndex) :
+      t.getInt(THE_T, planeIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getPlaneTheZ(int, int) */
+  public NonNegativeInteger getPlaneTheZ(int imageIndex, int planeIndex) {
+    Table t = getPlanes(imageIndex, false);
+    return t == null ? super.getPlaneTheZ(imageIndex, planeIndex) :
+      t.getInt(THE_Z, planeIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getTiffDataCount(int) */
+  public int getTiffDataCount(int imageIndex) {
+    Table t = getTiffData(imageIndex, false);
+    return t == null ? super.getTiffDataCount(imageIndex) : t.count;
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getTiffDataFirstC(int, int) */
+  public NonNegativeInteger getTiffDataFirstC(int imageIndex,
+    int tiffDataIndex)
+  {
+    Table t = getTiffData(imageIndex, false);
+    return t == null ? super.getTiffDataFirstC(imageIndex, tiffDataIndex) :
+      t.getInt(FIRST_C, tiffDataIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getTiffDataFirstT(int, int) */
+  public NonNegativeInteger getTiffDataFirstT(int imageIndex,
+    int tiffDataIndex)
+  {
+    Table t = getTiffData(imageIndex, false);
+    return t == null ? super.getTiffDataFirstT(imageIndex, tiffDataIndex) :
+      t.getInt(FIRST_T, tiffDataIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getTiffDataFirstZ(int, int) */
+  public NonNegativeInteger getTiffDataFirstZ(int imageIndex,
+    int tiffDataIndex)
+  {
+    Table t = getTiffData(imageIndex, false);
+    return t == null ? super.getTiffDataFirstZ(imageIndex, tiffDataIndex) :
+      t.getInt(FIRST_Z, tiffDataIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getTiffDataIFD(int, int) */
+  public NonNegativeInteger getTiffDataIFD(int imageIndex, int tiffDataIndex)
+  {
+    Table t = getTiffData(imageIndex, false);
+    return t == null ? super.getTiffDataIFD(imageIndex, tiffDataIndex) :
+      t.getInt(IFD, tiffDataIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getTiffDataPlaneCount(int, int) */
+  public NonNegativeInteger getTiffDataPlaneCount(int imageIndex,
+    int tiffDataIndex)
+  {
+    Table t = getTiffData(imageIndex, false);
+    return t == null ?
+      super.getTiffDataPlaneCount(imageIndex, tiffDataIndex) :
+      t.getInt(PLANE_COUNT, tiffDataIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getUUIDFileName(int, int) */
+  public String getUUIDFileName(int imageIndex, int tiffDataIndex) {
+    Table t = getTiffData(imageIndex, false);
+    return t == null ? super.getUUIDFileName(imageIndex, tiffDataIndex) :
+      t.getString(UUID_FILE_NAME, tiffDataIndex);
+  }
+
+  /* @see loci.formats.meta.MetadataRetrieve#getUUIDValue(int, int) */
+  public String getUUIDValue(int imageIndex, int tiffDataIndex) {
+    Table t = getTiffData(imageIndex, false);
+    return t == null ? super.getUUIDValue(imageIndex, tiffDataIndex) :
+      t.getString(UUID_VALUE, tiffDataIndex);
+  }
+
+  // -- Helper methods --
+
+  /**
+   * Gets the plane table for the given image, creating it if requested;
+   * returns null if the object model is already complete.
+   */
+  private Table getPlanes(int imageIndex, boolean create) {
+    if (planes == null) return null;
+    return getTable(planes, imageIndex, create, 3, 5, 1);
+  }
+
+  /**
+   * Gets the TiffData table for the given image, creating it if requested;
+   * returns null if the object model is already complete.
+   */
+  private Table getTiffData(int imageIndex, boolean create) {
+    if (tiffData == null) return null;
+    return getTable(tiffData, imageIndex, create, 5, 0, 2);
+  }
+
+  private Table getTable(List<Table> tables, int imageIndex, boolean create,
+    int ints, int doubles, int strings)
+  {
+    Table t = imageIndex < tables.size() ? tables.get(imageIndex) : null;
+    if (t != null || !create) return t;
+
+    // create the Image and Pixels, as the object model setters would
+    OME root = (OME) super.getRoot();
+    if (root.sizeOfImageList() == imageIndex) root.addImage(new Image());
+    Image image = root.getImage(imageIndex);
+    if (image.getPixels() == null) image.setPixels(new Pixels());
+
+    t = new Table(ints, doubles, strings);
+    while (tables.size() <= imageIndex) tables.add(null);
+    tables.set(imageIndex, t);
+    return t;
+  }
+
+  // -- Helper classes --
+
+  /**
+   * Columns of values for one element type within one image.  Integer
+   * values are non-negative, so -1 marks a null value; string columns are
+   * only allocated once a value is stored.
+   */
+  private static class Table {
+    private int count;
+    private int capacity = 16;
+    private int[][] ints;
+    private double[][] doubles;
+    private BitSet[] doubleSet;
+    private String[][] strings;
+
+    /** Per-row flag; for TiffData, whether a UUID element exists. */
+    private BitSet flags = new BitSet();
+
+    public Table(int nInts, int nDoubles, int nStrings) {
+      ints = new int[nInts][];
+      for (int i=0; i<nInts; i++) ints[i] = newInts(capacity);
+      doubles = new double[nDoubles][capacity];
+      doubleSet = new BitSet[nDoubles];
+      for (int i=0; i<nDoubles; i++) doubleSet[i] = new BitSet();
+      strings = new String[nStrings][];
+    }
+
+    /**
+     * Returns the given row, appending it if it is one past the end.
+     * As in the object model, rows must be added in order.
+     */
+    public int add(int row) {
+      if (row < count) return row;
+      if (row > count) {
+        throw new IndexOutOfBoundsException("Index: " + row +
+          ", Size: " + count);
+      }
+      if (count == capacity) grow();
+      count++;
+      return row;
+    }
+
+    public void check(int row) {
+      if (row < 0 || row >= count) {
+        throw new IndexOutOfBoundsException("Index: " + row +
+          ", Size: " + count);
+      }
+    }
+
+    public void setInt(int column, int row, NonNegativeInteger value) {
+      ints[column][row] = value == null ? -1 : value.getValue().intValue();
+    }
+
+    public NonNegativeInteger getInt(int column, int row) {
+      check(row);
+      int value = ints[column][row];
+      return value < 0 ? null : new NonNegativeInteger(value);
+    }
+
+    public void setDouble(int column, int row, Double value) {
+      doubles[column][row] = value == null ? 0 : value.doubleValue();
+      doubleSet[column].set(row, value != null);
+    }
+
+    public Double getDouble(int column, int row) {
+      check(row);
+      if (!doubleSet[column].get(row)) return null;
+      return new Double(doubles[column][row]);
+    }
+
+    public void setString(int column, int row, String value) {
+      if (strings[column] == null) {
+        if (value == null) return;
+        strings[column] = new String[capacity];
+      }
+      strings[column][row] = value;
+    }
+
+    public String getString(int column, int row) {
+      check(row);
+      return strings[column] == null ? null : strings[column][row];
+    }
+
+    private void grow() {
+      int newCapacity = capacity * 2;
+      for (int i=0; i<ints.length; i++) {
+        int[] v = newInts(newCapacity);
+        System.arraycopy(ints[i], 0, v, 0, count);
+        ints[i] = v;
+      }
+      for (int i=0; i<doubles.length; i++) {
+        double[] v = new double[newCapacity];
+        System.arraycopy(doubles[i], 0, v, 0, count);
+        doubles[i] = v;
+      }
+      for (int i=0; i<strings.length; i++) {
+        if (strings[i] == null) continue;
+        String[] v = new String[newCapacity];
+        System.arraycopy(strings[i], 0, v, 0, count);
+        strings[i] = v;
+      }
+      capacity = newCapacity;
+    }
+
+    private static int[] newInts(int length) {
+      int[] v = new int[length];
+      for (int i=0; i<length; i++) v[i] = -1;
+      return v;
+    }
+  }
+
+}
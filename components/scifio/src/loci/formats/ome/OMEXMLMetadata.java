@@ -23,6 +23,8 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package loci.formats.ome;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Hashtable;
 
 import loci.formats.meta.IMetadata;
@@ -44,4 +46,12 @@ public interface OMEXMLMetadata extends IMetadata {
    */
   public String dumpXML();
 
+  /**
+   * Writes the OME-XML to a stream as UTF-8. Unlike {@link #dumpXML()},
+   * no DOM is built, so memory use does not grow with the metadata.
+   * @param out the stream to which the OME-XML is written.
+   * @throws IOException if the OME-XML cannot be written.
+   */
+  public void dumpXML(OutputStream out) throws IOException;
+
 }
@@ -42,6 +42,9 @@
 
 package loci.formats.ome;
 
+import java.io.IOException;
+import java.io.OutputStream;
+
 import ome.xml.model.*;
 import ome.xml.model.enums.*;
 import ome.xml.model.primitives.*;
@@ -97,6 +100,12 @@ public class OMEXMLMetadataImpl extends AbstractOMEXMLMetadata
 		return super.dumpXML();
 	}
 
+	public void dumpXML(OutputStream out) throws IOException
+	{
+		resolveReferences();
+		super.dumpXML(out);
+	}
+
 	public int resolveReferences()
 	{
 		return model.resolveReferences();
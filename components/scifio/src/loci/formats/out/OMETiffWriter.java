@@ -246,9 +246,13 @@ public class OMETiffWriter extends TiffWriter {
     }
 
     // insert warning comment
-    String prefix = xml.substring(0, xml.indexOf(">") + 1);
-    String suffix = xml.substring(xml.indexOf(">") + 1);
-    return prefix + WARNING_COMMENT + suffix;
+    int end = xml.indexOf(">") + 1;
+    StringBuilder sb =
+      new StringBuilder(xml.length() + WARNING_COMMENT.length());
+    sb.append(xml, 0, end);
+    sb.append(WARNING_COMMENT);
+    sb.append(xml, end, xml.length());
+    return sb.toString();
   }
 
   private void saveComment(String file, String xml) throws IOException {
@@ -24,6 +24,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats.out;
 
 import java.io.IOException;
+import java.util.concurrent.ExecutorService;
 
 import loci.common.RandomAccessInputStream;
 import loci.common.RandomAccessOutputStream;
@@ -78,6 +79,9 @@ public class TiffWriter extends FormatWriter {
   /** Whether or not to check the parameters passed to saveBytes. */
   private boolean checkParams = true;
 
+  /** Executor used to compress strips in parallel, if set. */
+  private ExecutorService compressionExecutor;
+
   /**
    * Sets the compression code for the specified IFD.
    * 
@@ -392,6 +396,17 @@ public class TiffWriter extends FormatWriter {
     isBigTiff = bigTiff;
   }
 
+  /**
+   * Sets the executor used to compress the strips or tiles of each plane
+   * in parallel; null (the default) compresses on the calling thread.
+   * This setting is not reset when close() is called, and the executor is
+   * never shut down by the writer.
+   */
+  public void setCompressionExecutor(ExecutorService executor) {
+    compressionExecutor = executor;
+    if (tiffSaver != null) tiffSaver.setCompressionExecutor(executor);
+  }
+
   // -- Helper methods --
 
   private void setupTiffSaver() throws IOException {
@@ -408,6 +423,7 @@ public class TiffWriter extends FormatWriter {
     tiffSaver.setLittleEndian(littleEndian);
     tiffSaver.setBigTiff(isBigTiff);
     tiffSaver.setCodecOptions(options);
+    tiffSaver.setCompressionExecutor(compressionExecutor);
   }
 
 }
@@ -23,6 +23,7 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package loci.formats.services;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 import java.awt.image.Raster;
 import java.io.IOException;
@@ -143,10 +144,7 @@ public class JAIIIOServiceImpl extends AbstractService
     J2KImageReader reader = getReader();
     MemoryCacheImageInputStream mciis = new MemoryCacheImageInputStream(in);
     reader.setInput(mciis, false, true);
-    J2KImageReadParam param = (J2KImageReadParam) reader.getDefaultReadParam();
-    if (options.resolution != null) {
-      param.setResolution(options.resolution.intValue());
-    }
+    J2KImageReadParam param = getReadParam(reader, options);
     return reader.read(0, param);
   }
 
@@ -164,10 +162,7 @@ public class JAIIIOServiceImpl extends AbstractService
     J2KImageReader reader = getReader();
     MemoryCacheImageInputStream mciis = new MemoryCacheImageInputStream(in);
     reader.setInput(mciis, false, true);
-    J2KImageReadParam param = (J2KImageReadParam) reader.getDefaultReadParam();
-    if (options.resolution != null) {
-      param.setResolution(options.resolution.intValue());
-    }
+    J2KImageReadParam param = getReadParam(reader, options);
     return reader.readRaster(0, param);
   }
 
@@ -177,6 +172,21 @@ public class JAIIIOServiceImpl extends AbstractService
     return readRaster(in, JPEG2000CodecOptions.getDefaultOptions());
   }
 
+  /** Set up the JPEG-2000 read parameters from the given options. */
+  private J2KImageReadParam getReadParam(J2KImageReader reader,
+    JPEG2000CodecOptions options)
+  {
+    J2KImageReadParam param = (J2KImageReadParam) reader.getDefaultReadParam();
+    if (options.resolution != null) {
+      param.setResolution(options.resolution.intValue());
+    }
+    if (options.region != null) {
+      param.setSourceRegion(new Rectangle(options.region.x, options.region.y,
+        options.region.width, options.region.height));
+    }
+    return param;
+  }
+
   /** Set up the JPEG-2000 image reader. */
   private J2KImageReader getReader() {
     IIORegistry registry = IIORegistry.getDefaultInstance();
@@ -23,6 +23,8 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package loci.formats.services;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Hashtable;
 
 import loci.common.services.Service;
@@ -60,6 +62,13 @@ public interface OMEXMLService extends Service {
    */
   public OMEXMLMetadata createOMEXMLMetadata() throws ServiceException;
 
+  /**
+   * Creates an OME-XML metadata object which stores Plane and TiffData
+   * metadata compactly, for images with very many planes.
+   * @see loci.formats.ome.CompactOMEXMLMetadata
+   */
+  public OMEXMLMetadata createCompactOMEXMLMetadata();
+
   /**
    * Creates an OME-XML metadata object using reflection, to avoid
    * direct dependencies on the optional {@link loci.formats.ome} package,
@@ -138,6 +147,17 @@ public interface OMEXMLService extends Service {
   public String getOMEXML(MetadataRetrieve src)
     throws ServiceException;
 
+  /**
+   * Writes the OME-XML for the given metadata object to a stream as UTF-8,
+   * by converting to an OME-XML metadata object if necessary.  The XML is
+   * written as the metadata is traversed, without building a DOM.
+   * @throws ServiceException If there is an error creating the OME-XML
+   * metadata object.
+   * @throws IOException If there is an error writing to the stream.
+   */
+  public void writeOMEXML(MetadataRetrieve src, OutputStream out)
+    throws ServiceException, IOException;
+
   /**
    * Attempts to validate the given OME-XML string using
    * Java's XML validation facility. Requires Java 1.5+.
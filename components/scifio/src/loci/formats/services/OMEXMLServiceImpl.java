@@ -23,7 +23,9 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 
 package loci.formats.services;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.Hashtable;
 import java.util.List;
 
@@ -43,6 +45,7 @@ import loci.formats.meta.IMetadata;
 import loci.formats.meta.MetadataConverter;
 import loci.formats.meta.MetadataRetrieve;
 import loci.formats.meta.MetadataStore;
+import loci.formats.ome.CompactOMEXMLMetadata;
 import loci.formats.ome.OMEXMLMetadata;
 import loci.formats.ome.OMEXMLMetadataImpl;
 import ome.xml.OMEXMLFactory;
@@ -116,9 +119,6 @@ public class OMEXMLServiceImpl extends AbstractService implements OMEXMLService
     XMLTools.getStylesheet("/loci/formats/meta/2010-06-to-2011-06.xsl",
     OMEXMLServiceImpl.class);
 
-  private static final String SCHEMA_PATH =
-    "http://www.openmicroscopy.org/Schemas/OME/";
-
   /**
    * Default constructor.
    */
@@ -213,6 +213,11 @@ public class OMEXMLServiceImpl extends AbstractService implements OMEXMLService
     return createOMEXMLMetadata(null);
   }
 
+  /** @see OMEXMLService#createCompactOMEXMLMetadata() */
+  public OMEXMLMetadata createCompactOMEXMLMetadata() {
+    return new CompactOMEXMLMetadata();
+  }
+
   /** @see OMEXMLService#createOMEXMLMetadata(java.lang.String) */
   public OMEXMLMetadata createOMEXMLMetadata(String xml)
     throws ServiceException {
@@ -313,40 +318,25 @@ public class OMEXMLServiceImpl extends AbstractService implements OMEXMLService
 
   /** @see OMEXMLService#getOMEXML(loci.formats.meta.MetadataRetrieve) */
   public String getOMEXML(MetadataRetrieve src) throws ServiceException {
-    OMEXMLMetadata omexmlMeta = getOMEMetadata(src);
-    String xml = omexmlMeta.dumpXML();
-
-    // make sure that the namespace has been set correctly
-
-    // convert XML string to DOM
-    Document doc = null;
-    Exception exception = null;
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
     try {
-      doc = XMLTools.parseDOM(xml);
+      writeOMEXML(src, out);
+      return out.size() == 0 ? null : out.toString("UTF-8");
     }
-    catch (ParserConfigurationException exc) { exception = exc; }
-    catch (SAXException exc) { exception = exc; }
-    catch (IOException exc) { exception = exc; }
-    if (exception != null) {
-      LOGGER.info("Malformed OME-XML", exception);
-      return null;
-    }
-
-    Element root = doc.getDocumentElement();
-    root.setAttribute("xmlns", SCHEMA_PATH + getLatestVersion());
-
-    // convert tweaked DOM back to XML string
-    try {
-      xml = XMLTools.getXML(doc);
-    }
-    catch (TransformerConfigurationException exc) { exception = exc; }
-    catch (TransformerException exc) { exception = exc; }
-    if (exception != null) {
-      LOGGER.info("Internal XML conversion error", exception);
+    catch (IOException exc) {
+      LOGGER.info("Internal XML conversion error", exc);
       return null;
     }
+  }
 
-    return xml;
+  /**
+   * @see OMEXMLService#writeOMEXML(loci.formats.meta.MetadataRetrieve,
+   *   java.io.OutputStream)
+   */
+  public void writeOMEXML(MetadataRetrieve src, OutputStream out)
+    throws ServiceException, IOException
+  {
+    getOMEMetadata(src).dumpXML(out);
   }
 
   /** @see OMEXMLService#validateOMEXML(java.lang.String) */
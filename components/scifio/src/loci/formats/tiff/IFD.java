@@ -27,6 +27,7 @@ import java.lang.reflect.Array;
 import java.lang.reflect.Field;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Map;
 
 import loci.formats.FormatException;
 import loci.formats.FormatTools;
@@ -191,6 +192,14 @@ public class IFD extends HashMap<Integer, Object> {
   public static final int SHARPNESS = 41994;
   public static final int SUBJECT_DISTANCE_RANGE = 41996;
 
+  // -- Fields --
+
+  /**
+   * Normalized strip or tile offsets and byte counts, which are computed on
+   * first use and kept until this IFD is next modified.
+   */
+  private transient long[] stripOffsets, stripByteCounts;
+
   // -- Constructors --
 
   public IFD() {
@@ -700,11 +709,13 @@ public class IFD extends HashMap<Integer, Object> {
    * @return the strip offsets for the image. The length of the array is equal
    *   to the number of strips per image. <i>StripsPerImage =
    *   floor ((ImageLength + RowsPerStrip - 1) / RowsPerStrip)</i>.
+   *   The array is cached, and must not be modified.
    * @throws FormatException if there is a problem parsing the IFD metadata.
    * @see #getStripByteCounts()
    * @see #getRowsPerStrip()
    */
   public long[] getStripOffsets() throws FormatException {
+    if (stripOffsets != null) return stripOffsets;
     int tag = isTiled() ? TILE_OFFSETS : STRIP_OFFSETS;
     long[] offsets = getIFDLongArray(tag);
     if (isTiled() && offsets == null) {
@@ -718,14 +729,17 @@ public class IFD extends HashMap<Integer, Object> {
       }
     }
 
-    if (isTiled()) return offsets;
-    long rowsPerStrip = getRowsPerStrip()[0];
-    long numStrips = (getImageLength() + rowsPerStrip - 1) / rowsPerStrip;
-    if (getPlanarConfiguration() == 2) numStrips *= getSamplesPerPixel();
-    if (offsets.length < numStrips) {
-      throw new FormatException("StripOffsets length (" + offsets.length +
-        ") does not match expected " + "number of strips (" + numStrips + ")");
+    if (!isTiled()) {
+      long rowsPerStrip = getRowsPerStrip()[0];
+      long numStrips = (getImageLength() + rowsPerStrip - 1) / rowsPerStrip;
+      if (getPlanarConfiguration() == 2) numStrips *= getSamplesPerPixel();
+      if (offsets.length < numStrips) {
+        throw new FormatException("StripOffsets length (" + offsets.length +
+          ") does not match expected " + "number of strips (" + numStrips +
+          ")");
+      }
     }
+    stripOffsets = offsets;
     return offsets;
   }
 
@@ -735,10 +749,12 @@ public class IFD extends HashMap<Integer, Object> {
    * @return the byte counts for each strip. The length of the array is equal
    *   to the number of strips per image. <i>StripsPerImage =
    *   floor((ImageLength + RowsPerStrip - 1) / RowsPerStrip)</i>.
+   *   The array is cached, and must not be modified.
    * @throws FormatException if there is a problem parsing the IFD metadata.
    * @see #getStripOffsets()
    */
   public long[] getStripByteCounts() throws FormatException {
+    if (stripByteCounts != null) return stripByteCounts;
     int tag = isTiled() ? TILE_BYTE_COUNTS : STRIP_BYTE_COUNTS;
     long[] byteCounts = getIFDLongArray(tag);
     if (isTiled() && byteCounts == null) {
@@ -773,17 +789,19 @@ public class IFD extends HashMap<Integer, Object> {
     }
     else System.arraycopy(byteCounts, 0, counts, 0, counts.length);
 
-    if (isTiled()) return counts;
+    if (!isTiled()) {
+      long rowsPerStrip = getRowsPerStrip()[0];
+      long numStrips = (getImageLength() + rowsPerStrip - 1) / rowsPerStrip;
+      if (getPlanarConfiguration() == 2) numStrips *= getSamplesPerPixel();
 
-    long rowsPerStrip = getRowsPerStrip()[0];
-    long numStrips = (getImageLength() + rowsPerStrip - 1) / rowsPerStrip;
-    if (getPlanarConfiguration() == 2) numStrips *= getSamplesPerPixel();
-
-    if (counts.length < numStrips) {
-      throw new FormatException("StripByteCounts length (" + counts.length +
-        ") does not match expected " + "number of strips (" + numStrips + ")");
+      if (counts.length < numStrips) {
+        throw new FormatException("StripByteCounts length (" + counts.length +
+          ") does not match expected " + "number of strips (" + numStrips +
+          ")");
+      }
     }
 
+    stripByteCounts = counts;
     return counts;
   }
 
@@ -864,6 +882,32 @@ public class IFD extends HashMap<Integer, Object> {
     return y * multiplier;
   }
 
+  // -- HashMap API methods --
+
+  /* @see java.util.HashMap#put(Object, Object) */
+  public Object put(Integer key, Object value) {
+    clearCachedArrays();
+    return super.put(key, value);
+  }
+
+  /* @see java.util.HashMap#putAll(Map) */
+  public void putAll(Map<? extends Integer, ? extends Object> m) {
+    clearCachedArrays();
+    super.putAll(m);
+  }
+
+  /* @see java.util.HashMap#remove(Object) */
+  public Object remove(Object key) {
+    clearCachedArrays();
+    return super.remove(key);
+  }
+
+  /* @see java.util.HashMap#clear() */
+  public void clear() {
+    clearCachedArrays();
+    super.clear();
+  }
+
   // -- IFD population methods --
 
   /** Adds a directory entry to this IFD. */
@@ -916,6 +960,14 @@ public class IFD extends HashMap<Integer, Object> {
     }
   }
 
+  // -- Helper methods --
+
+  /** Discards the cached strip offsets and byte counts. */
+  private void clearCachedArrays() {
+    stripOffsets = null;
+    stripByteCounts = null;
+  }
+
   // -- Utility methods --
 
   /** Gets the name of the IFD tag encoded by the given number. */
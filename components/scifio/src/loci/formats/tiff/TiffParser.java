@@ -24,6 +24,8 @@ Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
 package loci.formats.tiff;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Vector;
@@ -33,6 +35,7 @@ import loci.common.RandomAccessInputStream;
 import loci.common.Region;
 import loci.common.enumeration.EnumException;
 import loci.formats.FormatException;
+import loci.formats.FormatTools;
 import loci.formats.codec.BitBuffer;
 import loci.formats.codec.CodecOptions;
 
@@ -58,6 +61,9 @@ public class TiffParser {
   private static final Logger LOGGER =
     LoggerFactory.getLogger(TiffParser.class);
 
+  /** Maximum number of bytes copied at once when reading into a buffer. */
+  private static final int COPY_BUFFER_SIZE = 1024 * 1024;
+
   // -- Fields --
 
   /** Input source from which to parse TIFF data. */
@@ -193,8 +199,16 @@ public class TiffParser {
   /** Returns all IFDs in the file.  */
   public IFDList getIFDs() throws IOException {
     if (ifdList != null) return ifdList;
+    IFDList ifds = getIFDs(getIFDOffsets());
+    if (doCaching) ifdList = ifds;
+    return ifds;
+  }
 
-    long[] offsets = getIFDOffsets();
+  /**
+   * Returns the IFDs at the given offsets, each followed by any SubIFDs
+   * that it references.
+   */
+  public IFDList getIFDs(long[] offsets) throws IOException {
     IFDList ifds = new IFDList();
 
     for (long offset : offsets) {
@@ -218,8 +232,6 @@ public class TiffParser {
         }
       }
     }
-    if (doCaching) ifdList = ifds;
-
     return ifds;
   }
 
@@ -270,28 +282,20 @@ public class TiffParser {
   /** Gets the offsets to every IFD in the file. */
   public long[] getIFDOffsets() throws IOException {
     // check TIFF header
-    int bytesPerEntry = bigTiff ? TiffConstants.BIG_TIFF_BYTES_PER_ENTRY :
-      TiffConstants.BYTES_PER_ENTRY;
-
-    Vector<Long> offsets = new Vector<Long>();
-    long offset = getFirstOffset();
-    while (offset > 0 && offset < in.length()) {
-      in.seek(offset);
-      offsets.add(offset);
-      int nEntries = bigTiff ? (int) in.readLong() : in.readUnsignedShort();
-      in.skipBytes(nEntries * bytesPerEntry);
-      offset = getNextOffset(offset);
-    }
-
-    long[] f = new long[offsets.size()];
-    for (int i=0; i<f.length; i++) {
-      f[i] = offsets.get(i).longValue();
-    }
+    long[] f = getIFDOffsets(getFirstOffset());
     ifdCount = f.length;
-
     return f;
   }
 
+  /**
+   * Gets the offsets to the IFDs that follow the IFD at the given offset,
+   * such as those appended to a file that is still being written.
+   * The TIFF header must already have been checked.
+   */
+  public long[] getNextIFDOffsets(long previous) throws IOException {
+    return getIFDOffsets(skipIFD(previous));
+  }
+
   /**
    * Gets the first IFD within the TIFF file, or null
    * if the input source is not a valid TIFF file.
@@ -353,26 +357,42 @@ public class TiffParser {
     IFD ifd = new IFD();
 
     // save little-endian flag to internal LITTLE_ENDIAN tag
-    ifd.put(new Integer(IFD.LITTLE_ENDIAN), new Boolean(in.isLittleEndian()));
-    ifd.put(new Integer(IFD.BIG_TIFF), new Boolean(bigTiff));
+    ifd.put(new Integer(IFD.LITTLE_ENDIAN),
+      Boolean.valueOf(in.isLittleEndian()));
+    ifd.put(new Integer(IFD.BIG_TIFF), Boolean.valueOf(bigTiff));
 
     // read in directory entries for this IFD
     LOGGER.trace("getIFDs: seeking IFD at {}", offset);
     in.seek(offset);
     long numEntries = bigTiff ? in.readLong() : in.readUnsignedShort();
     LOGGER.trace("getIFDs: {} directory entries to read", numEntries);
-    if (numEntries == 0 || numEntries == 1) return ifd;
+    if (numEntries <= 1) return ifd;
 
     int bytesPerEntry = bigTiff ?
       TiffConstants.BIG_TIFF_BYTES_PER_ENTRY : TiffConstants.BYTES_PER_ENTRY;
     int baseOffset = bigTiff ? 8 : 2;
+    long directoryOffset = offset + baseOffset;
+
+    // read the whole directory (and the offset that follows it) at once,
+    // and parse the entries and any values stored within them from memory;
+    // a directory that runs past the end of the file is truncated
+    long available = Math.max(0, in.length() - directoryOffset);
+    long directorySize = numEntries < available / bytesPerEntry ?
+      Math.min(numEntries * bytesPerEntry + 8, available) : available;
+    byte[] directory =
+      new byte[(int) Math.min(directorySize, Integer.MAX_VALUE)];
+    in.readFully(directory);
+    RandomAccessInputStream entries = new RandomAccessInputStream(directory);
+    entries.order(in.isLittleEndian());
 
     for (int i=0; i<numEntries; i++) {
-      in.seek(offset + baseOffset + bytesPerEntry * i);
+      long entryOffset = (long) bytesPerEntry * i;
+      if (entryOffset + bytesPerEntry > directory.length) break;
+      entries.seek(entryOffset);
 
       TiffIFDEntry entry = null;
       try {
-        entry = readTiffIFDEntry();
+        entry = readTiffIFDEntry(entries, directoryOffset + entryOffset);
       }
       catch (EnumException e) {
         LOGGER.debug("", e);
@@ -385,7 +405,6 @@ public class TiffParser {
 
       if (count < 0 || bpe <= 0) {
         // invalid data
-        in.skipBytes(bytesPerEntry - 4 - (bigTiff ? 8 : 4));
         continue;
       }
       Object value = null;
@@ -400,15 +419,19 @@ public class TiffParser {
       }
       if (count < 0 || count > in.length()) break;
 
-      if (pointer != in.getFilePointer() && !doCaching) {
-        value = entry;
+      long valuePosition = directoryOffset + entries.getFilePointer();
+      if (pointer != valuePosition) {
+        value = doCaching ? getIFDValue(entry) : entry;
+      }
+      else {
+        value = readIFDValue(entries, entry.getType(), entry.getValueCount());
       }
-      else value = getIFDValue(entry);
 
       if (value != null && !ifd.containsKey(new Integer(tag))) {
         ifd.put(new Integer(tag), value);
       }
     }
+    entries.close();
 
     in.seek(offset + baseOffset + bytesPerEntry * numEntries);
 
@@ -445,125 +468,7 @@ public class TiffParser {
     if (offset != in.getFilePointer()) {
       in.seek(offset);
     }
-
-    if (type == IFDType.BYTE) {
-      // 8-bit unsigned integer
-      if (count == 1) return new Short(in.readByte());
-      byte[] bytes = new byte[count];
-      in.readFully(bytes);
-      // bytes are unsigned, so use shorts
-      short[] shorts = new short[count];
-      for (int j=0; j<count; j++) shorts[j] = (short) (bytes[j] & 0xff);
-      return shorts;
-    }
-    else if (type == IFDType.ASCII) {
-      // 8-bit byte that contain a 7-bit ASCII code;
-      // the last byte must be NUL (binary zero)
-      byte[] ascii = new byte[count];
-      in.read(ascii);
-
-      // count number of null terminators
-      int nullCount = 0;
-      for (int j=0; j<count; j++) {
-        if (ascii[j] == 0 || j == count - 1) nullCount++;
-      }
-
-      // convert character array to array of strings
-      String[] strings = nullCount == 1 ? null : new String[nullCount];
-      String s = null;
-      int c = 0, ndx = -1;
-      for (int j=0; j<count; j++) {
-        if (ascii[j] == 0) {
-          s = new String(ascii, ndx + 1, j - ndx - 1);
-          ndx = j;
-        }
-        else if (j == count - 1) {
-          // handle non-null-terminated strings
-          s = new String(ascii, ndx + 1, j - ndx);
-        }
-        else s = null;
-        if (strings != null && s != null) strings[c++] = s;
-      }
-      return strings == null ? (Object) s : strings;
-    }
-    else if (type == IFDType.SHORT) {
-      // 16-bit (2-byte) unsigned integer
-      if (count == 1) return new Integer(in.readUnsignedShort());
-      int[] shorts = new int[count];
-      for (int j=0; j<count; j++) {
-        shorts[j] = in.readUnsignedShort();
-      }
-      return shorts;
-    }
-    else if (type == IFDType.LONG || type == IFDType.IFD) {
-      // 32-bit (4-byte) unsigned integer
-      if (count == 1) return new Long(in.readInt());
-      long[] longs = new long[count];
-      for (int j=0; j<count; j++) {
-        if (in.getFilePointer() + 4 <= in.length()) {
-          longs[j] = in.readInt();
-        }
-      }
-      return longs;
-    }
-    else if (type == IFDType.LONG8 || type == IFDType.SLONG8
-             || type == IFDType.IFD8) {
-      if (count == 1) return new Long(in.readLong());
-      long[] longs = new long[count];
-      for (int j=0; j<count; j++) longs[j] = in.readLong();
-      return longs;
-    }
-    else if (type == IFDType.RATIONAL || type == IFDType.SRATIONAL) {
-      // Two LONGs or SLONGs: the first represents the numerator
-      // of a fraction; the second, the denominator
-      if (count == 1) return new TiffRational(in.readInt(), in.readInt());
-      TiffRational[] rationals = new TiffRational[count];
-      for (int j=0; j<count; j++) {
-        rationals[j] = new TiffRational(in.readInt(), in.readInt());
-      }
-      return rationals;
-    }
-    else if (type == IFDType.SBYTE || type == IFDType.UNDEFINED) {
-      // SBYTE: An 8-bit signed (twos-complement) integer
-      // UNDEFINED: An 8-bit byte that may contain anything,
-      // depending on the definition of the field
-      if (count == 1) return new Byte(in.readByte());
-      byte[] sbytes = new byte[count];
-      in.read(sbytes);
-      return sbytes;
-    }
-    else if (type == IFDType.SSHORT) {
-      // A 16-bit (2-byte) signed (twos-complement) integer
-      if (count == 1) return new Short(in.readShort());
-      short[] sshorts = new short[count];
-      for (int j=0; j<count; j++) sshorts[j] = in.readShort();
-      return sshorts;
-    }
-    else if (type == IFDType.SLONG) {
-      // A 32-bit (4-byte) signed (twos-complement) integer
-      if (count == 1) return new Integer(in.readInt());
-      int[] slongs = new int[count];
-      for (int j=0; j<count; j++) slongs[j] = in.readInt();
-      return slongs;
-    }
-    else if (type == IFDType.FLOAT) {
-      // Single precision (4-byte) IEEE format
-      if (count == 1) return new Float(in.readFloat());
-      float[] floats = new float[count];
-      for (int j=0; j<count; j++) floats[j] = in.readFloat();
-      return floats;
-    }
-    else if (type == IFDType.DOUBLE) {
-      // Double precision (8-byte) IEEE format
-      if (count == 1) return new Double(in.readDouble());
-      double[] doubles = new double[count];
-      for (int j=0; j<count; j++) {
-        doubles[j] = in.readDouble();
-      }
-      return doubles;
-    }
-
-    return null;
+    return readIFDValue(in, type, count);
   }
 
   /** Convenience method for obtaining a stream's first ImageDescription. */
@@ -598,20 +503,17 @@ public class TiffParser {
     long[] rowsPerStrip = ifd.getRowsPerStrip();
 
     int tileNumber = (int) (row * numTileCols + col);
-    if (stripByteCounts[tileNumber] == (rowsPerStrip[0] * tileWidth) &&
-      pixel > 1)
-    {
-      stripByteCounts[tileNumber] *= pixel;
+    long byteCount = stripByteCounts[tileNumber];
+    if (byteCount == (rowsPerStrip[0] * tileWidth) && pixel > 1) {
+      byteCount *= pixel;
     }
     int size = (int) (tileWidth * tileLength * pixel * effectiveChannels);
 
     if (buf == null) buf = new byte[size];
-    if (stripByteCounts[tileNumber] == 0 ||
-      stripOffsets[tileNumber] >= in.length())
-    {
+    if (byteCount == 0 || stripOffsets[tileNumber] >= in.length()) {
       return buf;
     }
-    byte[] tile = new byte[(int) stripByteCounts[tileNumber]];
+    byte[] tile = new byte[(int) byteCount];
 
     LOGGER.debug("Reading tile Length {} Offset {}",
         tile.length, stripOffsets[tileNumber]);
@@ -753,12 +655,13 @@ public class TiffParser {
 
         int offset = 0;
         for (int tile=firstTile; tile<=lastTile; tile++) {
-          if (stripByteCounts[tile] == numSamples && pixel > 1) {
-            stripByteCounts[tile] *= pixel;
+          long byteCount = stripByteCounts[tile];
+          if (byteCount == numSamples && pixel > 1) {
+            byteCount *= pixel;
           }
 
           in.seek(stripOffsets[tile]);
-          int len = (int) Math.min(buf.length - offset, stripByteCounts[tile]);
+          int len = (int) Math.min(buf.length - offset, byteCount);
           in.read(buf, offset, len);
           offset += len;
         }
@@ -858,6 +761,66 @@ public class TiffParser {
     return buf;
   }
 
+  /**
+   * Reads a sub-image of the given IFD into the given buffer, starting at
+   * the buffer's current position and advancing it past the sub-image.
+   * The sub-image is stored in the same layout as returned by
+   * {@link #getSamples(IFD, byte[], int, int, long, long)}.
+   *
+   * Uncompressed 8 or 16 bit samples that need no unpacking are copied
+   * straight from the file, using 64-bit file offsets; this allows
+   * sub-images to be read from planes that are larger than 2 GB, including
+   * planes stored in a single strip.  Other images are read in bands of
+   * whole tile rows.
+   */
+  public ByteBuffer getSamples(IFD ifd, ByteBuffer buf, int x, int y,
+    int width, int height) throws FormatException, IOException
+  {
+    int samplesPerPixel = ifd.getSamplesPerPixel();
+    int pixel = ifd.getBytesPerSample()[0];
+    long size = (long) width * height * pixel * samplesPerPixel;
+    if (size > buf.remaining()) {
+      throw new FormatException("Buffer too small (got " + buf.remaining() +
+        ", expected " + size + ").");
+    }
+
+    int start = buf.position();
+    if (canCopySamples(ifd)) {
+      copySamples(ifd, buf, x, y, width, height);
+    }
+    else {
+      long rowSize = (long) width * pixel * samplesPerPixel;
+      long tileLength = ifd.getTileLength();
+      int bandHeight = (int) Math.min(height,
+        Math.max(1, FormatTools.BUFFER_BAND_SIZE / Math.max(rowSize, 1)));
+      if (tileLength > 0 && bandHeight > tileLength) {
+        bandHeight -= bandHeight % tileLength;
+      }
+
+      int planeSize = width * height * pixel;
+      byte[] band = null;
+      int row = y;
+      while (row < y + height) {
+        int end = Math.min(y + height, (row / bandHeight + 1) * bandHeight);
+        int rows = end - row;
+        int bandSize = (int) (rows * rowSize);
+        if (band == null || band.length != bandSize) {
+          band = new byte[bandSize];
+        }
+        getSamples(ifd, band, x, row, width, rows);
+
+        int chunk = width * rows * pixel;
+        for (int c=0; c<samplesPerPixel; c++) {
+          buf.position(start + c * planeSize + (row - y) * width * pixel);
+          buf.put(band, c * chunk, chunk);
+        }
+        row = end;
+      }
+    }
+    buf.position(start + (int) size);
+    return buf;
+  }
+
   // -- Utility methods - byte stream decoding --
 
   /**
@@ -1035,10 +998,18 @@ public class TiffParser {
    * offset.
    */
   long getNextOffset(long previous) throws IOException {
+    return getNextOffset(in, previous);
+  }
+
+  /** Reads the next offset from the given stream, which may be in memory. */
+  private long getNextOffset(RandomAccessInputStream stream, long previous)
+    throws IOException
+  {
     if (bigTiff || fakeBigTiff) {
-      return in.readLong();
+      return stream.readLong();
     }
-    long offset = (previous & ~0xffffffffL) | (in.readInt() & 0xffffffffL);
+    long offset =
+      (previous & ~0xffffffffL) | (stream.readInt() & 0xffffffffL);
 
     // Only adjust the offset if we know that the file is too large for 32-bit
     // offsets to be accurate; otherwise, we're making the incorrect assumption
@@ -1050,20 +1021,31 @@ public class TiffParser {
   }
 
   TiffIFDEntry readTiffIFDEntry() throws IOException {
-    int entryTag = in.readUnsignedShort();
+    return readTiffIFDEntry(in, in.getFilePointer());
+  }
+
+  /**
+   * Reads a directory entry from the given stream, which may hold a copy of
+   * the directory in memory.  The entry is at the given offset in the file.
+   */
+  private TiffIFDEntry readTiffIFDEntry(RandomAccessInputStream stream,
+    long entryOffset)
+    throws IOException
+  {
+    int entryTag = stream.readUnsignedShort();
 
     // Parse the entry's "Type"
     IFDType entryType;
     try {
-       entryType = IFDType.get(in.readUnsignedShort());
+       entryType = IFDType.get(stream.readUnsignedShort());
     }
     catch (EnumException e) {
-      LOGGER.error("Error reading IFD type at: {}", in.getFilePointer());
+      LOGGER.error("Error reading IFD type at: {}", entryOffset + 2);
       throw e;
     }
 
     // Parse the entry's "ValueCount"
-    int valueCount = bigTiff ? (int) in.readLong() : in.readInt();
+    int valueCount = bigTiff ? (int) stream.readLong() : stream.readInt();
     if (valueCount < 0) {
       throw new RuntimeException("Count of '" + valueCount + "' unexpected.");
     }
@@ -1071,9 +1053,297 @@ public class TiffParser {
     int nValueBytes = valueCount * entryType.getBytesPerElement();
     int threshhold = bigTiff ? 8 : 4;
     long offset = nValueBytes > threshhold ?
-      getNextOffset(0) : in.getFilePointer();
+      getNextOffset(stream, 0) : entryOffset + (bigTiff ? 12 : 8);
 
     return new TiffIFDEntry(entryTag, entryType, valueCount, offset);
   }
 
+  // -- Helper methods --
+
+  /** Gets the offsets to the chain of IFDs that starts at the given offset. */
+  private long[] getIFDOffsets(long offset) throws IOException {
+    Vector<Long> offsets = new Vector<Long>();
+    while (offset > 0 && offset < in.length()) {
+      offsets.add(offset);
+      offset = skipIFD(offset);
+    }
+
+    long[] f = new long[offsets.size()];
+    for (int i=0; i<f.length; i++) {
+      f[i] = offsets.get(i).longValue();
+    }
+    return f;
+  }
+
+  /** Skips the IFD at the given offset, and reads the offset that follows. */
+  private long skipIFD(long offset) throws IOException {
+    int bytesPerEntry = bigTiff ? TiffConstants.BIG_TIFF_BYTES_PER_ENTRY :
+      TiffConstants.BYTES_PER_ENTRY;
+    in.seek(offset);
+    int nEntries = bigTiff ? (int) in.readLong() : in.readUnsignedShort();
+    in.skipBytes(nEntries * bytesPerEntry);
+    return getNextOffset(offset);
+  }
+
+  /**
+   * Reads a directory entry value of the given type from the current
+   * position of the given stream.  Arrays of numbers are read with a single
+   * bulk read and decoded in memory.
+   */
+  private Object readIFDValue(RandomAccessInputStream stream, IFDType type,
+    int count)
+    throws IOException
+  {
+    boolean little = stream.isLittleEndian();
+
+    if (type == IFDType.BYTE) {
+      // 8-bit unsigned integer
+      if (count == 1) return new Short(stream.readByte());
+      byte[] bytes = new byte[count];
+      stream.readFully(bytes);
+      // bytes are unsigned, so use shorts
+      short[] shorts = new short[count];
+      for (int j=0; j<count; j++) shorts[j] = (short) (bytes[j] & 0xff);
+      return shorts;
+    }
+    else if (type == IFDType.ASCII) {
+      // 8-bit byte that contain a 7-bit ASCII code;
+      // the last byte must be NUL (binary zero)
+      byte[] ascii = new byte[count];
+      stream.read(ascii);
+
+      // count number of null terminators
+      int nullCount = 0;
+      for (int j=0; j<count; j++) {
+        if (ascii[j] == 0 || j == count - 1) nullCount++;
+      }
+
+      // convert character array to array of strings
+      String[] strings = nullCount == 1 ? null : new String[nullCount];
+      String s = null;
+      int c = 0, ndx = -1;
+      for (int j=0; j<count; j++) {
+        if (ascii[j] == 0) {
+          s = new String(ascii, ndx + 1, j - ndx - 1);
+          ndx = j;
+        }
+        else if (j == count - 1) {
+          // handle non-null-terminated strings
+          s = new String(ascii, ndx + 1, j - ndx);
+        }
+        else s = null;
+        if (strings != null && s != null) strings[c++] = s;
+      }
+      return strings == null ? (Object) s : strings;
+    }
+    else if (type == IFDType.SHORT) {
+      // 16-bit (2-byte) unsigned integer
+      if (count == 1) return new Integer(stream.readUnsignedShort());
+      byte[] bytes = readValues(stream, count, 2);
+      int[] shorts = new int[count];
+      for (int j=0; j<count; j++) {
+        shorts[j] = DataTools.bytesToInt(bytes, j * 2, 2, little);
+      }
+      return shorts;
+    }
+    else if (type == IFDType.LONG || type == IFDType.IFD) {
+      // 32-bit (4-byte) unsigned integer
+      if (count == 1) return new Long(stream.readInt());
+      // values that run past the end of the stream are left as 0
+      long available = (stream.length() - stream.getFilePointer()) / 4;
+      int n = (int) Math.max(0, Math.min(count, available));
+      byte[] bytes = readValues(stream, n, 4);
+      long[] longs = new long[count];
+      for (int j=0; j<n; j++) {
+        longs[j] = DataTools.bytesToInt(bytes, j * 4, 4, little);
+      }
+      return longs;
+    }
+    else if (type == IFDType.LONG8 || type == IFDType.SLONG8
+             || type == IFDType.IFD8) {
+      if (count == 1) return new Long(stream.readLong());
+      byte[] bytes = readValues(stream, count, 8);
+      long[] longs = new long[count];
+      for (int j=0; j<count; j++) {
+        longs[j] = DataTools.bytesToLong(bytes, j * 8, 8, little);
+      }
+      return longs;
+    }
+    else if (type == IFDType.RATIONAL || type == IFDType.SRATIONAL) {
+      // Two LONGs or SLONGs: the first represents the numerator
+      // of a fraction; the second, the denominator
+      if (count == 1) {
+        return new TiffRational(stream.readInt(), stream.readInt());
+      }
+      byte[] bytes = readValues(stream, count, 8);
+      TiffRational[] rationals = new TiffRational[count];
+      for (int j=0; j<count; j++) {
+        rationals[j] = new TiffRational(
+          DataTools.bytesToInt(bytes, j * 8, 4, little),
+          DataTools.bytesToInt(bytes, j * 8 + 4, 4, little));
+      }
+      return rationals;
+    }
+    else if (type == IFDType.SBYTE || type == IFDType.UNDEFINED) {
+      // SBYTE: An 8-bit signed (twos-complement) integer
+      // UNDEFINED: An 8-bit byte that may contain anything,
+      // depending on the definition of the field
+      if (count == 1) return new Byte(stream.readByte());
+      byte[] sbytes = new byte[count];
+      stream.read(sbytes);
+      return sbytes;
+    }
+    else if (type == IFDType.SSHORT) {
+      // A 16-bit (2-byte) signed (twos-complement) integer
+      if (count == 1) return new Short(stream.readShort());
+      byte[] bytes = readValues(stream, count, 2);
+      short[] sshorts = new short[count];
+      for (int j=0; j<count; j++) {
+        sshorts[j] = DataTools.bytesToShort(bytes, j * 2, 2, little);
+      }
+      return sshorts;
+    }
+    else if (type == IFDType.SLONG) {
+      // A 32-bit (4-byte) signed (twos-complement) integer
+      if (count == 1) return new Integer(stream.readInt());
+      byte[] bytes = readValues(stream, count, 4);
+      int[] slongs = new int[count];
+      for (int j=0; j<count; j++) {
+        slongs[j] = DataTools.bytesToInt(bytes, j * 4, 4, little);
+      }
+      return slongs;
+    }
+    else if (type == IFDType.FLOAT) {
+      // Single precision (4-byte) IEEE format
+      if (count == 1) return new Float(stream.readFloat());
+      byte[] bytes = readValues(stream, count, 4);
+      float[] floats = new float[count];
+      for (int j=0; j<count; j++) {
+        floats[j] = DataTools.bytesToFloat(bytes, j * 4, 4, little);
+      }
+      return floats;
+    }
+    else if (type == IFDType.DOUBLE) {
+      // Double precision (8-byte) IEEE format
+      if (count == 1) return new Double(stream.readDouble());
+      byte[] bytes = readValues(stream, count, 8);
+      double[] doubles = new double[count];
+      for (int j=0; j<count; j++) {
+        doubles[j] = DataTools.bytesToDouble(bytes, j * 8, 8, little);
+      }
+      return doubles;
+    }
+
+    return null;
+  }
+
+  /** Reads the given number of values of the given size in one block. */
+  private byte[] readValues(RandomAccessInputStream stream, int count,
+    int size)
+    throws IOException
+  {
+    byte[] bytes = new byte[count * size];
+    stream.readFully(bytes);
+    return bytes;
+  }
+
+  /**
+   * Returns true if the samples of the given IFD are stored in the file
+   * exactly as {@link #getSamples(IFD, byte[])} would return them.
+   */
+  private boolean canCopySamples(IFD ifd) throws FormatException {
+    int[] bitsPerSample = ifd.getBitsPerSample();
+    for (int bits : bitsPerSample) {
+      if (bits != bitsPerSample[0]) return false;
+    }
+    PhotoInterp photoInterp = ifd.getPhotometricInterpretation();
+    return ifd.getCompression() == TiffCompression.UNCOMPRESSED &&
+      (bitsPerSample[0] == 8 || bitsPerSample[0] == 16) &&
+      (ifd.getSamplesPerPixel() == 1 || ifd.getPlanarConfiguration() == 2) &&
+      ifd.getIFDIntValue(IFD.PREDICTOR, 1) == 1 &&
+      ifd.getTileLength() > 0 &&
+      photoInterp != PhotoInterp.WHITE_IS_ZERO &&
+      photoInterp != PhotoInterp.CMYK && photoInterp != PhotoInterp.Y_CB_CR;
+  }
+
+  /**
+   * Copies a sub-image of the given uncompressed IFD from the file into the
+   * given buffer, one run of contiguous samples at a time.
+   */
+  private void copySamples(IFD ifd, ByteBuffer buf, int x, int y, int width,
+    int height) throws FormatException, IOException
+  {
+    long tileWidth = ifd.getTileWidth();
+    long tileLength = ifd.getTileLength();
+    long numTileCols = ifd.getTilesPerRow();
+    long tilesPerPlane = numTileCols * ifd.getTilesPerColumn();
+    long[] offsets = ifd.getStripOffsets();
+    int samplesPerPixel = ifd.getSamplesPerPixel();
+    int pixel = ifd.getBytesPerSample()[0];
+
+    // rows that span whole tiles are contiguous in the file
+    boolean wholeRows = x == 0 && width == tileWidth;
+
+    int start = buf.position();
+    int planeSize = width * height * pixel;
+    byte[] chunk =
+      new byte[Math.min(COPY_BUFFER_SIZE, planeSize * samplesPerPixel)];
+
+    for (int c=0; c<samplesPerPixel; c++) {
+      int row = y;
+      while (row < y + height) {
+        long tileRow = row / tileLength;
+        long rowInTile = row % tileLength;
+        int rows = wholeRows ?
+          (int) Math.min(tileLength - rowInTile, y + height - row) : 1;
+
+        int col = x;
+        while (col < x + width) {
+          long tileCol = col / tileWidth;
+          long colInTile = col % tileWidth;
+          int n = (int) Math.min(tileWidth - colInTile, x + width - col);
+          long tile = c * tilesPerPlane + tileRow * numTileCols + tileCol;
+
+          buf.position(start + c * planeSize +
+            ((row - y) * width + col - x) * pixel);
+          long offset = tile < offsets.length && offsets[(int) tile] > 0 ?
+            offsets[(int) tile] + (rowInTile * tileWidth + colInTile) * pixel :
+            -1;
+          copyBytes(buf, offset, n * rows * pixel, chunk);
+          col += n;
+        }
+        row += rows;
+      }
+    }
+  }
+
+  /**
+   * Copies the given number of bytes from the given file offset into the
+   * buffer; bytes beyond the end of the file (or all bytes, if the offset
+   * is negative) are filled with zeros.
+   */
+  private void copyBytes(ByteBuffer buf, long offset, int len, byte[] chunk)
+    throws IOException
+  {
+    long available =
+      offset < 0 ? 0 : Math.max(0, Math.min(len, in.length() - offset));
+    if (available > 0) in.seek(offset);
+
+    int copied = 0;
+    while (copied < available) {
+      int n = (int) Math.min(chunk.length, available - copied);
+      in.readFully(chunk, 0, n);
+      buf.put(chunk, 0, n);
+      copied += n;
+    }
+    if (copied < len) {
+      Arrays.fill(chunk, (byte) 0);
+      while (copied < len) {
+        int n = Math.min(chunk.length, len - copied);
+        buf.put(chunk, 0, n);
+        copied += n;
+      }
+    }
+  }
+
 }
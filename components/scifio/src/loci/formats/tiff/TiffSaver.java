@@ -26,10 +26,15 @@ package loci.formats.tiff;
 import java.io.ByteArrayOutputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 import loci.common.ByteArrayHandle;
 import loci.common.RandomAccessInputStream;
@@ -77,6 +82,9 @@ public class TiffSaver {
   /** The codec options if set. */
   private CodecOptions options;
 
+  /** Executor used to compress strips in parallel, if set. */
+  private ExecutorService compressionExecutor;
+
   // -- Constructors --
 
   /**
@@ -168,6 +176,15 @@ public class TiffSaver {
     this.options = options;
   }
 
+  /**
+   * Sets the executor used to compress the strips or tiles of each image in
+   * parallel.  If null (the default), strips are compressed on the calling
+   * thread.  The executor is not shut down by this class.
+   */
+  public void setCompressionExecutor(ExecutorService executor) {
+    compressionExecutor = executor;
+  }
+
   /** Writes the TIFF file header. */
   public void writeHeader() throws IOException {
     // write endianness indicator
@@ -320,7 +337,7 @@ public class TiffSaver {
                 for (int n=0; n<bps[c]/8; n++) {
                   if (interleaved) {
                     off = ndx * nChannels + c * bytesPerPixel + n;
-                    if (row >= h || col >= w) {
+                    if (row + yOffset >= h || col + xOffset >= w) {
                       stripOut[strip].writeByte(0);
                     } else {
                       stripOut[strip].writeByte(buf[off]);
@@ -328,11 +345,11 @@ public class TiffSaver {
                   }
                   else {
                     off = c * blockSize + ndx + n;
-                    if (row >= h || col >= w) {
-                      stripOut[strip].writeByte(0);
+                    int channelStrip = c * (nStrips / nChannels) + strip;
+                    if (row + yOffset >= h || col + xOffset >= w) {
+                      stripOut[channelStrip].writeByte(0);
                     } else {
-                      stripOut[c * (nStrips / nChannels) + strip].writeByte(
-                          buf[off]);
+                      stripOut[channelStrip].writeByte(buf[off]);
                     }
                   }
                 }
@@ -348,17 +365,18 @@ public class TiffSaver {
     // TiffWriter.saveBytes() --> TiffSaver.writeImage() stack that is NOT
     // synchronized.
     byte[][] strips = new byte[nStrips][];
-    for (int strip=0; strip<nStrips; strip++) {
-      strips[strip] = stripBuf[strip].toByteArray();
-      TiffCompression.difference(strips[strip], ifd);
-      CodecOptions codecOptions = compression.getCompressionCodecOptions(
-          ifd, options);
-      codecOptions.height = tileHeight;
-      codecOptions.width = tileWidth;
-      strips[strip] = compression.compress(strips[strip], codecOptions);
-      if (LOGGER.isDebugEnabled()) {
-        LOGGER.debug(String.format("Compressed strip %d/%d length %d",
-            strip + 1, nStrips, strips[strip].length));
+    if (compressionExecutor != null && nStrips > 1) {
+      compressStrips(stripBuf, strips, ifd, compression, tileWidth,
+        tileHeight);
+    }
+    else {
+      for (int strip=0; strip<nStrips; strip++) {
+        strips[strip] = compressStrip(stripBuf[strip], ifd, compression,
+          tileWidth, tileHeight);
+        if (LOGGER.isDebugEnabled()) {
+          LOGGER.debug(String.format("Compressed strip %d/%d length %d",
+              strip + 1, nStrips, strips[strip].length));
+        }
       }
     }
 
@@ -368,6 +386,152 @@ public class TiffSaver {
     }
   }
 
+  /**
+   * Writes to any rectangle from the passed buffer, which may be direct or
+   * memory-mapped.  The rectangle is read from the buffer's current position,
+   * which is advanced past it; its layout and number of channels are the
+   * same as for {@link #writeImage(byte[], IFD, int, int, int, int, int, int,
+   * boolean)}.
+   *
+   * The rectangle is written in bands of whole strips or tile rows, so that
+   * no more than {@link FormatTools#BUFFER_BAND_SIZE} bytes are copied onto
+   * the heap at once.  Rectangles which need more than one band must span
+   * the full width of the image.
+   *
+   * @param buf The buffer containing the block that is to be written.
+   * @param ifd The Image File Directories. Mustn't be <code>null</code>.
+   * @param no  The image index within the current file, starting from 0.
+   * @param pixelType The type of pixels.
+   * @param x   The X-coordinate of the top-left corner.
+   * @param y   The Y-coordinate of the top-left corner.
+   * @param w   The width of the rectangle.
+   * @param h   The height of the rectangle.
+   * @param last Pass <code>true</code> if it is the last image,
+   *             <code>false</code> otherwise.
+   * @throws FormatException
+   * @throws IOException
+   */
+  public void writeImage(ByteBuffer buf, IFD ifd, int no, int pixelType,
+      int x, int y, int w, int h, boolean last)
+  throws FormatException, IOException
+  {
+    if (buf == null) {
+      throw new FormatException("Image data cannot be null");
+    }
+
+    if (ifd == null) {
+      throw new FormatException("IFD cannot be null");
+    }
+
+    int bytesPerPixel = FormatTools.getBytesPerPixel(pixelType);
+    long channelSize = (long) w * h * bytesPerPixel;
+    int nChannels = (int) (buf.remaining() / channelSize);
+    if (nChannels == 0) {
+      throw new FormatException("Buffer too small (got " + buf.remaining() +
+        ", expected at least " + channelSize + ")");
+    }
+    boolean interleaved = ifd.getPlanarConfiguration() == 1;
+
+    synchronized (this) {
+      makeValidIFD(ifd, pixelType, nChannels);
+    }
+
+    long rowSize = (long) w * bytesPerPixel * nChannels;
+    long tileHeight = ifd.getTileLength();
+    if (tileHeight * rowSize > Integer.MAX_VALUE) {
+      throw new FormatException("Strip or tile row too large (" +
+        (tileHeight * rowSize) + " bytes)");
+    }
+    int bandHeight = (int) Math.min(h,
+      Math.max(1, FormatTools.BUFFER_BAND_SIZE / rowSize));
+    bandHeight =
+      (int) Math.max(tileHeight, bandHeight - bandHeight % tileHeight);
+    if (bandHeight < h && (x != 0 || w != ifd.getImageWidth())) {
+      throw new FormatException("Only " + bandHeight + " rows can be " +
+        "written at once unless the rectangle spans the full image width");
+    }
+
+    int start = buf.position();
+    byte[] band = null;
+    for (int row=0; row<h; row+=bandHeight) {
+      int rows = Math.min(bandHeight, h - row);
+      int bandSize = (int) (rows * rowSize);
+      if (band == null || band.length != bandSize) band = new byte[bandSize];
+
+      if (interleaved) {
+        buf.position(start + (int) (row * rowSize));
+        buf.get(band);
+      }
+      else {
+        int chunk = w * rows * bytesPerPixel;
+        for (int c=0; c<nChannels; c++) {
+          buf.position(
+            start + (int) (c * channelSize) + row * w * bytesPerPixel);
+          buf.get(band, c * chunk, chunk);
+        }
+      }
+      writeImage(band, ifd, no, pixelType, x, y + row, w, rows, last,
+        nChannels, false);
+    }
+    buf.position(start + (int) (channelSize * nChannels));
+  }
+
+  /** Differences and compresses a single strip or tile. */
+  private byte[] compressStrip(ByteArrayOutputStream stripBuf, IFD ifd,
+      TiffCompression compression, int tileWidth, int tileHeight)
+  throws FormatException, IOException
+  {
+    byte[] strip = stripBuf.toByteArray();
+    TiffCompression.difference(strip, ifd);
+    CodecOptions codecOptions = compression.getCompressionCodecOptions(
+        ifd, options);
+    codecOptions.height = tileHeight;
+    codecOptions.width = tileWidth;
+    return compression.compress(strip, codecOptions);
+  }
+
+  /**
+   * Compresses all strips or tiles of an image using the compression
+   * executor, and waits for every strip to be compressed.
+   */
+  private void compressStrips(final ByteArrayOutputStream[] stripBuf,
+      byte[][] strips, final IFD ifd, final TiffCompression compression,
+      final int tileWidth, final int tileHeight)
+  throws FormatException, IOException
+  {
+    List<Future<byte[]>> futures = new ArrayList<Future<byte[]>>();
+    for (int strip=0; strip<stripBuf.length; strip++) {
+      final ByteArrayOutputStream buf = stripBuf[strip];
+      futures.add(compressionExecutor.submit(new Callable<byte[]>() {
+        public byte[] call() throws FormatException, IOException {
+          return compressStrip(buf, ifd, compression, tileWidth, tileHeight);
+        }
+      }));
+    }
+
+    try {
+      for (int strip=0; strip<strips.length; strip++) {
+        strips[strip] = futures.get(strip).get();
+      }
+    }
+    catch (InterruptedException e) {
+      throw new IOException("Interrupted while compressing strips");
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof FormatException) throw (FormatException) cause;
+      if (cause instanceof IOException) throw (IOException) cause;
+      if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+      throw new FormatException(cause);
+    }
+    finally {
+      for (Future<byte[]> future : futures) {
+        future.cancel(true);
+      }
+    }
+    LOGGER.debug("Compressed {} strips in parallel", strips.length);
+  }
+
   /**
    * Performs the actual work of dealing with IFD data and writing it to the
    * TIFF for a given image or sub-image.
@@ -407,10 +571,12 @@ public class TiffSaver {
         long[] ifdOffsets = parser.getIFDOffsets();
         LOGGER.debug("IFD offsets: {}", Arrays.toString(ifdOffsets));
         if (no < ifdOffsets.length) {
-          out.seek(ifdOffsets[no]);
           LOGGER.debug("Reading IFD from {} in non-sequential write.",
               ifdOffsets[no]);
           ifd = parser.getIFD(ifdOffsets[no]);
+          // the input and output streams may share a handle, so seek only
+          // after the IFD has been read
+          out.seek(ifdOffsets[no]);
         }
       }
       finally {
@@ -471,9 +637,14 @@ public class TiffSaver {
     long fp = out.getFilePointer();
     writeIFD(ifd, 0);
 
+    // strips for each channel of planar data are stored after all strips
+    // of the previous channel
+    int stripsPerChannel =
+      interleaved ? strips.length : strips.length / nChannels;
     for (int i=0; i<strips.length; i++) {
       out.seek(out.length());
-      int thisOffset = firstOffset + i;
+      int thisOffset = firstOffset + (i % stripsPerChannel) +
+        (i / stripsPerChannel) * tilesPerRow * tilesPerColumn;
       offsets.set(thisOffset, out.getFilePointer());
       byteCounts.set(thisOffset, new Long(strips[i].length));
       if (LOGGER.isDebugEnabled()) {
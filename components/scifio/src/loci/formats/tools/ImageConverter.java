@@ -27,7 +27,20 @@ import java.awt.image.IndexColorModel;
 import java.io.BufferedReader;
 import java.io.InputStreamReader;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import loci.common.DataTools;
 import loci.common.DebugTools;
@@ -82,6 +95,15 @@ public final class ImageConverter {
   private static final Logger LOGGER =
     LoggerFactory.getLogger(ImageConverter.class);
 
+  /** Smallest tile width or height chosen when converting big images. */
+  private static final int MIN_TILE_SIZE = 128;
+
+  /** Largest tile width or height chosen when converting big images. */
+  private static final int MAX_TILE_SIZE = 1024;
+
+  /** Largest number of bytes read ahead of the writer. */
+  private static final long MAX_QUEUE_SIZE = 256 * 1024 * 1024;
+
   // -- Fields --
 
   private String in = null, out = null;
@@ -97,13 +119,14 @@ public final class ImageConverter {
   private int lastPlane = Integer.MAX_VALUE;
   private int channel = -1, zSection = -1, timepoint = -1;
   private int xCoordinate = 0, yCoordinate = 0, width = 0, height = 0;
+  private int readerThreads = 0, compressorThreads = 0, queueDepth = 0;
+  private int tileWidth = 0, tileHeight = 0;
 
   private IFormatReader reader;
-  private MinMaxCalculator minMax;
 
   // -- Constructor --
 
-  private ImageConverter() { }
+  public ImageConverter() { }
 
   // -- Utility methods --
 
@@ -155,6 +178,21 @@ public final class ImageConverter {
             }
             catch (NumberFormatException exc) { }
           }
+          else if (args[i].equals("-readers")) {
+            readerThreads = Integer.parseInt(args[++i]);
+          }
+          else if (args[i].equals("-compressors")) {
+            compressorThreads = Integer.parseInt(args[++i]);
+          }
+          else if (args[i].equals("-queue")) {
+            queueDepth = Integer.parseInt(args[++i]);
+          }
+          else if (args[i].equals("-tilex")) {
+            tileWidth = Integer.parseInt(args[++i]);
+          }
+          else if (args[i].equals("-tiley")) {
+            tileHeight = Integer.parseInt(args[++i]);
+          }
           else if (args[i].equals("-crop")) {
             String[] tokens = args[++i].split(",");
             xCoordinate = Integer.parseInt(tokens[0]);
@@ -195,7 +233,8 @@ public final class ImageConverter {
         "    [-bigtiff] [-compression codec] [-series series] [-map id]",
         "    [-range start end] [-crop x,y,w,h] [-channel channel] [-z Z]",
         "    [-timepoint timepoint] [-nogroup] [-autoscale] [-version]",
-        "    in_file out_file",
+        "    [-readers count] [-compressors count] [-queue planes]",
+        "    [-tilex width] [-tiley height] in_file out_file",
         "",
         "    -version: print the library version and exit",
         "      -debug: turn on debugging output",
@@ -219,6 +258,23 @@ public final class ImageConverter {
         "    -channel: only convert the specified channel (indexed from 0)",
         "          -z: only convert the specified Z section (indexed from 0)",
         "  -timepoint: only convert the specified timepoint (indexed from 0)",
+        "    -readers: read planes on the specified number of threads, while",
+        "              the main thread writes them in order",
+        "-compressors: compress the tiles or strips of each TIFF plane on the",
+        "              specified number of threads",
+        "      -queue: maximum number of planes or tiles read ahead of the",
+        "              writer; defaults to twice the number of reader",
+        "              threads, and never more than 256 MB",
+        "      -tilex: width of the tiles written to TIFF files; planes of",
+        "              4096x4096 pixels or more are always tiled, with a",
+        "              size chosen from the input file by default",
+        "      -tiley: height of the tiles written to TIFF files",
+        "",
+        "Tiled planes are read in blocks of at most 16 MB from one row of",
+        "tiles, on the reader threads (or one thread per processor if",
+        "-readers is not given), and each block is compressed on the",
+        "compressor threads (or one thread per processor if -compressors",
+        "is not given).",
         "",
         "If any of the following patterns are present in out_file, they will",
         "be replaced with the indicated metadata value from the input file.",
@@ -277,9 +333,7 @@ public final class ImageConverter {
 
     long start = System.currentTimeMillis();
     LOGGER.info(in);
-    reader = new ImageReader();
     if (stitch) {
-      reader = new FileStitcher(reader);
       Location f = new Location(in);
       String pat = null;
       if (!f.exists()) {
@@ -290,16 +344,8 @@ public final class ImageConverter {
       }
       if (pat != null) in = pat;
     }
-    if (separate) reader = new ChannelSeparator(reader);
-    if (merge) reader = new ChannelMerger(reader);
-    if (fill) reader = new ChannelFiller(reader);
-    minMax = null;
-    if (autoscale) {
-      reader = new MinMaxCalculator(reader);
-      minMax = (MinMaxCalculator) reader;
-    }
+    reader = createReader();
 
-    reader.setGroupFiles(group);
     reader.setMetadataFiltered(true);
     reader.setOriginalMetadataPopulated(true);
     OMEXMLService service = null;
@@ -374,16 +420,48 @@ public final class ImageConverter {
     }
     writer.setWriteSequentially(true);
 
-    if (writer instanceof TiffWriter) {
-      ((TiffWriter) writer).setBigTiff(bigtiff);
+    TiffWriter tiffWriter = getTiffWriter(writer);
+    if (tiffWriter != null) {
+      tiffWriter.setBigTiff(bigtiff);
     }
-    else if (writer instanceof ImageWriter) {
-      IFormatWriter w = ((ImageWriter) writer).getWriter(out);
-      if (w instanceof TiffWriter) {
-        ((TiffWriter) w).setBigTiff(bigtiff);
-      }
+
+    // tiled planes are read and compressed in parallel unless told otherwise
+    int threads = readerThreads;
+    int compressorCount = compressorThreads;
+    if (hasTiledSeries(writer, dimensionsSet)) {
+      int processors = Runtime.getRuntime().availableProcessors();
+      if (threads == 0) threads = processors;
+      if (compressorCount == 0) compressorCount = processors;
+    }
+
+    ExecutorService compressors = null;
+    if (compressorCount > 1 && tiffWriter != null) {
+      compressors = Executors.newFixedThreadPool(compressorCount);
+      tiffWriter.setCompressionExecutor(compressors);
     }
 
+    PlanePipeline pipeline = null;
+    if (threads > 0) {
+      pipeline = new PlanePipeline(threads,
+        queueDepth > 0 ? queueDepth : 2 * threads);
+    }
+
+    try {
+      return convert(writer, pipeline, start, dimensionsSet);
+    }
+    finally {
+      if (pipeline != null) pipeline.close();
+      if (compressors != null) compressors.shutdown();
+    }
+  }
+
+  // -- Helper methods --
+
+  /** Converts the planes selected on the command line. */
+  private boolean convert(IFormatWriter writer, PlanePipeline pipeline,
+    long start, boolean dimensionsSet)
+    throws FormatException, IOException
+  {
     String format = writer.getFormat();
     LOGGER.info("[{}] -> {} [{}]",
       new Object[] {reader.getFormat(), out, format});
@@ -425,7 +503,7 @@ public final class ImageConverter {
 
       total += numImages;
 
-      int count = 0;
+      List<Integer> planes = new ArrayList<Integer>();
       for (int i=startPlane; i<endPlane; i++) {
         int[] coords = reader.getZCTCoords(i);
 
@@ -434,12 +512,63 @@ public final class ImageConverter {
         {
           continue;
         }
+        planes.add(i);
+      }
+
+      // big TIFF planes are written in blocks of tiles from one row of
+      // tiles, so that the memory used does not depend on the plane width
+      boolean tiled = isTiledConversion(writer, width, height);
+      int tileX = width, tileY = height, blockX = width;
+      if (tiled) {
+        tileX = getTileSize(width, reader.getOptimalTileWidth(), tileWidth);
+        tileY = getTileSize(height, reader.getOptimalTileHeight(), tileHeight);
+        long tileSize = FormatTools.getPlaneSizeLong(reader, tileX, tileY);
+        blockX = (int) Math.min(width, tileX *
+          Math.max(1, FormatTools.BUFFER_BAND_SIZE / tileSize));
+        LOGGER.info("\tWriting {}x{} tiles", tileX, tileY);
+      }
+
+      List<Plane> bands = new ArrayList<Plane>();
+      for (int i : planes) {
+        for (int row=0; row<height; row+=tileY) {
+          for (int col=0; col<width; col+=blockX) {
+            Plane band = new Plane();
+            band.index = i;
+            band.x = col;
+            band.y = row;
+            band.cols = Math.min(blockX, width - col);
+            band.rows = Math.min(tileY, height - row);
+            bands.add(band);
+          }
+        }
+      }
+      if (pipeline != null) {
+        pipeline.start(q, bands, FormatTools.getPlaneSizeLong(reader,
+          blockX, Math.min(tileY, height)));
+      }
 
+      int count = 0;
+      int nextBand = 0;
+      for (int i : planes) {
         writer.setId(FormatTools.getFilename(q, i, reader, out));
         if (compression != null) writer.setCompression(compression);
 
+        IFD ifd = null;
+        if (tiled) {
+          ifd = new IFD();
+          ifd.put(IFD.TILE_WIDTH, tileX);
+          ifd.put(IFD.TILE_LENGTH, tileY);
+        }
+
         long s = System.currentTimeMillis();
-        long m = convertPlane(writer, i, startPlane);
+        long m = 0;
+        while (nextBand < bands.size() && bands.get(nextBand).index == i) {
+          Plane band = bands.get(nextBand++);
+          if (pipeline != null) band = pipeline.take();
+          else readPlane(reader, band);
+          long w = writePlane(writer, band, startPlane, ifd);
+          if (m == 0) m = w;
+        }
         long e = System.currentTimeMillis();
         read += m - s;
         write += e - m;
@@ -463,6 +592,7 @@ public final class ImageConverter {
         }
         count++;
       }
+      if (pipeline != null) pipeline.finish();
     }
     writer.close();
     long end = System.currentTimeMillis();
@@ -475,81 +605,134 @@ public final class ImageConverter {
     float writeAvg = (float) write / total;
     LOGGER.info("{}s elapsed ({}+{}ms per plane, {}ms overhead)",
       new Object[] {sec, readAvg, writeAvg, initial});
+    if (pipeline != null && pipeline.getPlaneCount() > 0) {
+      // when reading ahead, the read time above is the time spent waiting
+      long readTime = pipeline.getReadTime();
+      int planeCount = pipeline.getPlaneCount();
+      int threads = pipeline.getThreadCount();
+      float decodeAvg = (float) readTime / planeCount;
+      float readRate = 1000f * planeCount * threads / Math.max(1, readTime);
+      float writeRate = 1000f * total / Math.max(1, write);
+      LOGGER.info("{} reader threads: {}ms per plane ({} planes/s); " +
+        "writer: {} planes/s", new Object[] {threads, decodeAvg,
+        readRate, writeRate});
+    }
 
     return true;
   }
 
-  // -- Helper methods --
+  /** Creates and configures a new reader for the input file. */
+  private IFormatReader createReader() {
+    IFormatReader r = new ImageReader();
+    if (stitch) r = new FileStitcher(r);
+    if (separate) r = new ChannelSeparator(r);
+    if (merge) r = new ChannelMerger(r);
+    if (fill) r = new ChannelFiller(r);
+    if (autoscale) r = new MinMaxCalculator(r);
+    r.setGroupFiles(group);
+    return r;
+  }
 
-  private long convertPlane(IFormatWriter writer, int index, int startPlane)
-    throws FormatException, IOException
+  /** Gets the TIFF writer that will write the output file, if any. */
+  private TiffWriter getTiffWriter(IFormatWriter writer)
+    throws FormatException
   {
-    if (width * height >= 4096 * 4096) {
-      // this is a "big image", so we will attempt to convert it one tile
-      // at a time
-
-      if ((writer instanceof TiffWriter) || ((writer instanceof ImageWriter) &&
-        (((ImageWriter) writer).getWriter(out) instanceof TiffWriter)))
-      {
-        return convertTilePlane(writer, index, startPlane);
-      }
+    if (writer instanceof ImageWriter) {
+      writer = ((ImageWriter) writer).getWriter(out);
     }
+    return writer instanceof TiffWriter ? (TiffWriter) writer : null;
+  }
 
-    byte[] buf =
-      reader.openBytes(index, xCoordinate, yCoordinate, width, height);
+  /** Returns true if planes of the given size will be written as tiles. */
+  private boolean isTiledConversion(IFormatWriter writer, int w, int h)
+    throws FormatException
+  {
+    if (getTiffWriter(writer) == null) return false;
+    return tileWidth > 0 || tileHeight > 0 || (long) w * h >= 4096 * 4096;
+  }
 
-    autoscalePlane(buf, index);
-    applyLUT(writer);
-    long m = System.currentTimeMillis();
-    writer.saveBytes(index - startPlane, buf);
-    return m;
+  /** Returns true if any of the series to be converted will be tiled. */
+  private boolean hasTiledSeries(IFormatWriter writer, boolean dimensionsSet)
+    throws FormatException
+  {
+    int num = writer.canDoStacks() ? reader.getSeriesCount() : 1;
+    int first = series == -1 ? 0 : series;
+    int last = series == -1 ? num : series + 1;
+    int currentSeries = reader.getSeries();
+    try {
+      for (int q=first; q<last; q++) {
+        reader.setSeries(q);
+        int w = dimensionsSet ? width : reader.getSizeX();
+        int h = dimensionsSet ? height : reader.getSizeY();
+        if (isTiledConversion(writer, w, h)) return true;
+      }
+    }
+    finally {
+      reader.setSeries(currentSeries);
+    }
+    return false;
+  }
+
+  /**
+   * Chooses the width or height of the tiles for a tiled conversion.
+   * Unless a size was given on the command line, the reader's optimal
+   * tile size is used, within sensible bounds.
+   */
+  private int getTileSize(int size, int optimal, int requested) {
+    int tile = requested > 0 ? requested :
+      Math.max(MIN_TILE_SIZE, Math.min(MAX_TILE_SIZE, optimal));
+    // TIFF tiles must be a multiple of 16 pixels wide and high
+    tile = ((tile + 15) / 16) * 16;
+    return Math.min(tile, ((size + 15) / 16) * 16);
   }
 
-  private long convertTilePlane(IFormatWriter writer, int index, int startPlane)
+  /**
+   * Reads a plane, or a block of tiles from a plane.  The pixels are read
+   * with {@link IFormatReader#openBytes(int, ByteBuffer, int, int, int, int)},
+   * so that TIFF readers copy them straight from the file.
+   */
+  private Plane readPlane(IFormatReader r, Plane plane)
     throws FormatException, IOException
   {
-    int w = width;
-    int h = 1;
-    int nXTiles = width / w;
-    int nYTiles = height / h;
-
-    IFD ifd = new IFD();
-
-    Long m = null;
-    for (int y=0; y<nYTiles; y++) {
-      for (int x=0; x<nXTiles; x++) {
-        int tileX = xCoordinate + x * w;
-        int tileY = yCoordinate + y * h;
-        int tileWidth = x < nXTiles - 1 ? w : w - (width % w);
-        int tileHeight = y < nYTiles - 1 ? h : h - (height % h);
-        byte[] buf =
-          reader.openBytes(index, tileX, tileY, tileWidth, tileHeight);
-
-        autoscalePlane(buf, index);
-        applyLUT(writer);
-        if (m == null) {
-          m = System.currentTimeMillis();
-        }
-        ifd.put(IFD.TILE_WIDTH, tileWidth);
-        ifd.put(IFD.TILE_LENGTH, tileHeight);
+    MinMaxCalculator calculator = autoscale ? (MinMaxCalculator) r : null;
+    long size = FormatTools.getPlaneSizeLong(r, plane.cols, plane.rows);
+    if (size > Integer.MAX_VALUE) {
+      throw new FormatException("Image plane too large (" + size +
+        " bytes); only 2GB of data can be converted at one time.");
+    }
+    plane.buf = new byte[(int) size];
+    r.openBytes(plane.index, ByteBuffer.wrap(plane.buf),
+      xCoordinate + plane.x, yCoordinate + plane.y, plane.cols, plane.rows);
+    autoscalePlane(r, calculator, plane.buf, plane.index, plane.cols,
+      plane.rows);
+    plane.lut = r.get8BitLookupTable();
+    return plane;
+  }
 
-        if (writer instanceof TiffWriter) {
-          ((TiffWriter) writer).saveBytes(index - startPlane, buf,
-            ifd, tileX, tileY, tileWidth, tileHeight);
-        }
-        else if (writer instanceof ImageWriter) {
-          IFormatWriter baseWriter = ((ImageWriter) writer).getWriter(out);
-          if (baseWriter instanceof TiffWriter) {
-            ((TiffWriter) baseWriter).saveBytes(index - startPlane, buf, ifd,
-              tileX, tileY, tileWidth, tileHeight);
-          }
-        }
-      }
+  /**
+   * Writes a plane, or a block of tiles from a plane.  Blocks are written
+   * through the given IFD, which must be the same for every block of a
+   * plane; whole planes are written when the IFD is null.
+   */
+  private long writePlane(IFormatWriter writer, Plane plane, int startPlane,
+    IFD ifd)
+    throws FormatException, IOException
+  {
+    applyLUT(writer, plane.lut);
+    long m = System.currentTimeMillis();
+    if (ifd == null) {
+      writer.saveBytes(plane.index - startPlane, plane.buf);
+    }
+    else {
+      getTiffWriter(writer).saveBytes(plane.index - startPlane, plane.buf,
+        ifd, plane.x, plane.y, plane.cols, plane.rows);
     }
+    plane.buf = null;
     return m;
   }
 
-  private void autoscalePlane(byte[] buf, int index)
+  private void autoscalePlane(IFormatReader reader, MinMaxCalculator minMax,
+    byte[] buf, int index, int cols, int rows)
     throws FormatException, IOException
   {
     if (autoscale) {
@@ -578,7 +761,7 @@ public final class ImageConverter {
       boolean floatingPoint = FormatTools.isFloatingPoint(pixelType);
       Object pix = DataTools.makeDataArray(buf, bpp, floatingPoint,
         reader.isLittleEndian());
-      byte[][] b = ImageTools.make24Bits(pix, width, height,
+      byte[][] b = ImageTools.make24Bits(pix, cols, rows,
         reader.isInterleaved(), false, min, max);
 
       int channelCount = reader.getRGBChannelCount();
@@ -591,10 +774,9 @@ public final class ImageConverter {
     }
   }
 
-  private void applyLUT(IFormatWriter writer)
+  private void applyLUT(IFormatWriter writer, byte[][] lut)
     throws FormatException, IOException
   {
-    byte[][] lut = reader.get8BitLookupTable();
     if (lut != null) {
       IndexColorModel model = new IndexColorModel(8, lut[0].length,
         lut[0], lut[1], lut[2]);
@@ -602,6 +784,186 @@ public final class ImageConverter {
     }
   }
 
+  // -- Helper classes --
+
+  /**
+   * A plane, or a block of tiles from a plane, that has been read and is
+   * waiting to be written.
+   */
+  private static class Plane {
+    public int index;
+    public int x, y;
+    public int cols, rows;
+    public byte[] buf;
+    public byte[][] lut;
+  }
+
+  /**
+   * Reads the planes of a series on a pool of threads, each with its own
+   * reader, and hands them to the writer in their original order.  At most
+   * a fixed number of planes, and no more than {@link #MAX_QUEUE_SIZE}
+   * bytes, are read ahead of the writer.  Tiled planes are read in blocks
+   * of tiles, so that the tiles of a single plane are read in parallel.
+   */
+  private class PlanePipeline {
+
+    private IFormatReader[] readers;
+    private ExecutorService executor;
+    private List<Future<Object>> futures;
+
+    private int queueDepth;
+    private Semaphore slots;
+
+    /** Planes to read, in the order in which they will be written. */
+    private List<Plane> planes;
+    private AtomicInteger nextRead = new AtomicInteger();
+    private int nextWrite;
+
+    /** Planes that have been read, keyed by their position in the list. */
+    private Map<Integer, Plane> done = new HashMap<Integer, Plane>();
+
+    private AtomicLong readTime = new AtomicLong();
+    private AtomicInteger planeCount = new AtomicInteger();
+
+    public PlanePipeline(int threads, int queueDepth)
+      throws FormatException, IOException
+    {
+      this.queueDepth = Math.max(1, queueDepth);
+      readers = new IFormatReader[threads];
+      for (int i=0; i<threads; i++) {
+        readers[i] = createReader();
+        readers[i].setId(in);
+      }
+    }
+
+    /**
+     * Starts reading the given planes or blocks from the given series.
+     * Each plane or block is no larger than the given number of bytes.
+     */
+    public void start(int series, List<Plane> planes, long planeSize) {
+      this.planes = planes;
+      nextRead.set(0);
+      nextWrite = 0;
+      done.clear();
+      long depth = MAX_QUEUE_SIZE / Math.max(1, planeSize);
+      slots = new Semaphore((int) Math.max(1, Math.min(queueDepth, depth)));
+
+      executor = Executors.newFixedThreadPool(readers.length);
+      futures = new ArrayList<Future<Object>>();
+      for (final IFormatReader r : readers) {
+        r.setSeries(series);
+        futures.add(executor.submit(new Callable<Object>() {
+          public Object call() throws Exception {
+            readPlanes(r);
+            return null;
+          }
+        }));
+      }
+    }
+
+    /** Waits for the next plane in writing order. */
+    public Plane take() throws FormatException, IOException {
+      Plane plane = null;
+      synchronized (done) {
+        while ((plane = done.remove(nextWrite)) == null) {
+          checkWorkers();
+          try {
+            done.wait(100);
+          }
+          catch (InterruptedException e) {
+            throw new IOException("Interrupted while reading planes");
+          }
+        }
+      }
+      nextWrite++;
+      slots.release();
+      return plane;
+    }
+
+    /** Stops all reader threads for the current series. */
+    public void finish() {
+      if (executor == null) return;
+      executor.shutdownNow();
+      try {
+        executor.awaitTermination(1, TimeUnit.MINUTES);
+      }
+      catch (InterruptedException e) {
+        LOGGER.debug("Interrupted while stopping reader threads", e);
+      }
+      executor = null;
+    }
+
+    /** Stops all reader threads and closes the readers. */
+    public void close() throws IOException {
+      finish();
+      for (IFormatReader r : readers) {
+        r.close();
+      }
+    }
+
+    /** Gets the total time spent reading planes, summed over all threads. */
+    public long getReadTime() {
+      return readTime.get();
+    }
+
+    /** Gets the number of reader threads. */
+    public int getThreadCount() {
+      return readers.length;
+    }
+
+    /** Gets the number of planes read so far. */
+    public int getPlaneCount() {
+      return planeCount.get();
+    }
+
+    private void readPlanes(IFormatReader r)
+      throws FormatException, IOException, InterruptedException
+    {
+      while (true) {
+        slots.acquire();
+        int position = nextRead.getAndIncrement();
+        if (position >= planes.size()) {
+          slots.release();
+          return;
+        }
+
+        long s = System.currentTimeMillis();
+        Plane plane = readPlane(r, planes.get(position));
+        readTime.addAndGet(System.currentTimeMillis() - s);
+        if (plane.x + plane.cols == width && plane.y + plane.rows == height) {
+          planeCount.incrementAndGet();
+        }
+
+        synchronized (done) {
+          done.put(position, plane);
+          done.notifyAll();
+        }
+      }
+    }
+
+    /** Rethrows the first exception thrown by a reader thread. */
+    private void checkWorkers() throws FormatException, IOException {
+      for (Future<Object> future : futures) {
+        if (!future.isDone()) continue;
+        try {
+          future.get();
+        }
+        catch (InterruptedException e) {
+          throw new IOException("Interrupted while reading planes");
+        }
+        catch (ExecutionException e) {
+          Throwable cause = e.getCause();
+          if (cause instanceof FormatException) throw (FormatException) cause;
+          if (cause instanceof IOException) throw (IOException) cause;
+          if (cause instanceof RuntimeException) {
+            throw (RuntimeException) cause;
+          }
+          throw new FormatException(cause);
+        }
+      }
+    }
+  }
+
   // -- Main method --
 
   public static void main(String[] args) throws FormatException, IOException {
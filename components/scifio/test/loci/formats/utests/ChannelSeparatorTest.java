@@ -0,0 +1,193 @@
+//
+// ChannelSeparatorTest.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.formats.utests;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import loci.formats.ChannelSeparator;
+import loci.formats.FormatException;
+import loci.formats.FormatTools;
+import loci.formats.ImageTools;
+import loci.formats.ReaderWrapper;
+import loci.formats.in.FakeReader;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests the splitting and caching of channels by {@link ChannelSeparator}.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/bio-formats/test/loci/formats/utests/ChannelSeparatorTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/bio-formats/test/loci/formats/utests/ChannelSeparatorTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class ChannelSeparatorTest {
+
+  private static final String[] FILES = {
+    "test&pixelType=uint8&sizeX=40&sizeY=30&sizeC=3&rgb=3&interleaved=true" +
+      "&sizeZ=2.fake",
+    "test&pixelType=uint16&sizeX=40&sizeY=30&sizeC=3&rgb=3&interleaved=true" +
+      ".fake",
+    "test&pixelType=float&sizeX=40&sizeY=30&sizeC=4&rgb=4&interleaved=true" +
+      ".fake",
+    "test&pixelType=double&sizeX=40&sizeY=30&sizeC=3&rgb=3&interleaved=true" +
+      ".fake",
+    "test&pixelType=int16&sizeX=40&sizeY=30&sizeC=3&rgb=3.fake"
+  };
+
+  private CountingReader counter;
+
+  private ChannelSeparator separator;
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    if (separator != null) separator.close();
+  }
+
+  @Test
+  public void testChannels() throws FormatException, IOException {
+    for (String file : FILES) {
+      open(file);
+      for (int no=0; no<separator.getImageCount(); no++) {
+        assertRegion(no, 0, 0, 40, 30);
+        assertRegion(no, 7, 3, 20, 11);
+      }
+    }
+  }
+
+  @Test
+  public void testRoundRobin() throws FormatException, IOException {
+    open(FILES[1]);
+    for (int tile=0; tile<4; tile++) {
+      for (int c=0; c<3; c++) {
+        assertRegion(c, (tile % 2) * 20, (tile / 2) * 15, 20, 15);
+      }
+    }
+    int opened = counter.count;
+    assertEquals(4, opened);
+
+    // every tile, and any region within one, is still cached
+    for (int tile=0; tile<4; tile++) {
+      for (int c=0; c<3; c++) {
+        assertRegion(c, (tile % 2) * 20 + 5, (tile / 2) * 15 + 1, 10, 10);
+      }
+    }
+    assertEquals(opened, counter.count);
+  }
+
+  @Test
+  public void testSubRegion() throws FormatException, IOException {
+    open(FILES[0]);
+    assertRegion(0, 0, 0, 40, 30);
+    assertRegion(1, 10, 10, 5, 5);
+    assertRegion(2, 39, 29, 1, 1);
+    assertEquals(1, counter.count);
+
+    // a different plane is not served from the cache
+    assertRegion(3, 10, 10, 5, 5);
+    assertEquals(2, counter.count);
+  }
+
+  @Test
+  public void testCacheSize() throws FormatException, IOException {
+    open(FILES[1]);
+    int planeSize = 40 * 30 * 3 * 2;
+
+    separator.setCacheSize(planeSize);
+    assertRegion(0, 0, 0, 20, 30);
+    assertRegion(0, 20, 0, 20, 30);
+    assertRegion(1, 20, 0, 20, 30);
+    assertEquals(2, counter.count);
+    assertRegion(1, 0, 0, 20, 30);
+    assertEquals(2, counter.count);
+
+    separator.setCacheSize(planeSize / 2);
+    assertRegion(2, 0, 0, 20, 30);
+    assertRegion(2, 20, 0, 20, 30);
+    assertEquals(3, counter.count);
+
+    separator.setCacheSize(0);
+    assertRegion(0, 0, 0, 40, 30);
+    assertRegion(1, 0, 0, 40, 30);
+    assertEquals(5, counter.count);
+  }
+
+  // -- Helper methods --
+
+  private void open(String file) throws FormatException, IOException {
+    if (separator != null) separator.close();
+    counter = new CountingReader();
+    separator = new ChannelSeparator(counter);
+    separator.setId(file);
+    counter.count = 0;
+  }
+
+  /** Checks a region against one split from the whole original plane. */
+  private void assertRegion(int no, int x, int y, int w, int h)
+    throws FormatException, IOException
+  {
+    int bpp = FormatTools.getBytesPerPixel(separator.getPixelType());
+    int c = counter.getRGBChannelCount();
+    int count = counter.count;
+    byte[] plane = counter.openBytes(separator.getOriginalIndex(no));
+    counter.count = count;
+
+    byte[] channel = ImageTools.splitChannels(plane, no % c, c, bpp, false,
+      counter.isInterleaved());
+    byte[] expected = new byte[w * h * bpp];
+    for (int row=0; row<h; row++) {
+      System.arraycopy(channel, ((y + row) * counter.getSizeX() + x) * bpp,
+        expected, row * w * bpp, w * bpp);
+    }
+    byte[] actual = separator.openBytes(no, x, y, w, h);
+    assertTrue(Arrays.equals(expected, actual));
+  }
+
+  // -- Helper classes --
+
+  /** Counts the number of regions opened from the underlying reader. */
+  private static class CountingReader extends ReaderWrapper {
+    private int count;
+
+    public CountingReader() {
+      super(new FakeReader());
+    }
+
+    public byte[] openBytes(int no, int x, int y, int w, int h)
+      throws FormatException, IOException
+    {
+      count++;
+      return super.openBytes(no, x, y, w, h);
+    }
+
+    public byte[] openBytes(int no) throws FormatException, IOException {
+      return openBytes(no, 0, 0, getSizeX(), getSizeY());
+    }
+  }
+
+}
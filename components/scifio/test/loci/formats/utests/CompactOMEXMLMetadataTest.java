@@ -0,0 +1,172 @@
+//
+// CompactOMEXMLMetadataTest.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.formats.utests;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+
+import loci.formats.meta.IMetadata;
+import loci.formats.ome.CompactOMEXMLMetadata;
+import loci.formats.ome.OMEXMLMetadataImpl;
+import ome.xml.model.OME;
+import ome.xml.model.enums.DimensionOrder;
+import ome.xml.model.enums.PixelType;
+import ome.xml.model.primitives.NonNegativeInteger;
+import ome.xml.model.primitives.PositiveInteger;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Checks that {@link CompactOMEXMLMetadata} is indistinguishable from
+ * {@link OMEXMLMetadataImpl} when populated with the same metadata.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/scifio/test/loci/formats/utests/CompactOMEXMLMetadataTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/scifio/test/loci/formats/utests/CompactOMEXMLMetadataTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class CompactOMEXMLMetadataTest {
+
+  private static final int IMAGES = 2;
+  private static final int PLANES = 100;
+
+  private OMEXMLMetadataImpl expected;
+
+  private CompactOMEXMLMetadata actual;
+
+  @BeforeMethod
+  public void setUp() {
+    expected = new OMEXMLMetadataImpl();
+    actual = new CompactOMEXMLMetadata();
+    populate(expected);
+    populate(actual);
+  }
+
+  @Test
+  public void testGetters() {
+    for (int i=0; i<IMAGES; i++) {
+      assertEquals(expected.getPlaneCount(i), actual.getPlaneCount(i));
+      for (int p=0; p<expected.getPlaneCount(i); p++) {
+        assertEquals(expected.getPlaneTheZ(i, p), actual.getPlaneTheZ(i, p));
+        assertEquals(expected.getPlaneTheC(i, p), actual.getPlaneTheC(i, p));
+        assertEquals(expected.getPlaneTheT(i, p), actual.getPlaneTheT(i, p));
+        assertEquals(expected.getPlaneDeltaT(i, p),
+          actual.getPlaneDeltaT(i, p));
+        assertEquals(expected.getPlaneExposureTime(i, p),
+          actual.getPlaneExposureTime(i, p));
+        assertEquals(expected.getPlanePositionX(i, p),
+          actual.getPlanePositionX(i, p));
+        assertEquals(expected.getPlaneHashSHA1(i, p),
+          actual.getPlaneHashSHA1(i, p));
+        assertEquals(0, actual.getPlaneAnnotationRefCount(i, p));
+      }
+      assertEquals(expected.getTiffDataCount(i), actual.getTiffDataCount(i));
+      for (int t=0; t<expected.getTiffDataCount(i); t++) {
+        assertEquals(expected.getTiffDataIFD(i, t),
+          actual.getTiffDataIFD(i, t));
+        assertEquals(expected.getTiffDataFirstZ(i, t),
+          actual.getTiffDataFirstZ(i, t));
+        assertEquals(expected.getTiffDataPlaneCount(i, t),
+          actual.getTiffDataPlaneCount(i, t));
+        if (t % 2 == 1) continue;
+        assertEquals(expected.getUUIDValue(i, t), actual.getUUIDValue(i, t));
+        assertEquals(expected.getUUIDFileName(i, t),
+          actual.getUUIDFileName(i, t));
+      }
+    }
+    assertNull(actual.getPlanePositionY(0, 0));
+    assertNull(actual.getUUIDValue(0, 1));
+  }
+
+  @Test
+  public void testDumpXML() {
+    assertEquals(expected.dumpXML(), actual.dumpXML());
+  }
+
+  @Test
+  public void testGetRoot() {
+    OME root = (OME) actual.getRoot();
+    assertEquals(PLANES, root.getImage(0).getPixels().sizeOfPlaneList());
+    assertEquals(PLANES, root.getImage(1).getPixels().sizeOfTiffDataList());
+
+    // values set after the model is complete go directly to the model
+    expected.setPlaneDeltaT(-1.0, 0, PLANES);
+    actual.setPlaneDeltaT(-1.0, 0, PLANES);
+    assertEquals(PLANES + 1, actual.getPlaneCount(0));
+    assertEquals(expected.dumpXML(), actual.dumpXML());
+  }
+
+  @Test
+  public void testPlaneAnnotationRef() {
+    expected.setCommentAnnotationID("Annotation:0", 0);
+    actual.setCommentAnnotationID("Annotation:0", 0);
+    expected.setPlaneAnnotationRef("Annotation:0", 1, 3, 0);
+    actual.setPlaneAnnotationRef("Annotation:0", 1, 3, 0);
+    assertEquals(expected.dumpXML(), actual.dumpXML());
+    assertEquals(1, actual.getPlaneAnnotationRefCount(1, 3));
+    assertEquals("Annotation:0", actual.getPlaneAnnotationRef(1, 3, 0));
+  }
+
+  @Test(expectedExceptions={IndexOutOfBoundsException.class})
+  public void testOutOfOrderPlane() {
+    actual.setPlaneTheZ(new NonNegativeInteger(0), 0, PLANES + 1);
+  }
+
+  // -- Helper methods --
+
+  private void populate(IMetadata store) {
+    store.createRoot();
+    for (int i=0; i<IMAGES; i++) {
+      store.setImageID("Image:" + i, i);
+      store.setPixelsID("Pixels:" + i, i);
+      store.setPixelsDimensionOrder(DimensionOrder.XYZCT, i);
+      store.setPixelsType(PixelType.UINT8, i);
+      store.setPixelsSizeX(new PositiveInteger(32), i);
+      store.setPixelsSizeY(new PositiveInteger(32), i);
+      store.setPixelsSizeZ(new PositiveInteger(PLANES), i);
+      store.setPixelsSizeC(new PositiveInteger(1), i);
+      store.setPixelsSizeT(new PositiveInteger(1), i);
+      store.setChannelID("Channel:" + i + ":0", i, 0);
+      store.setChannelSamplesPerPixel(new PositiveInteger(1), i, 0);
+      for (int p=0; p<PLANES; p++) {
+        store.setPlaneTheZ(new NonNegativeInteger(p), i, p);
+        store.setPlaneTheC(new NonNegativeInteger(0), i, p);
+        store.setPlaneTheT(new NonNegativeInteger(0), i, p);
+        if (p % 3 == 0) store.setPlaneDeltaT(p * 0.25, i, p);
+        if (i == 1) store.setPlaneExposureTime(10.0, i, p);
+        store.setPlanePositionX(p - 0.5, i, p);
+        if (p % 7 == 0) store.setPlaneHashSHA1("hash" + p, i, p);
+
+        store.setTiffDataIFD(new NonNegativeInteger(p), i, p);
+        store.setTiffDataFirstZ(new NonNegativeInteger(p), i, p);
+        store.setTiffDataPlaneCount(new NonNegativeInteger(1), i, p);
+        if (p % 2 == 0) {
+          store.setUUIDValue("urn:uuid:" + i, i, p);
+          store.setUUIDFileName("file" + i + ".ome.tif", i, p);
+        }
+      }
+    }
+  }
+
+}
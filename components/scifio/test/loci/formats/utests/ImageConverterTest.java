@@ -0,0 +1,158 @@
+//
+// ImageConverterTest.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.formats.utests;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import loci.common.RandomAccessInputStream;
+import loci.formats.FormatException;
+import loci.formats.IFormatReader;
+import loci.formats.ImageWriter;
+import loci.formats.in.FakeReader;
+import loci.formats.in.TiffReader;
+import loci.formats.tiff.IFD;
+import loci.formats.tiff.TiffParser;
+import loci.formats.tools.ImageConverter;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests converting planes of 4096x4096 pixels or more to tiled TIFF files
+ * with {@link ImageConverter}.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/scifio/test/loci/formats/utests/ImageConverterTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/scifio/test/loci/formats/utests/ImageConverterTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class ImageConverterTest {
+
+  /** Plane size; neither dimension is a multiple of the tile size. */
+  private static final int SIZE_X = 4112;
+  private static final int SIZE_Y = 4100;
+
+  private static final String ID = "test&pixelType=uint8&sizeX=" + SIZE_X +
+    "&sizeY=" + SIZE_Y + ".fake";
+
+  private File out;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    out = File.createTempFile("ImageConverterTest", ".tif");
+    out.delete();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    out.delete();
+  }
+
+  /** Chooses the tile size from the reader's optimal tile size. */
+  @Test
+  public void testDefaultTiles() throws FormatException, IOException {
+    convert(new String[0]);
+    // FakeReader's optimal tile is the full width and 1 MB high
+    assertTiles(1024, 256);
+    assertPixels();
+  }
+
+  /**
+   * Splits rows of tiles that are larger than 16 MB into blocks of tiles,
+   * read by a single thread with no read-ahead.
+   */
+  @Test
+  public void testTileBlocks() throws FormatException, IOException {
+    convert(new String[] {"-tilex", "256", "-tiley", "4096",
+      "-readers", "1", "-queue", "1"});
+    assertTiles(256, 4096);
+    assertPixels();
+  }
+
+  // -- Helper methods --
+
+  private void convert(String[] options) throws FormatException, IOException {
+    String[] args = new String[options.length + 3];
+    System.arraycopy(options, 0, args, 0, options.length);
+    args[options.length] = "-overwrite";
+    args[options.length + 1] = ID;
+    args[options.length + 2] = out.getAbsolutePath();
+    assertTrue(new ImageConverter().testConvert(new ImageWriter(), args));
+  }
+
+  /** Checks that every tile of the converted plane was written. */
+  private void assertTiles(int tileWidth, int tileHeight)
+    throws FormatException, IOException
+  {
+    RandomAccessInputStream in =
+      new RandomAccessInputStream(out.getAbsolutePath());
+    try {
+      IFD ifd = new TiffParser(in).getFirstIFD();
+      assertTrue(ifd.isTiled());
+      assertEquals(tileWidth, ifd.getTileWidth());
+      assertEquals(tileHeight, ifd.getTileLength());
+
+      long tiles = ifd.getTilesPerRow() * ifd.getTilesPerColumn();
+      assertEquals((SIZE_X + tileWidth - 1) / tileWidth,
+        ifd.getTilesPerRow());
+      assertEquals((SIZE_Y + tileHeight - 1) / tileHeight,
+        ifd.getTilesPerColumn());
+
+      long[] offsets = ifd.getIFDLongArray(IFD.TILE_OFFSETS);
+      long[] byteCounts = ifd.getIFDLongArray(IFD.TILE_BYTE_COUNTS);
+      assertEquals(tiles, offsets.length);
+      assertEquals(tiles, byteCounts.length);
+      for (int i=0; i<offsets.length; i++) {
+        assertTrue(offsets[i] > 0);
+        assertEquals(tileWidth * tileHeight, byteCounts[i]);
+      }
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  /** Checks that the converted plane matches the original plane. */
+  private void assertPixels() throws FormatException, IOException {
+    IFormatReader fake = new FakeReader();
+    IFormatReader tiff = new TiffReader();
+    try {
+      fake.setId(ID);
+      tiff.setId(out.getAbsolutePath());
+      assertEquals(SIZE_X, tiff.getSizeX());
+      assertEquals(SIZE_Y, tiff.getSizeY());
+      assertTrue(Arrays.equals(fake.openBytes(0), tiff.openBytes(0)));
+    }
+    finally {
+      fake.close();
+      tiff.close();
+    }
+  }
+
+}
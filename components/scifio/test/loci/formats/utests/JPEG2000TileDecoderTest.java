@@ -0,0 +1,196 @@
+//
+// JPEG2000TileDecoderTest.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.formats.utests;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import loci.common.RandomAccessInputStream;
+import loci.formats.FormatException;
+import loci.formats.codec.JPEG2000Codec;
+import loci.formats.codec.JPEG2000CodecOptions;
+import loci.formats.codec.JPEG2000TileDecoder;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests decoding regions of a tiled JPEG 2000 codestream with
+ * {@link JPEG2000TileDecoder}.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/scifio/test/loci/formats/utests/JPEG2000TileDecoderTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/scifio/test/loci/formats/utests/JPEG2000TileDecoderTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class JPEG2000TileDecoderTest {
+
+  /** Image size; neither dimension is a multiple of the tile size. */
+  private static final int SIZE_X = 70;
+  private static final int SIZE_Y = 45;
+
+  private static final int TILE_SIZE = 16;
+
+  private static final int LEVELS = 2;
+
+  private byte[] codestream;
+
+  private RandomAccessInputStream in;
+
+  private JPEG2000TileDecoder decoder;
+
+  @BeforeMethod
+  public void setUp() throws FormatException, IOException {
+    byte[] pixels = new byte[SIZE_X * SIZE_Y];
+    for (int i=0; i<pixels.length; i++) {
+      pixels[i] = (byte) (i % SIZE_X * 3 + i / SIZE_X);
+    }
+    JPEG2000CodecOptions options = createOptions(null);
+    options.width = SIZE_X;
+    options.height = SIZE_Y;
+    options.lossless = true;
+    options.tileWidth = TILE_SIZE;
+    options.tileHeight = TILE_SIZE;
+    options.numDecompositionLevels = new Integer(LEVELS);
+    codestream = new JPEG2000Codec().compress(pixels, options);
+    in = new RandomAccessInputStream(codestream);
+
+    decoder = new JPEG2000TileDecoder(SIZE_X, SIZE_Y, 0, 0,
+      TILE_SIZE, TILE_SIZE, 0, 0, LEVELS);
+  }
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    in.close();
+  }
+
+  /** Decodes regions at full resolution, including partial edge tiles. */
+  @Test
+  public void testFullResolution() throws FormatException, IOException {
+    assertRegion(LEVELS, 0, 0, SIZE_X, SIZE_Y);
+    assertRegion(LEVELS, 10, 5, 30, 20);
+    assertRegion(LEVELS, 60, 40, 10, 5);
+  }
+
+  /** Decodes regions at reduced resolutions, where tiles shrink too. */
+  @Test
+  public void testReducedResolution() throws FormatException, IOException {
+    // 35x23 at one level of reduction, 18x12 at two
+    assertRegion(LEVELS - 1, 0, 0, 35, 23);
+    assertRegion(LEVELS - 1, 5, 3, 20, 15);
+    assertRegion(LEVELS - 1, 30, 20, 5, 3);
+    assertRegion(0, 0, 0, 18, 12);
+    assertRegion(0, 3, 2, 10, 9);
+  }
+
+  /** Decodes missing tiles on several threads and on a single thread. */
+  @Test
+  public void testParallel() throws FormatException, IOException {
+    decoder.setThreadCount(4);
+    assertRegion(LEVELS, 0, 0, SIZE_X, SIZE_Y);
+    decoder.clearCache();
+    decoder.setThreadCount(1);
+    assertRegion(LEVELS, 0, 0, SIZE_X, SIZE_Y);
+  }
+
+  /** Keeps decoded tiles within the cache budget. */
+  @Test
+  public void testCacheSize() throws FormatException, IOException {
+    assertRegion(LEVELS, 0, 0, SIZE_X, SIZE_Y);
+    assertEquals(SIZE_X * SIZE_Y, decoder.getCachedSize());
+
+    // only the most recently used tile is retained
+    decoder.setCacheSize(0);
+    assertTrue(decoder.getCachedSize() > 0);
+    assertTrue(decoder.getCachedSize() <= TILE_SIZE * TILE_SIZE);
+
+    decoder.setCacheSize(4 * TILE_SIZE * TILE_SIZE);
+    assertRegion(LEVELS, 0, 0, SIZE_X, SIZE_Y);
+    assertTrue(decoder.getCachedSize() <= 4 * TILE_SIZE * TILE_SIZE);
+
+    decoder.clearCache();
+    assertEquals(0, decoder.getCachedSize());
+  }
+
+  /** Reads the codestream once, however many tiles are decoded from it. */
+  @Test
+  public void testCodestreamReadOnce() throws FormatException, IOException {
+    assertRegion(LEVELS, 0, 0, TILE_SIZE, TILE_SIZE);
+    in.seek(0);
+    assertRegion(LEVELS, TILE_SIZE, TILE_SIZE, TILE_SIZE, TILE_SIZE);
+    assertEquals(0, in.getFilePointer());
+
+    // the codestream is read again once the cache has been cleared
+    decoder.clearCache();
+    assertRegion(LEVELS, 0, 0, TILE_SIZE, TILE_SIZE);
+    assertEquals(codestream.length, in.getFilePointer());
+  }
+
+  @Test(expectedExceptions={FormatException.class})
+  public void testCodestreamTooLong() throws FormatException, IOException {
+    decoder.decode(in, 0, Integer.MAX_VALUE + 1L, createOptions(null),
+      0, 0, TILE_SIZE, TILE_SIZE, new byte[TILE_SIZE * TILE_SIZE]);
+  }
+
+  @Test(expectedExceptions={IllegalArgumentException.class})
+  public void testInvalidThreadCount() {
+    decoder.setThreadCount(0);
+  }
+
+  // -- Helper methods --
+
+  private JPEG2000CodecOptions createOptions(Integer resolution) {
+    JPEG2000CodecOptions options = JPEG2000CodecOptions.getDefaultOptions();
+    options.channels = 1;
+    options.bitsPerSample = 8;
+    options.interleaved = true;
+    options.resolution = resolution;
+    return options;
+  }
+
+  /**
+   * Checks that a region decoded tile by tile matches the same region of
+   * the whole image decoded at the same resolution.
+   */
+  private void assertRegion(int resolution, int x, int y, int w, int h)
+    throws FormatException, IOException
+  {
+    JPEG2000CodecOptions options = createOptions(new Integer(resolution));
+    byte[] image = new JPEG2000Codec().decompress(codestream, options);
+    int width = (SIZE_X + (1 << (LEVELS - resolution)) - 1) >>
+      (LEVELS - resolution);
+    byte[] expected = new byte[w * h];
+    for (int row=0; row<h; row++) {
+      System.arraycopy(image, (y + row) * width + x, expected, row * w, w);
+    }
+
+    byte[] region = decoder.decode(in, 0, codestream.length, options,
+      x, y, w, h, new byte[w * h]);
+    assertTrue(Arrays.equals(expected, region));
+  }
+
+}
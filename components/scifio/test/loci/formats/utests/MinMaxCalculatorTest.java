@@ -25,11 +25,15 @@ package loci.formats.utests;
 
 import static org.testng.AssertJUnit.*;
 
+import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+import loci.common.DataTools;
 import loci.common.Location;
 import loci.formats.FormatException;
 import loci.formats.FormatTools;
@@ -55,6 +59,16 @@ public class MinMaxCalculatorTest {
   private static final String TEST_FILE =
     "test&pixelType=int8&sizeX=20&sizeY=20&sizeC=1&sizeZ=1&sizeT=1.fake";
 
+  private static final String[] MULTI_PLANE_FILES = {
+    "test&pixelType=uint16&sizeX=33&sizeY=17&sizeC=3&rgb=3&interleaved=true" +
+      "&sizeZ=5&sizeT=2.fake",
+    "test&pixelType=int16&sizeX=16&sizeY=16&sizeC=6&rgb=3&little=true" +
+      "&sizeZ=3.fake",
+    "test&pixelType=float&sizeX=8&sizeY=8&sizeZ=4&little=true.fake",
+    "test&pixelType=uint32&sizeX=8&sizeY=8&sizeC=2&rgb=2&interleaved=true" +
+      "&sizeT=3.fake"
+  };
+
   private MinMaxCalculatorTestReader reader;
 
   private MinMaxCalculator minMaxCalculator;
@@ -125,6 +139,23 @@ public class MinMaxCalculatorTest {
     channelGlobalMinMax[1] = maximum;
   }
 
+  /**
+   * Checks the values known after only part of the first plane was read,
+   * which must not be reported as the global minimum and maximum.
+   */
+  private void assertPartialMinMax(double minimum, double maximum)
+    throws Exception
+  {
+    assertFalse(minMaxCalculator.isMinMaxPopulated());
+    assertNull(minMaxCalculator.getChannelGlobalMinimum(0));
+    assertNull(minMaxCalculator.getChannelGlobalMaximum(0));
+    assertEquals(minimum, minMaxCalculator.getPlaneMinimum(0)[0]);
+    assertEquals(maximum, minMaxCalculator.getPlaneMaximum(0)[0]);
+    assertEquals(minimum, minMaxCalculator.getChannelKnownMinimum(0));
+    assertEquals(maximum, minMaxCalculator.getChannelKnownMaximum(0));
+    assertEquals(0, minMaxStore.seriesGlobalMinimaMaxima.size());
+  }
+
   @Test
   public void testValidOpenBytes() throws Exception {
     byte[] a = new byte[planeSize / 2];
@@ -164,7 +195,7 @@ public class MinMaxCalculatorTest {
     byte[] buf = new byte[planeSize / 2];
     int halfway = sizeY / 2;
     minMaxCalculator.openBytes(0, buf, 0, 0, sizeX, halfway);
-    assertMinMax(-1.0, 1.0);
+    assertPartialMinMax(-1.0, 1.0);
   }
 
   @Test
@@ -172,7 +203,7 @@ public class MinMaxCalculatorTest {
     byte[] buf = new byte[planeSize / 2];
     int halfway = sizeY / 2;
     minMaxCalculator.openBytes(0, buf, 0, halfway, sizeX, halfway);
-    assertMinMax(-2.0, 2.0);
+    assertPartialMinMax(-2.0, 2.0);
   }
 
   @Test
@@ -193,6 +224,171 @@ public class MinMaxCalculatorTest {
     assertMinMax(-2.0, 2.0);
   }
 
+  @Test
+  public void testComputeMinMaxAfterRegion() throws Exception {
+    byte[] buf = new byte[planeSize / 2];
+    minMaxCalculator.openBytes(0, buf, 0, 0, sizeX, sizeY / 2);
+    assertPartialMinMax(-1.0, 1.0);
+    minMaxCalculator.computeMinMax();
+    assertMinMax(-2.0, 101.0);
+  }
+
+  @Test
+  public void testComputeMinMaxAfterLastPlane() throws Exception {
+    String file = MULTI_PLANE_FILES[0];
+    MinMaxCalculator calculator = new MinMaxCalculator(new FakeReader());
+    calculator.setId(file);
+    calculator.openBytes(calculator.getImageCount() - 1);
+    assertFalse(calculator.isMinMaxPopulated());
+    assertNull(calculator.getChannelGlobalMinimum(0));
+
+    // merging a single plane must not complete the series either
+    MinMaxCalculator other = new MinMaxCalculator(new FakeReader());
+    other.setId(file);
+    other.merge(calculator);
+    assertFalse(other.isMinMaxPopulated());
+    other.close();
+
+    calculator.computeMinMax();
+    assertTrue(calculator.isMinMaxPopulated());
+    assertPlaneMinMax(calculator);
+    calculator.close();
+  }
+
+  @Test
+  public void testComputeMinMax() throws Exception {
+    for (String file : MULTI_PLANE_FILES) {
+      MinMaxCalculator calculator = new MinMaxCalculator(new FakeReader());
+      calculator.setId(file);
+      calculator.computeMinMax();
+      assertTrue(calculator.isMinMaxPopulated());
+      assertPlaneMinMax(calculator);
+      calculator.close();
+    }
+  }
+
+  @Test
+  public void testComputeMinMaxParallel() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(3);
+    try {
+      for (String file : MULTI_PLANE_FILES) {
+        MinMaxCalculator calculator = new MinMaxCalculator(new FakeReader());
+        calculator.setExecutor(executor);
+        calculator.setId(file);
+        calculator.computeMinMax();
+        assertTrue(calculator.isMinMaxPopulated());
+        assertPlaneMinMax(calculator);
+        calculator.close();
+      }
+    }
+    finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void testCache() throws Exception {
+    File directory = File.createTempFile(getClass().getName(), "");
+    directory.delete();
+    directory.mkdir();
+    try {
+      String file = MULTI_PLANE_FILES[0];
+      MinMaxCalculator calculator = new MinMaxCalculator(new FakeReader());
+      calculator.setCacheDirectory(directory.getAbsolutePath());
+      calculator.setId(file);
+      assertFalse(calculator.isMinMaxPopulated());
+      calculator.computeMinMax();
+      Double[] max = calculator.getPlaneMaximum(3);
+      Double globalMax = calculator.getChannelGlobalMaximum(1);
+      calculator.close();
+      assertEquals(1, directory.listFiles().length);
+
+      calculator = new MinMaxCalculator(new FakeReader());
+      calculator.setCacheDirectory(directory.getAbsolutePath());
+      calculator.setId(file);
+      assertTrue(calculator.isMinMaxPopulated());
+      assertEquals(Arrays.asList(max),
+        Arrays.asList(calculator.getPlaneMaximum(3)));
+      assertEquals(globalMax, calculator.getChannelGlobalMaximum(1));
+      calculator.close();
+    }
+    finally {
+      for (File f : directory.listFiles()) f.delete();
+      directory.delete();
+    }
+  }
+
+  @Test
+  public void testCacheSkipsPartialPlanes() throws Exception {
+    File directory = File.createTempFile(getClass().getName(), "");
+    directory.delete();
+    directory.mkdir();
+    try {
+      String file = MULTI_PLANE_FILES[0];
+      MinMaxCalculator calculator = new MinMaxCalculator(new FakeReader());
+      calculator.setCacheDirectory(directory.getAbsolutePath());
+      calculator.setId(file);
+      calculator.openBytes(0);
+      calculator.openBytes(1, 2, 2, 5, 5);
+      Double[] max = calculator.getPlaneMaximum(0);
+      calculator.close();
+
+      calculator = new MinMaxCalculator(new FakeReader());
+      calculator.setCacheDirectory(directory.getAbsolutePath());
+      calculator.setId(file);
+      assertFalse(calculator.isMinMaxPopulated());
+      assertEquals(Arrays.asList(max),
+        Arrays.asList(calculator.getPlaneMaximum(0)));
+      assertNull(calculator.getPlaneMaximum(1));
+      calculator.computeMinMax();
+      assertPlaneMinMax(calculator);
+      calculator.close();
+    }
+    finally {
+      for (File f : directory.listFiles()) f.delete();
+      directory.delete();
+    }
+  }
+
+  /**
+   * Checks each plane's minima and maxima against values decoded with
+   * {@link DataTools}.
+   */
+  private void assertPlaneMinMax(MinMaxCalculator calculator)
+    throws Exception
+  {
+    int pixelType = calculator.getPixelType();
+    int bpp = FormatTools.getBytesPerPixel(pixelType);
+    int numRGB = calculator.getRGBChannelCount();
+    int pixels = calculator.getSizeX() * calculator.getSizeY();
+    boolean interleaved = calculator.isInterleaved();
+    boolean little = calculator.isLittleEndian();
+    for (int no=0; no<calculator.getImageCount(); no++) {
+      byte[] buf = calculator.getReader().openBytes(no);
+      Double[] min = calculator.getPlaneMinimum(no);
+      Double[] max = calculator.getPlaneMaximum(no);
+      for (int c=0; c<numRGB; c++) {
+        double expectedMin = Double.POSITIVE_INFINITY;
+        double expectedMax = Double.NEGATIVE_INFINITY;
+        for (int i=0; i<pixels; i++) {
+          int idx = bpp * (interleaved ? i * numRGB + c : c * pixels + i);
+          long bits = DataTools.bytesToLong(buf, idx, bpp, little);
+          double v = bits;
+          if (pixelType == FormatTools.FLOAT) {
+            v = Float.intBitsToFloat((int) bits);
+          }
+          else if (FormatTools.isSigned(pixelType)) {
+            v = bpp == 2 ? (short) bits : bpp == 1 ? (byte) bits : (int) bits;
+          }
+          expectedMin = Math.min(expectedMin, v);
+          expectedMax = Math.max(expectedMax, v);
+        }
+        assertEquals(expectedMin, min[c].doubleValue());
+        assertEquals(expectedMax, max[c].doubleValue());
+      }
+    }
+  }
+
   /**
    * A testing implementation of {@link loci.formats.meta.IMinMaxStore} that
    * we'll use to ensure that the various methods are called with the correct
@@ -0,0 +1,162 @@
+//
+// ReaderPoolTest.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.formats.utests;
+
+import static org.testng.AssertJUnit.*;
+
+import java.io.File;
+import java.util.Arrays;
+
+import loci.common.RandomAccessOutputStream;
+import loci.formats.FormatTools;
+import loci.formats.IFormatReader;
+import loci.formats.ReaderPool;
+import loci.formats.in.MinimalTiffReader;
+import loci.formats.tiff.IFD;
+import loci.formats.tiff.IFDList;
+import loci.formats.tiff.TiffSaver;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Unit tests for {@link ReaderPool}.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/scifio/test/loci/formats/utests/ReaderPoolTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/scifio/test/loci/formats/utests/ReaderPoolTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class ReaderPoolTest {
+
+  private static final int SIZE = 4;
+
+  private static final int FILE_COUNT = 3;
+
+  private File[] files;
+
+  private ReaderPool pool;
+
+  @BeforeMethod
+  public void setUp() throws Exception {
+    files = new File[FILE_COUNT];
+    for (int i=0; i<FILE_COUNT; i++) {
+      files[i] = File.createTempFile("ReaderPoolTest", ".tif");
+      writeTiff(files[i].getAbsolutePath(), (byte) i);
+    }
+    pool = new ReaderPool(2);
+  }
+
+  @AfterMethod
+  public void tearDown() throws Exception {
+    pool.close();
+    for (File file : files) file.delete();
+  }
+
+  @Test
+  public void testOpenFileBudget() throws Exception {
+    for (int i=0; i<FILE_COUNT; i++) {
+      assertPixels(pool.getReader(files[i].getAbsolutePath()), i);
+      assertTrue(pool.getOpenFileCount() <= 2);
+    }
+    assertEquals(2, pool.getOpenFileCount());
+  }
+
+  @Test
+  public void testReopenReusesIFDs() throws Exception {
+    String first = files[0].getAbsolutePath();
+    MinimalTiffReader reader = (MinimalTiffReader) pool.getReader(first);
+    IFDList ifds = reader.getIFDs();
+
+    // evict the first file
+    for (int i=1; i<FILE_COUNT; i++) {
+      pool.getReader(files[i].getAbsolutePath());
+    }
+
+    assertSame(reader, pool.getReader(first));
+    assertSame(ifds, reader.getIFDs());
+    assertPixels(reader, 0);
+  }
+
+  @Test
+  public void testCloseFiles() throws Exception {
+    IFormatReader reader = pool.getReader(files[0].getAbsolutePath());
+    pool.closeFiles();
+    assertEquals(0, pool.getOpenFileCount());
+    assertSame(reader, pool.getReader(files[0].getAbsolutePath()));
+    assertPixels(reader, 0);
+  }
+
+  @Test(expectedExceptions={IllegalArgumentException.class})
+  public void testInvalidBudget() {
+    new ReaderPool(0);
+  }
+
+  @Test
+  public void testReaderBudget() throws Exception {
+    String first = files[0].getAbsolutePath();
+    pool.setMaxReaders(2);
+    IFormatReader reader = pool.getReader(first);
+    for (int i=1; i<FILE_COUNT; i++) {
+      pool.getReader(files[i].getAbsolutePath());
+      assertTrue(pool.getReaderCount() <= 2);
+    }
+    assertEquals(2, pool.getReaderCount());
+
+    // the first reader was discarded, so the file is parsed again
+    IFormatReader reopened = pool.getReader(first);
+    assertTrue(reader != reopened);
+    assertPixels(reopened, 0);
+    assertEquals(2, pool.getReaderCount());
+  }
+
+  @Test(expectedExceptions={IllegalArgumentException.class})
+  public void testInvalidReaderBudget() {
+    pool.setMaxReaders(1);
+  }
+
+  private void assertPixels(IFormatReader reader, int value)
+    throws Exception
+  {
+    byte[] expected = new byte[SIZE * SIZE];
+    Arrays.fill(expected, (byte) value);
+    assertTrue(Arrays.equals(expected, reader.openBytes(0)));
+  }
+
+  private void writeTiff(String path, byte value) throws Exception {
+    byte[] buf = new byte[SIZE * SIZE];
+    Arrays.fill(buf, value);
+
+    RandomAccessOutputStream out = new RandomAccessOutputStream(path);
+    TiffSaver saver = new TiffSaver(out, path);
+    saver.writeHeader();
+    IFD ifd = new IFD();
+    ifd.put(IFD.IMAGE_WIDTH, SIZE);
+    ifd.put(IFD.IMAGE_LENGTH, SIZE);
+    ifd.put(IFD.LITTLE_ENDIAN, Boolean.FALSE);
+    saver.writeImage(buf, ifd, 0, FormatTools.UINT8, true);
+    out.close();
+  }
+
+}
@@ -0,0 +1,143 @@
+//
+// RefreshTest.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.formats.utests;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+
+import loci.formats.ChannelSeparator;
+import loci.formats.FileStitcher;
+import loci.formats.FormatException;
+import loci.formats.FormatTools;
+import loci.formats.IFormatReader;
+import loci.formats.in.TiffReader;
+import loci.formats.tiff.IFD;
+import loci.formats.tiff.TiffSaver;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests refreshing readers while their datasets are still being written.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/bio-formats/test/loci/formats/utests/RefreshTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/bio-formats/test/loci/formats/utests/RefreshTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class RefreshTest {
+
+  private static final int SIZE = 8;
+
+  private File dir;
+
+  private IFormatReader reader;
+
+  private TiffSaver saver;
+
+  @AfterMethod
+  public void tearDown() throws IOException {
+    if (reader != null) reader.close();
+    if (saver != null) saver.getStream().close();
+    if (dir != null) {
+      for (File f : dir.listFiles()) f.delete();
+      dir.delete();
+    }
+  }
+
+  /** Appends planes to a TIFF file that is open for reading. */
+  @Test
+  public void testTiff() throws FormatException, IOException {
+    String id = createDirectory() + File.separator + "refresh.tif";
+    saver = new TiffSaver(id);
+    saver.setLittleEndian(true);
+    saver.writeHeader();
+    writePlane(0);
+
+    reader = new ChannelSeparator(new TiffReader());
+    reader.setId(id);
+    assertEquals(1, reader.getImageCount());
+    assertTrue(!reader.refresh());
+
+    writePlane(1);
+    writePlane(2);
+    assertTrue(reader.refresh());
+    assertEquals(3, reader.getImageCount());
+    assertEquals(3, reader.getSizeT());
+    for (int i=0; i<3; i++) {
+      assertTrue(Arrays.equals(createPlane(i), reader.openBytes(i)));
+    }
+    assertTrue(!reader.refresh());
+  }
+
+  /** Adds files to a pattern that is open for reading. */
+  @Test
+  public void testFileStitcher() throws FormatException, IOException {
+    String path = createDirectory() + File.separator;
+    new File(path + "t1.fake").createNewFile();
+    new File(path + "t2.fake").createNewFile();
+
+    reader = new FileStitcher();
+    reader.setId(path + "t1.fake");
+    assertEquals(2, reader.getSizeT());
+    assertTrue(!reader.refresh());
+
+    new File(path + "t3.fake").createNewFile();
+    assertTrue(reader.refresh());
+    assertEquals(3, reader.getSizeT());
+    assertEquals(3, reader.getImageCount());
+    assertEquals(3, ((FileStitcher) reader).getUsedFiles().length);
+    reader.openBytes(2);
+  }
+
+  // -- Helper methods --
+
+  private String createDirectory() throws IOException {
+    dir = File.createTempFile("refresh", "");
+    dir.delete();
+    dir.mkdir();
+    return dir.getAbsolutePath();
+  }
+
+  private byte[] createPlane(int no) {
+    byte[] plane = new byte[SIZE * SIZE];
+    for (int i=0; i<plane.length; i++) {
+      plane[i] = (byte) (no * 31 + i);
+    }
+    return plane;
+  }
+
+  private void writePlane(int no) throws FormatException, IOException {
+    IFD ifd = new IFD();
+    ifd.put(IFD.IMAGE_WIDTH, SIZE);
+    ifd.put(IFD.IMAGE_LENGTH, SIZE);
+    ifd.put(IFD.LITTLE_ENDIAN, Boolean.TRUE);
+    saver.getStream().seek(saver.getStream().length());
+    saver.writeImage(createPlane(no), ifd, no, FormatTools.UINT8, false);
+  }
+
+}
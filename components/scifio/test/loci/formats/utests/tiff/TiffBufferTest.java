@@ -0,0 +1,252 @@
+//
+// TiffBufferTest.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+package loci.formats.utests.tiff;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import loci.common.ByteArrayHandle;
+import loci.common.Location;
+import loci.common.RandomAccessInputStream;
+import loci.common.RandomAccessOutputStream;
+import loci.formats.ChannelSeparator;
+import loci.formats.FormatException;
+import loci.formats.FormatTools;
+import loci.formats.IFormatReader;
+import loci.formats.in.MinimalTiffReader;
+import loci.formats.tiff.IFD;
+import loci.formats.tiff.TiffCompression;
+import loci.formats.tiff.TiffParser;
+import loci.formats.tiff.TiffSaver;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+/**
+ * Tests saving and reading TIFF pixel data through
+ * {@link java.nio.ByteBuffer}s.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/scifio/test/loci/formats/utests/tiff/TiffBufferTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/scifio/test/loci/formats/utests/tiff/TiffBufferTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class TiffBufferTest {
+
+  private static final String ID = "buffer-test.tif";
+
+  private ByteArrayHandle handle;
+
+  @AfterMethod
+  public void tearDown() {
+    Location.mapFile(ID, null);
+  }
+
+  /** Writes and reads an image larger than a single band. */
+  @Test
+  public void testMultipleBands() throws FormatException, IOException {
+    int width = 4096;
+    int height = 4500;
+    byte[] data = createData(width * height);
+    IFD ifd = createIFD(width, height, 1, TiffCompression.UNCOMPRESSED);
+    write(data, ifd, FormatTools.UINT8);
+
+    TiffParser parser = createParser();
+    ByteBuffer buf = ByteBuffer.allocateDirect(data.length);
+    parser.getSamples(parser.getFirstIFD(), buf, 0, 0, width, height);
+    assertEquals(data.length, buf.position());
+    assertBufferEquals(data, buf);
+
+    byte[] region = new byte[100 * 50];
+    parser.getSamples(parser.getFirstIFD(), region, 300, 4400, 100, 50);
+    buf = ByteBuffer.allocateDirect(region.length);
+    parser.getSamples(parser.getFirstIFD(), buf, 300, 4400, 100, 50);
+    assertBufferEquals(region, buf);
+  }
+
+  /** Writes and reads planar 16-bit RGB data. */
+  @Test
+  public void testPlanar() throws FormatException, IOException {
+    int width = 70;
+    int height = 40;
+    byte[] data = createData(width * height * 3 * 2);
+    IFD ifd = createIFD(width, height, 2, TiffCompression.UNCOMPRESSED);
+    write(data, ifd, FormatTools.UINT16);
+
+    TiffParser parser = createParser();
+    ByteBuffer buf = ByteBuffer.allocate(data.length + 10);
+    buf.position(10);
+    parser.getSamples(parser.getFirstIFD(), buf, 0, 0, width, height);
+    assertEquals(data.length + 10, buf.position());
+    assertBufferEquals(data, buf);
+  }
+
+  /** Writes and reads planar RGB data in tiles that overlap the edges. */
+  @Test
+  public void testPlanarTiles() throws FormatException, IOException {
+    int width = 70;
+    int height = 40;
+    byte[] data = createData(width * height * 3);
+    IFD ifd = createIFD(width, height, 2, TiffCompression.UNCOMPRESSED);
+    ifd.put(IFD.TILE_WIDTH, 32);
+    ifd.put(IFD.TILE_LENGTH, 16);
+    write(data, ifd, FormatTools.UINT8);
+
+    TiffParser parser = createParser();
+    ByteBuffer buf = ByteBuffer.allocate(data.length);
+    parser.getSamples(parser.getFirstIFD(), buf, 0, 0, width, height);
+    assertBufferEquals(data, buf);
+  }
+
+  /** Reads a region of a compressed image, which is read in bands. */
+  @Test
+  public void testCompressed() throws FormatException, IOException {
+    int width = 64;
+    int height = 64;
+    byte[] data = createData(width * height);
+    IFD ifd = createIFD(width, height, 1, TiffCompression.LZW);
+    write(data, ifd, FormatTools.UINT8);
+
+    TiffParser parser = createParser();
+    byte[] region = new byte[20 * 30];
+    parser.getSamples(parser.getFirstIFD(), region, 10, 5, 20, 30);
+    ByteBuffer buf = ByteBuffer.allocateDirect(region.length);
+    parser.getSamples(parser.getFirstIFD(), buf, 10, 5, 20, 30);
+    assertBufferEquals(region, buf);
+  }
+
+  /** Reads regions through a reader, with and without a wrapper. */
+  @Test
+  public void testReader() throws FormatException, IOException {
+    int width = 50;
+    int height = 60;
+    byte[] data = createData(width * height * 3);
+    IFD ifd = createIFD(width, height, 2, TiffCompression.UNCOMPRESSED);
+    write(data, ifd, FormatTools.UINT8);
+    Location.mapFile(ID, handle);
+
+    IFormatReader[] readers =
+      {new MinimalTiffReader(), new ChannelSeparator(new MinimalTiffReader())};
+    for (IFormatReader reader : readers) {
+      reader.setId(ID);
+      byte[] region = reader.openBytes(0, 5, 7, 30, 40);
+      ByteBuffer buf = ByteBuffer.allocateDirect(region.length);
+      reader.openBytes(0, buf, 5, 7, 30, 40);
+      assertEquals(region.length, buf.position());
+      assertBufferEquals(region, buf);
+      reader.close();
+    }
+  }
+
+  /** Reads through a subclass which post-processes the pixels. */
+  @Test
+  public void testPostProcessingReader() throws FormatException, IOException {
+    int width = 40;
+    int height = 30;
+    byte[] data = createData(width * height);
+    IFD ifd = createIFD(width, height, 1, TiffCompression.UNCOMPRESSED);
+    write(data, ifd, FormatTools.UINT8);
+    Location.mapFile(ID, handle);
+
+    IFormatReader reader = new InvertingTiffReader();
+    reader.setId(ID);
+    byte[] region = reader.openBytes(0, 3, 4, 20, 10);
+    assertEquals((byte) ~data[4 * width + 3], region[0]);
+    ByteBuffer buf = ByteBuffer.allocateDirect(region.length);
+    reader.openBytes(0, buf, 3, 4, 20, 10);
+    assertBufferEquals(region, buf);
+    reader.close();
+  }
+
+  // -- Helper methods --
+
+  private byte[] createData(int length) {
+    byte[] data = new byte[length];
+    for (int i=0; i<data.length; i++) {
+      data[i] = (byte) (i * 7 + i / 251);
+    }
+    return data;
+  }
+
+  private IFD createIFD(int width, int height, int planarConfig,
+    TiffCompression compression)
+  {
+    IFD ifd = new IFD();
+    ifd.put(IFD.IMAGE_WIDTH, width);
+    ifd.put(IFD.IMAGE_LENGTH, height);
+    ifd.put(IFD.PLANAR_CONFIGURATION, planarConfig);
+    ifd.put(IFD.COMPRESSION, compression.getCode());
+    ifd.put(IFD.LITTLE_ENDIAN, Boolean.TRUE);
+    return ifd;
+  }
+
+  private void write(byte[] data, IFD ifd, int pixelType)
+    throws FormatException, IOException
+  {
+    handle = new ByteArrayHandle();
+    RandomAccessOutputStream out = new RandomAccessOutputStream(handle);
+    TiffSaver saver = new TiffSaver(out, handle);
+    saver.setLittleEndian(true);
+    saver.writeHeader();
+
+    ByteBuffer buf = ByteBuffer.allocateDirect(data.length);
+    buf.put(data);
+    buf.flip();
+    int width = (int) ifd.getImageWidth();
+    int height = (int) ifd.getImageLength();
+    saver.writeImage(buf, ifd, 0, pixelType, 0, 0, width, height, true);
+    assertTrue(!buf.hasRemaining());
+  }
+
+  private TiffParser createParser() throws IOException {
+    return new TiffParser(new RandomAccessInputStream(handle));
+  }
+
+  private void assertBufferEquals(byte[] expected, ByteBuffer buf) {
+    byte[] actual = new byte[expected.length];
+    buf.position(buf.position() - expected.length);
+    buf.get(actual);
+    assertTrue(Arrays.equals(expected, actual));
+  }
+
+  // -- Helper classes --
+
+  /** Reader which inverts the pixels decoded by MinimalTiffReader. */
+  private static class InvertingTiffReader extends MinimalTiffReader {
+    public byte[] openBytes(int no, byte[] buf, int x, int y, int w, int h)
+      throws FormatException, IOException
+    {
+      super.openBytes(no, buf, x, y, w, h);
+      for (int i=0; i<w*h; i++) buf[i] = (byte) ~buf[i];
+      return buf;
+    }
+
+    protected boolean canReadIntoBuffer() {
+      return false;
+    }
+  }
+
+}
@@ -0,0 +1,330 @@
+//
+// TiffDirectoryTest.java
+//
+
+/*
+OME Bio-Formats package for reading and converting biological file formats.
+Copyright (C) 2005-@year@ UW-Madison LOCI and Glencoe Software, Inc.
+
+This program is free software; you can redistribute it and/or modify
+it under the terms of the GNU General Public License as published by
+the Free Software Foundation; either version 2 of the License, or
+(at your option) any later version.
+
+This program is distributed in the hope that it will be useful,
+but WITHOUT ANY WARRANTY; without even the implied warranty of
+MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+GNU General Public License for more details.
+
+You should have received a copy of the GNU General Public License
+along with this program; if not, write to the Free Software
+Foundation, Inc., 59 Temple Place, Suite 330, Boston, MA  02111-1307  USA
+*/
+
+package loci.formats.utests.tiff;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertNull;
+import static org.testng.AssertJUnit.assertSame;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+import loci.common.RandomAccessInputStream;
+import loci.formats.FormatException;
+import loci.formats.tiff.IFD;
+import loci.formats.tiff.IFDList;
+import loci.formats.tiff.IFDType;
+import loci.formats.tiff.TiffIFDEntry;
+import loci.formats.tiff.TiffParser;
+import loci.formats.tiff.TiffRational;
+
+import org.testng.annotations.Test;
+
+/**
+ * Tests reading TIFF and BigTIFF directories, whose entries are read with a
+ * single read, and the strip arrays that {@link IFD} caches.
+ *
+ * <dl><dt><b>Source code:</b></dt>
+ * <dd><a href="http://trac.openmicroscopy.org.uk/ome/browser/bioformats.git/components/scifio/test/loci/formats/utests/tiff/TiffDirectoryTest.java">Trac</a>,
+ * <a href="http://git.openmicroscopy.org/?p=bioformats.git;a=blob;f=components/scifio/test/loci/formats/utests/tiff/TiffDirectoryTest.java;hb=HEAD">Gitweb</a></dd></dl>
+ */
+public class TiffDirectoryTest {
+
+  private static final long[] STRIP_OFFSETS = {1000, 2000, 3000};
+  private static final int[] STRIP_BYTE_COUNTS = {8, 8, 4};
+  private static final String SHORT_DESCRIPTION = "abc";
+  private static final String LONG_DESCRIPTION = "a longer description";
+
+  /** Reads two classic TIFF directories. */
+  @Test
+  public void testClassicTiff() throws IOException {
+    TiffParser parser = createParser(false, 2, Integer.MAX_VALUE);
+    assertTrue(!parser.isBigTiff());
+    assertEquals(2, parser.getIFDOffsets().length);
+
+    IFDList ifds = parser.getIFDs();
+    assertEquals(2, ifds.size());
+    assertDirectory(ifds.get(0), SHORT_DESCRIPTION);
+    assertDirectory(ifds.get(1), LONG_DESCRIPTION);
+  }
+
+  /** Reads two BigTIFF directories. */
+  @Test
+  public void testBigTiff() throws IOException {
+    TiffParser parser = createParser(true, 2, Integer.MAX_VALUE);
+    assertTrue(parser.isBigTiff());
+    assertEquals(2, parser.getIFDOffsets().length);
+
+    IFDList ifds = parser.getIFDs();
+    assertEquals(2, ifds.size());
+    assertDirectory(ifds.get(0), SHORT_DESCRIPTION);
+    assertDirectory(ifds.get(1), LONG_DESCRIPTION);
+  }
+
+  /**
+   * Decodes values stored within the entries, and leaves values stored
+   * elsewhere to be read later, when caching is disabled.
+   */
+  @Test
+  public void testInlineValues() throws IOException {
+    // the byte counts (6 bytes) and resolution (8 bytes) are stored within
+    // BigTIFF entries, but not within classic TIFF entries
+    TiffParser parser = createParser(false, 1, Integer.MAX_VALUE);
+    parser.setDoCaching(false);
+    IFD ifd = parser.getFirstIFD();
+    assertEquals(new Integer(4), ifd.get(IFD.IMAGE_WIDTH));
+    assertEquals(SHORT_DESCRIPTION, ifd.get(IFD.IMAGE_DESCRIPTION));
+    assertTrue(ifd.get(IFD.STRIP_OFFSETS) instanceof TiffIFDEntry);
+    assertTrue(ifd.get(IFD.STRIP_BYTE_COUNTS) instanceof TiffIFDEntry);
+    assertTrue(ifd.get(IFD.X_RESOLUTION) instanceof TiffIFDEntry);
+    parser.fillInIFD(ifd);
+    assertDirectory(ifd, SHORT_DESCRIPTION);
+
+    parser = createParser(true, 1, Integer.MAX_VALUE);
+    parser.setDoCaching(false);
+    ifd = parser.getFirstIFD();
+    assertEquals(SHORT_DESCRIPTION, ifd.get(IFD.IMAGE_DESCRIPTION));
+    assertTrue(ifd.get(IFD.STRIP_OFFSETS) instanceof TiffIFDEntry);
+    assertTrue(Arrays.equals(STRIP_BYTE_COUNTS,
+      (int[]) ifd.get(IFD.STRIP_BYTE_COUNTS)));
+    assertEquals(new TiffRational(72, 1), ifd.get(IFD.X_RESOLUTION));
+    parser.fillInIFD(ifd);
+    assertDirectory(ifd, SHORT_DESCRIPTION);
+  }
+
+  /** Keeps the entries that precede the end of a truncated directory. */
+  @Test
+  public void testTruncatedDirectory() throws IOException {
+    // the header and the first directory's entry count take 10 bytes,
+    // and each classic TIFF entry takes 12 bytes
+    TiffParser parser = createParser(false, 1, 10 + 12 * 3 + 5);
+    IFD ifd = parser.getFirstIFD();
+    assertEquals(new Integer(4), ifd.get(IFD.IMAGE_WIDTH));
+    assertEquals(new Integer(6), ifd.get(IFD.IMAGE_LENGTH));
+    assertEquals(new Integer(8), ifd.get(IFD.BITS_PER_SAMPLE));
+    assertNull(ifd.get(IFD.IMAGE_DESCRIPTION));
+    assertNull(ifd.get(IFD.STRIP_OFFSETS));
+
+    // the header and the first directory's entry count take 24 bytes,
+    // and each BigTIFF entry takes 20 bytes
+    parser = createParser(true, 1, 24 + 20 * 2 + 19);
+    ifd = parser.getFirstIFD();
+    assertEquals(new Integer(4), ifd.get(IFD.IMAGE_WIDTH));
+    assertEquals(new Integer(6), ifd.get(IFD.IMAGE_LENGTH));
+    assertNull(ifd.get(IFD.BITS_PER_SAMPLE));
+  }
+
+  /** Discards the cached strip arrays whenever the IFD is modified. */
+  @Test
+  public void testCachedArrays() throws FormatException, IOException {
+    IFD ifd = createParser(false, 1, Integer.MAX_VALUE).getFirstIFD();
+    long[] offsets = ifd.getStripOffsets();
+    long[] byteCounts = ifd.getStripByteCounts();
+    assertSame(offsets, ifd.getStripOffsets());
+    assertSame(byteCounts, ifd.getStripByteCounts());
+
+    ifd.put(IFD.STRIP_OFFSETS, new long[] {10, 20, 30});
+    ifd.put(IFD.STRIP_BYTE_COUNTS, new long[] {1, 2, 3});
+    assertTrue(offsets != ifd.getStripOffsets());
+    assertTrue(Arrays.equals(new long[] {10, 20, 30}, ifd.getStripOffsets()));
+    assertTrue(Arrays.equals(new long[] {1, 2, 3}, ifd.getStripByteCounts()));
+
+    // without RowsPerStrip, the image is a single strip
+    offsets = ifd.getStripOffsets();
+    ifd.remove(IFD.ROWS_PER_STRIP);
+    ifd.put(IFD.STRIP_OFFSETS, new long[] {40});
+    ifd.put(IFD.STRIP_BYTE_COUNTS, new long[] {24});
+    assertTrue(Arrays.equals(new long[] {40}, ifd.getStripOffsets()));
+    assertTrue(Arrays.equals(new long[] {24}, ifd.getStripByteCounts()));
+
+    ifd.remove(IFD.STRIP_OFFSETS);
+    assertNull(ifd.getStripOffsets());
+
+    ifd.put(IFD.STRIP_OFFSETS, new long[] {50});
+    assertTrue(Arrays.equals(new long[] {50}, ifd.getStripOffsets()));
+    ifd.clear();
+    assertNull(ifd.getStripOffsets());
+    assertNull(ifd.getStripByteCounts());
+  }
+
+  /**
+   * Reads a single strip whose byte count is given in samples, without
+   * correcting the cached byte count array.
+   */
+  @Test
+  public void testSingleStripByteCount() throws FormatException, IOException {
+    // 4x6 pixels of 16 bits, with the byte count given as 24 samples
+    byte[] pixels = new byte[48];
+    for (int i=0; i<pixels.length; i++) pixels[i] = (byte) (i * 3);
+    IFD ifd = new IFD();
+    ifd.put(IFD.LITTLE_ENDIAN, Boolean.TRUE);
+    ifd.put(IFD.IMAGE_WIDTH, new Integer(4));
+    ifd.put(IFD.IMAGE_LENGTH, new Integer(6));
+    ifd.put(IFD.BITS_PER_SAMPLE, new int[] {16});
+    ifd.put(IFD.COMPRESSION, new Integer(1));
+    ifd.put(IFD.PHOTOMETRIC_INTERPRETATION, new Integer(1));
+    ifd.put(IFD.ROWS_PER_STRIP, new long[] {6});
+    ifd.put(IFD.STRIP_OFFSETS, new long[] {0});
+    ifd.put(IFD.STRIP_BYTE_COUNTS, new long[] {24});
+
+    TiffParser parser = new TiffParser(new RandomAccessInputStream(pixels));
+    for (int i=0; i<2; i++) {
+      byte[] buf = parser.getSamples(ifd, new byte[pixels.length]);
+      assertTrue(Arrays.equals(pixels, buf));
+      assertTrue(Arrays.equals(new long[] {24}, ifd.getStripByteCounts()));
+    }
+  }
+
+  // -- Helper methods --
+
+  private void assertDirectory(IFD ifd, String description) {
+    try {
+      assertEquals(4, ifd.getImageWidth());
+      assertEquals(6, ifd.getImageLength());
+      assertEquals(8, ifd.getBitsPerSample()[0]);
+      assertEquals(2, ifd.getRowsPerStrip()[0]);
+      assertTrue(Arrays.equals(STRIP_OFFSETS, ifd.getStripOffsets()));
+      long[] byteCounts = new long[STRIP_BYTE_COUNTS.length];
+      for (int i=0; i<byteCounts.length; i++) {
+        byteCounts[i] = STRIP_BYTE_COUNTS[i];
+      }
+      assertTrue(Arrays.equals(byteCounts, ifd.getStripByteCounts()));
+    }
+    catch (FormatException e) {
+      throw new AssertionError(e.getMessage());
+    }
+    assertEquals(description, ifd.get(IFD.IMAGE_DESCRIPTION));
+    assertEquals(new TiffRational(72, 1), ifd.get(IFD.X_RESOLUTION));
+  }
+
+  /**
+   * Creates a parser for a little-endian TIFF or BigTIFF file with the given
+   * number of directories, which is cut off after the given number of bytes.
+   */
+  private TiffParser createParser(boolean bigTiff, int count, int length)
+    throws IOException
+  {
+    ByteBuffer file = ByteBuffer.allocate(4096);
+    file.order(ByteOrder.LITTLE_ENDIAN);
+    file.put((byte) 'I');
+    file.put((byte) 'I');
+    if (bigTiff) {
+      file.putShort((short) 43);
+      file.putShort((short) 8);
+      file.putShort((short) 0);
+    }
+    else file.putShort((short) 42);
+    int next = file.position();
+    putOffset(file, bigTiff, 0);
+
+    for (int i=0; i<count; i++) {
+      long offset = file.position();
+      file.position(next);
+      putOffset(file, bigTiff, offset);
+      file.position((int) offset);
+
+      String description = i == 0 ? SHORT_DESCRIPTION : LONG_DESCRIPTION;
+      // values that do not fit within the entries are stored after them
+      Entry[] entries = {
+        new Entry(IFD.IMAGE_WIDTH, IFDType.SHORT, shorts(4)),
+        new Entry(IFD.IMAGE_LENGTH, IFDType.SHORT, shorts(6)),
+        new Entry(IFD.BITS_PER_SAMPLE, IFDType.SHORT, shorts(8)),
+        new Entry(IFD.IMAGE_DESCRIPTION, IFDType.ASCII,
+          (description + "\0").getBytes()),
+        new Entry(IFD.STRIP_OFFSETS, IFDType.LONG, longs(STRIP_OFFSETS)),
+        new Entry(IFD.ROWS_PER_STRIP, IFDType.SHORT, shorts(2)),
+        new Entry(IFD.STRIP_BYTE_COUNTS, IFDType.SHORT,
+          shorts(STRIP_BYTE_COUNTS)),
+        new Entry(IFD.X_RESOLUTION, IFDType.RATIONAL, longs(72, 1)),
+      };
+      int entrySize = bigTiff ? 20 : 12;
+      int valueSize = bigTiff ? 8 : 4;
+      if (bigTiff) file.putLong(entries.length);
+      else file.putShort((short) entries.length);
+      long values = file.position() + entries.length * entrySize + valueSize;
+      for (Entry entry : entries) {
+        file.putShort((short) entry.tag);
+        file.putShort((short) entry.type.getCode());
+        int valueCount = entry.value.length / entry.type.getBytesPerElement();
+        putOffset(file, bigTiff, valueCount);
+        if (entry.value.length <= valueSize) {
+          file.put(entry.value);
+          for (int b=entry.value.length; b<valueSize; b++) file.put((byte) 0);
+        }
+        else {
+          putOffset(file, bigTiff, values);
+          values += entry.value.length;
+        }
+      }
+      next = file.position();
+      putOffset(file, bigTiff, 0);
+      for (Entry entry : entries) {
+        if (entry.value.length > valueSize) file.put(entry.value);
+      }
+    }
+
+    byte[] bytes = new byte[Math.min(length, file.position())];
+    System.arraycopy(file.array(), 0, bytes, 0, bytes.length);
+    return new TiffParser(new RandomAccessInputStream(bytes));
+  }
+
+  /** Writes a classic TIFF offset or value count, or a BigTIFF one. */
+  private void putOffset(ByteBuffer file, boolean bigTiff, long value) {
+    if (bigTiff) file.putLong(value);
+    else file.putInt((int) value);
+  }
+
+  private byte[] shorts(int... values) {
+    ByteBuffer b = ByteBuffer.allocate(values.length * 2);
+    b.order(ByteOrder.LITTLE_ENDIAN);
+    for (int v : values) b.putShort((short) v);
+    return b.array();
+  }
+
+  private byte[] longs(long... values) {
+    ByteBuffer b = ByteBuffer.allocate(values.length * 4);
+    b.order(ByteOrder.LITTLE_ENDIAN);
+    for (long v : values) b.putInt((int) v);
+    return b.array();
+  }
+
+  // -- Helper classes --
+
+  /** A directory entry and its encoded value. */
+  private static class Entry {
+    public int tag;
+    public IFDType type;
+    public byte[] value;
+
+    public Entry(int tag, IFDType type, byte[] value) {
+      this.tag = tag;
+      this.type = type;
+      this.value = value;
+    }
+  }
+
+}